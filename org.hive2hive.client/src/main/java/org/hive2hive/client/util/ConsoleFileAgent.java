@@ -2,6 +2,7 @@ package org.hive2hive.client.util;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 
 import org.apache.commons.io.FileUtils;
 import org.hive2hive.core.file.IFileAgent;
@@ -30,4 +31,9 @@ public class ConsoleFileAgent implements IFileAgent {
 	public byte[] readCache(String key) throws IOException {
 		return FileUtils.readFileToByteArray(new File(cache, key));
 	}
+
+	@Override
+	public void deleteCache(String key) throws IOException {
+		Files.deleteIfExists(new File(cache, key).toPath());
+	}
 }
@@ -9,6 +9,7 @@ import org.hive2hive.client.util.buffer.DeleteFileBuffer;
 import org.hive2hive.client.util.buffer.IFileBuffer;
 import org.hive2hive.client.util.buffer.ModifyFileBuffer;
 import org.hive2hive.core.api.interfaces.IFileManager;
+import org.hive2hive.core.network.data.download.DownloadSink;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -57,13 +58,17 @@ public class FileObserverListener implements FileAlterationListener {
 
 	@Override
 	public void onFileCreate(File file) {
+		if (DownloadSink.isPartialFile(file)) {
+			// a running download, the complete file is announced when it is moved to its destination
+			return;
+		}
 		printFileDetails("created", file);
 		addFileBuffer.addFileToBuffer(file);
 	}
 
 	@Override
 	public void onFileChange(File file) {
-		if (file.isFile()) {
+		if (file.isFile() && !DownloadSink.isPartialFile(file)) {
 			printFileDetails("changed", file);
 			modifyFileBuffer.addFileToBuffer(file);
 		}
@@ -71,6 +76,9 @@ public class FileObserverListener implements FileAlterationListener {
 
 	@Override
 	public void onFileDelete(File file) {
+		if (DownloadSink.isPartialFile(file)) {
+			return;
+		}
 		printFileDetails("deleted", file);
 		deleteFileBuffer.addFileToBuffer(file);
 	}
@@ -22,6 +22,13 @@ public interface H2HConstants {
 	public static final BigInteger DEFAULT_MAX_SIZE_OF_ALL_VERSIONS = DEFAULT_MAX_FILE_SIZE.multiply(BigInteger
 			.valueOf(DEFAULT_MAX_NUM_OF_VERSIONS));// max_size * max_num
 	public static final int DEFAULT_CHUNK_SIZE = MEGABYTES.intValue(); // 1 MB
+	public static final boolean DEFAULT_SYMMETRIC_CHUNK_ENCRYPTION = true; // AES-only chunks
+	public static final boolean DEFAULT_CONTENT_DEFINED_CHUNKING = false; // fixed-size chunks
+	public static final int DEFAULT_MIN_CHUNK_SIZE = DEFAULT_CHUNK_SIZE / 4; // 256 KB
+	public static final int DEFAULT_MAX_CHUNK_SIZE = DEFAULT_CHUNK_SIZE * 4; // 4 MB
+	public static final boolean DEFAULT_USER_PROFILE_SHARDING = false; // user profile as a whole
+	public static final boolean DEFAULT_USER_PROFILE_DELTAS = false; // every version in full
+	public static final int DEFAULT_CHUNK_UPLOAD_WINDOW = 5; // chunks of a file in flight
 
 	// standard port for the Hive2Hive network
 	public static final int H2H_PORT = 4622;
@@ -38,19 +45,49 @@ public interface H2HConstants {
 	// the configuration file name (lying in the root directory of the node)
 	public static final String META_FILE_NAME = "h2h.conf";
 
+	// the cache key where the hashes of the files are stored (see IFileAgent)
+	public static final String HASH_CACHE_NAME = "h2h.hashes";
+
 	// the trash directory, where deleted files are moved
 	public static final File TRASH_DIRECTORY = new File(FileUtils.getTempDirectory(), "H2HTrash");
 
+	// suffix of the file a download is written to until it is complete
+	public static final String PARTIAL_DOWNLOAD_SUFFIX = ".h2h-partial";
+
 	// configurations for network messages
 	public static final int MAX_MESSAGE_SENDING = 5;
 	public static final int MAX_MESSAGE_SENDING_DIRECT = 3;
 
-	// maximal numbers of versions kept in the DHT (see versionKey)
+	// number of threads and queue capacity to handle received messages (per message class)
+	public static final int MESSAGE_THREADS_CHUNK_REQUEST = 4;
+	public static final int MESSAGE_QUEUE_CHUNK_REQUEST = 64;
+	public static final int MESSAGE_THREADS_NOTIFICATION = 2;
+	public static final int MESSAGE_QUEUE_NOTIFICATION = 256;
+	public static final int MESSAGE_THREADS_CONTACT = 2;
+	public static final int MESSAGE_QUEUE_CONTACT = 128;
+	public static final int MESSAGE_THREADS_DEFAULT = 4;
+	public static final int MESSAGE_QUEUE_DEFAULT = 128;
+
+	// lifetime of a session key that is negotiated with another peer to encrypt messages symmetrically
+	public static final long MESSAGE_SESSION_LIFETIME_MS = 30 * 60 * 1000;
+
+	// maximal numbers of versions kept in the DHT (see versionKey). Every peer prunes the older versions,
+	// whether it stores the data in memory or on disk.
 	public static final int MAX_VERSIONS_HISTORY = 5;
+	// if enabled, the user profile is stored as deltas with a full profile from time to time. A full profile
+	// is put after this number of deltas. Is bounded by MAX_VERSIONS_HISTORY - 1 such that the full profile
+	// is never removed while deltas are based on it.
+	public static final int USER_PROFILE_MAX_DELTAS = MAX_VERSIONS_HISTORY - 1;
+	// a full user profile is put as soon as the deltas since the last full profile exceed this size
+	public static final long USER_PROFILE_MAX_DELTA_BYTES = 256 * 1024;
+	// reads that accept a bounded staleness (e.g. serving chunks) use the local user profile if it has been
+	// confirmed as the latest version within this time
+	public static final long USER_PROFILE_MAX_STALENESS_MS = 5000;
 
 	// DHT content keys - these are used to distinguish the different data types
 	// stored for a given key
 	public static final String USER_PROFILE = "USER_PROFILE";
+	public static final String USER_PROFILE_SHARD = "USER_PROFILE_SHARD";
 	public static final String USER_LOCATIONS = "USER_LOCATIONS";
 	public static final String USER_PUBLIC_KEY = "USER_PUBLIC_KEY";
 	public static final String FILE_CHUNK = "FILE_CHUNK";
@@ -62,6 +99,14 @@ public interface H2HConstants {
 	public static final int CONFIRM_RETRIES = 3;
 	// number of allowed tries to retry a remove
 	public static final int REMOVE_RETRIES = 3;
+	// maximum number of operations of a batch (putAll, getAll, ...) that run at the same time
+	public static final int DHT_BATCH_WINDOW = 16;
+	// threads that continue asynchronous DHT operations (e.g. the version managers), such that the network
+	// threads are never blocked
+	public static final int DATA_FUTURE_WORKER_THREADS = 4;
+	// versioned puts are checked against the latest version and committed by the replicas in a single round
+	// trip instead of a prepare and a confirm. All peers of the network need to support it.
+	public static final boolean COMPARE_AND_SET_PUT = false;
 
 	// maximum wait time until any network operation should be answered by the other peer (for each retry).
 	// This just serves as a fallback against infinite blocking when all other mechanisms fail.
@@ -102,6 +147,19 @@ public interface H2HConstants {
 	// key length for symmetric part of hybrid encryption
 	public static final AES_KEYLENGTH KEYLENGTH_HYBRID_AES = AES_KEYLENGTH.BIT_256;
 
+	// key length for the symmetric per-file chunk content key
+	public static final AES_KEYLENGTH KEYLENGTH_CHUNK_CONTENT = AES_KEYLENGTH.BIT_256;
+
+	// key length for the symmetric encryption of messages within a session
+	public static final AES_KEYLENGTH KEYLENGTH_MESSAGE_SESSION = AES_KEYLENGTH.BIT_256;
+
+	// number of pre-generated RSA key pairs (per key length) used for meta files and chunks
+	public static final int KEY_PAIR_POOL_SIZE = 16;
+	// the key pair pool gets refilled when the number of available pairs drops to this value
+	public static final int KEY_PAIR_POOL_LOW_WATER_MARK = 4;
+	// number of background threads generating key pairs (per key length)
+	public static final int KEY_PAIR_POOL_THREADS = 1;
+
 	/**
 	 * Replication
 	 */
@@ -117,6 +175,12 @@ public interface H2HConstants {
 	// period in milliseconds between successive ttl check task executions
 	public static final int TTL_CHECK_INTERVAL_MS = StorageMemory.DEFAULT_STORAGE_CHECK_INTERVAL;
 
+	/**
+	 * Disk Storage
+	 */
+	// size in bytes after which the disk storage starts a new segment file
+	public static final long DISK_STORAGE_SEGMENT_SIZE = 64 * MEGABYTES.longValue();
+
 	/**
 	 * TTL Refreshment Management
 	 */
@@ -125,6 +189,24 @@ public interface H2HConstants {
 	// period in milliseconds between successive ttl refreshment task executions
 	public static final int TTL_REFRESHMENT_PERIOD = 1000;
 
+	/**
+	 * Content Cache
+	 */
+	// the maximum number of bytes of immutable content (e.g. chunks) cached in memory (0 disables the cache)
+	public static final long CONTENT_CACHE_MEMORY_BYTES = BigInteger.valueOf(32).multiply(MEGABYTES).longValue(); // 32 MB
+	// the maximum number of bytes that are spilled to the disk when evicted from the memory (see IFileAgent)
+	public static final long CONTENT_CACHE_DISK_BYTES = BigInteger.valueOf(256).multiply(MEGABYTES).longValue(); // 256 MB
+	// the prefix of the cache keys where the spilled content is stored (see IFileAgent)
+	public static final String CONTENT_CACHE_NAME = "h2h.content.";
+
+	/**
+	 * Statistics
+	 */
+	// whether the DHT statistics are registered at JMX when connecting
+	public static final boolean STATISTICS_JMX = true;
+	// the maximum number of peers whose responses are tallied
+	public static final int STATISTICS_MAX_PEERS = 1024;
+
 	/**
 	 * Download Manager
 	 */
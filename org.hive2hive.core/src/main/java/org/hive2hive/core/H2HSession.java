@@ -3,6 +3,7 @@ package org.hive2hive.core;
 import java.io.File;
 import java.security.KeyPair;
 
+import org.hive2hive.core.file.FileHashCache;
 import org.hive2hive.core.file.IFileAgent;
 import org.hive2hive.core.network.data.PublicKeyManager;
 import org.hive2hive.core.network.data.UserProfileManager;
@@ -18,6 +19,7 @@ public class H2HSession {
 	private final PublicKeyManager keyManager;
 	private final DownloadManager downloadManager;
 	private final IFileAgent fileAgent;
+	private final FileHashCache hashCache;
 
 	public H2HSession(SessionParameters params) {
 		this.profileManager = params.getProfileManager();
@@ -25,6 +27,8 @@ public class H2HSession {
 		this.keyManager = params.getKeyManager();
 		this.downloadManager = params.getDownloadManager();
 		this.fileAgent = params.getFileAgent();
+		this.hashCache = params.getHashCache() == null ? new FileHashCache(fileAgent.getRoot()) : params
+				.getHashCache();
 	}
 
 	public UserProfileManager getProfileManager() {
@@ -79,4 +83,11 @@ public class H2HSession {
 	public IFileAgent getFileAgent() {
 		return fileAgent;
 	}
+
+	/**
+	 * @return the cache of the file hashes below the root directory
+	 */
+	public FileHashCache getHashCache() {
+		return hashCache;
+	}
 }
@@ -8,6 +8,7 @@ import org.hive2hive.core.api.interfaces.IH2HNode;
 import org.hive2hive.core.api.interfaces.INetworkConfiguration;
 import org.hive2hive.core.api.interfaces.IUserManager;
 import org.hive2hive.core.network.NetworkManager;
+import org.hive2hive.core.network.data.statistics.DataStatisticsSnapshot;
 import org.hive2hive.core.security.H2HDefaultEncryption;
 import org.hive2hive.core.security.IH2HEncryption;
 import org.hive2hive.core.serializer.FSTSerializer;
@@ -71,12 +72,27 @@ public class H2HNode implements IH2HNode {
 
 	@Override
 	public boolean disconnect() {
-		return networkManager.disconnect(false);
+		boolean disconnected = networkManager.disconnect(false);
+		shutdownKeyPairPools();
+		return disconnected;
 	}
 
 	@Override
 	public boolean disconnectKeepSession() {
-		return networkManager.disconnect(true);
+		boolean disconnected = networkManager.disconnect(true);
+		shutdownKeyPairPools();
+		return disconnected;
+	}
+
+	/**
+	 * Stops the threads pre-generating key pairs. They are started again when the node is used after a
+	 * reconnect.
+	 */
+	private void shutdownKeyPairPools() {
+		IH2HEncryption encryption = networkManager.getEncryption();
+		if (encryption instanceof H2HDefaultEncryption) {
+			((H2HDefaultEncryption) encryption).shutdownKeyPairPools();
+		}
 	}
 
 	@Override
@@ -109,4 +125,9 @@ public class H2HNode implements IH2HNode {
 	public PeerDHT getPeer() {
 		return networkManager.getConnection().getPeer();
 	}
+
+	@Override
+	public DataStatisticsSnapshot getDataStatistics() {
+		return networkManager.getDataStatistics().snapshot();
+	}
 }
@@ -0,0 +1,47 @@
+package org.hive2hive.core.api.configs;
+
+import org.hive2hive.core.H2HConstants;
+import org.hive2hive.core.api.interfaces.IFileConfiguration;
+
+/**
+ * Base for custom file configurations. It provides the defaults for all settings besides the sizes and
+ * versions, such that a custom configuration keeps compiling when settings are added to
+ * {@link IFileConfiguration}.
+ */
+public abstract class BaseFileConfiguration implements IFileConfiguration {
+
+	@Override
+	public boolean isSymmetricChunkEncryption() {
+		return H2HConstants.DEFAULT_SYMMETRIC_CHUNK_ENCRYPTION;
+	}
+
+	@Override
+	public boolean isContentDefinedChunking() {
+		return H2HConstants.DEFAULT_CONTENT_DEFINED_CHUNKING;
+	}
+
+	@Override
+	public boolean isUserProfileSharding() {
+		return H2HConstants.DEFAULT_USER_PROFILE_SHARDING;
+	}
+
+	@Override
+	public boolean isUserProfileDeltas() {
+		return H2HConstants.DEFAULT_USER_PROFILE_DELTAS;
+	}
+
+	@Override
+	public int getChunkUploadWindow() {
+		return H2HConstants.DEFAULT_CHUNK_UPLOAD_WINDOW;
+	}
+
+	@Override
+	public int getMinChunkSize() {
+		return getChunkSize();
+	}
+
+	@Override
+	public int getMaxChunkSize() {
+		return getChunkSize();
+	}
+}
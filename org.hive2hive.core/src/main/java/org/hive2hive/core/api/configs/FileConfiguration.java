@@ -12,23 +12,41 @@ import org.hive2hive.core.api.interfaces.IFileConfiguration;
  * @author Nico
  * 
  */
-public class FileConfiguration implements IFileConfiguration {
+public class FileConfiguration extends BaseFileConfiguration {
 
 	private final BigInteger maxFileSize;
 	private final int maxNumOfVersions;
 	private final BigInteger maxSizeOfAllVersions;
 	private final int chunkSize;
+	private final boolean symmetricChunkEncryption;
+	private final boolean contentDefinedChunking;
+	private final int minChunkSize;
+	private final int maxChunkSize;
+	private final boolean userProfileSharding;
+	private final boolean userProfileDeltas;
+	private final int chunkUploadWindow;
 
-	private FileConfiguration(BigInteger maxFileSize, int maxNumOfVersions, BigInteger maxSizeAllVersions, int chunkSize) {
+	private FileConfiguration(BigInteger maxFileSize, int maxNumOfVersions, BigInteger maxSizeAllVersions,
+			int chunkSize, boolean symmetricChunkEncryption, boolean contentDefinedChunking, int minChunkSize,
+			int maxChunkSize, boolean userProfileSharding, boolean userProfileDeltas, int chunkUploadWindow) {
 		assert maxFileSize.signum() == 1;
 		assert maxNumOfVersions > 0;
 		assert maxSizeAllVersions.signum() == 1;
 		assert chunkSize > 0;
+		assert minChunkSize > 0 && minChunkSize <= chunkSize && chunkSize <= maxChunkSize;
+		assert chunkUploadWindow > 0;
 
 		this.maxFileSize = maxFileSize;
 		this.maxNumOfVersions = maxNumOfVersions;
 		this.maxSizeOfAllVersions = maxSizeAllVersions;
 		this.chunkSize = chunkSize;
+		this.symmetricChunkEncryption = symmetricChunkEncryption;
+		this.contentDefinedChunking = contentDefinedChunking;
+		this.minChunkSize = minChunkSize;
+		this.maxChunkSize = maxChunkSize;
+		this.userProfileSharding = userProfileSharding;
+		this.userProfileDeltas = userProfileDeltas;
+		this.chunkUploadWindow = chunkUploadWindow;
 	}
 
 	/**
@@ -37,8 +55,24 @@ public class FileConfiguration implements IFileConfiguration {
 	 * @return the file configuration
 	 */
 	public static IFileConfiguration createDefault() {
+		return createDefault(H2HConstants.DEFAULT_USER_PROFILE_SHARDING, H2HConstants.DEFAULT_USER_PROFILE_DELTAS);
+	}
+
+	/**
+	 * Creates a default file configuration with the given layout of the user profile
+	 * 
+	 * @param userProfileSharding whether the content of each top-level folder is stored separately (see
+	 *            {@link IFileConfiguration#isUserProfileSharding()})
+	 * @param userProfileDeltas whether the versions of the user profile are stored as deltas (see
+	 *            {@link IFileConfiguration#isUserProfileDeltas()})
+	 * @return the file configuration
+	 */
+	public static IFileConfiguration createDefault(boolean userProfileSharding, boolean userProfileDeltas) {
 		return new FileConfiguration(H2HConstants.DEFAULT_MAX_FILE_SIZE, H2HConstants.DEFAULT_MAX_NUM_OF_VERSIONS,
-				H2HConstants.DEFAULT_MAX_SIZE_OF_ALL_VERSIONS, H2HConstants.DEFAULT_CHUNK_SIZE);
+				H2HConstants.DEFAULT_MAX_SIZE_OF_ALL_VERSIONS, H2HConstants.DEFAULT_CHUNK_SIZE,
+				H2HConstants.DEFAULT_SYMMETRIC_CHUNK_ENCRYPTION, H2HConstants.DEFAULT_CONTENT_DEFINED_CHUNKING,
+				H2HConstants.DEFAULT_MIN_CHUNK_SIZE, H2HConstants.DEFAULT_MAX_CHUNK_SIZE, userProfileSharding,
+				userProfileDeltas, H2HConstants.DEFAULT_CHUNK_UPLOAD_WINDOW);
 	}
 
 	/**
@@ -52,7 +86,62 @@ public class FileConfiguration implements IFileConfiguration {
 	 */
 	public static IFileConfiguration createCustom(BigInteger maxFileSize, int maxNumOfVersions,
 			BigInteger maxSizeAllVersions, int chunkSize) {
-		return new FileConfiguration(maxFileSize, maxNumOfVersions, maxSizeAllVersions, chunkSize);
+		return createCustom(maxFileSize, maxNumOfVersions, maxSizeAllVersions, chunkSize,
+				H2HConstants.DEFAULT_SYMMETRIC_CHUNK_ENCRYPTION);
+	}
+
+	/**
+	 * Create a file configuration with the given parameters
+	 * 
+	 * @param maxFileSize the maximum file size (in bytes)
+	 * @param maxNumOfVersions the allowed number of versions
+	 * @param maxSizeAllVersions the maximum file size when summing up all versions (in bytes)
+	 * @param chunkSize the size of a chunk (in bytes)
+	 * @param symmetricChunkEncryption whether chunks are encrypted with a symmetric per-file key only
+	 * @return the created configuration
+	 */
+	public static IFileConfiguration createCustom(BigInteger maxFileSize, int maxNumOfVersions,
+			BigInteger maxSizeAllVersions, int chunkSize, boolean symmetricChunkEncryption) {
+		return createCustom(maxFileSize, maxNumOfVersions, maxSizeAllVersions, chunkSize, symmetricChunkEncryption,
+				H2HConstants.DEFAULT_CHUNK_UPLOAD_WINDOW);
+	}
+
+	/**
+	 * Create a file configuration with the given parameters
+	 * 
+	 * @param maxFileSize the maximum file size (in bytes)
+	 * @param maxNumOfVersions the allowed number of versions
+	 * @param maxSizeAllVersions the maximum file size when summing up all versions (in bytes)
+	 * @param chunkSize the size of a chunk (in bytes)
+	 * @param symmetricChunkEncryption whether chunks are encrypted with a symmetric per-file key only
+	 * @param chunkUploadWindow the maximum number of chunks of a file that are uploaded at the same time
+	 * @return the created configuration
+	 */
+	public static IFileConfiguration createCustom(BigInteger maxFileSize, int maxNumOfVersions,
+			BigInteger maxSizeAllVersions, int chunkSize, boolean symmetricChunkEncryption, int chunkUploadWindow) {
+		return new FileConfiguration(maxFileSize, maxNumOfVersions, maxSizeAllVersions, chunkSize,
+				symmetricChunkEncryption, false, chunkSize, chunkSize, H2HConstants.DEFAULT_USER_PROFILE_SHARDING,
+				H2HConstants.DEFAULT_USER_PROFILE_DELTAS, chunkUploadWindow);
+	}
+
+	/**
+	 * Create a file configuration that splits the files at content-defined boundaries
+	 * 
+	 * @param maxFileSize the maximum file size (in bytes)
+	 * @param maxNumOfVersions the allowed number of versions
+	 * @param maxSizeAllVersions the maximum file size when summing up all versions (in bytes)
+	 * @param minChunkSize the minimum size of a chunk (in bytes)
+	 * @param avgChunkSize the average size of a chunk (in bytes)
+	 * @param maxChunkSize the maximum size of a chunk (in bytes)
+	 * @param symmetricChunkEncryption whether chunks are encrypted with a symmetric per-file key only
+	 * @return the created configuration
+	 */
+	public static IFileConfiguration createContentDefined(BigInteger maxFileSize, int maxNumOfVersions,
+			BigInteger maxSizeAllVersions, int minChunkSize, int avgChunkSize, int maxChunkSize,
+			boolean symmetricChunkEncryption) {
+		return new FileConfiguration(maxFileSize, maxNumOfVersions, maxSizeAllVersions, avgChunkSize,
+				symmetricChunkEncryption, true, minChunkSize, maxChunkSize, H2HConstants.DEFAULT_USER_PROFILE_SHARDING,
+				H2HConstants.DEFAULT_USER_PROFILE_DELTAS, H2HConstants.DEFAULT_CHUNK_UPLOAD_WINDOW);
 	}
 
 	@Override
@@ -74,4 +163,39 @@ public class FileConfiguration implements IFileConfiguration {
 	public int getChunkSize() {
 		return chunkSize;
 	}
+
+	@Override
+	public boolean isSymmetricChunkEncryption() {
+		return symmetricChunkEncryption;
+	}
+
+	@Override
+	public boolean isContentDefinedChunking() {
+		return contentDefinedChunking;
+	}
+
+	@Override
+	public boolean isUserProfileSharding() {
+		return userProfileSharding;
+	}
+
+	@Override
+	public boolean isUserProfileDeltas() {
+		return userProfileDeltas;
+	}
+
+	@Override
+	public int getChunkUploadWindow() {
+		return chunkUploadWindow;
+	}
+
+	@Override
+	public int getMinChunkSize() {
+		return minChunkSize;
+	}
+
+	@Override
+	public int getMaxChunkSize() {
+		return maxChunkSize;
+	}
 }
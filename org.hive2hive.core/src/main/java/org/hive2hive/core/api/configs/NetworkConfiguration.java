@@ -1,5 +1,6 @@
 package org.hive2hive.core.api.configs;
 
+import java.io.File;
 import java.net.InetAddress;
 import java.util.UUID;
 
@@ -28,6 +29,7 @@ public class NetworkConfiguration implements INetworkConfiguration {
 	private int bootstrapPort = H2HConstants.H2H_PORT;
 	private boolean isFirewalled = false;
 	private boolean tryUpnp = false;
+	private File storageDirectory = null;
 
 	/**
 	 * @param nodeID defines the location of the peer in the DHT. Should not be null
@@ -120,6 +122,18 @@ public class NetworkConfiguration implements INetworkConfiguration {
 		return this;
 	}
 
+	/**
+	 * Store the DHT data of this peer on disk instead of the memory. The data survives a restart of the peer
+	 * if the same directory is used again.
+	 * 
+	 * @param storageDirectory the directory to store the data in or <code>null</code> to store it in memory
+	 * @return this instance
+	 */
+	public NetworkConfiguration setStorageDirectory(File storageDirectory) {
+		this.storageDirectory = storageDirectory;
+		return this;
+	}
+
 	/**
 	 * Create network configuration for initial peer with random node id
 	 * 
@@ -245,4 +259,9 @@ public class NetworkConfiguration implements INetworkConfiguration {
 	public boolean tryUPnP() {
 		return tryUpnp;
 	}
+
+	@Override
+	public File getStorageDirectory() {
+		return storageDirectory;
+	}
 }
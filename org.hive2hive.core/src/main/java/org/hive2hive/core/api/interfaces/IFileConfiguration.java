@@ -2,10 +2,15 @@ package org.hive2hive.core.api.interfaces;
 
 import java.math.BigInteger;
 
+import org.hive2hive.core.api.configs.BaseFileConfiguration;
+
 /**
  * The file configuration is essential for the performance of the system. Depending on the application, the
  * developer can adapt the parameters. Hive2Hive automatically changes its behavior for example while cleaning
- * old versions, depending on the configured version numbers.
+ * old versions, depending on the configured version numbers.<br>
+ * Custom configurations should extend {@link BaseFileConfiguration}, which provides the defaults for the
+ * chunking and encryption settings. Classes that implement this interface directly must implement them as
+ * well.
  * 
  * @author Christian, Nico, Seppi
  * 
@@ -49,8 +54,81 @@ public interface IFileConfiguration {
 	 * Another aspect of chunking is that the file is more secure. An attacker that cracks (we don't hope he's
 	 * able to do so) one chunk may not see the whole file.
 	 * 
-	 * @return the number of bytes a chunk has.
+	 * @return the number of bytes a chunk has. With {@link #isContentDefinedChunking()}, this is the average
+	 *         size of a chunk.
 	 */
 	int getChunkSize();
 
+	/**
+	 * Defines how files are split into chunks. By default, all chunks have the size
+	 * {@link #getChunkSize()}. Inserting or removing bytes then shifts all subsequent chunk boundaries,
+	 * thus none of these chunks can be re-used by a new version.<br>
+	 * With content-defined chunking, the boundaries are determined by the content itself (rolling hash).
+	 * After an edit in the middle of a file, most chunks stay the same. The chunks then have a size between
+	 * {@link #getMinChunkSize()} and {@link #getMaxChunkSize()}, {@link #getChunkSize()} on average.
+	 * 
+	 * @return <code>true</code> if files are split at content-defined boundaries
+	 */
+	boolean isContentDefinedChunking();
+
+	/**
+	 * Only used with {@link #isContentDefinedChunking()}.
+	 * 
+	 * @return the minimum number of bytes a chunk has (except the last one)
+	 */
+	int getMinChunkSize();
+
+	/**
+	 * Only used with {@link #isContentDefinedChunking()}.
+	 * 
+	 * @return the maximum number of bytes a chunk has
+	 */
+	int getMaxChunkSize();
+
+	/**
+	 * Defines how the chunks of small files are encrypted. When enabled, each file gets its own symmetric
+	 * content key which is stored (wrapped with the chunk key pair) in the meta file and the chunks are
+	 * encrypted with AES only. Otherwise, every chunk is encrypted in a hybrid manner, which costs one RSA
+	 * operation per chunk at upload and download.<br>
+	 * Files that have been uploaded in one mode can still be downloaded and updated by peers using the other
+	 * mode.
+	 * 
+	 * @return <code>true</code> if chunks of new files are encrypted symmetrically only
+	 */
+	boolean isSymmetricChunkEncryption();
+
+	/**
+	 * Defines how the user profile is stored. By default, it is stored as a whole, thus every modification
+	 * uploads the complete file tree of the user. With sharding, the content of each top-level folder is
+	 * stored separately and only the changed parts are uploaded and downloaded. This pays off for large file
+	 * trees that are spread over several top-level folders.<br>
+	 * All clients of a user must use the same setting. Clients of older versions cannot read a sharded user
+	 * profile.
+	 * 
+	 * @return <code>true</code> if the content of the top-level folders is stored separately
+	 */
+	boolean isUserProfileSharding();
+
+	/**
+	 * Defines how the versions of the user profile are stored. By default, every version is stored in full.
+	 * With deltas, most versions only contain the changes to the previous version, which reduces the upload
+	 * of small modifications. A client that does not know the previous version needs to fetch all stored
+	 * versions to restore the latest one.<br>
+	 * Clients of older versions cannot read a user profile that has been stored as delta. Not used with
+	 * {@link #isUserProfileSharding()}.
+	 * 
+	 * @return <code>true</code> if the versions of the user profile are stored as deltas
+	 */
+	boolean isUserProfileDeltas();
+
+	/**
+	 * The chunks of a file are read, encrypted and uploaded in a pipeline. This parameter bounds the number of
+	 * chunks of a file that are in flight (read, but not yet confirmed by the network). A larger window
+	 * uploads faster over connections with a high latency, but needs more memory (up to the window times the
+	 * chunk size).
+	 * 
+	 * @return the maximum number of chunks of a file that are uploaded at the same time
+	 */
+	int getChunkUploadWindow();
+
 }
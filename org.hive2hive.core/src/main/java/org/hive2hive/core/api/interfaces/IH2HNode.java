@@ -3,6 +3,8 @@ package org.hive2hive.core.api.interfaces;
 import net.tomp2p.dht.PeerDHT;
 import net.tomp2p.rpc.ObjectDataReply;
 
+import org.hive2hive.core.network.data.statistics.DataStatisticsSnapshot;
+
 /**
  * This interface represents the entry point of Hive2Hive and exposes the managers necessary for interaction.
  * 
@@ -86,4 +88,13 @@ public interface IH2HNode {
 	 *         returns null.
 	 */
 	PeerDHT getPeer();
+
+	/**
+	 * Returns a snapshot of the statistics of the DHT operations of this node: latency histograms per
+	 * operation and content key, retry, failure and version fork counters and per-peer tallies. The same
+	 * statistics are available over JMX while the node is connected.
+	 * 
+	 * @return a copy of the current statistics
+	 */
+	DataStatisticsSnapshot getDataStatistics();
 }
@@ -1,5 +1,6 @@
 package org.hive2hive.core.api.interfaces;
 
+import java.io.File;
 import java.net.InetAddress;
 
 import net.tomp2p.p2p.Peer;
@@ -82,4 +83,12 @@ public interface INetworkConfiguration {
 	 * @return <code>true</code> if the peer should try to use UPnP for port-forwarding.
 	 */
 	boolean tryUPnP();
+
+	/**
+	 * The directory where this peer stores the data it is responsible for in the DHT. The data is kept
+	 * across restarts of the peer and does not need to fit into the heap.
+	 * 
+	 * @return the storage directory or <code>null</code> if the data should be stored in memory only
+	 */
+	File getStorageDirectory();
 }
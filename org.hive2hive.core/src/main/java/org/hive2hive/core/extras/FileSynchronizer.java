@@ -6,18 +6,18 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
-import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.filefilter.TrueFileFilter;
+import org.hive2hive.core.file.FileHashCache;
 import org.hive2hive.core.file.FileUtil;
 import org.hive2hive.core.model.FileIndex;
 import org.hive2hive.core.model.FolderIndex;
 import org.hive2hive.core.model.Index;
 import org.hive2hive.core.model.versioned.UserProfile;
+import org.hive2hive.core.network.data.download.DownloadSink;
 import org.hive2hive.core.security.HashUtil;
+import org.hive2hive.core.security.ParallelHashUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -46,10 +46,10 @@ public class FileSynchronizer {
 	 * @param userProfile the current user profile
 	 * @param before represents the file state at the last logout, before H2H was shutdown. The key of the map
 	 *            is the path, the byte[] is the hash of the file content.
-	 *            {@link FileSynchronizer#visitFiles(File)} can be used to generate this map.
+	 *            {@link FileSynchronizer#visitFiles(File, FileHashCache)} can be used to generate this map.
 	 * @param now represents the current file state. The key of the map is the path, the byte[] is the hash of
-	 *            the file content. {@link FileSynchronizer#visitFiles(File)} can be used to generate this
-	 *            map.
+	 *            the file content. {@link FileSynchronizer#visitFiles(File, FileHashCache)} can be used to
+	 *            generate this map.
 	 */
 	public FileSynchronizer(File rootDirectory, UserProfile userProfile, Map<String, byte[]> before, Map<String, byte[]> now) {
 		this.root = rootDirectory;
@@ -284,24 +284,51 @@ public class FileSynchronizer {
 	 * @param root the root folder
 	 * @return a map where the key is the relative file path to the root and the value is the hash
 	 * @throws IOException if hashing fails
+	 * @deprecated reads every file again, use {@link #visitFiles(File, FileHashCache)} with the hash cache of
+	 *             the session instead
 	 */
+	@Deprecated
 	public static Map<String, byte[]> visitFiles(File root) throws IOException {
-		Map<String, byte[]> digest = new HashMap<String, byte[]>();
-		Iterator<File> files = FileUtils.iterateFilesAndDirs(root, TrueFileFilter.TRUE, TrueFileFilter.TRUE);
-		while (files.hasNext()) {
-			File file = files.next();
-			if (file.equals(root)) {
-				// skip root folder
+		return visitFiles(root, new FileHashCache(root));
+	}
+
+	/**
+	 * Visit all files recursively and get the hash of the file. Only files that changed since they have been
+	 * hashed the last time are read. The files are hashed in parallel. Folders are also added to the result,
+	 * the partial files of running downloads are not.
+	 * 
+	 * @param root the root folder
+	 * @param hashCache the cache of the file hashes (e.g. from the session)
+	 * @return a map where the key is the relative file path to the root and the value is the hash
+	 * @throws IOException if hashing fails
+	 */
+	public static Map<String, byte[]> visitFiles(File root, FileHashCache hashCache) throws IOException {
+		long hitsBefore = hashCache.getHits();
+		long missesBefore = hashCache.getMisses();
+
+		// hash the files on all cores
+		Map<File, byte[]> hashes = ParallelHashUtil.hashTree(root, hashCache);
+
+		Map<String, byte[]> digest = new HashMap<String, byte[]>(hashes.size());
+		for (Map.Entry<File, byte[]> entry : hashes.entrySet()) {
+			File file = entry.getKey();
+			if (DownloadSink.isPartialFile(file)) {
+				// a running download, not a file of the user
 				continue;
 			}
+
 			String path = FileUtil.relativize(root, file).toString();
-			byte[] hash = HashUtil.hash(file);
 			if (file.isDirectory()) {
-				digest.put(path + FileUtil.getFileSep(), hash);
+				digest.put(path + FileUtil.getFileSep(), entry.getValue());
 			} else {
-				digest.put(path, hash);
+				digest.put(path, entry.getValue());
 			}
 		}
+
+		long hits = hashCache.getHits() - hitsBefore;
+		long misses = hashCache.getMisses() - missesBefore;
+		logger.debug("Visited {} files. {} hashes were cached, {} files had to be hashed (hit ratio {}).", digest.size(),
+				hits, misses, hits + misses == 0 ? 0 : hits / (double) (hits + misses));
 		return digest;
 	}
 }
@@ -0,0 +1,43 @@
+package org.hive2hive.core.file;
+
+/**
+ * The position of a chunk within a file
+ */
+public class ChunkRange {
+
+	private final int index;
+	private final long offset;
+	private final int length;
+
+	public ChunkRange(int index, long offset, int length) {
+		this.index = index;
+		this.offset = offset;
+		this.length = length;
+	}
+
+	/**
+	 * @return the index of the chunk, starting at 0
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * @return the position of the first byte of the chunk in the file
+	 */
+	public long getOffset() {
+		return offset;
+	}
+
+	/**
+	 * @return the number of bytes of the chunk
+	 */
+	public int getLength() {
+		return length;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Chunk %s [%s, %s bytes]", index, offset, length);
+	}
+}
@@ -0,0 +1,119 @@
+package org.hive2hive.core.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Splits files at content-defined boundaries (FastCDC style). A rolling gear hash runs over the content and a
+ * chunk ends where the hash matches a mask. Since the boundaries only depend on the last few bytes, an edit
+ * in the middle of a file only changes the chunks around the edit.<br>
+ * Normalized chunking is used to keep the chunk sizes close to the average: A harder mask is used before the
+ * average size is reached, an easier one after it.
+ */
+public class ContentDefinedChunker {
+
+	// all peers must use the same table, thus it is generated with a fixed seed
+	private static final long GEAR_SEED = 0x4832482043444333L;
+	private static final long[] GEAR = createGear();
+	private static final int READ_BUFFER_SIZE = 1024 * 1024;
+
+	private final int minSize;
+	private final int avgSize;
+	private final int maxSize;
+	// harder mask before the average size, easier mask after it
+	private final long maskSmall;
+	private final long maskLarge;
+
+	/**
+	 * @param minSize the minimum size of a chunk (except the last one)
+	 * @param avgSize the average size of a chunk
+	 * @param maxSize the maximum size of a chunk
+	 */
+	public ContentDefinedChunker(int minSize, int avgSize, int maxSize) {
+		if (minSize <= 0 || minSize > avgSize || avgSize > maxSize) {
+			throw new IllegalArgumentException("Chunk sizes must be positive and min <= avg <= max.");
+		}
+
+		this.minSize = minSize;
+		this.avgSize = avgSize;
+		this.maxSize = maxSize;
+
+		int bits = 31 - Integer.numberOfLeadingZeros(avgSize);
+		this.maskSmall = createMask(bits + 1);
+		this.maskLarge = createMask(Math.max(bits - 1, 1));
+	}
+
+	/**
+	 * Determines the chunks of a file.
+	 *
+	 * @param file the file to split
+	 * @return the chunks in the order of the file. Like with fixed-size chunking, an empty file has a single
+	 *         chunk of length 0.
+	 * @throws IOException if the file cannot be read
+	 */
+	public List<ChunkRange> split(File file) throws IOException {
+		List<ChunkRange> ranges = new ArrayList<ChunkRange>();
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer buffer = ByteBuffer.allocate((int) Math.max(1, Math.min(READ_BUFFER_SIZE, channel.size())));
+			byte[] data = buffer.array();
+
+			long offset = 0;
+			int length = 0;
+			long hash = 0;
+			int read;
+			while ((read = channel.read(buffer)) != -1) {
+				for (int i = 0; i < read; i++) {
+					hash = (hash << 1) + GEAR[data[i] & 0xff];
+					length++;
+					if (isBoundary(hash, length)) {
+						ranges.add(new ChunkRange(ranges.size(), offset, length));
+						offset += length;
+						length = 0;
+						hash = 0;
+					}
+				}
+				buffer.clear();
+			}
+
+			if (length > 0 || ranges.isEmpty()) {
+				// the remainder or an empty file
+				ranges.add(new ChunkRange(ranges.size(), offset, length));
+			}
+		}
+		return ranges;
+	}
+
+	private boolean isBoundary(long hash, int length) {
+		if (length < minSize) {
+			return false;
+		} else if (length >= maxSize) {
+			return true;
+		} else if (length < avgSize) {
+			return (hash & maskSmall) == 0;
+		} else {
+			return (hash & maskLarge) == 0;
+		}
+	}
+
+	/**
+	 * Uses the upper bits of the hash, they depend on the last 64 bytes (the lower ones on less).
+	 */
+	private static long createMask(int bits) {
+		return -1L << (64 - bits);
+	}
+
+	private static long[] createGear() {
+		Random random = new Random(GEAR_SEED);
+		long[] gear = new long[256];
+		for (int i = 0; i < gear.length; i++) {
+			gear[i] = random.nextLong();
+		}
+		return gear;
+	}
+}
@@ -3,17 +3,14 @@ package org.hive2hive.core.file;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.util.ArrayList;
 import java.util.List;
 
-import org.apache.commons.io.FileUtils;
+import org.hive2hive.core.api.interfaces.IFileConfiguration;
 import org.hive2hive.core.model.Chunk;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 public class FileChunkUtil {
 
-	private static final Logger logger = LoggerFactory.getLogger(FileChunkUtil.class);
-
 	private FileChunkUtil() {
 		// only static methods
 	}
@@ -44,6 +41,75 @@ public class FileChunkUtil {
 		return (int) Math.ceil((double) fileSize / Math.abs(chunkSize));
 	}
 
+	/**
+	 * Determines the chunks of a file, depending on the chunking mode of the configuration.
+	 * 
+	 * @param file the file to chunk
+	 * @param config the file configuration (fixed-size or content-defined chunking)
+	 * @return the chunks in the order of the file. In both modes, an empty file has a single chunk of length
+	 *         0 (see {@link #getNumberOfChunks(File, int)}).
+	 * @throws IOException if the file cannot be read
+	 */
+	public static List<ChunkRange> getChunkRanges(File file, IFileConfiguration config) throws IOException {
+		if (file == null || !file.exists()) {
+			throw new IOException("File does not exist");
+		}
+
+		long fileSize = FileUtil.getFileSize(file);
+		if (fileSize > 0 && config.isContentDefinedChunking()) {
+			ContentDefinedChunker chunker = new ContentDefinedChunker(config.getMinChunkSize(), config.getChunkSize(),
+					config.getMaxChunkSize());
+			return chunker.split(file);
+		}
+		return getChunkRanges(fileSize, config.getChunkSize());
+	}
+
+	/**
+	 * Determines the chunks of a file with fixed-size chunking.
+	 * 
+	 * @param fileSize the size of the file
+	 * @param chunkSize the size of a chunk (all chunks except the last one have this size)
+	 * @return the chunks in the order of the file. An empty file has a single chunk of length 0.
+	 */
+	public static List<ChunkRange> getChunkRanges(long fileSize, int chunkSize) {
+		if (chunkSize <= 0) {
+			throw new IllegalArgumentException("Chunk size must be positive.");
+		}
+
+		// special case: an empty file still has one (empty) chunk
+		int chunks = fileSize == 0 ? 1 : (int) ((fileSize + chunkSize - 1) / chunkSize);
+		List<ChunkRange> ranges = new ArrayList<ChunkRange>(chunks);
+		for (int i = 0; i < chunks; i++) {
+			long offset = chunkSize * (long) i;
+			ranges.add(new ChunkRange(i, offset, (int) Math.min(chunkSize, fileSize - offset)));
+		}
+		return ranges;
+	}
+
+	/**
+	 * Returns the chunk at the given range of a file.
+	 * 
+	 * @param file the file to chunk
+	 * @param range the position of the chunk in the file
+	 * @param chunkId the id of the chunk which should be returned
+	 * @return the chunk or null if no data could be read with the given parameter
+	 * @throws IOException if the file cannot be read
+	 */
+	public static Chunk getChunk(File file, ChunkRange range, String chunkId) throws IOException {
+		if (file == null || !file.exists()) {
+			throw new IOException("File does not exist");
+		} else if (range.getOffset() < 0 || range.getLength() < 0) {
+			throw new IOException("Offset and length cannot be smaller than 0");
+		}
+
+		if (range.getOffset() == 0 && FileUtil.getFileSize(file) == 0) {
+			// special case: file exists but is empty.
+			return new Chunk(chunkId, new byte[0], range.getIndex());
+		}
+
+		return readChunk(file, range.getOffset(), range.getLength(), range.getIndex(), chunkId);
+	}
+
 	/**
 	 * Returns the chunk of a given file.
 	 * 
@@ -71,9 +137,13 @@ public class FileChunkUtil {
 			return new Chunk(chunkId, new byte[0], 0);
 		}
 
+		return readChunk(file, chunkSize * (long) chunkNumber, chunkSize, chunkNumber, chunkId);
+	}
+
+	private static Chunk readChunk(File file, long offset, int length, int chunkNumber, String chunkId)
+			throws IOException {
 		int read = 0;
-		long offset = chunkSize * (long) chunkNumber;
-		byte[] data = new byte[chunkSize];
+		byte[] data = new byte[length];
 
 		// read the next chunk of the file considering the offset
 		RandomAccessFile rndAccessFile = new RandomAccessFile(file, "r");
@@ -109,45 +179,4 @@ public class FileChunkUtil {
 			return truncated;
 		}
 	}
-
-	/**
-	 * Reassembling of multiple file parts to a single file. Note that the file parts need to be sorted
-	 * beforehand
-	 * 
-	 * @param fileParts the sorted file parts.
-	 * @param destination the destination
-	 * @throws IOException in case the files could not be read or written.
-	 */
-	public static void reassembly(List<File> fileParts, File destination) throws IOException {
-		if (fileParts == null || fileParts.isEmpty()) {
-			throw new IllegalArgumentException("File parts can't be null.");
-		} else if (fileParts.isEmpty()) {
-			throw new IllegalArgumentException("File parts can't be empty.");
-		} else if (destination == null) {
-			throw new IllegalArgumentException("Destination can't be null");
-		}
-
-		if (destination.exists()) {
-			// overwrite
-			if (destination.delete()) {
-				logger.warn("Destination gets overwritten. destination = '{}'", destination);
-			} else {
-				throw new IOException(String.format("Couldn't overwrite destination. destination = '%s'", destination));
-			}
-		}
-
-		// The file parts are assembled where they are located, then moved to the destination
-		File assembled = new File(fileParts.get(0).getParentFile(), fileParts.get(0).getName().concat("_assembled"));
-		logger.trace("Assemble file to {}", assembled.getPath());
-		for (File filePart : fileParts) {
-			// copy file parts to the new location, append
-			FileUtils.writeByteArrayToFile(assembled, FileUtils.readFileToByteArray(filePart), true);
-
-			if (!filePart.delete()) {
-				logger.warn("Couldn't delete temporary file part. filePart = '{}'", filePart);
-			}
-		}
-
-		FileUtils.moveFile(assembled, destination);
-	}
 }
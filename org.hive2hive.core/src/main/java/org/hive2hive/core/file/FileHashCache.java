@@ -0,0 +1,165 @@
+package org.hive2hive.core.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hive2hive.core.security.HashUtil;
+
+/**
+ * Caches the hashes of the files below the root directory. A cached hash is only used as long as the size,
+ * the modification time and the file key (e.g. the inode) of the file did not change. Otherwise, the file is
+ * hashed again. The cache is kept over restarts (see {@link FileUtil#writeHashCache(IFileAgent, FileHashCache,
+ * org.hive2hive.core.serializer.IH2HSerialize)}), such that unchanged files do not need to be read at login.
+ */
+public class FileHashCache {
+
+	// files that have been modified this short before hashing may change again without a new modification
+	// time (coarse timestamps of some file systems). Their hash is not cached.
+	private static final long MODIFICATION_TIME_RESOLUTION_MS = 2000;
+
+	private final File root;
+	// key is the path relative to the root
+	private final Map<String, CachedHash> entries;
+
+	private final AtomicLong hits = new AtomicLong(0);
+	private final AtomicLong misses = new AtomicLong(0);
+
+	/**
+	 * Creates an empty cache
+	 * 
+	 * @param root the root directory of the files
+	 */
+	public FileHashCache(File root) {
+		this(root, new HashMap<String, CachedHash>());
+	}
+
+	FileHashCache(File root, Map<String, CachedHash> entries) {
+		if (root == null) {
+			throw new IllegalArgumentException("Root cannot be null.");
+		}
+		this.root = root;
+		this.entries = new ConcurrentHashMap<String, CachedHash>(entries);
+	}
+
+	/**
+	 * Returns the hash of the file. The file is only read if its attributes changed since it has been hashed
+	 * the last time.
+	 * 
+	 * @param file the file to hash
+	 * @return the hash of the file (an empty array for folders and files that do not exist)
+	 * @throws IOException if the file cannot be read
+	 */
+	public byte[] getHash(File file) throws IOException {
+		if (file == null || !file.isFile()) {
+			return HashUtil.hash(file);
+		}
+
+		String key = getKey(file);
+		BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+		CachedHash cached = entries.get(key);
+		if (cached != null && cached.matches(attributes)) {
+			hits.incrementAndGet();
+			return cached.hash;
+		}
+
+		misses.incrementAndGet();
+		long hashTime = System.currentTimeMillis();
+		byte[] hash = HashUtil.hash(file);
+		if (hashTime - attributes.lastModifiedTime().toMillis() > MODIFICATION_TIME_RESOLUTION_MS) {
+			entries.put(key, new CachedHash(attributes, hash));
+		} else {
+			entries.remove(key);
+		}
+		return hash;
+	}
+
+	/**
+	 * Forgets the hashes of files that do not exist anymore
+	 */
+	public void removeMissing() {
+		Iterator<String> iterator = entries.keySet().iterator();
+		while (iterator.hasNext()) {
+			if (!new File(root, iterator.next()).isFile()) {
+				iterator.remove();
+			}
+		}
+	}
+
+	/**
+	 * @return the number of hashes that have been served from the cache
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return the number of files that had to be hashed
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * @return the fraction of hashes that have been served from the cache (between 0 and 1)
+	 */
+	public double getHitRatio() {
+		long hitCount = hits.get();
+		long total = hitCount + misses.get();
+		return total == 0 ? 0 : hitCount / (double) total;
+	}
+
+	/**
+	 * @return the number of cached hashes
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	Map<String, CachedHash> getEntries() {
+		return new HashMap<String, CachedHash>(entries);
+	}
+
+	private String getKey(File file) {
+		// files outside of the root keep their absolute path
+		return FileUtil.relativize(root, file).getPath();
+	}
+
+	static class CachedHash implements Serializable {
+
+		private static final long serialVersionUID = 3468213985032357621L;
+
+		private final long size;
+		private final long lastModified;
+		private final String fileKey;
+		private final byte[] hash;
+
+		CachedHash(BasicFileAttributes attributes, byte[] hash) {
+			this.size = attributes.size();
+			this.lastModified = attributes.lastModifiedTime().toMillis();
+			this.fileKey = fileKey(attributes);
+			this.hash = hash;
+		}
+
+		boolean matches(BasicFileAttributes attributes) {
+			if (size != attributes.size() || lastModified != attributes.lastModifiedTime().toMillis()) {
+				return false;
+			}
+			String currentKey = fileKey(attributes);
+			return fileKey == null ? currentKey == null : fileKey.equals(currentKey);
+		}
+
+		private static String fileKey(BasicFileAttributes attributes) {
+			// not available on all platforms
+			Object key = attributes.fileKey();
+			return key == null ? null : key.toString();
+		}
+	}
+}
@@ -6,9 +6,12 @@ import java.io.InputStream;
 import java.net.URL;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.hive2hive.core.H2HConstants;
+import org.hive2hive.core.file.FileHashCache.CachedHash;
 import org.hive2hive.core.network.data.PublicKeyManager;
 import org.hive2hive.core.serializer.IH2HSerialize;
 import org.slf4j.Logger;
@@ -65,6 +68,44 @@ public class FileUtil {
 		}
 	}
 
+	/**
+	 * Writes the cached file hashes to the disk
+	 * 
+	 * @param fileAgent the file agent
+	 * @param hashCache the hashes to store
+	 * @param serializer the serializer to use
+	 * @throws IOException if the data cannot be serialized or stored
+	 */
+	public static void writeHashCache(IFileAgent fileAgent, FileHashCache hashCache, IH2HSerialize serializer)
+			throws IOException {
+		// do not keep hashes of deleted files forever
+		hashCache.removeMissing();
+		byte[] encoded = serializer.serialize(new HashMap<String, CachedHash>(hashCache.getEntries()));
+		fileAgent.writeCache(H2HConstants.HASH_CACHE_NAME, encoded);
+	}
+
+	/**
+	 * Reads the cached file hashes from the disk
+	 * 
+	 * @param fileAgent the file agent
+	 * @param serializer the serializer to use
+	 * @return the hash cache (never null, but may be empty)
+	 */
+	@SuppressWarnings("unchecked")
+	public static FileHashCache readHashCache(IFileAgent fileAgent, IH2HSerialize serializer) {
+		try {
+			byte[] content = fileAgent.readCache(H2HConstants.HASH_CACHE_NAME);
+			if (content == null || content.length == 0) {
+				logger.debug("No cached file hashes found. Create a new cache.");
+				return new FileHashCache(fileAgent.getRoot());
+			}
+			return new FileHashCache(fileAgent.getRoot(), (Map<String, CachedHash>) serializer.deserialize(content));
+		} catch (IOException | ClassNotFoundException | ClassCastException e) {
+			logger.warn("Cannot read the cached file hashes. Reason: {}", e.getMessage());
+			return new FileHashCache(fileAgent.getRoot());
+		}
+	}
+
 	/**
 	 * Returns the file separator of the operating system
 	 * 
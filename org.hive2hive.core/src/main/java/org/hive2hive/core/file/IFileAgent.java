@@ -37,4 +37,12 @@ public interface IFileAgent {
 	 * @throws IOException if reading fails
 	 */
 	byte[] readCache(String key) throws IOException;
+
+	/**
+	 * Deletes an entry from the cache. Deleting an entry that does not exist is not an error.
+	 * 
+	 * @param key the filename or other unique key to delete
+	 * @throws IOException if deleting fails
+	 */
+	void deleteCache(String key) throws IOException;
 }
@@ -2,8 +2,13 @@ package org.hive2hive.core.model;
 
 import java.security.KeyPair;
 import java.security.PublicKey;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
 
 import org.hive2hive.core.file.FileUtil;
@@ -24,6 +29,11 @@ public class FolderIndex extends Index {
 	private KeyPair protectionKeys = null;
 	private boolean isShared = false;
 
+	// lookup structures, not serialized and rebuilt lazily when needed (e.g. after deserialization)
+	private transient volatile Map<String, Index> childrenByName;
+	// only used at the root of the tree
+	private transient volatile Map<PublicKey, Index> indexByKey;
+
 	/**
 	 * Constructor for the root folder.
 	 * 
@@ -77,12 +87,13 @@ public class FolderIndex extends Index {
 	}
 
 	/**
-	 * Returns all direct children of this node
+	 * Returns all direct children of this node. Use {@link #addChild(Index)} and {@link #removeChild(Index)}
+	 * to modify them.
 	 * 
-	 * @return all childrens of this node
+	 * @return all childrens of this node (unmodifiable)
 	 */
 	public Set<Index> getChildren() {
-		return children;
+		return Collections.unmodifiableSet(children);
 	}
 
 	/**
@@ -92,8 +103,12 @@ public class FolderIndex extends Index {
 	 */
 	public void addChild(Index child) {
 		// only add once
-		if (getChildByName(child.getName()) == null) {
-			children.add(child);
+		if (getChildByName(child.getName()) == null && children.add(child)) {
+			String key = normalizeName(child.getName());
+			if (key != null) {
+				getChildrenByName().put(key, child);
+			}
+			getRootFolder().registerKeys(child);
 		}
 	}
 
@@ -103,9 +118,28 @@ public class FolderIndex extends Index {
 	 * @param child the child to remove (file or folder)
 	 */
 	public void removeChild(Index child) {
-		if (!children.remove(child)) {
-			// remove by name
-			children.remove(getChildByName(child.getName()));
+		Index removed = getChildByName(child.getName());
+		if (removed == null || !child.equals(removed)) {
+			// the child may have been renamed, search the instance that is equal
+			Index equal = null;
+			for (Index candidate : children) {
+				if (child.equals(candidate)) {
+					equal = candidate;
+					break;
+				}
+			}
+			if (equal != null) {
+				removed = equal;
+			}
+		}
+
+		if (removed != null && children.remove(removed)) {
+			Map<String, Index> byName = getChildrenByName();
+			String key = normalizeName(removed.getName());
+			if (key != null && byName.get(key) == removed) {
+				byName.remove(key);
+			}
+			getRootFolder().unregisterKeys(removed);
 		}
 	}
 
@@ -118,13 +152,141 @@ public class FolderIndex extends Index {
 	public Index getChildByName(String name) {
 		if (name != null) {
 			String withoutSeparator = name.replace(FileUtil.getFileSep(), "");
+			return getChildrenByName().get(normalizeName(withoutSeparator));
+		}
+		return null;
+	}
+
+	/**
+	 * Finds the index with the given public key in the whole tree this folder belongs to.
+	 * 
+	 * @param fileKey the public key of the file or folder
+	 * @return the index or <code>null</code> if no index in the tree has this key
+	 */
+	public Index getIndexByKey(PublicKey fileKey) {
+		if (fileKey == null) {
+			return null;
+		}
+		return getRootFolder().getKeyIndex().get(fileKey);
+	}
+
+	/**
+	 * Called by a child after it has been renamed such that the child can still be found by its new name
+	 */
+	void childRenamed(Index child, String oldName) {
+		Map<String, Index> byName = getChildrenByName();
+		String oldKey = normalizeName(oldName);
+		if (oldKey != null && byName.get(oldKey) == child) {
+			byName.remove(oldKey);
+			String newKey = normalizeName(child.getName());
+			if (newKey != null) {
+				byName.put(newKey, child);
+			}
+		}
+	}
+
+	@Override
+	public void setParent(FolderIndex parent) {
+		super.setParent(parent);
+		// not the root anymore
+		indexByKey = null;
+	}
+
+	private Map<String, Index> getChildrenByName() {
+		Map<String, Index> byName = childrenByName;
+		if (byName == null) {
+			byName = new HashMap<String, Index>();
 			for (Index child : children) {
-				if (child.getName().equalsIgnoreCase(withoutSeparator)) {
-					return child;
+				String key = normalizeName(child.getName());
+				if (key != null && !byName.containsKey(key)) {
+					byName.put(key, child);
 				}
 			}
+			childrenByName = byName;
 		}
-		return null;
+		return byName;
+	}
+
+	private Map<PublicKey, Index> getKeyIndex() {
+		Map<PublicKey, Index> byKey = indexByKey;
+		if (byKey == null) {
+			byKey = new HashMap<PublicKey, Index>();
+			for (Index index : getSubtree(this)) {
+				if (!byKey.containsKey(index.getFilePublicKey())) {
+					byKey.put(index.getFilePublicKey(), index);
+				}
+			}
+			indexByKey = byKey;
+		}
+		return byKey;
+	}
+
+	private void registerKeys(Index subtree) {
+		Map<PublicKey, Index> byKey = indexByKey;
+		if (byKey != null) {
+			for (Index index : getSubtree(subtree)) {
+				if (!byKey.containsKey(index.getFilePublicKey())) {
+					byKey.put(index.getFilePublicKey(), index);
+				}
+			}
+		}
+	}
+
+	private void unregisterKeys(Index subtree) {
+		Map<PublicKey, Index> byKey = indexByKey;
+		if (byKey != null) {
+			for (Index index : getSubtree(subtree)) {
+				if (byKey.get(index.getFilePublicKey()) == index) {
+					byKey.remove(index.getFilePublicKey());
+				}
+			}
+		}
+	}
+
+	private FolderIndex getRootFolder() {
+		FolderIndex current = this;
+		while (current.parent != null) {
+			current = current.parent;
+		}
+		return current;
+	}
+
+	/**
+	 * Iterative walk through the sub-tree, safe for folders whose children are not initialized yet (during
+	 * construction)
+	 */
+	private static Deque<Index> getSubtree(Index node) {
+		Deque<Index> result = new ArrayDeque<Index>();
+		Deque<Index> toVisit = new ArrayDeque<Index>();
+		toVisit.push(node);
+		while (!toVisit.isEmpty()) {
+			Index current = toVisit.pop();
+			result.add(current);
+			if (current.isFolder()) {
+				Set<Index> currentChildren = ((FolderIndex) current).children;
+				if (currentChildren != null) {
+					for (Index child : currentChildren) {
+						toVisit.push(child);
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Names are compared case insensitive (same as {@link String#equalsIgnoreCase(String)})
+	 */
+	static String normalizeName(String name) {
+		if (name == null) {
+			return null;
+		}
+
+		char[] normalized = new char[name.length()];
+		for (int i = 0; i < normalized.length; i++) {
+			normalized[i] = Character.toLowerCase(Character.toUpperCase(name.charAt(i)));
+		}
+		return new String(normalized);
 	}
 
 	/**
@@ -267,8 +429,8 @@ public class FolderIndex extends Index {
 		}
 
 		if (protectionKeys == null) {
-			// inherit parent's protection keys
-			return parent.getProtectionKeys();
+			// inherit parent's protection keys (a detached folder has none)
+			return parent == null ? null : parent.getProtectionKeys();
 		}
 
 		// is root
@@ -291,6 +453,16 @@ public class FolderIndex extends Index {
 		return parent.isShared();
 	}
 
+	/**
+	 * Overwrites the sharing attributes of this folder, e.g. when a changed version of the folder is applied
+	 * (see {@link IndexState})
+	 */
+	void restoreState(Set<UserPermission> userPermissions, KeyPair protectionKeys, boolean isShared) {
+		this.userPermissions = new HashSet<UserPermission>(userPermissions);
+		this.protectionKeys = protectionKeys;
+		this.isShared = isShared;
+	}
+
 	/**
 	 * Returns the flag whether this node is shared (this is only set at the top shared folder, not at all
 	 * sub-children). This call should be used with care.
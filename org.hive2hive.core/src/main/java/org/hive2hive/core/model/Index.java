@@ -73,7 +73,11 @@ public abstract class Index implements Comparable<Index>, Serializable {
 	 * @param name the name of the index
 	 */
 	public void setName(String name) {
+		String oldName = this.name;
 		this.name = name;
+		if (parent != null) {
+			parent.childRenamed(this, oldName);
+		}
 	}
 
 	/**
@@ -0,0 +1,343 @@
+package org.hive2hive.core.model;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.hive2hive.core.security.EncryptionUtil;
+import org.hive2hive.core.security.HashUtil;
+
+/**
+ * The attributes of a single {@link Index} (without its children), identified by its file key. The states
+ * of two versions of a tree can be compared to find the changed indices and the changes can be applied to
+ * another copy of the tree.
+ */
+public class IndexState implements Serializable {
+
+	private static final long serialVersionUID = 4921766052394471730L;
+
+	private final KeyPair fileKeys;
+	private final String name;
+	private final PublicKey parentKey;
+	private final boolean folder;
+
+	// file attributes
+	private final byte[] hash;
+	private final byte[] metaFileHash;
+
+	// folder attributes
+	private final Set<UserPermission> userPermissions;
+	private final KeyPair protectionKeys;
+	private final boolean shared;
+
+	private IndexState(Index index) {
+		this.fileKeys = index.getFileKeys();
+		this.name = index.getName();
+		this.parentKey = index.getParent() == null ? null : index.getParent().getFilePublicKey();
+		this.folder = index.isFolder();
+
+		if (folder) {
+			FolderIndex folderIndex = (FolderIndex) index;
+			this.hash = null;
+			this.metaFileHash = null;
+			this.userPermissions = new HashSet<UserPermission>(folderIndex.getUserPermissions());
+			// only the own keys, not the inherited ones
+			this.protectionKeys = folderIndex.getSharedFlag() || folderIndex.isRoot() ? folderIndex.getProtectionKeys()
+					: null;
+			this.shared = folderIndex.getSharedFlag();
+		} else {
+			FileIndex fileIndex = (FileIndex) index;
+			this.hash = fileIndex.getHash();
+			this.metaFileHash = fileIndex.getMetaFileHash();
+			this.userPermissions = Collections.emptySet();
+			this.protectionKeys = null;
+			this.shared = false;
+		}
+	}
+
+	private IndexState(IndexState state, String name) {
+		this.fileKeys = state.fileKeys;
+		this.name = name;
+		this.parentKey = state.parentKey;
+		this.folder = state.folder;
+		this.hash = state.hash;
+		this.metaFileHash = state.metaFileHash;
+		this.userPermissions = state.userPermissions;
+		this.protectionKeys = state.protectionKeys;
+		this.shared = state.shared;
+	}
+
+	/**
+	 * @param root the root of the tree
+	 * @return the states of all indices in the tree, parents before their children
+	 */
+	public static Map<PublicKey, IndexState> flatten(FolderIndex root) {
+		Map<PublicKey, IndexState> states = new LinkedHashMap<PublicKey, IndexState>();
+		for (Index index : Index.getIndexList(root)) {
+			states.put(index.getFilePublicKey(), new IndexState(index));
+		}
+		return states;
+	}
+
+	public PublicKey getFileKey() {
+		return fileKeys.getPublic();
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public PublicKey getParentKey() {
+		return parentKey;
+	}
+
+	public boolean isFolder() {
+		return folder;
+	}
+
+	/**
+	 * @param other the state of the same index in another version
+	 * @return <code>true</code> if no attribute changed
+	 */
+	public boolean isSameAs(IndexState other) {
+		return other != null && folder == other.folder && shared == other.shared && equal(name, other.name)
+				&& equal(parentKey, other.parentKey) && Arrays.equals(hash, other.hash)
+				&& Arrays.equals(metaFileHash, other.metaFileHash) && userPermissions.equals(other.userPermissions)
+				&& equalKeys(protectionKeys, other.protectionKeys);
+	}
+
+	/**
+	 * @param states the states of a tree
+	 * @return a hash over all attributes of the states. It does not depend on the order of the states, thus
+	 *         it is the same on all clients for the same tree.
+	 */
+	public static byte[] hash(Collection<IndexState> states) {
+		List<String> fingerprints = new ArrayList<String>(states.size());
+		for (IndexState state : states) {
+			fingerprints.add(state.fingerprint());
+		}
+		Collections.sort(fingerprints);
+
+		StringBuilder all = new StringBuilder();
+		for (String fingerprint : fingerprints) {
+			all.append(fingerprint).append('\n');
+		}
+		return HashUtil.hash(all.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	private String fingerprint() {
+		List<String> permissions = new ArrayList<String>(userPermissions.size());
+		for (UserPermission permission : userPermissions) {
+			permissions.add(permission.getUserId() + ":" + permission.getPermission().name());
+		}
+		Collections.sort(permissions);
+
+		return String.format("%s|%s|%s|%s|%s|%s|%s|%s|%s", toHex(fileKeys.getPublic()), name, toHex(parentKey),
+				folder, shared, toHex(hash), toHex(metaFileHash), permissions,
+				protectionKeys == null ? "" : toHex(protectionKeys.getPublic()));
+	}
+
+	private static String toHex(PublicKey key) {
+		return key == null ? "" : EncryptionUtil.byteToHex(key.getEncoded());
+	}
+
+	private static String toHex(byte[] data) {
+		return data == null ? "" : EncryptionUtil.byteToHex(data);
+	}
+
+	/**
+	 * Applies changed states to a tree. Indices that do not exist yet are created, existing indices are
+	 * updated, moved or renamed.
+	 * 
+	 * @param root the root of the tree to change
+	 * @param updates the new states, parents before their children
+	 * @param removals the keys of the indices to remove (including their children)
+	 * @throws IllegalStateException if the tree does not match the changes (e.g. a parent is missing)
+	 */
+	public static void apply(FolderIndex root, Collection<IndexState> updates, Collection<PublicKey> removals) {
+		// first detach the moved and renamed indices to avoid name clashes
+		Map<PublicKey, Index> detached = new HashMap<PublicKey, Index>();
+		for (IndexState state : updates) {
+			Index existing = root.getIndexByKey(state.getFileKey());
+			if (existing != null && existing.getParent() != null
+					&& (!equal(existing.getName(), state.name) || !existing.getParent().getFilePublicKey()
+							.equals(state.parentKey))) {
+				existing.getParent().removeChild(existing);
+				detached.put(state.getFileKey(), existing);
+			}
+		}
+
+		for (PublicKey removal : removals) {
+			Index removed = root.getIndexByKey(removal);
+			if (removed != null && removed.getParent() != null) {
+				removed.getParent().removeChild(removed);
+			}
+		}
+
+		for (IndexState state : updates) {
+			Index index = detached.remove(state.getFileKey());
+			if (index != null) {
+				FolderIndex parent = getParentFolder(root, state);
+				index.setName(state.name);
+				index.setParent(parent);
+				parent.addChild(index);
+			} else {
+				index = root.getIndexByKey(state.getFileKey());
+			}
+
+			if (index == null) {
+				FolderIndex parent = getParentFolder(root, state);
+				if (state.folder) {
+					index = new FolderIndex(parent, state.fileKeys, state.name);
+				} else {
+					index = new FileIndex(parent, state.fileKeys, state.name, state.hash);
+				}
+			} else if (index.isFolder() != state.folder) {
+				throw new IllegalStateException(String.format("Index '%s' changed its type.", state.name));
+			}
+
+			if (state.folder) {
+				((FolderIndex) index).restoreState(state.userPermissions, state.protectionKeys, state.shared);
+			} else {
+				FileIndex fileIndex = (FileIndex) index;
+				fileIndex.setHash(state.hash);
+				fileIndex.setMetaFileHash(state.metaFileHash);
+			}
+		}
+	}
+
+	/**
+	 * Merges two versions of a tree that are based on the same version (three-way merge). A change made in
+	 * only one version is taken over. If both versions changed an index differently, an update wins over a
+	 * removal and otherwise the second version wins. Removed folders that still contain indices are kept and
+	 * indices that got the same name in the same folder are renamed. Thus, the result only depends on the
+	 * three versions.
+	 * 
+	 * @param ancestor the states of the common version
+	 * @param first the states of the first version
+	 * @param second the states of the second version
+	 * @return the merged states, parents before their children
+	 * @throws IllegalStateException if the versions cannot be merged (e.g. two folders moved into each other)
+	 */
+	public static Map<PublicKey, IndexState> merge(Map<PublicKey, IndexState> ancestor,
+			Map<PublicKey, IndexState> first, Map<PublicKey, IndexState> second) {
+		Set<PublicKey> keys = new LinkedHashSet<PublicKey>(ancestor.keySet());
+		keys.addAll(first.keySet());
+		keys.addAll(second.keySet());
+
+		Map<PublicKey, IndexState> merged = new LinkedHashMap<PublicKey, IndexState>();
+		for (PublicKey key : keys) {
+			IndexState base = ancestor.get(key);
+			IndexState firstState = first.get(key);
+			IndexState secondState = second.get(key);
+
+			IndexState result;
+			if (isSame(base, firstState)) {
+				result = secondState;
+			} else if (isSame(base, secondState) || isSame(firstState, secondState)) {
+				result = firstState;
+			} else {
+				// conflicting changes
+				result = secondState == null ? firstState : secondState;
+			}
+
+			if (result != null) {
+				merged.put(key, result);
+			}
+		}
+
+		// keep the (removed) parents of the merged indices
+		for (IndexState state : new ArrayList<IndexState>(merged.values())) {
+			PublicKey parentKey = state.parentKey;
+			while (parentKey != null && !merged.containsKey(parentKey)) {
+				IndexState parent = second.containsKey(parentKey) ? second.get(parentKey)
+						: first.containsKey(parentKey) ? first.get(parentKey) : ancestor.get(parentKey);
+				if (parent == null) {
+					break;
+				}
+				merged.put(parentKey, parent);
+				parentKey = parent.parentKey;
+			}
+		}
+
+		return sortParentsFirst(merged);
+	}
+
+	private static Map<PublicKey, IndexState> sortParentsFirst(Map<PublicKey, IndexState> states) {
+		Map<PublicKey, IndexState> sorted = new LinkedHashMap<PublicKey, IndexState>(states.size());
+		// the names in each folder
+		Map<PublicKey, Set<String>> names = new HashMap<PublicKey, Set<String>>();
+		boolean progress = true;
+		while (sorted.size() < states.size() && progress) {
+			progress = false;
+			for (IndexState state : states.values()) {
+				if (sorted.containsKey(state.getFileKey())
+						|| (state.parentKey != null && !sorted.containsKey(state.parentKey))) {
+					continue;
+				}
+
+				Set<String> siblings = names.get(state.parentKey);
+				if (siblings == null) {
+					siblings = new HashSet<String>();
+					names.put(state.parentKey, siblings);
+				}
+
+				IndexState unique = state;
+				for (int i = 1; !siblings.add(FolderIndex.normalizeName(unique.name)); i++) {
+					unique = new IndexState(state, conflictName(state, i));
+				}
+				sorted.put(state.getFileKey(), unique);
+				progress = true;
+			}
+		}
+
+		if (sorted.size() < states.size()) {
+			throw new IllegalStateException("The merged indices do not form a tree.");
+		}
+		return sorted;
+	}
+
+	private static String conflictName(IndexState state, int number) {
+		String suffix = number == 1 ? " (conflict)" : String.format(" (conflict %s)", number);
+		int extension = state.folder ? -1 : state.name.lastIndexOf('.');
+		if (extension <= 0) {
+			return state.name + suffix;
+		}
+		return state.name.substring(0, extension) + suffix + state.name.substring(extension);
+	}
+
+	private static boolean isSame(IndexState first, IndexState second) {
+		return first == null ? second == null : first.isSameAs(second);
+	}
+
+	private static FolderIndex getParentFolder(FolderIndex root, IndexState state) {
+		Index parent = root.getIndexByKey(state.parentKey);
+		if (parent == null || !parent.isFolder()) {
+			throw new IllegalStateException(String.format("The parent folder of '%s' does not exist.", state.name));
+		}
+		return (FolderIndex) parent;
+	}
+
+	private static boolean equal(Object first, Object second) {
+		return first == null ? second == null : first.equals(second);
+	}
+
+	private static boolean equalKeys(KeyPair first, KeyPair second) {
+		if (first == null || second == null) {
+			return first == second;
+		}
+		return first.getPublic().equals(second.getPublic());
+	}
+}
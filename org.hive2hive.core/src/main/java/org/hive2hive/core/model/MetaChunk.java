@@ -3,6 +3,7 @@ package org.hive2hive.core.model;
 import java.io.Serializable;
 import java.util.Arrays;
 
+import org.hive2hive.core.file.ChunkRange;
 import org.hive2hive.core.security.HashUtil;
 
 /**
@@ -17,11 +18,33 @@ public class MetaChunk implements Serializable {
 	private final String chunkId;
 	private final byte[] chunkHash;
 	private final int index;
+	// hash of the plain chunk data, null for chunks of older versions
+	private final byte[] contentHash;
+	// position in the file, both are 0 for chunks of older versions
+	private final long offset;
+	private final int length;
 
 	public MetaChunk(String chunkId, byte[] chunkHash, int index) {
+		this(chunkId, chunkHash, index, null, 0, 0);
+	}
+
+	/**
+	 * @param chunkId the id of the chunk
+	 * @param chunkHash the hash of the chunk (see {@link #getChunkHash()})
+	 * @param contentHash the hash of the plain (unencrypted) chunk data
+	 * @param range the position of the chunk in the file
+	 */
+	public MetaChunk(String chunkId, byte[] chunkHash, byte[] contentHash, ChunkRange range) {
+		this(chunkId, chunkHash, range.getIndex(), contentHash, range.getOffset(), range.getLength());
+	}
+
+	private MetaChunk(String chunkId, byte[] chunkHash, int index, byte[] contentHash, long offset, int length) {
 		this.chunkId = chunkId;
 		this.chunkHash = chunkHash;
 		this.index = index;
+		this.contentHash = contentHash;
+		this.offset = offset;
+		this.length = length;
 	}
 
 	/**
@@ -53,6 +76,49 @@ public class MetaChunk implements Serializable {
 		return index;
 	}
 
+	/**
+	 * The position of the chunk in the file. Chunks of older versions do not know their position, they are
+	 * assumed to be split with a fixed chunk size.
+	 * 
+	 * @param chunkSize the fixed chunk size the file has been split with, if the position is unknown
+	 * @return the index, offset and length of the chunk
+	 */
+	public ChunkRange getRange(int chunkSize) {
+		if (hasPosition()) {
+			return new ChunkRange(index, offset, length);
+		} else {
+			return new ChunkRange(index, index * (long) chunkSize, chunkSize);
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if the chunk knows its position in the file, <code>false</code> for chunks of
+	 *         older versions
+	 */
+	public boolean hasPosition() {
+		return offset > 0 || length > 0;
+	}
+
+	/**
+	 * Re-uses this chunk (same id and hash) at another position, e.g. in a newer version of the file.
+	 * 
+	 * @param range the new position of the chunk in the file
+	 * @return the meta chunk at the new position
+	 */
+	public MetaChunk moveTo(ChunkRange range) {
+		return new MetaChunk(chunkId, chunkHash, contentHash, range);
+	}
+
+	/**
+	 * The hash of the plain chunk data. In a 'small' file, it is used to detect unchanged chunks when a new
+	 * version is uploaded, such that they can be re-used.
+	 * 
+	 * @return the hash of the plain data or <code>null</code> if unknown
+	 */
+	public byte[] getContentHash() {
+		return contentHash;
+	}
+
 	@Override
 	public int hashCode() {
 		return Arrays.hashCode(chunkHash);
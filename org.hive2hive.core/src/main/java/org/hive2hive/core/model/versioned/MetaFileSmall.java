@@ -3,11 +3,15 @@ package org.hive2hive.core.model.versioned;
 import java.math.BigInteger;
 import java.security.KeyPair;
 import java.security.PublicKey;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.hive2hive.core.model.FileVersion;
+import org.hive2hive.core.model.MetaChunk;
 
 /**
  * Holds meta data of a small file in the DHT
@@ -19,11 +23,24 @@ public class MetaFileSmall extends BaseMetaFile {
 	private static final long serialVersionUID = -3385321499412137545L;
 	private final List<FileVersion> versions;
 	private final KeyPair chunkKey;
+	private final HybridEncryptedContent contentKey;
 
 	public MetaFileSmall(PublicKey id, List<FileVersion> versions, KeyPair chunkKey) {
+		this(id, versions, chunkKey, null);
+	}
+
+	/**
+	 * @param id the id of the file (public part of the meta file key pair)
+	 * @param versions the versions of the file
+	 * @param chunkKey the key pair used to encrypt the chunks (or to wrap the content key)
+	 * @param contentKey the symmetric chunk content key, wrapped with the public part of the chunk key. If
+	 *            <code>null</code>, the chunks are encrypted in a hybrid manner.
+	 */
+	public MetaFileSmall(PublicKey id, List<FileVersion> versions, KeyPair chunkKey, HybridEncryptedContent contentKey) {
 		super(id, true);
 		this.versions = versions;
 		this.chunkKey = chunkKey;
+		this.contentKey = contentKey;
 	}
 
 	public List<FileVersion> getVersions() {
@@ -34,6 +51,20 @@ public class MetaFileSmall extends BaseMetaFile {
 		return chunkKey;
 	}
 
+	/**
+	 * The symmetric key the chunks are encrypted with, wrapped with the public part of the
+	 * {@link #getChunkKey()}.
+	 * 
+	 * @return the wrapped content key or <code>null</code> if the chunks are encrypted in a hybrid manner
+	 */
+	public HybridEncryptedContent getContentKey() {
+		return contentKey;
+	}
+
+	public boolean hasContentKey() {
+		return contentKey != null;
+	}
+
 	public BigInteger getTotalSize() {
 		if (versions == null) {
 			return BigInteger.ZERO;
@@ -72,4 +103,27 @@ public class MetaFileSmall extends BaseMetaFile {
 
 		return null;
 	}
+
+	/**
+	 * Unchanged chunks are shared among versions. This method returns the chunks of all versions, but every
+	 * chunk only once.
+	 * 
+	 * @return the distinct meta chunks of all versions
+	 */
+	public List<MetaChunk> getDistinctMetaChunks() {
+		List<MetaChunk> metaChunks = new ArrayList<MetaChunk>();
+		if (versions == null) {
+			return metaChunks;
+		}
+
+		Set<String> chunkIds = new HashSet<String>();
+		for (FileVersion version : versions) {
+			for (MetaChunk metaChunk : version.getMetaChunks()) {
+				if (chunkIds.add(metaChunk.getChunkId())) {
+					metaChunks.add(metaChunk);
+				}
+			}
+		}
+		return metaChunks;
+	}
 }
@@ -0,0 +1,49 @@
+package org.hive2hive.core.model.versioned;
+
+import java.security.PublicKey;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import net.tomp2p.peers.Number160;
+
+/**
+ * The {@link UserProfile} as it is stored when sharding. Next to the top-level folders, it records the
+ * version of the {@link UserProfileShard} of each folder. A client thus only fetches the shards whose
+ * recorded version differs from the one it knows.
+ */
+public class ShardedUserProfile extends UserProfile {
+
+	private static final long serialVersionUID = -2203787329140958468L;
+
+	private final Map<PublicKey, Number160> shardVersionKeys;
+
+	/**
+	 * @param profile the user profile without the content of the top-level folders
+	 * @param shardVersionKeys the version of the shard of each top-level folder
+	 */
+	public ShardedUserProfile(UserProfile profile, Map<PublicKey, Number160> shardVersionKeys) {
+		super(profile);
+		this.shardVersionKeys = new HashMap<PublicKey, Number160>(shardVersionKeys);
+	}
+
+	/**
+	 * @param folderKey the key of the top-level folder
+	 * @return the recorded version of the shard or <code>null</code> if it is not known
+	 */
+	public Number160 getShardVersionKey(PublicKey folderKey) {
+		return shardVersionKeys.get(folderKey);
+	}
+
+	public Map<PublicKey, Number160> getShardVersionKeys() {
+		return Collections.unmodifiableMap(shardVersionKeys);
+	}
+
+	/**
+	 * Forgets the recorded versions, e.g. when the profile is merged with another version whose shards may
+	 * be newer. The clients then fetch the latest version of all shards.
+	 */
+	public void clearShardVersionKeys() {
+		shardVersionKeys.clear();
+	}
+}
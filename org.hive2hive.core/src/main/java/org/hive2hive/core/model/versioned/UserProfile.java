@@ -38,6 +38,19 @@ public class UserProfile extends BaseVersionedNetworkContent {
 		root.addUserPermissions(new UserPermission(userId, PermissionType.WRITE));
 	}
 
+	/**
+	 * Takes over the content of another user profile
+	 * 
+	 * @param profile the user profile, shares its root
+	 */
+	protected UserProfile(UserProfile profile) {
+		this.userId = profile.userId;
+		this.encryptionKeys = profile.encryptionKeys;
+		this.root = profile.root;
+		setVersionKey(profile.getVersionKey());
+		setBasedOnKey(profile.getBasedOnKey());
+	}
+
 	public String getUserId() {
 		return userId;
 	}
@@ -65,26 +78,7 @@ public class UserProfile extends BaseVersionedNetworkContent {
 	}
 
 	public Index getFileById(PublicKey fileId) {
-		return findById(root, fileId);
-	}
-
-	private Index findById(Index current, PublicKey fileId) {
-		if (current.getFilePublicKey().equals(fileId)) {
-			return current;
-		}
-
-		Index found = null;
-		if (current instanceof FolderIndex) {
-			FolderIndex folder = (FolderIndex) current;
-			for (Index child : folder.getChildren()) {
-				found = findById(child, fileId);
-				if (found != null) {
-					return found;
-				}
-			}
-		}
-
-		return found;
+		return root.getIndexByKey(fileId);
 	}
 
 	public Index getFileByPath(File file, File root) {
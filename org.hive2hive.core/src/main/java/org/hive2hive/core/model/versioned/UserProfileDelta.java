@@ -0,0 +1,104 @@
+package org.hive2hive.core.model.versioned;
+
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.hive2hive.core.TimeToLiveStore;
+import org.hive2hive.core.model.IndexState;
+
+/**
+ * The changes of the file tree of a {@link UserProfile} compared to the version it is based on. Instead of
+ * the whole profile, only the deltas are stored in the versioned DHT with a full profile from time to time.
+ * A version is reconstructed by applying the deltas since the last full profile.
+ */
+public class UserProfileDelta extends BaseVersionedNetworkContent {
+
+	private static final long serialVersionUID = -2403787146313549206L;
+
+	// new or changed indices, parents before their children
+	private final List<IndexState> updates;
+	private final List<PublicKey> removals;
+	// the number of deltas since the last full profile (including this one)
+	private final int chainLength;
+	// the size of the previous deltas since the last full profile
+	private final long previousChainBytes;
+
+	private UserProfileDelta(List<IndexState> updates, List<PublicKey> removals, int chainLength,
+			long previousChainBytes) {
+		this.updates = updates;
+		this.removals = removals;
+		this.chainLength = chainLength;
+		this.previousChainBytes = previousChainBytes;
+	}
+
+	/**
+	 * Compares two versions of the file tree
+	 * 
+	 * @param before the states of the version the delta is based on
+	 * @param after the states of the new version
+	 * @param chainLength the number of deltas since the last full profile (including this one)
+	 * @param previousChainBytes the size of the previous deltas since the last full profile
+	 * @return the delta
+	 */
+	public static UserProfileDelta create(Map<PublicKey, IndexState> before, Map<PublicKey, IndexState> after,
+			int chainLength, long previousChainBytes) {
+		List<IndexState> updates = new ArrayList<IndexState>();
+		for (Entry<PublicKey, IndexState> entry : after.entrySet()) {
+			if (!entry.getValue().isSameAs(before.get(entry.getKey()))) {
+				updates.add(entry.getValue());
+			}
+		}
+
+		List<PublicKey> removals = new ArrayList<PublicKey>();
+		for (PublicKey key : before.keySet()) {
+			if (!after.containsKey(key)) {
+				removals.add(key);
+			}
+		}
+		return new UserProfileDelta(updates, removals, chainLength, previousChainBytes);
+	}
+
+	/**
+	 * Applies the changes to the version this delta is based on
+	 * 
+	 * @param profile the profile to change
+	 * @throws IllegalStateException if the profile is not the version the delta is based on
+	 */
+	public void applyTo(UserProfile profile) {
+		IndexState.apply(profile.getRoot(), updates, removals);
+	}
+
+	public List<IndexState> getUpdates() {
+		return Collections.unmodifiableList(updates);
+	}
+
+	public List<PublicKey> getRemovals() {
+		return Collections.unmodifiableList(removals);
+	}
+
+	public boolean isEmpty() {
+		return updates.isEmpty() && removals.isEmpty();
+	}
+
+	public int getChainLength() {
+		return chainLength;
+	}
+
+	public long getPreviousChainBytes() {
+		return previousChainBytes;
+	}
+
+	@Override
+	public int getTimeToLive() {
+		return TimeToLiveStore.getInstance().getUserProfile();
+	}
+
+	@Override
+	protected int getContentHash() {
+		return 31 * updates.size() + removals.size() + 21 * chainLength;
+	}
+}
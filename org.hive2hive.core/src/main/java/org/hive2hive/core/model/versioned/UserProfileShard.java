@@ -0,0 +1,42 @@
+package org.hive2hive.core.model.versioned;
+
+import java.security.PublicKey;
+
+import org.hive2hive.core.TimeToLiveStore;
+import org.hive2hive.core.model.FolderIndex;
+
+/**
+ * The content of a top-level folder of a sharded {@link UserProfile}. The user profile only keeps the
+ * folder itself and the version of the shard while the children are stored (and versioned) separately in a
+ * shard. Changes within different top-level folders thus do not upload each other's content, and they only
+ * conflict on the small user profile.
+ */
+public class UserProfileShard extends BaseVersionedNetworkContent {
+
+	private static final long serialVersionUID = 6417830912214659316L;
+
+	// holds the children of the top-level folder
+	private final FolderIndex content;
+
+	public UserProfileShard(FolderIndex content) {
+		this.content = content;
+	}
+
+	public FolderIndex getContent() {
+		return content;
+	}
+
+	public PublicKey getFolderKey() {
+		return content.getFilePublicKey();
+	}
+
+	@Override
+	public int getTimeToLive() {
+		return TimeToLiveStore.getInstance().getUserProfile();
+	}
+
+	@Override
+	protected int getContentHash() {
+		return content.getFilePublicKey().hashCode() + 21 * content.getChildren().size();
+	}
+}
@@ -1,5 +1,6 @@
 package org.hive2hive.core.network;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.InetAddress;
 
@@ -9,6 +10,7 @@ import net.tomp2p.connection.ChannelServerConfiguration;
 import net.tomp2p.connection.Ports;
 import net.tomp2p.dht.PeerBuilderDHT;
 import net.tomp2p.dht.PeerDHT;
+import net.tomp2p.dht.Storage;
 import net.tomp2p.dht.StorageMemory;
 import net.tomp2p.futures.FutureBootstrap;
 import net.tomp2p.futures.FutureDiscover;
@@ -42,6 +44,7 @@ public class Connection implements IPeerHolder {
 
 	private final MessageReplyHandler messageReplyHandler;
 	private PeerDHT peerDHT;
+	private Storage storage;
 
 	public Connection(NetworkManager networkManager, IH2HSerialize serializer) {
 		this.messageReplyHandler = new MessageReplyHandler(networkManager, serializer);
@@ -76,11 +79,11 @@ public class Connection implements IPeerHolder {
 
 	private boolean createPeer(INetworkConfiguration networkConfiguration) {
 		try {
-			H2HStorageMemory storageMemory = new H2HStorageMemory();
+			storage = createStorage(networkConfiguration.getStorageDirectory());
+			H2HStorageMemory storageMemory = new H2HStorageMemory(storage);
 			peerDHT = new PeerBuilderDHT(
 					preparePeerBuilder(networkConfiguration.getNodeID(), networkConfiguration.getPort()).start())
-					.storage(new StorageMemory(H2HConstants.TTL_CHECK_INTERVAL_MS, H2HConstants.MAX_VERSIONS_HISTORY))
-					.storageLayer(storageMemory).start();
+					.storage(storage).storageLayer(storageMemory).start();
 
 			// set the firewall-flag or take the default value if not set
 			if (networkConfiguration.isFirewalled()) {
@@ -104,6 +107,23 @@ public class Connection implements IPeerHolder {
 		return true;
 	}
 
+	/**
+	 * Creates the storage backend of the peer. If a storage directory is given, the data is stored on disk,
+	 * else in memory. In both cases, the backend is configured with {@link H2HConstants#MAX_VERSIONS_HISTORY}
+	 * and {@link H2HConstants#TTL_CHECK_INTERVAL_MS} and wrapped by the {@link H2HStorageMemory} layer. Thus,
+	 * every peer prunes the versions that are older than the history (which also bounds the versions that
+	 * are fetched at once to restore a delta of the user profile).
+	 */
+	private Storage createStorage(File storageDirectory) throws IOException {
+		if (storageDirectory == null) {
+			return new StorageMemory(H2HConstants.TTL_CHECK_INTERVAL_MS, H2HConstants.MAX_VERSIONS_HISTORY);
+		}
+
+		logger.debug("Storing the DHT data in '{}'.", storageDirectory);
+		return new DiskStorage(storageDirectory, H2HConstants.TTL_CHECK_INTERVAL_MS, H2HConstants.MAX_VERSIONS_HISTORY,
+				H2HConstants.DISK_STORAGE_SEGMENT_SIZE);
+	}
+
 	private PeerBuilder preparePeerBuilder(String nodeID, int port) {
 		int bindPort = port < 0 ? NetworkUtils.searchFreePort() : port;
 
@@ -203,10 +223,10 @@ public class Connection implements IPeerHolder {
 		PeerMap peerMap = new PeerMap(peerMapConfiguration);
 
 		try {
-			H2HStorageMemory storageMemory = new H2HStorageMemory();
+			storage = createStorage(null);
+			H2HStorageMemory storageMemory = new H2HStorageMemory(storage);
 			peerDHT = new PeerBuilderDHT(preparePeerBuilder(nodeId, port).masterPeer(masterPeer).peerMap(peerMap).start())
-					.storage(new StorageMemory(H2HConstants.TTL_CHECK_INTERVAL_MS, H2HConstants.MAX_VERSIONS_HISTORY))
-					.storageLayer(storageMemory).start();
+					.storage(storage).storageLayer(storageMemory).start();
 		} catch (IOException e) {
 			logger.error("Exception while creating a local peer: ", e);
 			return false;
@@ -276,6 +296,11 @@ public class Connection implements IPeerHolder {
 			peerDHT.peer().announceShutdown().start().awaitUninterruptibly(H2HConstants.DISCONNECT_TIMEOUT_MS);
 			// shutdown the peer, giving a certain timeout
 			isDisconnected = peerDHT.shutdown().awaitUninterruptibly(H2HConstants.DISCONNECT_TIMEOUT_MS);
+			// release the storage (e.g. the files of a disk storage)
+			if (storage != null) {
+				storage.close();
+				storage = null;
+			}
 
 			if (isDisconnected) {
 				logger.debug("Peer successfully disconnected.");
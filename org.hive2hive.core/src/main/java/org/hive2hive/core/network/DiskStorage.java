@@ -0,0 +1,732 @@
+package org.hive2hive.core.network;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+import net.tomp2p.dht.StorageMemory;
+import net.tomp2p.message.SignatureCodec;
+import net.tomp2p.peers.Number160;
+import net.tomp2p.peers.Number640;
+import net.tomp2p.storage.Data;
+
+import org.hive2hive.core.security.H2HSignatureCodec;
+import org.hive2hive.core.security.H2HSignatureFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Storage backend of a peer that keeps the stored data on disk instead of the heap. The data is written to
+ * an append-only log that is split into segment files. Only an index (key to position in the log) is held in
+ * memory. Sealed segments are memory-mapped for reading. Removals are appended as tombstones, the space of
+ * removed and overwritten records is reclaimed by {@link #compact()}. The compaction runs in the background
+ * as soon as the garbage exceeds a segment and half of the live data.<br>
+ * When a storage is opened on an existing directory, the index, the time-to-live timeouts and the entry
+ * protection are rebuilt from the log, such that a peer keeps its data across restarts.<br>
+ * The protection and timeout bookkeeping is inherited from {@link StorageMemory}.
+ */
+public class DiskStorage extends StorageMemory {
+
+	private static final Logger logger = LoggerFactory.getLogger(DiskStorage.class);
+
+	private static final String SEGMENT_PREFIX = "segment-";
+	private static final String SEGMENT_SUFFIX = ".log";
+
+	private static final byte RECORD_PUT = 1;
+	private static final byte RECORD_REMOVE = 2;
+
+	private static final byte FLAG_PROTECTED_ENTRY = 1;
+	private static final byte FLAG_PREPARED = 1 << 1;
+	private static final byte FLAG_SIGNED = 1 << 2;
+
+	// 4 * Number160 (location, domain, content, version key)
+	private static final int KEY_SIZE = 4 * Number160.BYTE_ARRAY_SIZE;
+	// length (int) + crc (long) + type (byte)
+	private static final int RECORD_HEADER_SIZE = 4 + 8 + 1;
+
+	// compact when the garbage exceeds this share of the live bytes
+	private static final double COMPACTION_GARBAGE_RATIO = 0.5;
+
+	private final File directory;
+	private final int maxVersions;
+	private final long maxSegmentSize;
+
+	// key -> position of the latest record in the log
+	private final ConcurrentSkipListMap<Number640, RecordLocation> index;
+	private final List<Segment> segments;
+	private final AtomicLong garbageBytes = new AtomicLong(0);
+	private final AtomicLong liveBytes = new AtomicLong(0);
+
+	// readers hold the read lock, closing segments requires the write lock
+	private final ReadWriteLock segmentLock = new ReentrantReadWriteLock();
+	private final ExecutorService compactor;
+	private final AtomicBoolean compactionScheduled = new AtomicBoolean(false);
+
+	private Segment activeSegment;
+	private boolean closed = false;
+
+	/**
+	 * Opens (or creates) a disk storage in the given directory
+	 * 
+	 * @param directory the directory holding the segment files
+	 * @param storageCheckInterval the interval in milliseconds to check for expired data
+	 * @param maxVersions the maximum number of versions kept per content key
+	 * @param maxSegmentSize the size in bytes after which a new segment file is started
+	 * @throws IOException if the directory cannot be read or written
+	 */
+	public DiskStorage(File directory, int storageCheckInterval, int maxVersions, long maxSegmentSize)
+			throws IOException {
+		super(storageCheckInterval, maxVersions);
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Cannot create the storage directory " + directory.getAbsolutePath());
+		}
+
+		this.directory = directory;
+		this.maxVersions = maxVersions;
+		this.maxSegmentSize = maxSegmentSize;
+		this.index = new ConcurrentSkipListMap<Number640, RecordLocation>();
+		this.segments = new ArrayList<Segment>();
+		this.compactor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "disk-storage-compactor");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+
+		recover();
+	}
+
+	@Override
+	public Data put(Number640 key, Data value) {
+		Data previous = null;
+		synchronized (this) {
+			RecordLocation location = append(RECORD_PUT, key, encode(value));
+			RecordLocation old = index.put(key, location);
+			liveBytes.addAndGet(location.length);
+			if (old != null) {
+				previous = read(key, old);
+				discard(old);
+			}
+			removeOldVersions(key);
+		}
+		scheduleCompaction();
+		return previous;
+	}
+
+	@Override
+	public Data get(Number640 key) {
+		RecordLocation location = index.get(key);
+		if (location == null) {
+			return null;
+		}
+		return read(key, location);
+	}
+
+	@Override
+	public boolean contains(Number640 key) {
+		return index.containsKey(key);
+	}
+
+	@Override
+	public int contains(Number640 from, Number640 to) {
+		return index.subMap(from, true, to, true).size();
+	}
+
+	@Override
+	public Data remove(Number640 key, boolean returnData) {
+		Data removed;
+		synchronized (this) {
+			RecordLocation old = index.remove(key);
+			if (old == null) {
+				return null;
+			}
+
+			removed = returnData ? read(key, old) : null;
+			append(RECORD_REMOVE, key, null);
+			discard(old);
+			removeTimeout(key);
+		}
+		scheduleCompaction();
+		return removed;
+	}
+
+	@Override
+	public NavigableMap<Number640, Data> remove(Number640 from, Number640 to) {
+		NavigableMap<Number640, Data> removed = new TreeMap<Number640, Data>();
+		synchronized (this) {
+			for (Number640 key : new ArrayList<Number640>(index.subMap(from, true, to, true).keySet())) {
+				Data data = remove(key, true);
+				if (data != null) {
+					removed.put(key, data);
+				}
+			}
+		}
+		return removed;
+	}
+
+	@Override
+	public NavigableMap<Number640, Data> subMap(Number640 from, Number640 to, int limit, boolean ascending) {
+		NavigableMap<Number640, RecordLocation> range = index.subMap(from, true, to, true);
+		if (!ascending) {
+			range = range.descendingMap();
+		}
+
+		NavigableMap<Number640, Data> result = new TreeMap<Number640, Data>();
+		for (Map.Entry<Number640, RecordLocation> entry : range.entrySet()) {
+			if (limit >= 0 && result.size() >= limit) {
+				break;
+			}
+			Data data = read(entry.getKey(), entry.getValue());
+			if (data != null) {
+				result.put(entry.getKey(), data);
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public NavigableMap<Number640, Data> map() {
+		NavigableMap<Number640, Data> result = new TreeMap<Number640, Data>();
+		for (Map.Entry<Number640, RecordLocation> entry : index.entrySet()) {
+			Data data = read(entry.getKey(), entry.getValue());
+			if (data != null) {
+				result.put(entry.getKey(), data);
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public void close() {
+		compactor.shutdownNow();
+		synchronized (this) {
+			closed = true;
+			segmentLock.writeLock().lock();
+			try {
+				for (Segment segment : segments) {
+					segment.close();
+				}
+			} finally {
+				segmentLock.writeLock().unlock();
+			}
+			segments.clear();
+			index.clear();
+		}
+		super.close();
+	}
+
+	/**
+	 * @return the number of bytes in the log that belong to removed or overwritten records
+	 */
+	public long getGarbageBytes() {
+		return garbageBytes.get();
+	}
+
+	/**
+	 * @return the number of bytes in the log that belong to live records
+	 */
+	public long getLiveBytes() {
+		return liveBytes.get();
+	}
+
+	/**
+	 * Rewrites all live records into fresh segments and deletes the old segment files. This reclaims the
+	 * space of removed and overwritten records. Writes wait for the compaction to finish, reads that run
+	 * concurrently follow the records into the new segments.<br>
+	 * The compaction is scheduled automatically, calling it explicitly is not required.
+	 * 
+	 * @throws IOException if the segments cannot be written
+	 */
+	public synchronized void compact() throws IOException {
+		if (closed) {
+			return;
+		}
+
+		List<Segment> oldSegments = new ArrayList<Segment>(segments);
+		int nextId = activeSegment.id + 1;
+		segments.clear();
+		activeSegment = openSegment(nextId);
+
+		for (Map.Entry<Number640, RecordLocation> entry : index.entrySet()) {
+			Number640 key = entry.getKey();
+			RecordLocation old = entry.getValue();
+			byte[] payload = readPayload(key, old);
+			if (payload != null) {
+				index.put(key, append(RECORD_PUT, key, payload));
+			}
+		}
+
+		segmentLock.writeLock().lock();
+		try {
+			for (Segment segment : oldSegments) {
+				segment.close();
+				if (!segment.file.delete()) {
+					logger.warn("Cannot delete the compacted segment {}.", segment.file);
+				}
+			}
+		} finally {
+			segmentLock.writeLock().unlock();
+		}
+		garbageBytes.set(0);
+		logger.debug("Compacted the disk storage in {}. {} entries kept.", directory, index.size());
+	}
+
+	/**
+	 * Removes the versions of the content key whose timestamp is {@link #maxVersions} or more behind the
+	 * latest one, like {@link StorageMemory} does. Forked versions share their timestamp, thus they do not
+	 * push out the oldest version early.
+	 */
+	private void removeOldVersions(Number640 key) {
+		if (maxVersions <= 0) {
+			return;
+		}
+
+		NavigableMap<Number640, RecordLocation> versions = index.subMap(
+				new Number640(key.locationKey(), key.domainKey(), key.contentKey(), Number160.ZERO), true,
+				new Number640(key.locationKey(), key.domainKey(), key.contentKey(), Number160.MAX_VALUE), true);
+		while (!versions.isEmpty()
+				&& versions.firstKey().versionKey().timestamp() + maxVersions <= versions.lastKey().versionKey()
+						.timestamp()) {
+			Map.Entry<Number640, RecordLocation> oldest = versions.pollFirstEntry();
+			append(RECORD_REMOVE, oldest.getKey(), null);
+			discard(oldest.getValue());
+			removeTimeout(oldest.getKey());
+		}
+	}
+
+	/**
+	 * Accounts a record that has been removed or overwritten as garbage
+	 */
+	private void discard(RecordLocation location) {
+		liveBytes.addAndGet(-location.length);
+		garbageBytes.addAndGet(location.length);
+	}
+
+	/**
+	 * Schedules a background compaction if the garbage exceeds a segment and
+	 * {@link #COMPACTION_GARBAGE_RATIO} of the live bytes. At most one compaction is pending at a time.
+	 */
+	private void scheduleCompaction() {
+		long garbage = garbageBytes.get();
+		if (garbage < maxSegmentSize || garbage < liveBytes.get() * COMPACTION_GARBAGE_RATIO) {
+			return;
+		}
+		if (!compactionScheduled.compareAndSet(false, true)) {
+			return;
+		}
+
+		try {
+			compactor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						compact();
+					} catch (IOException e) {
+						logger.error("Cannot compact the disk storage {}.", directory, e);
+						return;
+					} finally {
+						compactionScheduled.set(false);
+					}
+					// writes that happened during the compaction may have missed the schedule
+					scheduleCompaction();
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			// the storage has been closed in the meantime
+			compactionScheduled.set(false);
+		}
+	}
+
+	/**
+	 * Appends a record to the active segment. Must be called while holding the lock on this object.
+	 */
+	private RecordLocation append(byte type, Number640 key, byte[] payload) {
+		int payloadLength = payload == null ? 0 : payload.length;
+		int bodyLength = 1 + KEY_SIZE + payloadLength;
+
+		ByteBuffer body = ByteBuffer.allocate(bodyLength);
+		body.put(type);
+		writeKey(body, key);
+		if (payload != null) {
+			body.put(payload);
+		}
+		body.flip();
+
+		CRC32 crc = new CRC32();
+		crc.update(body.array(), 0, bodyLength);
+
+		ByteBuffer record = ByteBuffer.allocate(4 + 8 + bodyLength);
+		record.putInt(bodyLength);
+		record.putLong(crc.getValue());
+		record.put(body);
+		record.flip();
+
+		try {
+			if (activeSegment.size + record.remaining() > maxSegmentSize && activeSegment.size > 0) {
+				rollSegment();
+			}
+
+			long position = activeSegment.size;
+			while (record.hasRemaining()) {
+				activeSegment.channel.write(record, activeSegment.size + record.position());
+			}
+			activeSegment.size += record.limit();
+			return new RecordLocation(activeSegment, position + RECORD_HEADER_SIZE + KEY_SIZE, payloadLength);
+		} catch (IOException e) {
+			throw new IllegalStateException("Cannot write to the disk storage " + directory, e);
+		}
+	}
+
+	private void rollSegment() throws IOException {
+		activeSegment.seal();
+		activeSegment = openSegment(activeSegment.id + 1);
+	}
+
+	/**
+	 * Reads the payload of a record. If its segment has been compacted in the meantime, the record is looked
+	 * up again at its new position.
+	 */
+	private byte[] readPayload(Number640 key, RecordLocation location) {
+		RecordLocation current = location;
+		while (current != null) {
+			segmentLock.readLock().lock();
+			try {
+				if (!current.segment.closed) {
+					byte[] payload = new byte[current.length];
+					current.segment.read(current.offset, payload);
+					return payload;
+				}
+			} catch (IOException e) {
+				logger.error("Cannot read from the disk storage {}.", directory, e);
+				return null;
+			} finally {
+				segmentLock.readLock().unlock();
+			}
+
+			RecordLocation moved = index.get(key);
+			if (moved == current) {
+				// the record has been removed and the storage closed
+				return null;
+			}
+			current = moved;
+		}
+		return null;
+	}
+
+	private Data read(Number640 key, RecordLocation location) {
+		byte[] payload = readPayload(key, location);
+		if (payload == null) {
+			return null;
+		}
+
+		try {
+			return decode(payload);
+		} catch (IOException e) {
+			logger.error("Cannot decode the stored data of key {}.", key, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Reads all segments, rebuilds the index and re-registers timeouts and entry protections
+	 */
+	private void recover() throws IOException {
+		File[] files = directory.listFiles();
+		List<Integer> ids = new ArrayList<Integer>();
+		if (files != null) {
+			for (File file : files) {
+				String name = file.getName();
+				if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+					ids.add(Integer.valueOf(name.substring(SEGMENT_PREFIX.length(),
+							name.length() - SEGMENT_SUFFIX.length())));
+				}
+			}
+		}
+		Collections.sort(ids);
+
+		if (ids.isEmpty()) {
+			activeSegment = openSegment(0);
+			return;
+		}
+
+		for (int i = 0; i < ids.size(); i++) {
+			Segment segment = openSegment(ids.get(i));
+			replay(segment);
+			if (i < ids.size() - 1) {
+				segment.seal();
+			}
+			activeSegment = segment;
+		}
+
+		// restore the timeouts and protections of the live entries
+		for (Map.Entry<Number640, RecordLocation> entry : index.entrySet()) {
+			Data data = read(entry.getKey(), entry.getValue());
+			if (data == null) {
+				continue;
+			}
+			if (data.ttlSeconds() > 0) {
+				addTimeout(entry.getKey(), data.expirationMillis());
+			}
+			if (data.isProtectedEntry() && data.publicKey() != null) {
+				protectEntry(entry.getKey().locationAndDomainAndContentKey(), data.publicKey());
+			}
+		}
+		logger.debug("Recovered {} entries from the disk storage in {}.", index.size(), directory);
+	}
+
+	/**
+	 * Applies all records of a segment to the index. A torn record at the end (e.g. due to a crash while
+	 * writing) is cut off.
+	 */
+	private void replay(Segment segment) throws IOException {
+		long position = 0;
+		ByteBuffer header = ByteBuffer.allocate(4 + 8);
+		while (position + RECORD_HEADER_SIZE + KEY_SIZE <= segment.size) {
+			header.clear();
+			segment.channel.read(header, position);
+			header.flip();
+			int bodyLength = header.getInt();
+			long checksum = header.getLong();
+			if (bodyLength < 1 + KEY_SIZE || position + 12 + bodyLength > segment.size) {
+				break;
+			}
+
+			byte[] body = new byte[bodyLength];
+			segment.read(position + 12, body);
+			CRC32 crc = new CRC32();
+			crc.update(body);
+			if (crc.getValue() != checksum) {
+				break;
+			}
+
+			ByteBuffer buffer = ByteBuffer.wrap(body);
+			byte type = buffer.get();
+			Number640 key = readKey(buffer);
+			RecordLocation old;
+			if (type == RECORD_PUT) {
+				int length = bodyLength - 1 - KEY_SIZE;
+				old = index.put(key, new RecordLocation(segment, position + RECORD_HEADER_SIZE + KEY_SIZE, length));
+				liveBytes.addAndGet(length);
+			} else {
+				old = index.remove(key);
+			}
+			if (old != null) {
+				discard(old);
+			}
+			position += 12 + bodyLength;
+		}
+
+		if (position < segment.size) {
+			logger.warn("Truncating {} corrupt bytes at the end of segment {}.", segment.size - position, segment.file);
+			segment.channel.truncate(position);
+			segment.size = position;
+		}
+	}
+
+	private Segment openSegment(int id) throws IOException {
+		File file = new File(directory, String.format("%s%08d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+		Segment segment = new Segment(id, file);
+		segments.add(segment);
+		return segment;
+	}
+
+	private static void writeKey(ByteBuffer buffer, Number640 key) {
+		buffer.put(key.locationKey().toByteArray());
+		buffer.put(key.domainKey().toByteArray());
+		buffer.put(key.contentKey().toByteArray());
+		buffer.put(key.versionKey().toByteArray());
+	}
+
+	private static Number640 readKey(ByteBuffer buffer) {
+		return new Number640(readNumber160(buffer), readNumber160(buffer), readNumber160(buffer),
+				readNumber160(buffer));
+	}
+
+	private static Number160 readNumber160(ByteBuffer buffer) {
+		byte[] raw = new byte[Number160.BYTE_ARRAY_SIZE];
+		buffer.get(raw);
+		return new Number160(raw);
+	}
+
+	/**
+	 * Serializes the value and the meta data of a {@link Data} object
+	 */
+	private static byte[] encode(Data data) {
+		byte flags = 0;
+		if (data.isProtectedEntry()) {
+			flags |= FLAG_PROTECTED_ENTRY;
+		}
+		if (data.hasPrepareFlag()) {
+			flags |= FLAG_PREPARED;
+		}
+
+		byte[] signature = new byte[0];
+		if (data.isSigned() && data.signature() != null) {
+			flags |= FLAG_SIGNED;
+			signature = data.signature().encode();
+		}
+
+		byte[] publicKey = new byte[0];
+		if (data.publicKey() != null && data.publicKey().getEncoded() != null) {
+			publicKey = data.publicKey().getEncoded();
+		}
+
+		byte[] value = data.toBytes();
+		int basedOnCount = data.basedOnSet().size();
+
+		ByteBuffer buffer = ByteBuffer.allocate(1 + 4 + 8 + 4 + basedOnCount * Number160.BYTE_ARRAY_SIZE + 4
+				+ publicKey.length + 4 + signature.length + 4 + value.length);
+		buffer.put(flags);
+		buffer.putInt(data.ttlSeconds());
+		buffer.putLong(data.validFromMillis());
+		buffer.putInt(basedOnCount);
+		for (Number160 basedOn : data.basedOnSet()) {
+			buffer.put(basedOn.toByteArray());
+		}
+		buffer.putInt(publicKey.length);
+		buffer.put(publicKey);
+		buffer.putInt(signature.length);
+		buffer.put(signature);
+		buffer.putInt(value.length);
+		buffer.put(value);
+		return buffer.array();
+	}
+
+	/**
+	 * Restores a {@link Data} object that has been serialized with {@link #encode(Data)}
+	 */
+	private static Data decode(byte[] payload) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(payload);
+		byte flags = buffer.get();
+		int ttlSeconds = buffer.getInt();
+		long validFromMillis = buffer.getLong();
+		int basedOnCount = buffer.getInt();
+		Number160[] basedOn = new Number160[basedOnCount];
+		for (int i = 0; i < basedOnCount; i++) {
+			basedOn[i] = readNumber160(buffer);
+		}
+		byte[] publicKey = new byte[buffer.getInt()];
+		buffer.get(publicKey);
+		byte[] signature = new byte[buffer.getInt()];
+		buffer.get(signature);
+		byte[] value = new byte[buffer.getInt()];
+		buffer.get(value);
+
+		Data data = new Data(value).ttlSeconds(ttlSeconds).validFromMillis(validFromMillis);
+		for (Number160 key : basedOn) {
+			data.addBasedOn(key);
+		}
+		if ((flags & FLAG_PROTECTED_ENTRY) != 0) {
+			data.protectEntry();
+		}
+		if ((flags & FLAG_PREPARED) != 0) {
+			data.prepareFlag();
+		}
+		if (publicKey.length > 0) {
+			PublicKey key = new H2HSignatureFactory().decodePublicKey(publicKey);
+			data.publicKey(key);
+		}
+		if ((flags & FLAG_SIGNED) != 0) {
+			SignatureCodec codec = new H2HSignatureCodec(signature);
+			data.signature(codec).signed(true);
+		}
+		return data;
+	}
+
+	/**
+	 * The position of a record's payload within the log
+	 */
+	private static class RecordLocation {
+
+		private final Segment segment;
+		private final long offset;
+		private final int length;
+
+		public RecordLocation(Segment segment, long offset, int length) {
+			this.segment = segment;
+			this.offset = offset;
+			this.length = length;
+		}
+	}
+
+	/**
+	 * A single file of the log. As long as the segment is active, it is read through the channel. As soon as
+	 * it is sealed (no more appends), it is memory-mapped.
+	 */
+	private static class Segment {
+
+		private final int id;
+		private final File file;
+		private final RandomAccessFile raf;
+		private final FileChannel channel;
+		private volatile MappedByteBuffer mapped;
+		private volatile boolean closed = false;
+		private long size;
+
+		public Segment(int id, File file) throws IOException {
+			this.id = id;
+			this.file = file;
+			this.raf = new RandomAccessFile(file, "rw");
+			this.channel = raf.getChannel();
+			this.size = channel.size();
+		}
+
+		public void seal() throws IOException {
+			channel.force(false);
+			if (size > 0 && size <= Integer.MAX_VALUE) {
+				mapped = channel.map(MapMode.READ_ONLY, 0, size);
+			}
+		}
+
+		public void read(long position, byte[] destination) throws IOException {
+			MappedByteBuffer map = mapped;
+			if (map != null) {
+				// duplicate such that concurrent readers do not interfere with the position
+				ByteBuffer view = map.duplicate();
+				view.position((int) position);
+				view.get(destination);
+			} else {
+				ByteBuffer buffer = ByteBuffer.wrap(destination);
+				while (buffer.hasRemaining()) {
+					if (channel.read(buffer, position + buffer.position()) < 0) {
+						throw new IOException("Unexpected end of segment " + file);
+					}
+				}
+			}
+		}
+
+		public void close() {
+			closed = true;
+			mapped = null;
+			try {
+				channel.close();
+				raf.close();
+			} catch (IOException e) {
+				logger.warn("Cannot close the segment {}.", file, e);
+			}
+		}
+	}
+}
@@ -5,9 +5,12 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.NavigableMap;
 import java.util.Set;
+import java.util.TreeMap;
 
+import net.tomp2p.dht.Storage;
 import net.tomp2p.dht.StorageLayer;
 import net.tomp2p.dht.StorageMemory;
+import net.tomp2p.peers.Number160;
 import net.tomp2p.peers.Number640;
 import net.tomp2p.rpc.DigestInfo;
 import net.tomp2p.storage.Data;
@@ -17,7 +20,13 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Allows to deny data and/or return manipulated data. <b>Important:</b> This features are used only for
- * testing purposes.
+ * testing purposes.<br>
+ * Additionally, it supports compare-and-set puts: Data with the first custom flag set is only stored if it
+ * is based on all latest versions stored under the same key. Else, the put is rejected with a
+ * {@link net.tomp2p.dht.StorageLayer.PutStatus#VERSION_FORK} without storing anything. Thus, a versioned put
+ * needs a single round trip instead of a prepare and a confirm.<br>
+ * Gets of the latest version can be conditional, such that the content is only returned if it is newer than
+ * the version the requester knows.
  * 
  * @author Seppi, Nico
  */
@@ -41,15 +50,30 @@ public class H2HStorageMemory extends StorageLayer {
 		MANIPULATED
 	}
 
+	// the number of locks the compare-and-set puts are distributed on
+	private static final int COMPARE_AND_SET_LOCKS = 64;
+
+	private final Object[] compareAndSetLocks = new Object[COMPARE_AND_SET_LOCKS];
+
 	private NavigableMap<Number640, Data> manipulatedMap;
 
 	private StorageMemoryPutMode putMode;
 	private StorageMemoryGetMode getMode;
 
 	public H2HStorageMemory() {
-		super(new StorageMemory());
+		this(new StorageMemory());
+	}
+
+	/**
+	 * @param backend the storage where the data is kept (e.g. in memory or on disk)
+	 */
+	public H2HStorageMemory(Storage backend) {
+		super(backend);
 		this.putMode = StorageMemoryPutMode.STANDARD;
 		this.getMode = StorageMemoryGetMode.STANDARD;
+		for (int i = 0; i < COMPARE_AND_SET_LOCKS; i++) {
+			compareAndSetLocks[i] = new Object();
+		}
 	}
 
 	public void setPutMode(StorageMemoryPutMode mode) {
@@ -71,6 +95,9 @@ public class H2HStorageMemory extends StorageLayer {
 			boolean sendSelf) {
 		switch (putMode) {
 			case STANDARD: {
+				if (newData.isFlag1()) {
+					return compareAndSet(key, newData, publicKey, putIfAbsent, domainProtection, sendSelf);
+				}
 				return super.put(key, newData, publicKey, putIfAbsent, domainProtection, sendSelf);
 			}
 			case DENY_ALL: {
@@ -89,7 +116,23 @@ public class H2HStorageMemory extends StorageLayer {
 			boolean domainProtection, boolean sendSelf) {
 		switch (putMode) {
 			case STANDARD: {
-				return super.putAll(dataMap, publicKey, putIfAbsent, domainProtection, sendSelf);
+				NavigableMap<Number640, Data> others = new TreeMap<Number640, Data>();
+				Map<Number640, Enum<?>> result = new HashMap<Number640, Enum<?>>(dataMap.size());
+				for (Map.Entry<Number640, Data> entry : dataMap.entrySet()) {
+					if (entry.getValue().isFlag1()) {
+						result.put(entry.getKey(), compareAndSet(entry.getKey(), entry.getValue(), publicKey,
+								putIfAbsent, domainProtection, sendSelf));
+					} else {
+						others.put(entry.getKey(), entry.getValue());
+					}
+				}
+
+				if (result.isEmpty()) {
+					return super.putAll(dataMap, publicKey, putIfAbsent, domainProtection, sendSelf);
+				} else if (!others.isEmpty()) {
+					result.putAll(super.putAll(others, publicKey, putIfAbsent, domainProtection, sendSelf));
+				}
+				return result;
 			}
 			case DENY_ALL: {
 				// logger.warn("Memory mode is denying the put request.");
@@ -102,6 +145,30 @@ public class H2HStorageMemory extends StorageLayer {
 		}
 	}
 
+	/**
+	 * Stores the data only if all latest versions of the key are in its based on set (or if it is the same
+	 * version again). The check and the put are atomic for the compare-and-set puts of the same key.
+	 */
+	private Enum<?> compareAndSet(Number640 key, Data newData, PublicKey publicKey, boolean putIfAbsent,
+			boolean domainProtection, boolean sendSelf) {
+		Set<Number160> basedOnSet = newData.basedOnSet();
+		int index = (key.locationAndDomainAndContentKey().hashCode() & Integer.MAX_VALUE) % COMPARE_AND_SET_LOCKS;
+		synchronized (compareAndSetLocks[index]) {
+			NavigableMap<Number640, Data> latest = super.getLatestVersion(key);
+			if (latest != null) {
+				for (Number640 latestKey : latest.keySet()) {
+					Number160 latestVersion = latestKey.versionKey();
+					if (!latestVersion.equals(key.versionKey()) && !basedOnSet.contains(latestVersion)) {
+						logger.debug("Rejecting put of version {} because it is not based on version {}.",
+								key.versionKey(), latestVersion);
+						return PutStatus.VERSION_FORK;
+					}
+				}
+			}
+			return super.put(key, newData, publicKey, putIfAbsent, domainProtection, sendSelf);
+		}
+	}
+
 	private Map<Number640, Enum<?>> buildReturnMap(Set<Number640> keys, PutStatus status) {
 		HashMap<Number640, Enum<?>> result = new HashMap<>(keys.size());
 		for (Number640 key : keys) {
@@ -110,10 +177,22 @@ public class H2HStorageMemory extends StorageLayer {
 		return result;
 	}
 
+	/**
+	 * Returns the latest versions of the key. If the version key of the requested key is the only latest
+	 * version, the requester already knows it. Then, only its meta data (e.g. the based on keys) is returned
+	 * instead of the whole content.
+	 */
 	public NavigableMap<Number640, Data> getLatestVersion(Number640 key) {
 		switch (getMode) {
 			case STANDARD: {
-				return super.getLatestVersion(key);
+				NavigableMap<Number640, Data> latest = super.getLatestVersion(key);
+				if (latest != null && latest.size() == 1 && !key.versionKey().isZero()
+						&& latest.firstKey().versionKey().equals(key.versionKey())) {
+					NavigableMap<Number640, Data> meta = new TreeMap<Number640, Data>();
+					meta.put(latest.firstKey(), latest.firstEntry().getValue().duplicateMeta());
+					return meta;
+				}
+				return latest;
 			}
 			case MANIPULATED: {
 				return manipulatedMap;
@@ -2,6 +2,7 @@ package org.hive2hive.core.network;
 
 import net.tomp2p.dht.PeerDHT;
 
+import org.hive2hive.core.H2HConstants;
 import org.hive2hive.core.H2HSession;
 import org.hive2hive.core.api.interfaces.IFileConfiguration;
 import org.hive2hive.core.api.interfaces.INetworkConfiguration;
@@ -10,7 +11,9 @@ import org.hive2hive.core.exceptions.NoPeerConnectionException;
 import org.hive2hive.core.exceptions.NoSessionException;
 import org.hive2hive.core.network.data.DataManager;
 import org.hive2hive.core.network.data.download.DownloadManager;
+import org.hive2hive.core.network.data.statistics.DataStatistics;
 import org.hive2hive.core.network.messages.MessageManager;
+import org.hive2hive.core.network.messages.session.MessageSessionManager;
 import org.hive2hive.core.security.IH2HEncryption;
 import org.hive2hive.core.serializer.IH2HSerialize;
 import org.slf4j.Logger;
@@ -24,17 +27,21 @@ public class NetworkManager {
 	private final Connection connection;
 	private final DataManager dataManager;
 	private final MessageManager messageManager;
+	private final MessageSessionManager messageSessionManager;
 	private String nodeID;
 	private H2HSession session;
 
 	private EventBus eventBus;
 	private final DownloadManager downloadManager;
+	private final IFileConfiguration fileConfig;
 
 	public NetworkManager(IH2HEncryption encryption, IH2HSerialize serializer, IFileConfiguration fileConfig) {
 		this.encryption = encryption;
+		this.fileConfig = fileConfig;
 		connection = new Connection(this, serializer);
 		dataManager = new DataManager(connection, serializer, encryption);
-		messageManager = new MessageManager(this, serializer);
+		messageManager = new MessageManager(this, serializer, dataManager.getRetryPolicy());
+		messageSessionManager = new MessageSessionManager();
 		downloadManager = new DownloadManager(this, fileConfig);
 	}
 
@@ -47,7 +54,9 @@ public class NetworkManager {
 	public boolean connect(INetworkConfiguration networkConfiguration) {
 		this.eventBus = new EventBus();
 		this.nodeID = networkConfiguration.getNodeID();
-		return connection.connect(networkConfiguration);
+		boolean connected = connection.connect(networkConfiguration);
+		registerStatistics(connected);
+		return connected;
 	}
 
 	/**
@@ -60,7 +69,15 @@ public class NetworkManager {
 	public boolean connect(PeerDHT peer, boolean startReplication) {
 		this.eventBus = new EventBus();
 		this.nodeID = peer.peerID().toString();
-		return connection.connect(peer, startReplication);
+		boolean connected = connection.connect(peer, startReplication);
+		registerStatistics(connected);
+		return connected;
+	}
+
+	private void registerStatistics(boolean connected) {
+		if (connected && H2HConstants.STATISTICS_JMX) {
+			dataManager.getStatistics().register(nodeID);
+		}
 	}
 
 	/**
@@ -82,6 +99,8 @@ public class NetworkManager {
 		eventBus.shutdown();
 		logger.debug("Eventbus stopped");
 
+		dataManager.getStatistics().unregister();
+
 		return connection.disconnect();
 	}
 
@@ -102,6 +121,13 @@ public class NetworkManager {
 		return connection;
 	}
 
+	/**
+	 * @return the statistics of the DHT operations (also available when not connected)
+	 */
+	public DataStatistics getDataStatistics() {
+		return dataManager.getStatistics();
+	}
+
 	/**
 	 * Sets the session of the logged in user in order to receive messages.
 	 * 
@@ -109,6 +135,10 @@ public class NetworkManager {
 	 */
 	public void setSession(H2HSession session) {
 		this.session = session;
+		// the message sessions belong to the previous user
+		messageSessionManager.clear();
+		// spill the cached content to the persistent cache of the user
+		dataManager.getContentCache().setFileAgent(session == null ? null : session.getFileAgent());
 	}
 
 	/**
@@ -148,6 +178,17 @@ public class NetworkManager {
 		return messageManager;
 	}
 
+	/**
+	 * @return the sessions to encrypt the messages from and to other peers symmetrically
+	 */
+	public MessageSessionManager getMessageSessionManager() {
+		return messageSessionManager;
+	}
+
+	public IFileConfiguration getFileConfiguration() {
+		return fileConfig;
+	}
+
 	public DownloadManager getDownloadManager() {
 		return downloadManager;
 	}
@@ -0,0 +1,457 @@
+package org.hive2hive.core.network.data;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hive2hive.core.H2HConstants;
+import org.hive2hive.core.file.IFileAgent;
+import org.hive2hive.core.network.data.parameters.IParameters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A local cache for content in the DHT that never changes once it is written (e.g. chunks or public keys).
+ * The content is cached in its serialized form, thus every hit returns a fresh object. Entries are evicted in
+ * least-recently-used order as soon as the memory bound is exceeded. If a file agent is set, evicted entries
+ * are spilled to its persistent cache (with a separate bound) and can be loaded from there again, also after
+ * a restart or by another client of the same user. The index of the spilled entries is stored in the
+ * persistent cache as well, such that the bound also holds across restarts.
+ */
+public class ContentCache {
+
+	private static final Logger logger = LoggerFactory.getLogger(ContentCache.class);
+
+	// the key of the index of the spilled entries in the persistent cache
+	private static final String INDEX_KEY = H2HConstants.CONTENT_CACHE_NAME + "index";
+	// the index is written after this number of changes (and when the file agent changes)
+	private static final int INDEX_WRITE_INTERVAL = 32;
+
+	private final long maxMemoryBytes;
+	private final long maxDiskBytes;
+	// content keys whose content never changes
+	private final Set<String> immutableContentKeys;
+	// content keys whose content never changes when a specific version is requested
+	private final Set<String> immutableVersionContentKeys;
+
+	// guarded by this, in access order
+	private final LinkedHashMap<String, byte[]> memory;
+	private final LinkedHashMap<String, Integer> disk;
+	private long memoryBytes = 0;
+	private long diskBytes = 0;
+	private int indexChanges = 0;
+	private IFileAgent fileAgent;
+
+	private final AtomicLong hits = new AtomicLong(0);
+	private final AtomicLong diskHits = new AtomicLong(0);
+	private final AtomicLong misses = new AtomicLong(0);
+	private final AtomicLong evictions = new AtomicLong(0);
+
+	/**
+	 * Creates a cache for chunks, public keys and specific meta file versions.
+	 *
+	 * @param maxMemoryBytes the maximum number of bytes kept in memory (0 disables the cache)
+	 * @param maxDiskBytes the maximum number of bytes spilled to the file agent (0 disables the spilling)
+	 */
+	public ContentCache(long maxMemoryBytes, long maxDiskBytes) {
+		this(maxMemoryBytes, maxDiskBytes, new HashSet<String>(Arrays.asList(H2HConstants.FILE_CHUNK,
+				H2HConstants.USER_PUBLIC_KEY)), Collections.singleton(H2HConstants.META_FILE));
+	}
+
+	/**
+	 * @param maxMemoryBytes the maximum number of bytes kept in memory (0 disables the cache)
+	 * @param maxDiskBytes the maximum number of bytes spilled to the file agent (0 disables the spilling)
+	 * @param immutableContentKeys content keys whose content never changes
+	 * @param immutableVersionContentKeys content keys whose content never changes when requested with a
+	 *            version key
+	 */
+	public ContentCache(long maxMemoryBytes, long maxDiskBytes, Set<String> immutableContentKeys,
+			Set<String> immutableVersionContentKeys) {
+		this.maxMemoryBytes = maxMemoryBytes;
+		this.maxDiskBytes = maxDiskBytes;
+		this.immutableContentKeys = new HashSet<String>(immutableContentKeys);
+		this.immutableVersionContentKeys = new HashSet<String>(immutableVersionContentKeys);
+		this.memory = new LinkedHashMap<String, byte[]>(16, 0.75f, true);
+		this.disk = new LinkedHashMap<String, Integer>(16, 0.75f, true);
+	}
+
+	/**
+	 * Sets the file agent to spill evicted entries to. The index of the previous agent is written to its
+	 * persistent cache and the index of the new agent is loaded from there.
+	 *
+	 * @param fileAgent the file agent of the logged in user or <code>null</code> to disable spilling
+	 */
+	public void setFileAgent(IFileAgent fileAgent) {
+		IFileAgent previous;
+		byte[] previousIndex;
+		synchronized (this) {
+			previous = this.fileAgent;
+			previousIndex = previous == null ? null : serializeIndex();
+			this.fileAgent = fileAgent;
+			disk.clear();
+			diskBytes = 0;
+			indexChanges = 0;
+		}
+
+		if (previous != null) {
+			writeIndex(previous, previousIndex);
+		}
+		if (fileAgent != null && maxDiskBytes > 0) {
+			loadIndex(fileAgent);
+		}
+	}
+
+	/**
+	 * @param parameters the parameters of a get
+	 * @param version <code>true</code> if a specific version is requested
+	 * @return <code>true</code> if the content can be cached
+	 */
+	public boolean isCacheable(IParameters parameters, boolean version) {
+		if (maxMemoryBytes <= 0 || parameters.getContentKey() == null) {
+			return false;
+		}
+		return immutableContentKeys.contains(parameters.getContentKey())
+				|| (version && immutableVersionContentKeys.contains(parameters.getContentKey()));
+	}
+
+	/**
+	 * @param parameters the parameters of a get
+	 * @param version <code>true</code> if a specific version is requested
+	 * @return the serialized content or <code>null</code> if it is not cached
+	 */
+	public byte[] get(IParameters parameters, boolean version) {
+		String key = createKey(parameters, version);
+		IFileAgent agent;
+		synchronized (this) {
+			byte[] data = memory.get(key);
+			if (data != null) {
+				hits.incrementAndGet();
+				return data;
+			}
+			agent = fileAgent;
+		}
+
+		if (agent != null && maxDiskBytes > 0) {
+			byte[] data = readSpilled(agent, key);
+			if (data != null) {
+				// back to the memory, the spilled copy is kept
+				diskHits.incrementAndGet();
+				put(key, data);
+				return data;
+			}
+			forgetSpilled(key);
+		}
+
+		misses.incrementAndGet();
+		return null;
+	}
+
+	/**
+	 * @param parameters the parameters of a get
+	 * @param version <code>true</code> if a specific version has been requested
+	 * @param data the serialized content
+	 */
+	public void put(IParameters parameters, boolean version, byte[] data) {
+		if (data != null && data.length > 0 && data.length <= maxMemoryBytes) {
+			put(createKey(parameters, version), data);
+		}
+	}
+
+	private void put(String key, byte[] data) {
+		Map<String, byte[]> evicted = new LinkedHashMap<String, byte[]>();
+		IFileAgent agent;
+		synchronized (this) {
+			byte[] previous = memory.put(key, data);
+			if (previous != null) {
+				memoryBytes -= previous.length;
+			}
+			memoryBytes += data.length;
+
+			Iterator<Entry<String, byte[]>> iterator = memory.entrySet().iterator();
+			while (memoryBytes > maxMemoryBytes && iterator.hasNext()) {
+				Entry<String, byte[]> eldest = iterator.next();
+				iterator.remove();
+				memoryBytes -= eldest.getValue().length;
+				evicted.put(eldest.getKey(), eldest.getValue());
+			}
+			agent = fileAgent;
+		}
+
+		evictions.addAndGet(evicted.size());
+		if (agent != null && maxDiskBytes > 0) {
+			for (Entry<String, byte[]> entry : evicted.entrySet()) {
+				spill(agent, entry.getKey(), entry.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Removes the content from the cache (e.g. because it has been removed from the DHT)
+	 *
+	 * @param parameters the parameters of the removal
+	 * @param version <code>true</code> if a specific version has been removed
+	 */
+	public void invalidate(IParameters parameters, boolean version) {
+		if (!isCacheable(parameters, version)) {
+			return;
+		}
+
+		String key = createKey(parameters, version);
+		IFileAgent agent;
+		boolean spilled;
+		synchronized (this) {
+			byte[] data = memory.remove(key);
+			if (data != null) {
+				memoryBytes -= data.length;
+			}
+			Integer size = disk.remove(key);
+			spilled = size != null;
+			if (spilled) {
+				diskBytes -= size;
+				indexChanges++;
+			}
+			agent = fileAgent;
+		}
+
+		if (spilled && agent != null) {
+			clearSpilled(agent, key);
+		}
+	}
+
+	private void spill(IFileAgent agent, String key, byte[] data) {
+		if (data.length > maxDiskBytes) {
+			return;
+		}
+
+		try {
+			agent.writeCache(key, data);
+		} catch (IOException e) {
+			logger.warn("Could not spill cached content '{}' to the disk.", key, e);
+			return;
+		}
+
+		Set<String> evicted;
+		byte[] index = null;
+		synchronized (this) {
+			if (agent != fileAgent) {
+				// the user logged out meanwhile, the entry would not be tracked
+				evicted = Collections.singleton(key);
+			} else {
+				evicted = spilled(key, data.length);
+				index = indexChanged(evicted.size() + 1);
+			}
+		}
+
+		for (String evictedKey : evicted) {
+			clearSpilled(agent, evictedKey);
+		}
+		if (index != null) {
+			writeIndex(agent, index);
+		}
+	}
+
+	/**
+	 * Adds a spilled entry to the index
+	 *
+	 * @return the keys of the entries that need to be deleted from the file agent to keep the bound
+	 */
+	private Set<String> spilled(String key, int length) {
+		assert Thread.holdsLock(this);
+		Integer previous = disk.put(key, length);
+		if (previous != null) {
+			diskBytes -= previous;
+		}
+		diskBytes += length;
+		return evictSpilled();
+	}
+
+	/**
+	 * Removes the least recently used spilled entries until the disk bound holds
+	 *
+	 * @return the keys of the removed entries, which still need to be deleted from the file agent
+	 */
+	private Set<String> evictSpilled() {
+		assert Thread.holdsLock(this);
+		Set<String> evicted = new HashSet<String>();
+		Iterator<Entry<String, Integer>> iterator = disk.entrySet().iterator();
+		while (diskBytes > maxDiskBytes && iterator.hasNext()) {
+			Entry<String, Integer> eldest = iterator.next();
+			iterator.remove();
+			diskBytes -= eldest.getValue();
+			evicted.add(eldest.getKey());
+		}
+		return evicted;
+	}
+
+	/**
+	 * Counts changes of the index
+	 *
+	 * @param changes the number of changed entries
+	 * @return the serialized index if it should be written now, else <code>null</code>
+	 */
+	private byte[] indexChanged(int changes) {
+		assert Thread.holdsLock(this);
+		indexChanges += changes;
+		if (indexChanges < INDEX_WRITE_INTERVAL) {
+			return null;
+		}
+		indexChanges = 0;
+		return serializeIndex();
+	}
+
+	/**
+	 * Removes an entry from the index that cannot be read from the file agent anymore
+	 */
+	private synchronized void forgetSpilled(String key) {
+		Integer size = disk.remove(key);
+		if (size != null) {
+			diskBytes -= size;
+			indexChanges++;
+		}
+	}
+
+	/**
+	 * @return the keys and sizes of the spilled entries in least recently used order
+	 */
+	private byte[] serializeIndex() {
+		assert Thread.holdsLock(this);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeInt(disk.size());
+			for (Entry<String, Integer> entry : disk.entrySet()) {
+				out.writeUTF(entry.getKey());
+				out.writeInt(entry.getValue());
+			}
+		} catch (IOException e) {
+			// cannot happen in memory
+			throw new IllegalStateException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	private static void writeIndex(IFileAgent agent, byte[] index) {
+		try {
+			agent.writeCache(INDEX_KEY, index);
+		} catch (IOException e) {
+			logger.warn("Could not write the index of the spilled content.", e);
+		}
+	}
+
+	/**
+	 * Loads the index of the entries spilled in earlier sessions, such that they count towards the bound
+	 */
+	private void loadIndex(IFileAgent agent) {
+		byte[] index = readSpilled(agent, INDEX_KEY);
+		if (index == null) {
+			return;
+		}
+
+		Set<String> evicted;
+		synchronized (this) {
+			if (agent != fileAgent) {
+				return;
+			}
+
+			try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(index))) {
+				int size = in.readInt();
+				for (int i = 0; i < size; i++) {
+					String key = in.readUTF();
+					int length = in.readInt();
+					disk.put(key, length);
+					diskBytes += length;
+				}
+			} catch (IOException e) {
+				logger.warn("The index of the spilled content is corrupt. Using the {} readable entries.", disk.size(), e);
+			}
+
+			// the bound may have been lowered since
+			evicted = evictSpilled();
+		}
+
+		logger.debug("Loaded the index of {} spilled entries ({} bytes).", disk.size(), getDiskBytes());
+		for (String evictedKey : evicted) {
+			clearSpilled(agent, evictedKey);
+		}
+	}
+
+	private static byte[] readSpilled(IFileAgent agent, String key) {
+		try {
+			byte[] data = agent.readCache(key);
+			return data == null || data.length == 0 ? null : data;
+		} catch (IOException e) {
+			// not spilled
+			return null;
+		}
+	}
+
+	private static void clearSpilled(IFileAgent agent, String key) {
+		try {
+			agent.deleteCache(key);
+		} catch (IOException e) {
+			logger.warn("Could not delete spilled content '{}'.", key, e);
+		}
+	}
+
+	private static String createKey(IParameters parameters, boolean version) {
+		StringBuilder key = new StringBuilder(H2HConstants.CONTENT_CACHE_NAME);
+		key.append(parameters.getLKey()).append('_').append(parameters.getDKey()).append('_')
+				.append(parameters.getCKey());
+		if (version) {
+			key.append('_').append(parameters.getVersionKey());
+		}
+		return key.toString();
+	}
+
+	/**
+	 * @return the number of gets served from the memory
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return the number of gets served from the spilled content
+	 */
+	public long getDiskHits() {
+		return diskHits.get();
+	}
+
+	/**
+	 * @return the number of gets of cacheable content that have not been served from the cache
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * @return the number of entries that have been evicted from the memory
+	 */
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	/**
+	 * @return the number of bytes currently cached in memory
+	 */
+	public synchronized long getMemoryBytes() {
+		return memoryBytes;
+	}
+
+	/**
+	 * @return the number of bytes currently spilled to the disk
+	 */
+	public synchronized long getDiskBytes() {
+		return diskBytes;
+	}
+}
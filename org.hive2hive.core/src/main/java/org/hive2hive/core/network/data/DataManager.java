@@ -3,13 +3,17 @@ package org.hive2hive.core.network.data;
 import java.io.IOException;
 import java.security.KeyPair;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map.Entry;
 import java.util.NavigableMap;
+import java.util.TreeMap;
 
 import net.tomp2p.dht.FutureDigest;
 import net.tomp2p.dht.FutureGet;
 import net.tomp2p.dht.FuturePut;
 import net.tomp2p.dht.FutureRemove;
 import net.tomp2p.dht.PeerDHT;
+import net.tomp2p.futures.BaseFutureAdapter;
 import net.tomp2p.peers.Number160;
 import net.tomp2p.peers.Number640;
 import net.tomp2p.storage.Data;
@@ -17,19 +21,39 @@ import net.tomp2p.storage.Data;
 import org.hive2hive.core.H2HConstants;
 import org.hive2hive.core.model.BaseNetworkContent;
 import org.hive2hive.core.network.IPeerHolder;
+import org.hive2hive.core.network.data.IRetryPolicy.Operation;
+import org.hive2hive.core.network.data.futures.DataBatch;
+import org.hive2hive.core.network.data.futures.DataFuture;
 import org.hive2hive.core.network.data.futures.FutureChangeProtectionListener;
 import org.hive2hive.core.network.data.futures.FutureDigestListener;
 import org.hive2hive.core.network.data.futures.FutureGetListener;
 import org.hive2hive.core.network.data.futures.FuturePutListener;
 import org.hive2hive.core.network.data.futures.FutureRemoveListener;
+import org.hive2hive.core.network.data.futures.HedgedRequest;
+import org.hive2hive.core.network.data.futures.IDataFutureListener;
 import org.hive2hive.core.network.data.parameters.IParameters;
 import org.hive2hive.core.network.data.parameters.Parameters;
+import org.hive2hive.core.network.data.statistics.DataOperation;
+import org.hive2hive.core.network.data.statistics.DataStatistics;
 import org.hive2hive.core.security.IH2HEncryption;
 import org.hive2hive.core.serializer.IH2HSerialize;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
+ * Stores, loads and removes content in the DHT. Every operation is available in three flavors:
+ * <ul>
+ * <li><code>xAsync</code> returns a {@link DataFuture} with failure handling (retries, verification) and a
+ * timeout. Many of them can run at the same time without blocking a thread each.</li>
+ * <li><code>x</code> blocks until the future is done.</li>
+ * <li><code>xUnblocked</code> returns the raw TomP2P future without any failure handling.</li>
+ * </ul>
+ * The batch operations (e.g. {@link #putAll(List)}) run many operations with a bounded window (see
+ * {@link H2HConstants#DHT_BATCH_WINDOW}) and return the results in the order of the given parameters.
+ * How often failed operations are retried, how long to back off in between and when slow gets are hedged is
+ * decided by the {@link IRetryPolicy}. The latencies of all single DHT operations and the responding peers are
+ * measured by the {@link DataStatistics}.
+ * 
  * @author Seppi
  */
 public class DataManager {
@@ -46,11 +70,22 @@ public class DataManager {
 	private final IPeerHolder peerHolder;
 	private final IH2HEncryption encryption;
 	private final H2HSlowPeerFilter slowPeerFilter = new H2HSlowPeerFilter();
+	private final ContentCache contentCache;
+	private final IRetryPolicy retryPolicy;
+	private final DataStatistics statistics = new DataStatistics();
 
 	public DataManager(IPeerHolder peerHolder, IH2HSerialize serializer, IH2HEncryption encryption) {
+		this(peerHolder, serializer, encryption, new ContentCache(H2HConstants.CONTENT_CACHE_MEMORY_BYTES,
+				H2HConstants.CONTENT_CACHE_DISK_BYTES), RetryPolicy.createDefault());
+	}
+
+	public DataManager(IPeerHolder peerHolder, IH2HSerialize serializer, IH2HEncryption encryption,
+			ContentCache contentCache, IRetryPolicy retryPolicy) {
 		this.peerHolder = peerHolder;
 		this.serializer = serializer;
 		this.encryption = encryption;
+		this.contentCache = contentCache;
+		this.retryPolicy = retryPolicy;
 	}
 
 	public IH2HEncryption getEncryption() {
@@ -61,19 +96,45 @@ public class DataManager {
 		return serializer;
 	}
 
+	/**
+	 * @return the local cache for immutable content (e.g. chunks)
+	 */
+	public ContentCache getContentCache() {
+		return contentCache;
+	}
+
+	/**
+	 * @return the policy for retries and hedging of the DHT operations
+	 */
+	public IRetryPolicy getRetryPolicy() {
+		return retryPolicy;
+	}
+
+	/**
+	 * @return the statistics of the DHT operations
+	 */
+	public DataStatistics getStatistics() {
+		return statistics;
+	}
+
 	private PeerDHT getPeer() {
 		return peerHolder.getPeer();
 	}
 
 	public boolean changeProtectionKey(IParameters parameters) {
+		return changeProtectionKeyAsync(parameters).await();
+	}
+
+	public DataFuture<Boolean> changeProtectionKeyAsync(IParameters parameters) {
 		FuturePut putFuture = changeProtectionKeyUnblocked(parameters);
 		if (putFuture == null) {
-			return false;
+			return DataFuture.completed(false);
 		}
 
-		FutureChangeProtectionListener listener = new FutureChangeProtectionListener(parameters);
+		FutureChangeProtectionListener listener = new FutureChangeProtectionListener(parameters, retryPolicy);
+		listener.getFuture().track(putFuture);
 		putFuture.addListener(listener);
-		return listener.await();
+		return listener.getFuture();
 	}
 
 	public FuturePut changeProtectionKeyUnblocked(IParameters parameters) {
@@ -88,20 +149,26 @@ public class DataManager {
 		data = data.duplicateMeta();
 
 		// change the protection key through a put meta
-		return getPeer().put(parameters.getLKey()).domainKey(parameters.getDKey()).putMeta()
-				.data(parameters.getCKey(), data).versionKey(parameters.getVersionKey())
-				.addPostRoutingFilter(slowPeerFilter).keyPair(parameters.getProtectionKeys()).start();
+		return statistics.track(DataOperation.CHANGE_PROTECTION, parameters, getPeer().put(parameters.getLKey())
+				.domainKey(parameters.getDKey()).putMeta().data(parameters.getCKey(), data)
+				.versionKey(parameters.getVersionKey()).addPostRoutingFilter(slowPeerFilter)
+				.keyPair(parameters.getProtectionKeys()).start());
 	}
 
 	public H2HPutStatus put(IParameters parameters) {
+		return putAsync(parameters).await();
+	}
+
+	public DataFuture<H2HPutStatus> putAsync(IParameters parameters) {
 		FuturePut putFuture = putUnblocked(parameters);
 		if (putFuture == null) {
-			return H2HPutStatus.FAILED;
+			return DataFuture.completed(H2HPutStatus.FAILED);
 		}
 
 		FuturePutListener listener = new FuturePutListener(parameters, this);
+		listener.getFuture().track(putFuture);
 		putFuture.addListener(listener);
-		return listener.await();
+		return listener.getFuture();
 	}
 
 	public H2HPutStatus putUserProfileTask(String userId, Number160 contentKey, BaseNetworkContent content,
@@ -109,14 +176,7 @@ public class DataManager {
 		IParameters parameters = new Parameters().setLocationKey(userId).setContentKey(contentKey)
 				.setDomainKey(H2HConstants.USER_PROFILE_TASK_DOMAIN).setNetworkContent(content)
 				.setProtectionKeys(protectionKey).setTTL(content.getTimeToLive());
-		FuturePut putFuture = putUnblocked(parameters);
-		if (putFuture == null) {
-			return H2HPutStatus.FAILED;
-		}
-
-		FuturePutListener listener = new FuturePutListener(parameters, this);
-		putFuture.addListener(listener);
-		return listener.await();
+		return put(parameters);
 	}
 
 	public FuturePut putUnblocked(IParameters parameters) {
@@ -129,9 +189,16 @@ public class DataManager {
 			if (parameters.getBasedOnKey() != null) {
 				data.addBasedOn(parameters.getBasedOnKey());
 			}
+			for (Number160 mergedKey : parameters.getMergedKeys()) {
+				data.addBasedOn(mergedKey);
+			}
 			if (parameters.hasPrepareFlag()) {
 				data.prepareFlag();
 			}
+			if (parameters.hasCompareAndSetFlag()) {
+				// the storing peers check the version before storing it (see H2HStorageMemory)
+				data.flag1();
+			}
 
 			// check if data to put is content protected
 			if (parameters.getProtectionKeys() != null) {
@@ -141,9 +208,10 @@ public class DataManager {
 			// cache data
 			parameters.setData(data);
 
-			return getPeer().put(parameters.getLKey()).data(parameters.getCKey(), data).domainKey(parameters.getDKey())
+			return statistics.track(DataOperation.PUT, parameters, getPeer().put(parameters.getLKey())
+					.data(parameters.getCKey(), data).domainKey(parameters.getDKey())
 					.addPostRoutingFilter(slowPeerFilter).versionKey(parameters.getVersionKey())
-					.keyPair(parameters.getProtectionKeys()).start();
+					.keyPair(parameters.getProtectionKeys()).start());
 		} catch (IOException e) {
 			logger.error("Put failed. {}.", parameters.toString(), e);
 			return null;
@@ -158,121 +226,380 @@ public class DataManager {
 		if (parameters.getBasedOnKey() != null) {
 			data.addBasedOn(parameters.getBasedOnKey());
 		}
+		for (Number160 mergedKey : parameters.getMergedKeys()) {
+			data.addBasedOn(mergedKey);
+		}
 
 		// check if data to put is content protected
 		if (parameters.getProtectionKeys() != null) {
 			data.protectEntry(parameters.getProtectionKeys());
 		}
 
-		return getPeer().put(parameters.getLKey()).data(parameters.getCKey(), data).domainKey(parameters.getDKey())
-				.addPostRoutingFilter(slowPeerFilter).versionKey(parameters.getVersionKey())
-				.keyPair(parameters.getProtectionKeys()).putConfirm().start();
+		return statistics.track(DataOperation.CONFIRM, parameters, getPeer().put(parameters.getLKey())
+				.data(parameters.getCKey(), data).domainKey(parameters.getDKey()).addPostRoutingFilter(slowPeerFilter)
+				.versionKey(parameters.getVersionKey()).keyPair(parameters.getProtectionKeys()).putConfirm().start());
 	}
 
 	public BaseNetworkContent get(IParameters parameters) {
-		FutureGet futureGet = getUnblocked(parameters);
-		FutureGetListener listener = new FutureGetListener(parameters, serializer);
-		futureGet.addListener(listener);
-		return listener.awaitAndGet();
+		return getAsync(parameters).await();
+	}
+
+	public DataFuture<BaseNetworkContent> getAsync(IParameters parameters) {
+		DataFuture<BaseNetworkContent> cached = getCached(parameters, false);
+		if (cached != null) {
+			return cached;
+		}
+		return hedgedGet(parameters, false);
 	}
 
 	public BaseNetworkContent getVersion(IParameters parameters) {
-		FutureGet futureGet = getVersionUnblocked(parameters);
-		FutureGetListener listener = new FutureGetListener(parameters, serializer);
-		futureGet.addListener(listener);
-		return listener.awaitAndGet();
+		return getVersionAsync(parameters).await();
+	}
+
+	public DataFuture<BaseNetworkContent> getVersionAsync(IParameters parameters) {
+		DataFuture<BaseNetworkContent> cached = getCached(parameters, true);
+		if (cached != null) {
+			return cached;
+		}
+		return hedgedGet(parameters, true);
 	}
 
 	public BaseNetworkContent getUserProfileTask(String userId) {
 		IParameters parameters = new Parameters().setLocationKey(userId).setDomainKey(H2HConstants.USER_PROFILE_TASK_DOMAIN);
-		FutureGet futureGet = getPeer().get(parameters.getLKey())
+		FutureGet futureGet = statistics.track(DataOperation.GET, parameters, getPeer().get(parameters.getLKey())
 				.from(new Number640(parameters.getLKey(), parameters.getDKey(), Number160.ZERO, Number160.ZERO))
 				.to(new Number640(parameters.getLKey(), parameters.getDKey(), Number160.MAX_VALUE, Number160.MAX_VALUE))
-				.ascending().returnNr(1).addPostRoutingFilter(slowPeerFilter).start();
-		FutureGetListener listener = new FutureGetListener(parameters, serializer);
+				.ascending().returnNr(1).addPostRoutingFilter(slowPeerFilter).start());
+		return listenGet(parameters, false, futureGet).await();
+	}
+
+	private DataFuture<BaseNetworkContent> getCached(IParameters parameters, boolean version) {
+		if (!contentCache.isCacheable(parameters, version)) {
+			return null;
+		}
+
+		byte[] data = contentCache.get(parameters, version);
+		if (data == null) {
+			return null;
+		}
+
+		try {
+			logger.debug("Got from the content cache. {}", parameters.toString());
+			return DataFuture.completed((BaseNetworkContent) serializer.deserialize(data));
+		} catch (IOException | ClassNotFoundException e) {
+			logger.warn("Cached content is corrupt. {}", parameters.toString(), e);
+			contentCache.invalidate(parameters, version);
+			return null;
+		}
+	}
+
+	/**
+	 * Sends a second get if the first one takes longer than the hedge delay of the retry policy
+	 */
+	private DataFuture<BaseNetworkContent> hedgedGet(final IParameters parameters, final boolean version) {
+		return new HedgedRequest<BaseNetworkContent>(null, retryPolicy.getHedgeDelayMs(Operation.GET)) {
+			@Override
+			protected DataFuture<BaseNetworkContent> start(boolean hedge) {
+				final long start = System.currentTimeMillis();
+				DataFuture<BaseNetworkContent> future = listenGet(parameters, version,
+						version ? getVersionUnblocked(parameters) : getUnblocked(parameters));
+				future.addListener(new IDataFutureListener<BaseNetworkContent>() {
+					@Override
+					public void onDone(DataFuture<BaseNetworkContent> future) {
+						if (!future.isCancelled() && !future.isTimedOut()) {
+							retryPolicy.recordLatency(Operation.GET, System.currentTimeMillis() - start);
+						}
+					}
+				});
+				return future;
+			}
+		}.run();
+	}
+
+	private DataFuture<BaseNetworkContent> listenGet(final IParameters parameters, final boolean version,
+			FutureGet futureGet) {
+		if (contentCache.isCacheable(parameters, version)) {
+			futureGet.addListener(new BaseFutureAdapter<FutureGet>() {
+				@Override
+				public void operationComplete(FutureGet future) throws Exception {
+					if (future.isSuccess() && !future.isEmpty() && future.data() != null) {
+						contentCache.put(parameters, version, future.data().toBytes());
+					}
+				}
+			});
+		}
+
+		FutureGetListener listener = new FutureGetListener(parameters, serializer, retryPolicy);
+		listener.getFuture().track(futureGet);
 		futureGet.addListener(listener);
-		return listener.awaitAndGet();
+		return listener.getFuture();
 	}
 
 	public FutureGet getUnblocked(IParameters parameters) {
 		logger.debug("Get. {}", parameters.toString());
-		return getPeer().get(parameters.getLKey())
+		return statistics.track(DataOperation.GET, parameters, getPeer().get(parameters.getLKey())
 				.from(new Number640(parameters.getLKey(), parameters.getDKey(), parameters.getCKey(), Number160.ZERO))
 				.to(new Number640(parameters.getLKey(), parameters.getDKey(), parameters.getCKey(), Number160.MAX_VALUE))
-				.descending().returnNr(1).fastGet(false).addPostRoutingFilter(slowPeerFilter).start();
+				.descending().returnNr(1).fastGet(false).addPostRoutingFilter(slowPeerFilter).start());
 	}
 
 	public FutureGet getVersionUnblocked(IParameters parameters) {
 		logger.debug("Get version. {}", parameters.toString());
-		return getPeer().get(parameters.getLKey()).domainKey(parameters.getDKey()).contentKey(parameters.getCKey())
-				.versionKey(parameters.getVersionKey()).addPostRoutingFilter(slowPeerFilter).start();
+		return statistics.track(DataOperation.GET_VERSION, parameters, getPeer().get(parameters.getLKey())
+				.domainKey(parameters.getDKey()).contentKey(parameters.getCKey()).versionKey(parameters.getVersionKey())
+				.addPostRoutingFilter(slowPeerFilter).start());
+	}
+
+	/**
+	 * Gets all stored versions of a content at once, e.g. to restore a chain of versions without a round trip
+	 * per version. The number of versions is bounded by {@link H2HConstants#MAX_VERSIONS_HISTORY}.
+	 * 
+	 * @param parameters the parameters of the get (the version key is ignored)
+	 * @return a future with the versions by their version key or <code>null</code> if the get failed
+	 */
+	public DataFuture<NavigableMap<Number160, BaseNetworkContent>> getVersionsAsync(final IParameters parameters) {
+		final DataFuture<NavigableMap<Number160, BaseNetworkContent>> result;
+		result = new DataFuture<NavigableMap<Number160, BaseNetworkContent>>(null);
+		result.withTimeout(retryPolicy.getDeadlineMs(Operation.GET));
+		FutureGet futureGet = getVersionsUnblocked(parameters);
+		result.track(futureGet);
+		futureGet.addListener(new BaseFutureAdapter<FutureGet>() {
+			@Override
+			public void operationComplete(FutureGet future) throws Exception {
+				if (future.isFailed() || future.dataMap() == null) {
+					logger.debug("Got no versions. {}", parameters.toString());
+					result.complete(null);
+					return;
+				}
+
+				NavigableMap<Number160, BaseNetworkContent> versions = new TreeMap<Number160, BaseNetworkContent>();
+				try {
+					for (Entry<Number640, Data> entry : future.dataMap().entrySet()) {
+						byte[] buffer = entry.getValue().toBytes();
+						if (buffer != null && buffer.length > 0) {
+							BaseNetworkContent version = (BaseNetworkContent) serializer.deserialize(buffer);
+							versions.put(entry.getKey().versionKey(), version);
+						}
+					}
+				} catch (IOException | ClassNotFoundException e) {
+					logger.warn("Cannot deserialize the versions. {} reason = '{}'", parameters.toString(),
+							e.getMessage());
+					result.complete(null);
+					return;
+				}
+				logger.debug("Got {} versions. {}", versions.size(), parameters.toString());
+				result.complete(versions);
+			}
+		});
+		return result;
+	}
+
+	public FutureGet getVersionsUnblocked(IParameters parameters) {
+		logger.debug("Get all versions. {}", parameters.toString());
+		return statistics.track(DataOperation.GET, parameters, getPeer().get(parameters.getLKey())
+				.from(new Number640(parameters.getLKey(), parameters.getDKey(), parameters.getCKey(), Number160.ZERO))
+				.to(new Number640(parameters.getLKey(), parameters.getDKey(), parameters.getCKey(), Number160.MAX_VALUE))
+				.ascending().fastGet(false).addPostRoutingFilter(slowPeerFilter).start());
+	}
+
+	/**
+	 * Gets the latest versions including their digest (blocking).
+	 * 
+	 * @param parameters the parameters of the get
+	 * @return the finished future (check for success) or <code>null</code> if the deadline passed
+	 * @see #getLatestAsync(IParameters)
+	 */
+	public FutureGet getLatest(IParameters parameters) {
+		return getLatestAsync(parameters).await();
 	}
 
+	/**
+	 * Gets the latest versions including their digest. If the get takes longer than the hedge delay of the
+	 * retry policy, a second get is sent and the first successful one wins.
+	 * 
+	 * @param parameters the parameters of the get
+	 * @return a future with the finished network future (check for success) or <code>null</code> if the
+	 *         deadline passed
+	 */
+	public DataFuture<FutureGet> getLatestAsync(final IParameters parameters) {
+		final long start = System.currentTimeMillis();
+		DataFuture<FutureGet> future = new HedgedRequest<FutureGet>(null,
+				retryPolicy.getHedgeDelayMs(Operation.VERSION_GET)) {
+			@Override
+			protected DataFuture<FutureGet> start(boolean hedge) {
+				if (hedge) {
+					logger.debug("Get of the latest version takes long. Sending a hedged request. {}",
+							parameters.toString());
+				}
+
+				final DataFuture<FutureGet> attempt = new DataFuture<FutureGet>(null);
+				FutureGet futureGet = getLatestUnblocked(parameters);
+				attempt.track(futureGet);
+				futureGet.addListener(new BaseFutureAdapter<FutureGet>() {
+					@Override
+					public void operationComplete(FutureGet future) throws Exception {
+						attempt.complete(future);
+					}
+				});
+				return attempt;
+			}
+
+			@Override
+			protected boolean isSuccess(FutureGet value) {
+				return value != null && value.isSuccess();
+			}
+		}.run().withTimeout(retryPolicy.getDeadlineMs(Operation.GET));
+
+		future.addListener(new IDataFutureListener<FutureGet>() {
+			@Override
+			public void onDone(DataFuture<FutureGet> future) {
+				if (future.await() != null) {
+					retryPolicy.recordLatency(Operation.VERSION_GET, System.currentTimeMillis() - start);
+				}
+			}
+		});
+		return future;
+	}
+
+	/**
+	 * Gets the latest versions including their digest. If the parameters contain a version key, the storing
+	 * peers return the latest version without its content if it is the given one (see
+	 * {@link org.hive2hive.core.network.H2HStorageMemory#getLatestVersion(Number640)}).
+	 * 
+	 * @param parameters the parameters of the get
+	 * @return the network future
+	 */
 	public FutureGet getLatestUnblocked(IParameters parameters) {
 		logger.debug("Get latest version. {}", parameters.toString());
-		return getPeer().get(parameters.getLKey()).domainKey(parameters.getDKey()).contentKey(parameters.getCKey())
-				.getLatest().withDigest().fastGet(false).addPostRoutingFilter(slowPeerFilter).start();
+		return statistics.track(DataOperation.GET_LATEST, parameters, getPeer().get(parameters.getLKey())
+				.domainKey(parameters.getDKey()).contentKey(parameters.getCKey()).versionKey(parameters.getVersionKey())
+				.getLatest().withDigest().fastGet(false).addPostRoutingFilter(slowPeerFilter).start());
 	}
 
 	public boolean remove(IParameters parameters) {
-		FutureRemove futureRemove = removeUnblocked(parameters);
-		FutureRemoveListener listener = new FutureRemoveListener(parameters, false, this);
-		futureRemove.addListener(listener);
-		return listener.await();
+		return removeAsync(parameters).await();
+	}
+
+	public DataFuture<Boolean> removeAsync(IParameters parameters) {
+		contentCache.invalidate(parameters, false);
+		return listenRemove(parameters, false, removeUnblocked(parameters));
 	}
 
 	public boolean removeVersion(IParameters parameters) {
-		FutureRemove futureRemove = removeVersionUnblocked(parameters);
-		FutureRemoveListener listener = new FutureRemoveListener(parameters, true, this);
-		futureRemove.addListener(listener);
-		return listener.await();
+		return removeVersionAsync(parameters).await();
+	}
+
+	public DataFuture<Boolean> removeVersionAsync(IParameters parameters) {
+		contentCache.invalidate(parameters, true);
+		return listenRemove(parameters, true, removeVersionUnblocked(parameters));
 	}
 
 	public boolean removeUserProfileTask(String userId, Number160 contentKey, KeyPair protectionKey) {
 		IParameters parameters = new Parameters().setLocationKey(userId).setDomainKey(H2HConstants.USER_PROFILE_TASK_DOMAIN)
 				.setContentKey(contentKey).setProtectionKeys(protectionKey);
-		FutureRemove futureRemove = removeUnblocked(parameters);
-		FutureRemoveListener listener = new FutureRemoveListener(parameters, true, this);
+		return listenRemove(parameters, true, removeUnblocked(parameters)).await();
+	}
+
+	private DataFuture<Boolean> listenRemove(IParameters parameters, boolean versionRemove, FutureRemove futureRemove) {
+		FutureRemoveListener listener = new FutureRemoveListener(parameters, versionRemove, this);
+		listener.getFuture().track(futureRemove);
 		futureRemove.addListener(listener);
-		return listener.await();
+		return listener.getFuture();
 	}
 
 	public FutureRemove removeUnblocked(IParameters parameters) {
 		logger.debug("Remove. {}", parameters.toString());
-		return getPeer().remove(parameters.getLKey())
+		return statistics.track(DataOperation.REMOVE, parameters, getPeer().remove(parameters.getLKey())
 				.from(new Number640(parameters.getLKey(), parameters.getDKey(), parameters.getCKey(), Number160.ZERO))
 				.to(new Number640(parameters.getLKey(), parameters.getDKey(), parameters.getCKey(), Number160.MAX_VALUE))
-				.keyPair(parameters.getProtectionKeys()).addPostRoutingFilter(slowPeerFilter).start();
+				.keyPair(parameters.getProtectionKeys()).addPostRoutingFilter(slowPeerFilter).start());
 	}
 
 	public FutureRemove removeVersionUnblocked(IParameters parameters) {
 		logger.debug("Remove version. {}", parameters.toString());
-		return getPeer().remove(parameters.getLKey()).domainKey(parameters.getDKey()).contentKey(parameters.getCKey())
-				.versionKey(parameters.getVersionKey()).keyPair(parameters.getProtectionKeys())
-				.addPostRoutingFilter(slowPeerFilter).start();
+		return statistics.track(DataOperation.REMOVE, parameters, getPeer().remove(parameters.getLKey())
+				.domainKey(parameters.getDKey()).contentKey(parameters.getCKey()).versionKey(parameters.getVersionKey())
+				.keyPair(parameters.getProtectionKeys()).addPostRoutingFilter(slowPeerFilter).start());
 	}
 
 	public NavigableMap<Number640, Collection<Number160>> getDigestLatest(IParameters parameters) {
+		return getDigestLatestAsync(parameters).await();
+	}
+
+	public DataFuture<NavigableMap<Number640, Collection<Number160>>> getDigestLatestAsync(IParameters parameters) {
 		FutureDigest futureDigest = getDigestLatestUnblocked(parameters);
-		FutureDigestListener listener = new FutureDigestListener(parameters);
+		FutureDigestListener listener = new FutureDigestListener(parameters, retryPolicy);
+		listener.getFuture().track(futureDigest);
 		futureDigest.addListener(listener);
-		return listener.awaitAndGet();
+		return listener.getFuture();
 	}
 
 	public FutureDigest getDigestLatestUnblocked(IParameters parameters) {
 		logger.debug("Get digest (latest). {}", parameters.toString());
-		return getPeer().digest(parameters.getLKey())
+		return statistics.track(DataOperation.DIGEST, parameters, getPeer().digest(parameters.getLKey())
 				.from(new Number640(parameters.getLKey(), parameters.getDKey(), parameters.getCKey(), Number160.ZERO))
 				.to(new Number640(parameters.getLKey(), parameters.getDKey(), parameters.getCKey(), Number160.MAX_VALUE))
-				.descending().returnNr(1).fastGet(false).addPostRoutingFilter(slowPeerFilter).start();
+				.descending().returnNr(1).fastGet(false).addPostRoutingFilter(slowPeerFilter).start());
 	}
 
 	public FutureDigest getDigestUnblocked(IParameters parameters) {
 		logger.debug("Get digest. {}", parameters.toString());
-		return getPeer().digest(parameters.getLKey())
+		return statistics.track(DataOperation.DIGEST, parameters, getPeer().digest(parameters.getLKey())
 				.from(new Number640(parameters.getLKey(), parameters.getDKey(), parameters.getCKey(), Number160.ZERO))
 				.to(new Number640(parameters.getLKey(), parameters.getDKey(), parameters.getCKey(), Number160.MAX_VALUE))
-				.fastGet(false).addPostRoutingFilter(slowPeerFilter).start();
+				.fastGet(false).addPostRoutingFilter(slowPeerFilter).start());
+
+	}
+
+	public List<H2HPutStatus> putAll(List<IParameters> parameters) {
+		return putAllAsync(parameters).await();
+	}
+
+	public DataFuture<List<H2HPutStatus>> putAllAsync(List<IParameters> parameters) {
+		return new DataBatch<H2HPutStatus>(parameters, H2HConstants.DHT_BATCH_WINDOW) {
+			@Override
+			protected DataFuture<H2HPutStatus> start(IParameters single) {
+				return putAsync(single);
+			}
+		}.run();
+	}
+
+	public List<BaseNetworkContent> getAll(List<IParameters> parameters) {
+		return getAllAsync(parameters).await();
+	}
 
+	public DataFuture<List<BaseNetworkContent>> getAllAsync(List<IParameters> parameters) {
+		return new DataBatch<BaseNetworkContent>(parameters, H2HConstants.DHT_BATCH_WINDOW) {
+			@Override
+			protected DataFuture<BaseNetworkContent> start(IParameters single) {
+				return getAsync(single);
+			}
+		}.run();
+	}
+
+	public List<Boolean> removeAll(List<IParameters> parameters) {
+		return removeAllAsync(parameters).await();
+	}
+
+	public DataFuture<List<Boolean>> removeAllAsync(List<IParameters> parameters) {
+		return new DataBatch<Boolean>(parameters, H2HConstants.DHT_BATCH_WINDOW) {
+			@Override
+			protected DataFuture<Boolean> start(IParameters single) {
+				return removeAsync(single);
+			}
+		}.run();
+	}
+
+	public List<Boolean> changeProtectionKeyAll(List<IParameters> parameters) {
+		return changeProtectionKeyAllAsync(parameters).await();
+	}
+
+	public DataFuture<List<Boolean>> changeProtectionKeyAllAsync(List<IParameters> parameters) {
+		return new DataBatch<Boolean>(parameters, H2HConstants.DHT_BATCH_WINDOW) {
+			@Override
+			protected DataFuture<Boolean> start(IParameters single) {
+				return changeProtectionKeyAsync(single);
+			}
+		}.run();
 	}
 }
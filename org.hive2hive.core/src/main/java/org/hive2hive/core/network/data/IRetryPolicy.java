@@ -0,0 +1,60 @@
+package org.hive2hive.core.network.data;
+
+/**
+ * Decides how often and when the DHT operations of the {@link DataManager} and the version managers are
+ * retried, how long they may take in total and when a get is hedged (a duplicate request is sent because
+ * the first one takes unusually long). It also decides how long a message waits before it is sent again to
+ * a receiver that was too busy to accept it.
+ */
+public interface IRetryPolicy {
+
+	public enum Operation {
+		PUT,
+		CONFIRM,
+		REMOVE,
+		GET,
+		// get of the latest versions in a version manager
+		VERSION_GET,
+		// waiting for a delayed version in a version manager
+		VERSION_DELAY,
+		// waiting for a version fork to be resolved in a version manager
+		VERSION_FORK,
+		// re-sending a message to a busy receiver
+		MESSAGE
+	}
+
+	/**
+	 * @param operation the operation
+	 * @return the maximum number of retries after the first attempt failed
+	 */
+	int getMaxRetries(Operation operation);
+
+	/**
+	 * @param operation the operation
+	 * @param retry the number of the retry, starting at 0
+	 * @return the time to wait before the retry in milliseconds
+	 */
+	long getBackoffMs(Operation operation, int retry);
+
+	/**
+	 * @param operation the operation
+	 * @return the time budget for the operation including all retries in milliseconds. When it is used up, no
+	 *         further retries are made.
+	 */
+	long getDeadlineMs(Operation operation);
+
+	/**
+	 * @param operation the get operation
+	 * @return the time in milliseconds after which a duplicate get is sent if the first one has not returned
+	 *         yet. A negative value disables the hedging.
+	 */
+	long getHedgeDelayMs(Operation operation);
+
+	/**
+	 * Reports the latency of a finished operation (e.g. to learn the hedge delay)
+	 *
+	 * @param operation the operation
+	 * @param latencyMs the latency in milliseconds
+	 */
+	void recordLatency(Operation operation, long latencyMs);
+}
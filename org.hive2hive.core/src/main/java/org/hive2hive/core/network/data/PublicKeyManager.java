@@ -3,7 +3,11 @@ package org.hive2hive.core.network.data;
 import java.security.KeyPair;
 import java.security.PrivateKey;
 import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -104,11 +108,48 @@ public class PublicKeyManager {
 			return publicKeyCache.get(userId);
 		}
 
-		IParameters parameters = new Parameters().setLocationKey(userId).setContentKey(H2HConstants.USER_PUBLIC_KEY);
-		BaseNetworkContent content = dataManager.get(parameters);
+		BaseNetworkContent content = dataManager.get(createParameters(userId));
 		return evaluateResult(content, userId);
 	}
 
+	/**
+	 * Gets multiple public keys. The ones that are not in the cache are fetched from the network in parallel.
+	 * The call blocks until all are fetched.
+	 * 
+	 * @param userIds the unique ids of the users
+	 * @return the public keys of the users. Users whose key can't be fetched are missing.
+	 */
+	public Map<String, PublicKey> getPublicKeys(Collection<String> userIds) {
+		Map<String, PublicKey> keys = new HashMap<String, PublicKey>();
+		List<String> toFetch = new ArrayList<String>();
+		List<IParameters> parameters = new ArrayList<IParameters>();
+		for (String otherUserId : userIds) {
+			if (userId.equals(otherUserId)) {
+				keys.put(otherUserId, usersKeyPair.getPublic());
+			} else if (publicKeyCache.containsKey(otherUserId)) {
+				keys.put(otherUserId, publicKeyCache.get(otherUserId));
+			} else {
+				toFetch.add(otherUserId);
+				parameters.add(createParameters(otherUserId));
+			}
+		}
+
+		logger.debug("Requested to get {} public keys, {} are not cached.", userIds.size(), toFetch.size());
+		List<BaseNetworkContent> contents = dataManager.getAll(parameters);
+		for (int i = 0; i < toFetch.size(); i++) {
+			try {
+				keys.put(toFetch.get(i), evaluateResult(contents.get(i), toFetch.get(i)));
+			} catch (GetFailedException e) {
+				logger.error("Could not get the key for user {}", toFetch.get(i));
+			}
+		}
+		return keys;
+	}
+
+	private static IParameters createParameters(String userId) {
+		return new Parameters().setLocationKey(userId).setContentKey(H2HConstants.USER_PUBLIC_KEY);
+	}
+
 	private PublicKey evaluateResult(BaseNetworkContent content, String requestingUserId) throws GetFailedException {
 		if (content == null) {
 			logger.warn("Did not find the public key of user '{}'.", requestingUserId);
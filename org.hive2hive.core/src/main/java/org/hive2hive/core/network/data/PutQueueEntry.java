@@ -12,6 +12,7 @@ class PutQueueEntry extends QueueEntry {
 	private final String pid;
 	private final AtomicBoolean readyToPut = new AtomicBoolean(false);
 	private final AtomicBoolean abort = new AtomicBoolean(false);
+	private final CountDownLatch modificationWaiter = new CountDownLatch(1);
 	private final CountDownLatch putWaiter = new CountDownLatch(1);
 
 	private PutFailedException putFailedException;
@@ -30,6 +31,7 @@ class PutQueueEntry extends QueueEntry {
 
 	public void readyToPut() {
 		readyToPut.set(true);
+		modificationWaiter.countDown();
 	}
 
 	public boolean isAborted() {
@@ -38,6 +40,21 @@ class PutQueueEntry extends QueueEntry {
 
 	public void abort() {
 		abort.set(true);
+		modificationWaiter.countDown();
+	}
+
+	/**
+	 * Blocks until the modification is either ready to put or aborted
+	 * 
+	 * @param timeoutMs the maximum time to wait in milliseconds
+	 * @return <code>true</code> if the modification has finished in time
+	 */
+	public boolean waitForModification(long timeoutMs) {
+		try {
+			return modificationWaiter.await(timeoutMs, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			return false;
+		}
 	}
 
 	public void notifyPut() {
@@ -0,0 +1,190 @@
+package org.hive2hive.core.network.data;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.hive2hive.core.H2HConstants;
+
+/**
+ * The default {@link IRetryPolicy}. Retries wait with an exponential backoff and jitter: Before the
+ * <i>n</i>-th retry, a random time between <code>base * 2^n</code> and <code>2 * base * 2^n</code> passes
+ * (capped at {@link #setMaxBackoff(long)}). Gets are hedged once they take longer than the 95th percentile
+ * of the recent latencies of the same operation.
+ */
+public class RetryPolicy implements IRetryPolicy {
+
+	// the number of recent get latencies the hedge delay is learned from
+	private static final int LATENCY_SAMPLES = 128;
+	// the hedge delay is only used when enough latencies are known
+	private static final int MIN_LATENCY_SAMPLES = 20;
+	private static final double HEDGE_PERCENTILE = 0.95;
+
+	private final Map<Operation, Integer> maxRetries = new EnumMap<Operation, Integer>(Operation.class);
+	private final Map<Operation, Long> backoffBase = new EnumMap<Operation, Long>(Operation.class);
+	private final Map<Operation, Long> deadlines = new EnumMap<Operation, Long>(Operation.class);
+	private final Random random = new Random();
+	private long maxBackoffMs = 30000;
+	private boolean hedging = true;
+	private long minHedgeDelayMs = 20;
+
+	private final Map<Operation, Latencies> latencies = new EnumMap<Operation, Latencies>(Operation.class);
+
+	private RetryPolicy() {
+		// only via factory
+	}
+
+	/**
+	 * Creates the default policy, retrying as often as given in the {@link H2HConstants}.
+	 *
+	 * @return the default retry policy
+	 */
+	public static RetryPolicy createDefault() {
+		RetryPolicy policy = new RetryPolicy();
+		// learn the latencies of the gets for hedging
+		policy.latencies.put(Operation.GET, new Latencies());
+		policy.latencies.put(Operation.VERSION_GET, new Latencies());
+		long await = H2HConstants.AWAIT_NETWORK_OPERATION_MS;
+		policy.set(Operation.PUT, H2HConstants.PUT_RETRIES, 250, await * H2HConstants.PUT_RETRIES);
+		policy.set(Operation.CONFIRM, H2HConstants.CONFIRM_RETRIES, 250, await * H2HConstants.PUT_RETRIES);
+		policy.set(Operation.REMOVE, H2HConstants.REMOVE_RETRIES, 250, await * H2HConstants.REMOVE_RETRIES);
+		policy.set(Operation.GET, 0, 0, await);
+		policy.set(Operation.VERSION_GET, 3, 1000, await * 4);
+		policy.set(Operation.VERSION_DELAY, 2, 1000, await * 4);
+		policy.set(Operation.VERSION_FORK, 2, 1000, await * 4);
+		policy.set(Operation.MESSAGE, H2HConstants.MAX_MESSAGE_SENDING - 1, 500,
+				await * H2HConstants.MAX_MESSAGE_SENDING);
+		return policy;
+	}
+
+	private void set(Operation operation, int retries, long backoffBaseMs, long deadlineMs) {
+		setMaxRetries(operation, retries);
+		setBackoffBase(operation, backoffBaseMs);
+		setDeadline(operation, deadlineMs);
+	}
+
+	/**
+	 * @param operation the operation
+	 * @param retries the maximum number of retries of the operation
+	 * @return this policy
+	 */
+	public RetryPolicy setMaxRetries(Operation operation, int retries) {
+		maxRetries.put(operation, retries);
+		return this;
+	}
+
+	/**
+	 * @param operation the operation
+	 * @param backoffBaseMs the wait time before the first retry (without jitter) in milliseconds
+	 * @return this policy
+	 */
+	public RetryPolicy setBackoffBase(Operation operation, long backoffBaseMs) {
+		backoffBase.put(operation, backoffBaseMs);
+		return this;
+	}
+
+	/**
+	 * @param operation the operation
+	 * @param deadlineMs the time budget of the operation including all retries in milliseconds
+	 * @return this policy
+	 */
+	public RetryPolicy setDeadline(Operation operation, long deadlineMs) {
+		deadlines.put(operation, deadlineMs);
+		return this;
+	}
+
+	/**
+	 * @param maxBackoffMs the maximum wait time before a retry in milliseconds
+	 * @return this policy
+	 */
+	public RetryPolicy setMaxBackoff(long maxBackoffMs) {
+		this.maxBackoffMs = maxBackoffMs;
+		return this;
+	}
+
+	/**
+	 * @param hedging whether slow gets are hedged
+	 * @param minHedgeDelayMs the minimum time to wait before a get is hedged
+	 * @return this policy
+	 */
+	public RetryPolicy setHedging(boolean hedging, long minHedgeDelayMs) {
+		this.hedging = hedging;
+		this.minHedgeDelayMs = minHedgeDelayMs;
+		return this;
+	}
+
+	@Override
+	public int getMaxRetries(Operation operation) {
+		return maxRetries.get(operation);
+	}
+
+	@Override
+	public long getBackoffMs(Operation operation, int retry) {
+		long base = backoffBase.get(operation);
+		if (base <= 0) {
+			return 0;
+		}
+
+		// avoid overflows, the cap is reached anyway
+		long backoff = Math.min(maxBackoffMs, base << Math.min(retry, 30));
+		synchronized (random) {
+			backoff += (long) (random.nextDouble() * backoff);
+		}
+		return Math.min(maxBackoffMs, backoff);
+	}
+
+	@Override
+	public long getDeadlineMs(Operation operation) {
+		return deadlines.get(operation);
+	}
+
+	@Override
+	public long getHedgeDelayMs(Operation operation) {
+		Latencies operationLatencies = latencies.get(operation);
+		if (!hedging || operationLatencies == null) {
+			return -1;
+		}
+
+		long percentile = operationLatencies.getPercentile();
+		return percentile < 0 ? -1 : Math.max(minHedgeDelayMs, percentile);
+	}
+
+	@Override
+	public void recordLatency(Operation operation, long latencyMs) {
+		Latencies operationLatencies = latencies.get(operation);
+		if (operationLatencies != null) {
+			operationLatencies.record(latencyMs);
+		}
+	}
+
+	/**
+	 * The recent latencies of an operation
+	 */
+	private static class Latencies {
+
+		private final long[] samples = new long[LATENCY_SAMPLES];
+		private int count = 0;
+		private long percentile = -1;
+
+		public synchronized void record(long latencyMs) {
+			samples[count % LATENCY_SAMPLES] = latencyMs;
+			count++;
+
+			int size = Math.min(count, LATENCY_SAMPLES);
+			// re-calculate from time to time only
+			if (size >= MIN_LATENCY_SAMPLES && (count % 8 == 0 || percentile < 0)) {
+				long[] sorted = Arrays.copyOf(samples, size);
+				Arrays.sort(sorted);
+				percentile = sorted[(int) Math.ceil(HEDGE_PERCENTILE * size) - 1];
+			}
+		}
+
+		/**
+		 * @return the percentile or -1 if not enough latencies are known yet
+		 */
+		public synchronized long getPercentile() {
+			return percentile;
+		}
+	}
+}
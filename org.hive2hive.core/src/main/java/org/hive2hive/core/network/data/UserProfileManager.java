@@ -1,6 +1,9 @@
 package org.hive2hive.core.network.data;
 
+import java.io.IOException;
 import java.security.KeyPair;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Queue;
 import java.util.Random;
 import java.util.concurrent.ConcurrentLinkedQueue;
@@ -8,21 +11,34 @@ import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.crypto.SecretKey;
 
+import net.tomp2p.peers.Number160;
+
 import org.hive2hive.core.H2HConstants;
+import org.hive2hive.core.api.configs.FileConfiguration;
+import org.hive2hive.core.api.interfaces.IFileConfiguration;
 import org.hive2hive.core.exceptions.AbortModifyException;
 import org.hive2hive.core.exceptions.GetFailedException;
 import org.hive2hive.core.exceptions.PutFailedException;
 import org.hive2hive.core.exceptions.VersionForkAfterPutException;
+import org.hive2hive.core.model.versioned.EncryptedNetworkContent;
 import org.hive2hive.core.model.versioned.UserProfile;
-import org.hive2hive.core.network.data.vdht.AESEncryptedVersionManager;
+import org.hive2hive.core.network.data.futures.DataFuture;
+import org.hive2hive.core.network.data.futures.IDataFutureListener;
+import org.hive2hive.core.network.data.vdht.ShardedUserProfileVersionManager;
 import org.hive2hive.core.security.PasswordUtil;
 import org.hive2hive.core.security.UserCredentials;
+import org.hive2hive.core.serializer.IH2HSerialize;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Manages the user profile resource. Each process waiting for get / put is added to a queue and delivered in
- * order.
+ * order.<br>
+ * The latest known profile is kept locally. Reads that accept a bounded staleness are served from it without
+ * asking the network, as long as it has been confirmed as the latest version recently enough. It is
+ * invalidated as soon as other clients announce a new version, or when a notification arrives.<br>
+ * If a get merges forked versions, the merged profile is put through the modify queue, such that it is
+ * never put concurrently to the modifications.
  * 
  * @author Nico
  * @author Seppi
@@ -33,27 +49,50 @@ public class UserProfileManager {
 	private static final long MAX_MODIFICATION_TIME = 1000;
 	private static final long FAILOVER_TIMEOUT = 5 * 60 * 1000;
 	private static final int FORK_LIMIT = 2;
+	// time to wait for other modifications that are put together
+	private static final long GROUP_COMMIT_WINDOW = 20;
+	private static final int MAX_GROUP_COMMIT_SIZE = 50;
 
-	private final AESEncryptedVersionManager<UserProfile> versionManager;
+	private final ShardedUserProfileVersionManager versionManager;
 	private final UserCredentials credentials;
+	private final IH2HSerialize serializer;
 
 	private final Object queueWaiter = new Object();
 	private final Queue<QueueEntry> readOnlyQueue = new ConcurrentLinkedQueue<QueueEntry>();
 	private final Queue<PutQueueEntry> modifyQueue = new ConcurrentLinkedQueue<PutQueueEntry>();
+	// versions put and announced by other clients of the same user
+	private final Queue<EncryptedNetworkContent> announcedQueue = new ConcurrentLinkedQueue<EncryptedNetworkContent>();
 	private final AtomicBoolean running = new AtomicBoolean(false);
+	// whether a merged profile is waiting in the modify queue to be put
+	private final AtomicBoolean mergeQueued = new AtomicBoolean(false);
 
-	private volatile PutQueueEntry modifying;
+	// guarded by latestLock, the generation increases with every invalidation
+	private final Object latestLock = new Object();
+	private LatestProfile latest;
+	private long generation = 0;
+	private volatile Number160 lastPutVersionKey;
 
 	private KeyPair protectionKeys = null;
 	private Thread workerThread;
 
 	public UserProfileManager(DataManager dataManager, UserCredentials credentials) {
+		this(dataManager, credentials, FileConfiguration.createDefault());
+	}
+
+	/**
+	 * @param dataManager the data manager
+	 * @param credentials the credentials of the user
+	 * @param fileConfig the configuration that defines how the user profile is stored
+	 */
+	public UserProfileManager(DataManager dataManager, UserCredentials credentials, IFileConfiguration fileConfig) {
 		this.credentials = credentials;
+		this.serializer = dataManager.getSerializer();
 
 		SecretKey passwordKey = PasswordUtil.generateAESKeyFromPassword(credentials.getPassword(), credentials.getPin(),
 				H2HConstants.KEYLENGTH_USER_PROFILE);
-		this.versionManager = new AESEncryptedVersionManager<UserProfile>(dataManager, passwordKey,
-				credentials.getProfileLocationKey(), H2HConstants.USER_PROFILE);
+		this.versionManager = new ShardedUserProfileVersionManager(dataManager, passwordKey,
+				credentials.getProfileLocationKey(), H2HConstants.USER_PROFILE, fileConfig.isUserProfileSharding(),
+				fileConfig.isUserProfileDeltas());
 		startQueueWorker();
 	}
 
@@ -111,9 +150,111 @@ public class UserProfileManager {
 		return profile;
 	}
 
+	/**
+	 * Gets the user profile (read-only). If the locally known profile has been confirmed as the latest
+	 * version within the given time and has not been invalidated since, it is returned without asking the
+	 * network. Otherwise, the call blocks until the most recent profile is here.
+	 * 
+	 * @param maxStalenessMs the maximum age of the confirmation in milliseconds
+	 * @return the user profile
+	 * @throws GetFailedException if the profile cannot be fetched
+	 */
+	public UserProfile readUserProfile(long maxStalenessMs) throws GetFailedException {
+		synchronized (latestLock) {
+			if (latest != null && System.currentTimeMillis() - latest.confirmedAt <= maxStalenessMs) {
+				logger.trace("Returning the local user profile.");
+				return latest.profile;
+			}
+		}
+		return readUserProfile();
+	}
+
+	/**
+	 * Marks the local user profile as outdated, such that the next read fetches the latest version. Used when
+	 * a notification arrives that may come with a new version of the user profile.
+	 */
+	public void invalidate() {
+		synchronized (latestLock) {
+			latest = null;
+			generation++;
+		}
+	}
+
+	/**
+	 * Called when another client of the same user announces a new version of the user profile. Invalidates
+	 * the local profile unless it is this version already. If the encrypted version is given and based on the
+	 * local profile, it is used as the latest version without fetching it.
+	 * 
+	 * @param versionKey the version key of the new version
+	 * @param encrypted the encrypted version or <code>null</code> if it is not available
+	 */
+	public void onVersionAnnounced(Number160 versionKey, EncryptedNetworkContent encrypted) {
+		synchronized (latestLock) {
+			if (latest != null && latest.profile.getVersionKey().equals(versionKey)) {
+				return;
+			}
+		}
+
+		invalidate();
+		if (encrypted != null) {
+			announcedQueue.add(encrypted);
+			synchronized (queueWaiter) {
+				queueWaiter.notify();
+			}
+		}
+	}
+
+	/**
+	 * @return the version key of the latest user profile put by this client or <code>null</code> if none
+	 */
+	public Number160 getLastPutVersionKey() {
+		return lastPutVersionKey;
+	}
+
+	/**
+	 * @param versionKey the version key of the user profile
+	 * @return the encrypted version to announce to the other clients or <code>null</code> if it is not
+	 *         available (e.g. when the profile is sharded)
+	 */
+	public EncryptedNetworkContent getEncryptedVersion(Number160 versionKey) {
+		return versionManager.getEncryptedVersion(versionKey);
+	}
+
+	/**
+	 * Queues the put of a merged user profile that has been returned by a read
+	 */
+	private void enqueueMerge() {
+		if (mergeQueued.compareAndSet(false, true)) {
+			modifyQueue.add(new MergeQueueEntry());
+			synchronized (queueWaiter) {
+				queueWaiter.notify();
+			}
+		}
+	}
+
+	private long getGeneration() {
+		synchronized (latestLock) {
+			return generation;
+		}
+	}
+
+	/**
+	 * Keeps the profile as the latest version unless it has been invalidated in the meantime
+	 */
+	private void setLatest(UserProfile profile, long confirmedAt, long expectedGeneration) {
+		synchronized (latestLock) {
+			if (generation == expectedGeneration) {
+				latest = new LatestProfile(profile, confirmedAt);
+			}
+		}
+	}
+
 	/**
 	 * Gets the user profile and allows to modify it. The call blocks until
-	 * {@link IUserProfileModification#modifyUserProfile(UserProfile)} is called or an exception is thrown.
+	 * {@link IUserProfileModification#modifyUserProfile(UserProfile)} is called or an exception is thrown.<br>
+	 * Modifications that are queued at the same time are applied in order to the same profile instance and
+	 * are put together (group commit). Every caller still gets its own result. If the modification of a
+	 * caller is aborted, its changes are rolled back and do not affect the other modifications.
 	 * 
 	 * @param pid the process identifier
 	 * @param modifier the implementation where the modification is done
@@ -123,6 +264,37 @@ public class UserProfileManager {
 	 */
 	public void modifyUserProfile(String pid, IUserProfileModification modifier)
 			throws GetFailedException, PutFailedException, AbortModifyException {
+		int forkCounter = 0;
+		int forkWaitTime = new Random().nextInt(1000) + 500;
+		while (true) {
+			try {
+				modifyOnce(pid, modifier);
+				// successfully put the user profile
+				return;
+			} catch (VersionForkAfterPutException e) {
+				if (forkCounter++ > FORK_LIMIT) {
+					logger.warn("Ignoring fork after {} rejects and retries.", forkCounter);
+					return;
+				} else {
+					logger.warn("Version fork after put detected. Rejecting and retrying modification.");
+
+					// exponential back off waiting and retry to update the user profile
+					try {
+						Thread.sleep(forkWaitTime);
+					} catch (InterruptedException e1) {
+						// ignore
+					}
+					forkWaitTime = forkWaitTime * 2;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Enqueues a single modification and waits until the modified profile has been put
+	 */
+	private void modifyOnce(String pid, IUserProfileModification modifier)
+			throws GetFailedException, PutFailedException, AbortModifyException {
 		PutQueueEntry entry = new PutQueueEntry(pid);
 		modifyQueue.add(entry);
 
@@ -138,52 +310,26 @@ public class UserProfileManager {
 			}
 		} catch (GetFailedException e) {
 			// just stop the modification if an error occurs.
-			if (modifying != null && modifying.getPid().equals(pid)) {
-				modifying.abort();
-			}
+			entry.abort();
 			throw e;
 		}
 
-		boolean retryPut = true;
-		int forkCounter = 0;
-		int forkWaitTime = new Random().nextInt(1000) + 500;
-		while (retryPut) {
+		try {
 			// user starts modifying it
 			modifier.modifyUserProfile(profile);
+		} catch (AbortModifyException | RuntimeException e) {
+			// the queue worker rolls back the changes of this modification
+			entry.abort();
+			throw e;
+		}
 
-			try {
-				// put the updated user profile
-				if (protectionKeys == null) {
-					protectionKeys = profile.getProtectionKeys();
-				}
-
-				if (modifying != null && modifying.getPid().equals(pid)) {
-					modifying.setUserProfile(profile);
-					modifying.readyToPut();
-					modifying.waitForPut();
-
-					// successfully put the user profile
-					retryPut = false;
-				} else {
-					throw new PutFailedException("Not allowed to put anymore");
-				}
-			} catch (VersionForkAfterPutException e) {
-				if (forkCounter++ > FORK_LIMIT) {
-					logger.warn("Ignoring fork after {} rejects and retries.", forkCounter);
-					retryPut = false;
-				} else {
-					logger.warn("Version fork after put detected. Rejecting and retrying put.");
-
-					// exponential back off waiting and retry to update the user profile
-					try {
-						Thread.sleep(forkWaitTime);
-					} catch (InterruptedException e1) {
-						// ignore
-					}
-					forkWaitTime = forkWaitTime * 2;
-				}
-			}
+		if (protectionKeys == null) {
+			protectionKeys = profile.getProtectionKeys();
 		}
+
+		// put the updated user profile (together with other modifications)
+		entry.readyToPut();
+		entry.waitForPut();
 	}
 
 	private class QueueWorker implements Runnable {
@@ -192,8 +338,10 @@ public class UserProfileManager {
 		public void run() {
 			// run forever
 			while (running.get()) {
+				acceptAnnouncedVersions();
+
 				// modifying processes have advantage here because the read-only processes can profit
-				if (modifyQueue.isEmpty() && readOnlyQueue.isEmpty()) {
+				if (modifyQueue.isEmpty() && readOnlyQueue.isEmpty() && announcedQueue.isEmpty()) {
 					synchronized (queueWaiter) {
 						try {
 							// timeout to prevent queues to live forever because of invalid shutdown
@@ -204,81 +352,261 @@ public class UserProfileManager {
 						}
 					}
 				} else if (modifyQueue.isEmpty()) {
-					logger.trace("{} process(es) are waiting for read-only access.", readOnlyQueue.size());
+					if (readOnlyQueue.isEmpty()) {
+						continue;
+					}
+
+					readLatest();
+				} else {
+					// at least one process wants to modify, give others a short time to join
 					try {
-						logger.trace("Loading latest version of user profile.");
-						UserProfile userProfile = versionManager.get();
+						Thread.sleep(GROUP_COMMIT_WINDOW);
+					} catch (InterruptedException e) {
+						// ignore
+					}
+
+					List<PutQueueEntry> group = new ArrayList<PutQueueEntry>();
+					pollModifications(group);
+					commitGroup(group);
+				}
+			}
+
+			logger.debug("Queue worker stopped. user id = '{}'", credentials.getUserId());
+		}
+
+		/**
+		 * Fetches the latest profile for all waiting read-only processes. The worker does not wait for it, the
+		 * processes are notified when the get is done.
+		 */
+		private void readLatest() {
+			final List<QueueEntry> readers = new ArrayList<QueueEntry>();
+			QueueEntry reader;
+			while ((reader = readOnlyQueue.poll()) != null) {
+				readers.add(reader);
+			}
 
-						logger.trace("Notifying {} processes that newest profile is ready.", readOnlyQueue.size());
-						while (!readOnlyQueue.isEmpty()) {
-							QueueEntry readOnly = readOnlyQueue.poll();
-							readOnly.setUserProfile(userProfile);
+			logger.trace("Loading latest version of user profile for {} read-only process(es).", readers.size());
+			final long expectedGeneration = getGeneration();
+			final long start = System.currentTimeMillis();
+			versionManager.getAsync().addListener(new IDataFutureListener<UserProfile>() {
+				@Override
+				public void onDone(DataFuture<UserProfile> future) {
+					UserProfile userProfile = future.await();
+					if (userProfile == null) {
+						GetFailedException error = new GetFailedException("User Profile not found");
+						if (future.getCause() instanceof GetFailedException) {
+							error = (GetFailedException) future.getCause();
 						}
-					} catch (GetFailedException e) {
 						logger.warn("Notifying {} processes that getting latest user profile version failed. reason = '{}'",
-								readOnlyQueue.size(), e.getMessage());
-						while (!readOnlyQueue.isEmpty()) {
-							QueueEntry readOnly = readOnlyQueue.poll();
-							readOnly.setGetError(e);
+								readers.size(), error.getMessage());
+						for (QueueEntry readOnly : readers) {
+							readOnly.setGetError(error);
 						}
+						return;
+					}
+
+					setLatest(userProfile, start, expectedGeneration);
+					logger.trace("Notifying {} processes that newest profile is ready.", readers.size());
+					for (QueueEntry readOnly : readers) {
+						readOnly.setUserProfile(userProfile);
 					}
-				} else {
-					// a process wants to modify
-					modifying = modifyQueue.poll();
 
-					logger.trace("Process {} is waiting to make profile modifications.", modifying.getPid());
+					if (versionManager.isMerged(userProfile)) {
+						// the merge is put by the worker, it must not race with the modifications
+						enqueueMerge();
+					}
+				}
+			});
+		}
 
-					UserProfile userProfile;
+		/**
+		 * Uses the versions announced by other clients as latest versions if they are based on the local one
+		 */
+		private void acceptAnnouncedVersions() {
+			EncryptedNetworkContent encrypted;
+			while ((encrypted = announcedQueue.poll()) != null) {
+				long expectedGeneration = getGeneration();
+				UserProfile userProfile = versionManager.offer(encrypted);
+				if (userProfile != null) {
+					logger.debug("Accepted the announced version of the user profile.");
+					setLatest(userProfile, System.currentTimeMillis(), expectedGeneration);
+				}
+			}
+		}
+
+		/**
+		 * Moves waiting modifications to the group until it is full
+		 */
+		private void pollModifications(List<PutQueueEntry> group) {
+			while (group.size() < MAX_GROUP_COMMIT_SIZE && !modifyQueue.isEmpty()) {
+				PutQueueEntry entry = modifyQueue.poll();
+				if (entry instanceof MergeQueueEntry) {
+					mergeQueued.set(false);
+				}
+				group.add(entry);
+			}
+		}
+
+		/**
+		 * Applies all modifications of the group to the same profile and puts it once
+		 */
+		private void commitGroup(List<PutQueueEntry> group) {
+			UserProfile userProfile;
+			// the profile is modified, it is not the latest version anymore
+			invalidate();
+			try {
+				logger.trace("Loading latest version of user profile for {} process(es) to modify.", group.size());
+				userProfile = versionManager.get();
+			} catch (GetFailedException e) {
+				for (PutQueueEntry entry : group) {
+					entry.setGetError(e);
+				}
+				return;
+			}
+
+			if (versionManager.isMerged(userProfile)) {
+				// the get merged forked versions, the merge is put before the modifications are applied
+				try {
+					logger.debug("Putting the merged user profile.");
+					versionManager.put(userProfile, userProfile.getProtectionKeys());
+				} catch (PutFailedException e) {
+					for (PutQueueEntry entry : group) {
+						entry.setGetError(new GetFailedException("Cannot put the merged user profile."));
+					}
+					return;
+				}
+			}
+
+			List<PutQueueEntry> modified = new ArrayList<PutQueueEntry>(group.size());
+			// the group can grow while the modifications are done
+			for (int i = 0; i < group.size(); i++) {
+				PutQueueEntry entry = group.get(i);
+				if (entry instanceof MergeQueueEntry) {
+					// nothing to modify, the merge has been put above
+					pollModifications(group);
+					continue;
+				}
+				logger.trace("Process {} is waiting to make profile modifications.", entry.getPid());
+
+				byte[] snapshot = null;
+				if (!modified.isEmpty()) {
+					// keeps the modifications of the previous processes if this one aborts
 					try {
-						logger.trace("Loading latest version of user profile for process {} to modify.", modifying.getPid());
-						userProfile = versionManager.get();
-						modifying.setUserProfile(userProfile);
-					} catch (GetFailedException e) {
-						modifying.setGetError(e);
+						snapshot = serializer.serialize(userProfile);
+					} catch (IOException e) {
+						logger.error("Cannot create a snapshot of the user profile for process {}.", entry.getPid(),
+								e);
+						entry.setGetError(new GetFailedException("Cannot prepare the user profile for modification."));
 						continue;
 					}
+				}
 
-					int counter = 0;
-					long sleepTime = MAX_MODIFICATION_TIME / 10;
-					while (counter < 10 && !modifying.isReadyToPut() && !modifying.isAborted()) {
-						try {
-							Thread.sleep(sleepTime);
-						} catch (InterruptedException e) {
-							// ignore
-						} finally {
-							counter++;
-						}
-					}
+				entry.setUserProfile(userProfile);
+				entry.waitForModification(MAX_MODIFICATION_TIME);
 
-					if (modifying.isReadyToPut()) {
-						logger.trace("Process {} made modifcations and uploads them now.", modifying.getPid());
-						try {
-							// put updated user profile version into network
-							versionManager.put(userProfile, protectionKeys);
-							modifying.notifyPut();
-
-							// notify all read only processes with newest version
-							while (!readOnlyQueue.isEmpty()) {
-								QueueEntry readOnly = readOnlyQueue.poll();
-								readOnly.setUserProfile(userProfile);
-							}
-						} catch (PutFailedException e) {
-							modifying.setPutError(e);
-							modifying.notifyPut();
-						}
-					} else if (!modifying.isAborted()) {
+				if (entry.isReadyToPut()) {
+					modified.add(entry);
+				} else {
+					if (!entry.isAborted()) {
 						logger.warn("Process {} never finished doing modifications. Abort the put request.",
-								modifying.getPid());
-						modifying.abort();
-						modifying.setPutError(new PutFailedException(
-								String.format("Too long modification. Only %s ms are allowed.", MAX_MODIFICATION_TIME)));
-						modifying.notifyPut();
+								entry.getPid());
+						entry.abort();
+						entry.setPutError(new PutFailedException(String.format(
+								"Too long modification. Only %s ms are allowed.", MAX_MODIFICATION_TIME)));
+						entry.notifyPut();
+					}
+
+					// undo the (partial) changes of the aborted modification
+					try {
+						userProfile = rollback(userProfile, snapshot);
+					} catch (GetFailedException | IOException | ClassNotFoundException e) {
+						logger.error("Cannot roll back the user profile after process {} aborted.", entry.getPid(), e);
+						failGroup(modified, new PutFailedException("Cannot roll back an aborted modification."));
+						return;
 					}
 				}
+
+				pollModifications(group);
 			}
 
-			logger.debug("Queue worker stopped. user id = '{}'", credentials.getUserId());
+			if (modified.isEmpty()) {
+				return;
+			}
+
+			logger.trace("{} process(es) made modifcations. Uploading them now.", modified.size());
+			try {
+				// put updated user profile version into network
+				long expectedGeneration = getGeneration();
+				versionManager.put(userProfile, protectionKeys);
+				lastPutVersionKey = userProfile.getVersionKey();
+				for (PutQueueEntry entry : modified) {
+					entry.notifyPut();
+				}
+
+				if (versionManager.isRebased(userProfile)) {
+					// lacks the changes of another client, the waiting read-only processes fetch it
+					return;
+				}
+				setLatest(userProfile, System.currentTimeMillis(), expectedGeneration);
+
+				// notify all read only processes with newest version
+				while (!readOnlyQueue.isEmpty()) {
+					QueueEntry readOnly = readOnlyQueue.poll();
+					readOnly.setUserProfile(userProfile);
+				}
+			} catch (PutFailedException e) {
+				failGroup(modified, e);
+			}
+		}
+
+		/**
+		 * Restores the user profile before an aborted modification
+		 * 
+		 * @param userProfile the profile with the changes of the aborted modification
+		 * @param snapshot the profile before the modification or <code>null</code> if it is the first one of
+		 *            the group
+		 * @return the restored profile
+		 */
+		private UserProfile rollback(UserProfile userProfile, byte[] snapshot) throws GetFailedException,
+				IOException, ClassNotFoundException {
+			if (snapshot != null) {
+				return (UserProfile) serializer.deserialize(snapshot);
+			}
+
+			// nothing has been modified before, the fetched version is restored
+			versionManager.discard(userProfile);
+			return versionManager.get();
+		}
+
+				private void failGroup(List<PutQueueEntry> entries, PutFailedException error) {
+			for (PutQueueEntry entry : entries) {
+				entry.setPutError(error);
+				entry.notifyPut();
+			}
+		}
+	}
+
+	/**
+	 * Stands for the put of a merged user profile in the modify queue. No process waits for it.
+	 */
+	private static class MergeQueueEntry extends PutQueueEntry {
+
+		public MergeQueueEntry() {
+			super("merge");
 		}
+	}
 
+	/**
+	 * The local user profile and when it has been confirmed as the latest version
+	 */
+	private static class LatestProfile {
+
+		private final UserProfile profile;
+		private final long confirmedAt;
+
+		public LatestProfile(UserProfile profile, long confirmedAt) {
+			this.profile = profile;
+			this.confirmedAt = confirmedAt;
+		}
 	}
 }
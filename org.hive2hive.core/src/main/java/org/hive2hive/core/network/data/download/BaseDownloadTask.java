@@ -4,18 +4,14 @@ import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.UUID;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicBoolean;
 
-import org.apache.commons.io.FileUtils;
 import org.hive2hive.core.events.EventBus;
 import org.hive2hive.core.events.framework.interfaces.IFileEventGenerator;
-import org.hive2hive.core.file.FileChunkUtil;
 import org.hive2hive.core.model.MetaChunk;
 import org.hive2hive.core.network.data.PublicKeyManager;
 import org.hive2hive.processframework.exceptions.ProcessExecutionException;
@@ -30,11 +26,21 @@ public abstract class BaseDownloadTask implements Serializable, IFileEventGenera
 
 	private final List<MetaChunk> metaChunks;
 	private final File destination;
-	private final File tempFolder;
 	private final PublicKeyManager keyManager;
 	protected final EventBus eventBus;
 
-	private final File[] downloadedChunks;
+	private final boolean[] downloadedChunks;
+	// the expected size of a chunk, used to preallocate the file
+	private int chunkSize;
+	// the size of the chunks of older versions that do not know their position. All of these chunks except
+	// the last one have the same size, thus it is learned from the data of such a chunk.
+	private int legacyChunkSize = -1;
+	// the last chunk of an older version, kept until its position is known (guarded by this)
+	private transient byte[] pendingLastChunk;
+	// writes the chunks directly into the partial file (guarded by this)
+	private transient DownloadSink sink;
+	// the sink has been finished or discarded and must not be created again (guarded by this)
+	private transient boolean sinkClosed;
 	// when the download has finished
 	private final CountDownLatch finishedLatch;
 	private final Set<IDownloadListener> listeners;
@@ -51,18 +57,8 @@ public abstract class BaseDownloadTask implements Serializable, IFileEventGenera
 		this.aborted = new AtomicBoolean(false);
 		this.eventBus = eventBus;
 
-		// init array as null
-		this.downloadedChunks = new File[metaChunks.size()];
-		for (int i = 0; i < downloadedChunks.length; i++) {
-			downloadedChunks[i] = null;
-		}
-
-		// create the download folder
-		String folderName = destination.getName() + "-" + UUID.randomUUID().toString();
-		tempFolder = new File(FileUtils.getTempDirectory(), folderName);
-		if (!tempFolder.mkdirs()) {
-			logger.warn("Cannot create temporary download folder {}", tempFolder.getAbsolutePath());
-		}
+		// no chunk is downloaded yet
+		this.downloadedChunks = new boolean[metaChunks.size()];
 	}
 
 	/**
@@ -73,7 +69,7 @@ public abstract class BaseDownloadTask implements Serializable, IFileEventGenera
 	public List<MetaChunk> getOpenChunks() {
 		List<MetaChunk> openChunks = new ArrayList<MetaChunk>();
 		for (MetaChunk metaChunk : metaChunks) {
-			if (downloadedChunks[metaChunk.getIndex()] == null || !downloadedChunks[metaChunk.getIndex()].exists()) {
+			if (!downloadedChunks[metaChunk.getIndex()]) {
 				openChunks.add(metaChunk);
 			}
 		}
@@ -91,8 +87,24 @@ public abstract class BaseDownloadTask implements Serializable, IFileEventGenera
 
 	public abstract boolean isDirectDownload();
 
-	public File getTempDirectory() {
-		return tempFolder;
+	/**
+	 * Sets the expected size of a chunk. It is only used to preallocate the file, the chunks are written to
+	 * their position in the file (see {@link MetaChunk#getRange(int)}).
+	 * 
+	 * @param chunkSize the size of a chunk in bytes
+	 */
+	public void setChunkSize(int chunkSize) {
+		this.chunkSize = chunkSize;
+	}
+
+	private DownloadSink getSink() throws IOException {
+		assert Thread.holdsLock(this);
+		if (sinkClosed) {
+			throw new IOException("The download has already been finished or aborted.");
+		} else if (sink == null) {
+			sink = new DownloadSink(destination, chunkSize, metaChunks.size());
+		}
+		return sink;
 	}
 
 	public void abortDownload(String reason) {
@@ -106,6 +118,16 @@ public abstract class BaseDownloadTask implements Serializable, IFileEventGenera
 		logger.error("Download of file {} aborted. Reason: {}", getDestinationName(), reason);
 		this.reason = reason;
 
+		// remove the incomplete file
+		synchronized (this) {
+			sinkClosed = true;
+			pendingLastChunk = null;
+			if (sink != null) {
+				sink.discard();
+				sink = null;
+			}
+		}
+
 		// notify listeners
 		for (IDownloadListener listener : listeners) {
 			listener.downloadFailed(this, reason);
@@ -121,7 +143,7 @@ public abstract class BaseDownloadTask implements Serializable, IFileEventGenera
 
 	private boolean isDone() {
 		for (int i = 0; i < downloadedChunks.length; i++) {
-			if (downloadedChunks[i] == null) {
+			if (!downloadedChunks[i]) {
 				return false;
 			}
 		}
@@ -129,49 +151,105 @@ public abstract class BaseDownloadTask implements Serializable, IFileEventGenera
 		return true;
 	}
 
+	/**
+	 * Writes the data of a downloaded chunk to its position in the file and marks the chunk as downloaded
+	 * 
+	 * @param metaChunk the meta data of the chunk (index and position)
+	 * @param data the decrypted data of the chunk
+	 */
+	public void writeChunk(MetaChunk metaChunk, byte[] data) {
+		int chunkIndex = metaChunk.getIndex();
+		int lastIndex = metaChunks.size() - 1;
+		DownloadSink target;
+		long offset;
+		byte[] pending = null;
+		try {
+			synchronized (this) {
+				if (isAborted() || sinkClosed || downloadedChunks[chunkIndex]) {
+					// too late, e.g. a chunk that has been downloaded twice
+					return;
+				}
+
+				if (metaChunk.hasPosition()) {
+					offset = metaChunk.getRange(chunkSize).getOffset();
+				} else {
+					// never guess the position with the own chunk size, the uploader may have used another one
+					if (chunkIndex < lastIndex) {
+						if (legacyChunkSize < 0) {
+							legacyChunkSize = data.length;
+						} else if (legacyChunkSize != data.length) {
+							throw new IOException(String.format("Chunk %s has %s bytes instead of %s.", chunkIndex,
+									data.length, legacyChunkSize));
+						}
+					} else if (chunkIndex > 0 && legacyChunkSize < 0) {
+						// the position of the last chunk is unknown until another chunk arrives
+						pendingLastChunk = data;
+						return;
+					}
+					offset = chunkIndex == 0 ? 0 : chunkIndex * (long) legacyChunkSize;
+				}
+
+				if (pendingLastChunk != null && legacyChunkSize >= 0) {
+					pending = pendingLastChunk;
+					pendingLastChunk = null;
+				}
+				target = getSink();
+			}
+
+			if (!target.writeAt(offset, data)) {
+				// the download has been aborted meanwhile
+				return;
+			}
+			if (pending != null && !target.writeAt(lastIndex * (long) legacyChunkSize, pending)) {
+				return;
+			}
+		} catch (IOException e) {
+			abortDownload(String.format("Cannot write chunk %s to the file. Reason: %s", chunkIndex, e.getMessage()));
+			return;
+		}
+
+		markDownloaded(chunkIndex);
+		if (pending != null) {
+			markDownloaded(lastIndex);
+		}
+	}
+
 	/**
 	 * Mark the given chunk as downloaded
 	 * 
 	 * @param chunkIndex the index of the chunk (unique number)
-	 * @param filePart the file holding the content of the chunk
 	 */
-	public synchronized void markDownloaded(int chunkIndex, File filePart) {
-		logger.debug("Successfully downloaded chunk {} of file {}", chunkIndex, getDestinationName());
-		downloadedChunks[chunkIndex] = filePart;
-
-		if (isAborted()) {
+	private synchronized void markDownloaded(int chunkIndex) {
+		if (isAborted() || sinkClosed) {
 			// no need for further processing
 			return;
-		} else if (finishedLatch.getCount() == 0) {
-			// already done with the download
-			return;
 		}
 
+		logger.debug("Successfully downloaded chunk {} of file {}", chunkIndex, getDestinationName());
+		downloadedChunks[chunkIndex] = true;
+
 		int openChunkNumber = getOpenChunks().size();
 		if (openChunkNumber > 0) {
 			logger.debug("{} chunks of file {} are still downloading.", openChunkNumber, getDestinationName());
 		} else {
-			logger.debug("All parts of file {} are downloaded, reassembling them...", getDestinationName());
+			logger.debug("All parts of file {} are downloaded, moving it to the destination...", getDestinationName());
 			try {
-				// reassembly
-				List<File> fileParts = Arrays.asList(downloadedChunks);
-				FileChunkUtil.reassembly(fileParts, destination);
-				logger.debug("File {} has successfully been reassembled", getDestinationName());
+				DownloadSink finished = getSink();
+				sinkClosed = true;
+				sink = null;
+				finished.finish();
+				logger.debug("File {} has successfully been downloaded", getDestinationName());
 
 				// notify listeners
 				for (IDownloadListener listener : listeners) {
 					listener.downloadFinished(this);
 				}
 
-				// delete the temporary download folder
-				if (!tempFolder.delete()) {
-					logger.warn("Couldn't delete temporary download folder '{}'.", tempFolder);
-				}
-
 				// release the lock
 				finishedLatch.countDown();
 			} catch (IOException e) {
-				abortDownload(String.format("Cannot reassembly the file parts. Reason: %s.", reason + e.getMessage()));
+				abortDownload(String.format("Cannot move the downloaded file to the destination. Reason: %s.",
+						e.getMessage()));
 			}
 		}
 	}
@@ -54,6 +54,9 @@ public class DownloadManager {
 	public void submit(BaseDownloadTask task) throws NoPeerConnectionException {
 		logger.debug("Submitted to download {}", task.getDestinationName());
 
+		// the chunks are written to their position in the file
+		task.setChunkSize(fileConfig.getChunkSize());
+
 		// store the task for possible later recovery
 		openTasks.add(task);
 
@@ -0,0 +1,194 @@
+package org.hive2hive.core.network.data.download;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.hive2hive.core.H2HConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes the downloaded chunks of a file directly to their position in a (sparse) partial file next to the
+ * destination. Chunks can be written in any order and from multiple threads. When all chunks are written,
+ * the partial file is renamed to the destination. Therefore, every byte is written only once and the
+ * destination never contains an incomplete file. Writes that arrive after the sink has been finished or
+ * discarded are ignored.
+ */
+public class DownloadSink {
+
+	private static final Logger logger = LoggerFactory.getLogger(DownloadSink.class);
+
+	private final File destination;
+	private final File partialFile;
+	private final long chunkSize;
+
+	private final RandomAccessFile randomAccessFile;
+	private final FileChannel channel;
+	// the end of the furthest chunk written so far (guarded by this)
+	private long length = 0;
+
+	// writes hold the read lock, finishing and discarding the write lock
+	private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+	private boolean closed = false;
+
+	/**
+	 * Creates the partial file and preallocates it
+	 * 
+	 * @param destination the final location of the file
+	 * @param chunkSize the size of a chunk (all chunks except the last one have this size). With
+	 *            content-defined chunking, this is the average size and the preallocation is an estimate.
+	 * @param numberOfChunks the number of chunks of the file
+	 * @throws IOException if the partial file cannot be created
+	 */
+	public DownloadSink(File destination, long chunkSize, int numberOfChunks) throws IOException {
+		if (chunkSize <= 0) {
+			throw new IllegalArgumentException("Chunk size must be positive.");
+		}
+
+		this.destination = destination;
+		this.partialFile = getPartialFile(destination);
+		this.chunkSize = chunkSize;
+
+		File parent = partialFile.getParentFile();
+		if (parent != null && !parent.exists() && !parent.mkdirs()) {
+			throw new IOException(String.format("Cannot create the folder '%s'.", parent));
+		}
+
+		this.randomAccessFile = new RandomAccessFile(partialFile, "rw");
+		this.channel = randomAccessFile.getChannel();
+
+		// sparse on most file systems, the last chunk is shorter, the file gets truncated when finishing
+		randomAccessFile.setLength(chunkSize * numberOfChunks);
+	}
+
+	/**
+	 * Writes the data of a chunk to its position in the file
+	 * 
+	 * @param index the index of the chunk
+	 * @param data the (decrypted) data of the chunk
+	 * @return <code>false</code> if the sink has already been finished or discarded
+	 * @throws IOException if the data cannot be written
+	 */
+	public boolean write(int index, byte[] data) throws IOException {
+		return writeAt(index * chunkSize, data);
+	}
+
+	/**
+	 * Writes the data of a chunk to the given position in the file
+	 * 
+	 * @param offset the position of the first byte of the chunk in the file
+	 * @param data the (decrypted) data of the chunk
+	 * @return <code>false</code> if the sink has already been finished or discarded
+	 * @throws IOException if the data cannot be written
+	 */
+	public boolean writeAt(long offset, byte[] data) throws IOException {
+		closeLock.readLock().lock();
+		try {
+			if (closed) {
+				return false;
+			}
+
+			long position = offset;
+			ByteBuffer buffer = ByteBuffer.wrap(data);
+			while (buffer.hasRemaining()) {
+				// positional writes do not change the position of the channel, thus are safe to run in parallel
+				position += channel.write(buffer, position);
+			}
+
+			synchronized (this) {
+				length = Math.max(length, position);
+			}
+			return true;
+		} finally {
+			closeLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Cuts the file to the written length and moves it atomically to the destination (replacing an existing
+	 * file). Waits for running writes.
+	 * 
+	 * @throws IOException if the file cannot be finished or the sink is already closed
+	 */
+	public void finish() throws IOException {
+		closeLock.writeLock().lock();
+		try {
+			if (closed) {
+				throw new IOException(String.format("The partial file '%s' is already closed.", partialFile));
+			}
+			closed = true;
+
+			long written;
+			synchronized (this) {
+				written = length;
+			}
+			try {
+				channel.truncate(written);
+				channel.force(true);
+			} finally {
+				randomAccessFile.close();
+			}
+		} finally {
+			closeLock.writeLock().unlock();
+		}
+
+		try {
+			Files.move(partialFile.toPath(), destination.toPath(), StandardCopyOption.ATOMIC_MOVE,
+					StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			logger.warn("Atomic move is not supported. Moving '{}' non-atomically.", destination);
+			Files.move(partialFile.toPath(), destination.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Closes and deletes the partial file. Waits for running writes. Does nothing if the sink is already
+	 * closed.
+	 */
+	public void discard() {
+		closeLock.writeLock().lock();
+		try {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			randomAccessFile.close();
+		} catch (IOException e) {
+			logger.warn("Cannot close the partial file '{}'.", partialFile, e);
+		} finally {
+			closeLock.writeLock().unlock();
+		}
+
+		if (partialFile.exists() && !partialFile.delete()) {
+			logger.warn("Cannot delete the partial file '{}'.", partialFile);
+		}
+	}
+
+	public File getPartialFile() {
+		return partialFile;
+	}
+
+	/**
+	 * @param destination the destination of a download
+	 * @return the partial file that is used while downloading to the destination
+	 */
+	public static File getPartialFile(File destination) {
+		return new File(destination.getParentFile(), destination.getName() + H2HConstants.PARTIAL_DOWNLOAD_SUFFIX);
+	}
+
+	/**
+	 * @param file any file
+	 * @return <code>true</code> if the file is a partial file of a running download
+	 */
+	public static boolean isPartialFile(File file) {
+		return file.getName().endsWith(H2HConstants.PARTIAL_DOWNLOAD_SUFFIX);
+	}
+}
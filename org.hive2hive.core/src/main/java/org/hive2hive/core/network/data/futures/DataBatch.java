@@ -0,0 +1,200 @@
+package org.hive2hive.core.network.data.futures;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+import net.tomp2p.peers.Number160;
+
+import org.hive2hive.core.network.data.parameters.IParameters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the same DHT operation for many {@link IParameters} with a bounded number of operations in flight.
+ * Operations with the same location key are routed to the same peers. They are executed one after the other
+ * (in the given order), such that e.g. multiple versions of the same content do not race each other.
+ *
+ * @param <T> the result type of a single operation
+ */
+public abstract class DataBatch<T> {
+
+	private static final Logger logger = LoggerFactory.getLogger(DataBatch.class);
+
+	private final List<IParameters> parameters;
+	private final int window;
+	private final DataFuture<List<T>> result;
+	private final List<T> results;
+	private final List<DataFuture<T>> started;
+	// lanes (one per location key) that wait for being started
+	private final Deque<Queue<Integer>> idleLanes;
+	private final Map<Integer, Queue<Integer>> laneOf;
+
+	// guarded by this
+	private int running = 0;
+	private int remaining;
+	private boolean dispatching = false;
+
+	/**
+	 * @param parameters the parameters of the single operations
+	 * @param window the maximum number of operations that run at the same time
+	 */
+	public DataBatch(List<IParameters> parameters, int window) {
+		if (window <= 0) {
+			throw new IllegalArgumentException("Window must be positive.");
+		}
+
+		this.parameters = new ArrayList<IParameters>(parameters);
+		this.window = window;
+		this.result = new DataFuture<List<T>>(null);
+		this.results = new ArrayList<T>(Collections.<T> nCopies(parameters.size(), null));
+		this.started = new ArrayList<DataFuture<T>>();
+		this.remaining = parameters.size();
+
+		// group by location key
+		Map<Number160, Queue<Integer>> lanes = new LinkedHashMap<Number160, Queue<Integer>>();
+		this.laneOf = new LinkedHashMap<Integer, Queue<Integer>>();
+		for (int i = 0; i < this.parameters.size(); i++) {
+			Number160 locationKey = this.parameters.get(i).getLKey();
+			Queue<Integer> lane = lanes.get(locationKey);
+			if (lane == null) {
+				lane = new ArrayDeque<Integer>();
+				lanes.put(locationKey, lane);
+			}
+			lane.add(i);
+			laneOf.put(i, lane);
+		}
+		this.idleLanes = new ArrayDeque<Queue<Integer>>(lanes.values());
+	}
+
+	/**
+	 * Starts a single operation. Must not block. If it throws, the operation counts as failed.
+	 *
+	 * @param parameters the parameters of the operation
+	 * @return the future of the operation
+	 */
+	protected abstract DataFuture<T> start(IParameters parameters);
+
+	/**
+	 * Starts the batch
+	 *
+	 * @return a future that completes when all operations are done. The results are in the order of the
+	 *         given parameters. Cancelling it cancels all running operations and does not start the
+	 *         remaining ones.
+	 */
+	public DataFuture<List<T>> run() {
+		if (parameters.isEmpty()) {
+			result.complete(Collections.<T> emptyList());
+			return result;
+		}
+
+		result.addListener(new IDataFutureListener<List<T>>() {
+			@Override
+			public void onDone(DataFuture<List<T>> future) {
+				if (future.isCancelled()) {
+					List<DataFuture<T>> toCancel;
+					synchronized (DataBatch.this) {
+						toCancel = new ArrayList<DataFuture<T>>(started);
+					}
+					for (DataFuture<T> single : toCancel) {
+						single.cancel(true);
+					}
+				}
+			}
+		});
+
+		dispatch();
+		return result;
+	}
+
+	/**
+	 * Starts operations as long as the window allows. Completions that happen meanwhile (also synchronous
+	 * ones) do not recurse but let the running loop continue.
+	 */
+	private void dispatch() {
+		synchronized (this) {
+			if (dispatching) {
+				return;
+			}
+			dispatching = true;
+		}
+
+		boolean idle = false;
+		try {
+			while (true) {
+				Integer index;
+				synchronized (this) {
+					index = nextIndex();
+					if (index == null) {
+						dispatching = false;
+						idle = true;
+						return;
+					}
+				}
+
+				final int position = index;
+				DataFuture<T> future;
+				try {
+					future = start(parameters.get(position));
+				} catch (RuntimeException e) {
+					// only this operation fails, the batch goes on
+					logger.error("Cannot start the operation for '{}'.", parameters.get(position), e);
+					future = new DataFuture<T>(null);
+					future.fail(e);
+				}
+				synchronized (this) {
+					started.add(future);
+				}
+
+				future.addListener(new IDataFutureListener<T>() {
+					@Override
+					public void onDone(DataFuture<T> future) {
+						done(position, future.await());
+					}
+				});
+			}
+		} finally {
+			if (!idle) {
+				// an unexpected error, let the next completion dispatch again
+				synchronized (this) {
+					dispatching = false;
+				}
+			}
+		}
+	}
+
+	private Integer nextIndex() {
+		if (result.isDone() || running >= window || idleLanes.isEmpty()) {
+			return null;
+		}
+
+		Queue<Integer> lane = idleLanes.poll();
+		running++;
+		return lane.poll();
+	}
+
+	private void done(int index, T value) {
+		boolean finished;
+		synchronized (this) {
+			results.set(index, value);
+			running--;
+			Queue<Integer> lane = laneOf.get(index);
+			if (!lane.isEmpty()) {
+				// continue this location key first
+				idleLanes.addFirst(lane);
+			}
+			finished = --remaining == 0;
+		}
+
+		if (finished) {
+			result.complete(Collections.unmodifiableList(results));
+		} else {
+			dispatch();
+		}
+	}
+}
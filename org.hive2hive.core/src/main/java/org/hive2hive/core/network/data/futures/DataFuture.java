@@ -0,0 +1,364 @@
+package org.hive2hive.core.network.data.futures;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.tomp2p.futures.BaseFuture;
+
+import org.hive2hive.core.H2HConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The result of an asynchronous DHT operation. A failed operation does not throw, but completes with the
+ * failure value of the future (e.g. <code>null</code> for a get or <code>false</code> for a remove), just
+ * like the blocking methods of the {@link org.hive2hive.core.network.data.DataManager} return it.<br>
+ * The future can time out (completing with the failure value) and can be cancelled. In both cases, the
+ * running network operation is cancelled as well. Listeners are notified in the thread completing the
+ * future, thus many operations can run at the same time without blocking a thread each. Continuations that
+ * may take longer (e.g. decrypting the result) should be handed to {@link #execute(Runnable)}.
+ */
+public class DataFuture<T> implements Future<T> {
+
+	private static final Logger logger = LoggerFactory.getLogger(DataFuture.class);
+
+	// a single daemon thread fires the timeouts and the delayed retries of all futures
+	private static final ScheduledThreadPoolExecutor TIMER = createTimer();
+	// runs the continuations that should not block the network or the timer threads
+	private static final ExecutorService WORKERS = createWorkers();
+
+	private final T failureValue;
+	private final CountDownLatch latch;
+	private final List<IDataFutureListener<T>> listeners;
+
+	// guarded by this
+	private boolean done = false;
+	private boolean cancelled = false;
+	private boolean timedOut = false;
+	private T result;
+	private Exception cause;
+	private ScheduledFuture<?> timeout;
+	private BaseFuture networkFuture;
+
+	/**
+	 * @param failureValue the result if the operation fails, times out or is cancelled
+	 */
+	public DataFuture(T failureValue) {
+		this.failureValue = failureValue;
+		this.latch = new CountDownLatch(1);
+		this.listeners = new ArrayList<IDataFutureListener<T>>();
+	}
+
+	/**
+	 * @param result the result
+	 * @return a future that is already completed with the given result
+	 */
+	public static <T> DataFuture<T> completed(T result) {
+		DataFuture<T> future = new DataFuture<T>(result);
+		future.complete(result);
+		return future;
+	}
+
+	/**
+	 * Completes the future with the failure value if it is not done within the given time
+	 *
+	 * @param timeoutMs the timeout in milliseconds
+	 * @return this future
+	 */
+	public DataFuture<T> withTimeout(long timeoutMs) {
+		ScheduledFuture<?> scheduled = TIMER.schedule(new Runnable() {
+			@Override
+			public void run() {
+				if (finish(failureValue, null, false, true)) {
+					logger.warn("DHT operation timed out.");
+				}
+			}
+		}, timeoutMs, TimeUnit.MILLISECONDS);
+
+		synchronized (this) {
+			if (done) {
+				scheduled.cancel(false);
+			} else {
+				timeout = scheduled;
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Sets the network operation that currently runs for this future (e.g. a retry). It gets cancelled
+	 * when this future is cancelled or times out.
+	 *
+	 * @param networkFuture the running network operation
+	 */
+	public void track(BaseFuture networkFuture) {
+		boolean cancelNow;
+		synchronized (this) {
+			this.networkFuture = networkFuture;
+			cancelNow = cancelled || timedOut;
+		}
+
+		if (cancelNow) {
+			networkFuture.cancel();
+		}
+	}
+
+	/**
+	 * Completes the future and notifies the listeners
+	 *
+	 * @param result the result of the operation
+	 * @return <code>true</code> if the future has been completed, <code>false</code> if it was already done
+	 */
+	public boolean complete(T result) {
+		return finish(result, null, false, false);
+	}
+
+	/**
+	 * Completes the future with the failure value and the reason of the failure
+	 *
+	 * @param cause the reason of the failure
+	 * @return <code>true</code> if the future has been completed, <code>false</code> if it was already done
+	 */
+	public boolean fail(Exception cause) {
+		return finish(failureValue, cause, false, false);
+	}
+
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		return finish(failureValue, null, true, false);
+	}
+
+	private boolean finish(T value, Exception cause, boolean cancel, boolean timeout) {
+		List<IDataFutureListener<T>> toNotify;
+		ScheduledFuture<?> timer;
+		BaseFuture network;
+		synchronized (this) {
+			if (done) {
+				return false;
+			}
+			done = true;
+			cancelled = cancel;
+			timedOut = timeout;
+			result = value;
+			this.cause = cause;
+			toNotify = new ArrayList<IDataFutureListener<T>>(listeners);
+			listeners.clear();
+			timer = this.timeout;
+			network = this.networkFuture;
+		}
+
+		latch.countDown();
+		if (timer != null) {
+			timer.cancel(false);
+		}
+		if ((cancel || timeout) && network != null && !network.isCompleted()) {
+			network.cancel();
+		}
+
+		for (IDataFutureListener<T> listener : toNotify) {
+			notifyListener(listener);
+		}
+		return true;
+	}
+
+	/**
+	 * Adds a listener that is notified when the future is done. If it is already done, the listener is
+	 * notified immediately.
+	 *
+	 * @param listener the listener
+	 * @return this future
+	 */
+	public DataFuture<T> addListener(IDataFutureListener<T> listener) {
+		synchronized (this) {
+			if (!done) {
+				listeners.add(listener);
+				return this;
+			}
+		}
+
+		notifyListener(listener);
+		return this;
+	}
+
+	private void notifyListener(IDataFutureListener<T> listener) {
+		try {
+			listener.onDone(this);
+		} catch (RuntimeException e) {
+			logger.error("Listener of a DHT operation failed.", e);
+		}
+	}
+
+	@Override
+	public synchronized boolean isDone() {
+		return done;
+	}
+
+	@Override
+	public synchronized boolean isCancelled() {
+		return cancelled;
+	}
+
+	public synchronized boolean isTimedOut() {
+		return timedOut;
+	}
+
+	public T getFailureValue() {
+		return failureValue;
+	}
+
+	/**
+	 * @return the reason if the future has failed, else <code>null</code>
+	 */
+	public synchronized Exception getCause() {
+		return cause;
+	}
+
+	@Override
+	public T get() throws InterruptedException {
+		latch.await();
+		return getResult();
+	}
+
+	@Override
+	public T get(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+		if (!latch.await(timeout, unit)) {
+			throw new TimeoutException("DHT operation is not done yet.");
+		}
+		return getResult();
+	}
+
+	private synchronized T getResult() {
+		if (cancelled) {
+			throw new CancellationException("DHT operation has been cancelled.");
+		}
+		return result;
+	}
+
+	/**
+	 * Waits (blocking) until the future is done
+	 *
+	 * @return the result or the failure value if the future has been cancelled or the waiting thread has
+	 *         been interrupted
+	 */
+	public T await() {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			logger.error("Could not wait until the DHT operation has finished.");
+			Thread.currentThread().interrupt();
+			return failureValue;
+		}
+
+		synchronized (this) {
+			return cancelled ? failureValue : result;
+		}
+	}
+
+	/**
+	 * Combines multiple futures. Cancelling the combined future cancels all of them.
+	 *
+	 * @param futures the futures to combine
+	 * @return a future that completes when all futures are done, with their results in the same order
+	 *         (failure values for failed, timed out or cancelled ones).
+	 */
+	public static <T> DataFuture<List<T>> all(final List<DataFuture<T>> futures) {
+		final DataFuture<List<T>> all = new DataFuture<List<T>>(null);
+		if (futures.isEmpty()) {
+			all.complete(Collections.<T> emptyList());
+			return all;
+		}
+
+		final AtomicInteger open = new AtomicInteger(futures.size());
+		IDataFutureListener<T> listener = new IDataFutureListener<T>() {
+			@Override
+			public void onDone(DataFuture<T> future) {
+				if (open.decrementAndGet() == 0) {
+					List<T> results = new ArrayList<T>(futures.size());
+					for (DataFuture<T> done : futures) {
+						// does not block anymore
+						results.add(done.await());
+					}
+					all.complete(results);
+				}
+			}
+		};
+
+		all.addListener(new IDataFutureListener<List<T>>() {
+			@Override
+			public void onDone(DataFuture<List<T>> future) {
+				if (future.isCancelled() || future.isTimedOut()) {
+					for (DataFuture<T> single : futures) {
+						single.cancel(true);
+					}
+				}
+			}
+		});
+
+		for (DataFuture<T> future : futures) {
+			future.addListener(listener);
+		}
+		return all;
+	}
+
+	/**
+	 * Runs a (short, non-blocking) task after a delay, e.g. a retry after a backoff
+	 *
+	 * @param task the task to run
+	 * @param delayMs the delay in milliseconds
+	 */
+	public static void schedule(Runnable task, long delayMs) {
+		if (delayMs <= 0) {
+			task.run();
+		} else {
+			TIMER.schedule(task, delayMs, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Runs a task in the worker threads of the futures, e.g. the next step after a network operation
+	 *
+	 * @param task the task to run
+	 */
+	public static void execute(Runnable task) {
+		WORKERS.execute(task);
+	}
+
+	private static ExecutorService createWorkers() {
+		return Executors.newFixedThreadPool(H2HConstants.DATA_FUTURE_WORKER_THREADS, new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger(0);
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "data-future-worker-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	private static ScheduledThreadPoolExecutor createTimer() {
+		ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "data-future-timeout");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		// do not keep the timeouts of completed futures
+		timer.setRemoveOnCancelPolicy(true);
+		return timer;
+	}
+}
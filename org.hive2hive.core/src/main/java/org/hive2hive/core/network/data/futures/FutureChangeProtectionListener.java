@@ -1,12 +1,10 @@
 package org.hive2hive.core.network.data.futures;
 
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.TimeUnit;
-
 import net.tomp2p.dht.FuturePut;
 import net.tomp2p.futures.BaseFutureAdapter;
 
-import org.hive2hive.core.H2HConstants;
+import org.hive2hive.core.network.data.IRetryPolicy;
+import org.hive2hive.core.network.data.IRetryPolicy.Operation;
 import org.hive2hive.core.network.data.parameters.IParameters;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -22,13 +20,18 @@ public class FutureChangeProtectionListener extends BaseFutureAdapter<FuturePut>
 	private static final Logger logger = LoggerFactory.getLogger(FutureChangeProtectionListener.class);
 
 	private final IParameters parameters;
-	private final CountDownLatch latch;
-
-	private boolean success = false;
+	private final DataFuture<Boolean> success;
 
-	public FutureChangeProtectionListener(IParameters parameters) {
+	public FutureChangeProtectionListener(IParameters parameters, IRetryPolicy retryPolicy) {
 		this.parameters = parameters;
-		this.latch = new CountDownLatch(1);
+		this.success = new DataFuture<Boolean>(false).withTimeout(retryPolicy.getDeadlineMs(Operation.PUT));
+	}
+
+	/**
+	 * @return the future that completes when the change of the protection key is done
+	 */
+	public DataFuture<Boolean> getFuture() {
+		return success;
 	}
 
 	/**
@@ -37,26 +40,17 @@ public class FutureChangeProtectionListener extends BaseFutureAdapter<FuturePut>
 	 * @return true if successful, false if not successful
 	 */
 	public boolean await() {
-		try {
-			latch.await(H2HConstants.AWAIT_NETWORK_OPERATION_MS * H2HConstants.PUT_RETRIES, TimeUnit.MILLISECONDS);
-		} catch (InterruptedException e) {
-			logger.error("Could not wait until the protection key change has finished. Reason = '{}'. '{}'", e.getMessage(),
-					parameters.toString());
-		}
-
-		return success;
+		return success.await();
 	}
 
 	@Override
 	public void operationComplete(FuturePut future) throws Exception {
 		if (future.isFailed()) {
 			logger.warn("Change was not successful. Reason = '{}'. '{}'", future.failedReason(), parameters.toString());
-			success = false;
-			latch.countDown();
+			success.complete(false);
 		} else {
 			logger.trace("Change of protection key successful. '{}'", parameters.toString());
-			success = true;
-			latch.countDown();
+			success.complete(true);
 		}
 	}
 
@@ -2,15 +2,14 @@ package org.hive2hive.core.network.data.futures;
 
 import java.util.Collection;
 import java.util.NavigableMap;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.TimeUnit;
 
 import net.tomp2p.dht.FutureDigest;
 import net.tomp2p.futures.BaseFutureListener;
 import net.tomp2p.peers.Number160;
 import net.tomp2p.peers.Number640;
 
-import org.hive2hive.core.H2HConstants;
+import org.hive2hive.core.network.data.IRetryPolicy;
+import org.hive2hive.core.network.data.IRetryPolicy.Operation;
 import org.hive2hive.core.network.data.parameters.IParameters;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -26,14 +25,20 @@ public class FutureDigestListener implements BaseFutureListener<FutureDigest> {
 	private static final Logger logger = LoggerFactory.getLogger(FutureDigestListener.class);
 
 	private final IParameters parameters;
-	private final CountDownLatch latch;
-
 	// the result when it came back
-	private NavigableMap<Number640, Collection<Number160>> result = null;
+	private final DataFuture<NavigableMap<Number640, Collection<Number160>>> result;
 
-	public FutureDigestListener(IParameters parameters) {
+	public FutureDigestListener(IParameters parameters, IRetryPolicy retryPolicy) {
 		this.parameters = parameters;
-		this.latch = new CountDownLatch(1);
+		this.result = new DataFuture<NavigableMap<Number640, Collection<Number160>>>(null)
+				.withTimeout(retryPolicy.getDeadlineMs(Operation.GET));
+	}
+
+	/**
+	 * @return the future that completes with the digest (or <code>null</code>) when the get is done
+	 */
+	public DataFuture<NavigableMap<Number640, Collection<Number160>>> getFuture() {
+		return result;
 	}
 
 	/**
@@ -42,28 +47,23 @@ public class FutureDigestListener implements BaseFutureListener<FutureDigest> {
 	 * @return returns the content from the DHT
 	 */
 	public NavigableMap<Number640, Collection<Number160>> awaitAndGet() {
-		try {
-			latch.await(H2HConstants.AWAIT_NETWORK_OPERATION_MS, TimeUnit.MILLISECONDS);
-		} catch (InterruptedException e) {
-			logger.error("Latch to wait for the get was interrupted.");
-		}
-
-		return result;
+		return result.await();
 	}
 
 	@Override
 	public void operationComplete(FutureDigest future) throws Exception {
-		if (future.isFailed()) {
+		NavigableMap<Number640, Collection<Number160>> digest = null;
+		if (future == null || future.isFailed()) {
 			logger.error("Could not get digest. {}", parameters.toString());
 		} else {
-			result = future.digest().keyDigest();
-			if (result == null) {
+			digest = future.digest().keyDigest();
+			if (digest == null) {
 				logger.warn("Got digest null. {}", parameters.toString());
 			} else {
 				logger.debug("Got digest. {}", parameters.toString());
 			}
 		}
-		latch.countDown();
+		result.complete(digest);
 	}
 
 	@Override
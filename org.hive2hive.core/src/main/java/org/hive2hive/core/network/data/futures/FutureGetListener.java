@@ -1,13 +1,11 @@
 package org.hive2hive.core.network.data.futures;
 
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.TimeUnit;
-
 import net.tomp2p.dht.FutureGet;
 import net.tomp2p.futures.BaseFutureListener;
 
-import org.hive2hive.core.H2HConstants;
 import org.hive2hive.core.model.BaseNetworkContent;
+import org.hive2hive.core.network.data.IRetryPolicy;
+import org.hive2hive.core.network.data.IRetryPolicy.Operation;
 import org.hive2hive.core.network.data.parameters.IParameters;
 import org.hive2hive.core.serializer.IH2HSerialize;
 import org.slf4j.Logger;
@@ -25,15 +23,20 @@ public class FutureGetListener implements BaseFutureListener<FutureGet> {
 
 	private final IParameters parameters;
 	private final IH2HSerialize serializer;
-	private final CountDownLatch latch;
-
 	// the result when it came back
-	private BaseNetworkContent result = null;
+	private final DataFuture<BaseNetworkContent> result;
 
-	public FutureGetListener(IParameters parameters, IH2HSerialize serializer) {
+	public FutureGetListener(IParameters parameters, IH2HSerialize serializer, IRetryPolicy retryPolicy) {
 		this.parameters = parameters;
 		this.serializer = serializer;
-		this.latch = new CountDownLatch(1);
+		this.result = new DataFuture<BaseNetworkContent>(null).withTimeout(retryPolicy.getDeadlineMs(Operation.GET));
+	}
+
+	/**
+	 * @return the future that completes with the content (or <code>null</code>) when the get is done
+	 */
+	public DataFuture<BaseNetworkContent> getFuture() {
+		return result;
 	}
 
 	/**
@@ -42,32 +45,25 @@ public class FutureGetListener implements BaseFutureListener<FutureGet> {
 	 * @return returns the content from the DHT
 	 */
 	public BaseNetworkContent awaitAndGet() {
-		try {
-			latch.await(H2HConstants.AWAIT_NETWORK_OPERATION_MS, TimeUnit.MILLISECONDS);
-		} catch (InterruptedException e) {
-			logger.error("Latch to wait for the get was interrupted.");
-		}
-		return result;
+		return result.await();
 	}
 
 	@Override
 	public void operationComplete(FutureGet future) throws Exception {
+		BaseNetworkContent content = null;
 		if (future == null || future.isFailed() || future.isEmpty() || future.data() == null) {
-			result = null;
 			logger.debug("Got null. '{}'", parameters.toString());
 		} else {
 			// set the result
 			byte[] buffer = future.data().toBytes();
 			if (buffer != null && buffer.length > 0) {
-				result = (BaseNetworkContent) serializer.deserialize(buffer);
-				logger.debug("Got result = '{}'. '{}'", result.getClass().getSimpleName(), parameters.toString());
+				content = (BaseNetworkContent) serializer.deserialize(buffer);
+				logger.debug("Got result = '{}'. '{}'", content.getClass().getSimpleName(), parameters.toString());
 			} else {
-				result = null;
 				logger.debug("Got null. '{}'", parameters.toString());
 			}
 		}
-		// release the lock
-		latch.countDown();
+		result.complete(content);
 	}
 
 	@Override
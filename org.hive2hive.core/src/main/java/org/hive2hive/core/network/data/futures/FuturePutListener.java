@@ -3,8 +3,6 @@ package org.hive2hive.core.network.data.futures;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.TimeUnit;
 
 import net.tomp2p.dht.FuturePut;
 import net.tomp2p.dht.FutureRemove;
@@ -13,22 +11,24 @@ import net.tomp2p.futures.BaseFutureAdapter;
 import net.tomp2p.peers.Number640;
 import net.tomp2p.peers.PeerAddress;
 
-import org.hive2hive.core.H2HConstants;
 import org.hive2hive.core.model.BaseNetworkContent;
 import org.hive2hive.core.network.data.DataManager;
 import org.hive2hive.core.network.data.DataManager.H2HPutStatus;
+import org.hive2hive.core.network.data.IRetryPolicy;
+import org.hive2hive.core.network.data.IRetryPolicy.Operation;
 import org.hive2hive.core.network.data.parameters.IParameters;
+import org.hive2hive.core.network.data.statistics.DataOperation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * A put future adapter for verifying a put of a {@link BaseNetworkContent} object. Provides failure handling
- * and a blocking wait.<br><br>
+ * A put future adapter for verifying a put of a {@link BaseNetworkContent} object. Provides failure handling,
+ * a {@link DataFuture} and a blocking wait.<br><br>
  * 
  * <b>Failure Handling</b><br>
  * Putting can fail when the future object failed, when the future object contains wrong data or the
  * responding node detected a failure. See {@link PutStatus} for possible failures. If putting fails the
- * adapter retries it to a certain threshold (see {@link H2HConstants#PUT_RETRIES}). All puts are
+ * adapter retries it to a certain threshold (see {@link IRetryPolicy}). All puts are
  * asynchronous. That's why the future listener attaches himself to the new future objects so that the adapter
  * can finally notify his/her listener about a success or failure.
  * 
@@ -40,37 +40,43 @@ public class FuturePutListener extends BaseFutureAdapter<FuturePut> {
 
 	private final IParameters parameters;
 	private final DataManager dataManager;
-	private final CountDownLatch latch;
+	private final IRetryPolicy retryPolicy;
+	// used as return value
+	private final DataFuture<H2HPutStatus> result;
 
 	// used to count put retries
 	private int putTries = 0;
-	// used as return value
-	private H2HPutStatus status;
 
 	public FuturePutListener(IParameters parameters, DataManager dataManager) {
 		this.parameters = parameters;
 		this.dataManager = dataManager;
-		this.latch = new CountDownLatch(1);
+		this.retryPolicy = dataManager.getRetryPolicy();
+		this.result = new DataFuture<H2HPutStatus>(H2HPutStatus.FAILED).withTimeout(retryPolicy
+				.getDeadlineMs(Operation.PUT));
+	}
+
+	/**
+	 * @return the future that completes when the put (including retries and confirmation) is done
+	 */
+	public DataFuture<H2HPutStatus> getFuture() {
+		return result;
 	}
 
 	/**
 	 * Wait (blocking) until the put is done
 	 * 
-	 * @return true if successful, false if not successful
+	 * @return the status of the put
 	 */
 	public H2HPutStatus await() {
-		try {
-			latch.await(H2HConstants.AWAIT_NETWORK_OPERATION_MS * H2HConstants.PUT_RETRIES, TimeUnit.MILLISECONDS);
-		} catch (InterruptedException e) {
-			logger.error("Could not wait until put has finished.", e);
-		}
-
-		return status;
+		return result.await();
 	}
 
 	@Override
 	public void operationComplete(FuturePut future) throws Exception {
-		if (future.isFailed()) {
+		if (result.isDone()) {
+			// cancelled or timed out
+			return;
+		} else if (future.isFailed()) {
 			logger.warn("Put future was not successful. '{}'. Reason: {}", parameters.toString(), future.failedReason());
 			retryPut();
 			return;
@@ -123,14 +129,19 @@ public class FuturePutListener extends BaseFutureAdapter<FuturePut> {
 			if (versionFork.isEmpty()) {
 				if (parameters.hasPrepareFlag()) {
 					// confirm put
-					dataManager.confirmUnblocked(parameters).addListener(new BaseFutureAdapter<FuturePut>() {
+					FuturePut confirmFuture = dataManager.confirmUnblocked(parameters);
+					result.track(confirmFuture);
+					confirmFuture.addListener(new BaseFutureAdapter<FuturePut>() {
 
 						// used to count confirm retries
 						private int confirmTries = 0;
 
 						@Override
 						public void operationComplete(FuturePut future) throws Exception {
-							if (future.isFailed()) {
+							if (result.isDone()) {
+								// cancelled or timed out
+								return;
+							} else if (future.isFailed()) {
 								logger.warn("Confirm future was not successful. Reason = '{}' {}", future.failedReason(),
 										parameters.toString());
 								retryConfirm();
@@ -171,8 +182,7 @@ public class FuturePutListener extends BaseFutureAdapter<FuturePut> {
 
 							// check if majority of the contacted nodes responded with ok
 							if ((double) fail.size() < ((double) future.rawResult().size()) / 2.0) {
-								status = H2HPutStatus.OK;
-								latch.countDown();
+								result.complete(H2HPutStatus.OK);
 							} else {
 								logger.warn("{} of {} contacted nodes failed. {}", fail.size(), future.rawResult().size(),
 										parameters.toString());
@@ -181,28 +191,41 @@ public class FuturePutListener extends BaseFutureAdapter<FuturePut> {
 						}
 
 						/**
-						 * Retries a confirm till a certain threshold is reached (see
-						 * {@link H2HConstants.CONFIRM_RETRIES}). A {@link RetryPutListener} tries to confirm
-						 * again.
+						 * Retries a confirm till a certain threshold is reached (see {@link IRetryPolicy}). This
+						 * listener waits for the confirmation again.
 						 */
 						private void retryConfirm() {
-							if (confirmTries++ < H2HConstants.CONFIRM_RETRIES) {
-								logger.warn("Confirm retry #{}. {}", confirmTries, parameters.toString());
-								// retry confirmation, attach itself as listener
-								dataManager.confirmUnblocked(parameters).addListener(this);
+							if (confirmTries < retryPolicy.getMaxRetries(Operation.CONFIRM)) {
+								long backoff = retryPolicy.getBackoffMs(Operation.CONFIRM, confirmTries++);
+								dataManager.getStatistics().recordRetry(DataOperation.CONFIRM);
+								logger.warn("Confirm retry #{} in {} ms. {}", confirmTries, backoff, parameters.toString());
+								final BaseFutureAdapter<FuturePut> confirmListener = this;
+								DataFuture.schedule(new Runnable() {
+									@Override
+									public void run() {
+										if (result.isDone()) {
+											// cancelled or timed out
+											return;
+										}
+
+										// retry confirmation, attach itself as listener
+										FuturePut confirmFuture = dataManager.confirmUnblocked(parameters);
+										result.track(confirmFuture);
+										confirmFuture.addListener(confirmListener);
+									}
+								}, backoff);
 							} else {
 								logger.error("Could not confirm put after {} tries. {}", confirmTries, parameters.toString());
-								status = H2HPutStatus.FAILED;
-								latch.countDown();
+								result.complete(H2HPutStatus.FAILED);
 							}
 						}
 					});
 				} else {
-					status = H2HPutStatus.OK;
-					latch.countDown();
+					result.complete(H2HPutStatus.OK);
 				}
 			} else {
 				logger.warn("Version fork after put detected. Rejecting put.");
+				dataManager.getStatistics().recordVersionFork();
 				// reject put
 				dataManager.removeVersionUnblocked(parameters).addListener(new BaseFutureAdapter<FutureRemove>() {
 					@Override
@@ -210,8 +233,7 @@ public class FuturePutListener extends BaseFutureAdapter<FuturePut> {
 						if (future.isFailed()) {
 							logger.warn("Could not delete the prepared put. '{}'", parameters.toString());
 						}
-						status = H2HPutStatus.VERSION_FORK;
-						latch.countDown();
+						result.complete(H2HPutStatus.VERSION_FORK);
 					}
 				});
 			}
@@ -222,12 +244,14 @@ public class FuturePutListener extends BaseFutureAdapter<FuturePut> {
 	}
 
 	/**
-	 * Retries a put till a certain threshold is reached (see {@link H2HConstants.PUT_RETRIES}). Removes first
-	 * the possibly succeeded puts. A {@link RetryPutListener} tries to put again the given content.
+	 * Retries a put till a certain threshold is reached (see {@link IRetryPolicy}). Removes first the possibly
+	 * succeeded puts and waits for the backoff. Then, this listener tries to put again the given content.
 	 */
 	private void retryPut() {
-		if (putTries++ < H2HConstants.PUT_RETRIES) {
-			logger.warn("Put retry #{}. '{}'", putTries, parameters.toString());
+		if (putTries < retryPolicy.getMaxRetries(Operation.PUT)) {
+			final long backoff = retryPolicy.getBackoffMs(Operation.PUT, putTries++);
+			dataManager.getStatistics().recordRetry(DataOperation.PUT);
+			logger.warn("Put retry #{} in {} ms. '{}'", putTries, backoff, parameters.toString());
 			// remove prior put
 			dataManager.removeVersionUnblocked(parameters).addListener(new BaseFutureAdapter<FutureRemove>() {
 				@Override
@@ -235,8 +259,24 @@ public class FuturePutListener extends BaseFutureAdapter<FuturePut> {
 					if (future.isFailed()) {
 						logger.warn("Could not delete the newly put content. '{}'", parameters.toString());
 					}
-					// retry put, attach itself as listener
-					dataManager.putUnblocked(parameters).addListener(FuturePutListener.this);
+					DataFuture.schedule(new Runnable() {
+						@Override
+						public void run() {
+							if (result.isDone()) {
+								// cancelled or timed out
+								return;
+							}
+
+							// retry put, attach itself as listener
+							FuturePut putFuture = dataManager.putUnblocked(parameters);
+							if (putFuture == null) {
+								result.complete(H2HPutStatus.FAILED);
+							} else {
+								result.track(putFuture);
+								putFuture.addListener(FuturePutListener.this);
+							}
+						}
+					}, backoff);
 				}
 			});
 		} else {
@@ -248,8 +288,7 @@ public class FuturePutListener extends BaseFutureAdapter<FuturePut> {
 					if (future.isFailed()) {
 						logger.warn("Could not delete the newly put content. '{}'", parameters.toString());
 					}
-					status = H2HPutStatus.FAILED;
-					latch.countDown();
+					result.complete(H2HPutStatus.FAILED);
 				}
 			});
 		}
@@ -1,23 +1,21 @@
 package org.hive2hive.core.network.data.futures;
 
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.TimeUnit;
-
 import net.tomp2p.dht.FutureDigest;
 import net.tomp2p.dht.FutureRemove;
 import net.tomp2p.futures.BaseFutureAdapter;
 import net.tomp2p.peers.Number640;
 
-import org.hive2hive.core.H2HConstants;
 import org.hive2hive.core.network.data.DataManager;
+import org.hive2hive.core.network.data.IRetryPolicy;
+import org.hive2hive.core.network.data.IRetryPolicy.Operation;
 import org.hive2hive.core.network.data.parameters.IParameters;
+import org.hive2hive.core.network.data.statistics.DataOperation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * A future listener for a remove. After the operation completed the listener verifies with a get digest if
- * all data has been deleted. If not, the listener retries the remove (see {@link H2HConstants#REMOVE_RETRIES}
- * ).
+ * all data has been deleted. If not, the listener retries the remove (see {@link IRetryPolicy}).
  * 
  * @author Seppi, Nico
  */
@@ -31,14 +29,22 @@ public class FutureRemoveListener extends BaseFutureAdapter<FutureRemove> {
 	private final IParameters parameters;
 	private final boolean versionRemove;
 	private final DataManager dataManager;
-	private final CountDownLatch latch;
-	private boolean success = false;
+	private final IRetryPolicy retryPolicy;
+	private final DataFuture<Boolean> success;
 
 	public FutureRemoveListener(IParameters parameters, boolean versionRemove, DataManager dataManager) {
 		this.parameters = parameters;
 		this.versionRemove = versionRemove;
 		this.dataManager = dataManager;
-		this.latch = new CountDownLatch(1);
+		this.retryPolicy = dataManager.getRetryPolicy();
+		this.success = new DataFuture<Boolean>(false).withTimeout(retryPolicy.getDeadlineMs(Operation.REMOVE));
+	}
+
+	/**
+	 * @return the future that completes when the remove (including verification and retries) is done
+	 */
+	public DataFuture<Boolean> getFuture() {
+		return success;
 	}
 
 	/**
@@ -47,24 +53,27 @@ public class FutureRemoveListener extends BaseFutureAdapter<FutureRemove> {
 	 * @return true if successful, false if not successful
 	 */
 	public boolean await() {
-		try {
-			latch.await(H2HConstants.AWAIT_NETWORK_OPERATION_MS * H2HConstants.REMOVE_RETRIES, TimeUnit.MILLISECONDS);
-		} catch (InterruptedException e) {
-			logger.error("Could not wait until put has finished.", e);
-		}
-
-		return success;
+		return success.await();
 	}
 
 	@Override
 	public void operationComplete(FutureRemove future) throws Exception {
+		if (success.isDone()) {
+			// cancelled or timed out
+			return;
+		}
+
 		logger.trace("Start verification of remove. '{}'", parameters.toString());
 		// get data to verify if everything went correct
 		FutureDigest digestFuture = dataManager.getDigestUnblocked(parameters);
+		success.track(digestFuture);
 		digestFuture.addListener(new BaseFutureAdapter<FutureDigest>() {
 			@Override
 			public void operationComplete(FutureDigest future) throws Exception {
-				if (future.digest() == null) {
+				if (success.isDone()) {
+					// cancelled or timed out
+					return;
+				} else if (future.digest() == null) {
 					retryRemove();
 				} else if (versionRemove) {
 					Number640 key = new Number640(parameters.getLKey(), parameters.getDKey(), parameters.getCKey(),
@@ -73,16 +82,14 @@ public class FutureRemoveListener extends BaseFutureAdapter<FutureRemove> {
 						retryRemove();
 					} else {
 						logger.trace("Verification for remove completed. '{}'", parameters.toString());
-						success = true;
-						latch.countDown();
+						success.complete(true);
 					}
 				} else {
 					if (!future.digest().keyDigest().isEmpty()) {
 						retryRemove();
 					} else {
 						logger.trace("Verification for remove completed. '{}'", parameters.toString());
-						success = true;
-						latch.countDown();
+						success.complete(true);
 					}
 				}
 			}
@@ -90,21 +97,36 @@ public class FutureRemoveListener extends BaseFutureAdapter<FutureRemove> {
 	}
 
 	/**
-	 * Retry a remove till a certain threshold (see {@link H2HConstants#REMOVE_RETRIES})
+	 * Retry a remove after a backoff till a certain threshold (see {@link IRetryPolicy})
 	 */
 	private void retryRemove() {
-		if (removeTries++ < H2HConstants.REMOVE_RETRIES) {
-			logger.warn("Remove verification failed. Data is not null. Try #{}. '{}'", removeTries, parameters.toString());
-			if (!versionRemove) {
-				dataManager.removeUnblocked(parameters).addListener(this);
-			} else {
-				dataManager.removeVersionUnblocked(parameters).addListener(this);
-			}
+		if (removeTries < retryPolicy.getMaxRetries(Operation.REMOVE)) {
+			long backoff = retryPolicy.getBackoffMs(Operation.REMOVE, removeTries++);
+			dataManager.getStatistics().recordRetry(DataOperation.REMOVE);
+			logger.warn("Remove verification failed. Data is not null. Try #{} in {} ms. '{}'", removeTries, backoff,
+					parameters.toString());
+			DataFuture.schedule(new Runnable() {
+				@Override
+				public void run() {
+					if (success.isDone()) {
+						// cancelled or timed out
+						return;
+					}
+
+					FutureRemove futureRemove;
+					if (!versionRemove) {
+						futureRemove = dataManager.removeUnblocked(parameters);
+					} else {
+						futureRemove = dataManager.removeVersionUnblocked(parameters);
+					}
+					success.track(futureRemove);
+					futureRemove.addListener(FutureRemoveListener.this);
+				}
+			}, backoff);
 		} else {
 			logger.error("Remove verification failed. Data is not null after {} tries. '{}'", removeTries - 1,
 					parameters.toString());
-			success = false;
-			latch.countDown();
+			success.complete(false);
 		}
 	}
 }
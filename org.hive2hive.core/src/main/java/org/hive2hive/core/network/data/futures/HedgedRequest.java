@@ -0,0 +1,136 @@
+package org.hive2hive.core.network.data.futures;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sends a duplicate request if the first one does not return within the hedge delay. The first successful
+ * result wins and the other request is cancelled. This cuts the tail latency caused by single slow or
+ * unresponsive peers at the cost of a few additional requests.
+ *
+ * @param <T> the result type of the request
+ */
+public abstract class HedgedRequest<T> {
+
+	private static final Logger logger = LoggerFactory.getLogger(HedgedRequest.class);
+
+	private final T failureValue;
+	private final long hedgeDelayMs;
+	private final DataFuture<T> result;
+
+	// guarded by this
+	private final List<DataFuture<T>> attempts = new ArrayList<DataFuture<T>>(2);
+	private int running = 0;
+	private boolean hedged = false;
+
+	/**
+	 * @param failureValue the result of a failed request
+	 * @param hedgeDelayMs the time after which the duplicate request is sent (negative for never)
+	 */
+	public HedgedRequest(T failureValue, long hedgeDelayMs) {
+		this.failureValue = failureValue;
+		this.hedgeDelayMs = hedgeDelayMs;
+		this.result = new DataFuture<T>(failureValue);
+	}
+
+	/**
+	 * Starts a single request. Must not block.
+	 *
+	 * @param hedge <code>true</code> if it is the duplicate request
+	 * @return the future of the request
+	 */
+	protected abstract DataFuture<T> start(boolean hedge);
+
+	/**
+	 * Starts the request
+	 *
+	 * @return a future with the first successful result (or the failure value if all requests failed)
+	 */
+	public DataFuture<T> run() {
+		result.addListener(new IDataFutureListener<T>() {
+			@Override
+			public void onDone(DataFuture<T> future) {
+				cancelAttempts();
+			}
+		});
+
+		startAttempt(false);
+		if (hedgeDelayMs >= 0) {
+			DataFuture.schedule(new Runnable() {
+				@Override
+				public void run() {
+					synchronized (HedgedRequest.this) {
+						if (result.isDone() || hedged) {
+							return;
+						}
+						hedged = true;
+					}
+
+					logger.debug("Request takes longer than {} ms. Sending a hedged request.", hedgeDelayMs);
+					startAttempt(true);
+				}
+			}, hedgeDelayMs);
+		}
+		return result;
+	}
+
+	private void startAttempt(boolean hedge) {
+		synchronized (this) {
+			running++;
+		}
+
+		final DataFuture<T> attempt = start(hedge);
+		boolean cancel;
+		synchronized (this) {
+			attempts.add(attempt);
+			cancel = result.isDone();
+		}
+
+		if (cancel) {
+			attempt.cancel(true);
+		}
+		attempt.addListener(new IDataFutureListener<T>() {
+			@Override
+			public void onDone(DataFuture<T> future) {
+				attemptDone(future.await());
+			}
+		});
+	}
+
+	/**
+	 * @param value the result of a single request
+	 * @return <code>true</code> if the request was successful. By default, any value other than the failure
+	 *         value is a success.
+	 */
+	protected boolean isSuccess(T value) {
+		return failureValue == null ? value != null : !failureValue.equals(value);
+	}
+
+	private void attemptDone(T value) {
+		boolean success = isSuccess(value);
+		boolean finished;
+		synchronized (this) {
+			running--;
+			finished = success || running == 0;
+		}
+
+		if (finished) {
+			result.complete(value);
+		}
+	}
+
+	private void cancelAttempts() {
+		List<DataFuture<T>> toCancel;
+		synchronized (this) {
+			toCancel = new ArrayList<DataFuture<T>>(attempts);
+		}
+		for (DataFuture<T> attempt : toCancel) {
+			if (!attempt.isDone()) {
+				attempt.cancel(true);
+			}
+		}
+	}
+}
@@ -0,0 +1,15 @@
+package org.hive2hive.core.network.data.futures;
+
+/**
+ * Gets notified when a {@link DataFuture} is done (completed, timed out or cancelled).
+ */
+public interface IDataFutureListener<T> {
+
+	/**
+	 * Called once the future is done. The call happens in the thread that completed the future (usually a
+	 * network thread), thus it must not block.
+	 *
+	 * @param future the future that is done
+	 */
+	void onDone(DataFuture<T> future);
+}
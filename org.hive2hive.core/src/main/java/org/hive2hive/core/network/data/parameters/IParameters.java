@@ -1,6 +1,7 @@
 package org.hive2hive.core.network.data.parameters;
 
 import java.security.KeyPair;
+import java.util.Set;
 
 import net.tomp2p.peers.Number160;
 import net.tomp2p.peers.Number640;
@@ -75,6 +76,13 @@ public interface IParameters {
 	 */
 	public Number160 getBasedOnKey();
 
+	/**
+	 * References to further predecessor versions if the version merges forked versions.
+	 * 
+	 * @return hashed based on keys (empty if the version is not a merge)
+	 */
+	public Set<Number160> getMergedKeys();
+
 	/**
 	 * Get the key containing all four <code>TomP2P</code> key dimensions.
 	 * 
@@ -164,4 +172,12 @@ public interface IParameters {
 	 */
 	public boolean hasPrepareFlag();
 
+	/**
+	 * Compare-and-set flag indicating that the storing peers accept the data only if it is based on all of
+	 * their latest versions. Otherwise, they reject it with a version fork.
+	 * 
+	 * @return <code>true</code> if data is compared and set, otherwise <code>false</code>
+	 */
+	public boolean hasCompareAndSetFlag();
+
 }
@@ -2,6 +2,8 @@ package org.hive2hive.core.network.data.parameters;
 
 import java.security.KeyPair;
 import java.security.PublicKey;
+import java.util.Collections;
+import java.util.Set;
 
 import net.tomp2p.peers.Number160;
 import net.tomp2p.peers.Number640;
@@ -27,6 +29,7 @@ public class Parameters implements IParameters {
 	private Number160 cKey = H2HConstants.TOMP2P_DEFAULT_KEY;
 	private Number160 vKey = H2HConstants.TOMP2P_DEFAULT_KEY;
 	private Number160 bKey = null;
+	private Set<Number160> mergedKeys = Collections.emptySet();
 	private BaseNetworkContent networkContent;
 	private Data data;
 	private KeyPair protectionKeys;
@@ -35,6 +38,7 @@ public class Parameters implements IParameters {
 	private boolean hashFlag = false;
 	private byte[] hash;
 	private boolean prepareFlag = false;
+	private boolean compareAndSetFlag = false;
 
 	public Parameters setLocationKey(String locationKey) {
 		this.locationKey = locationKey;
@@ -118,6 +122,16 @@ public class Parameters implements IParameters {
 		return bKey;
 	}
 
+	public Parameters setMergedKeys(Set<Number160> mergedKeys) {
+		this.mergedKeys = mergedKeys;
+		return this;
+	}
+
+	@Override
+	public Set<Number160> getMergedKeys() {
+		return mergedKeys;
+	}
+
 	public Parameters setNetworkContent(BaseNetworkContent networkContent) {
 		this.networkContent = networkContent;
 		return this;
@@ -206,6 +220,16 @@ public class Parameters implements IParameters {
 		return this;
 	}
 
+	@Override
+	public boolean hasCompareAndSetFlag() {
+		return compareAndSetFlag;
+	}
+
+	public Parameters setCompareAndSetFlag(boolean compareAndSetFlag) {
+		this.compareAndSetFlag = compareAndSetFlag;
+		return this;
+	}
+
 	@Override
 	public String toString() {
 		StringBuilder builder = new StringBuilder();
@@ -233,6 +257,10 @@ public class Parameters implements IParameters {
 			builder.append("based on key = '").append(bKey.timestamp()).append("' ");
 		}
 
+		if (!mergedKeys.isEmpty()) {
+			builder.append("merged keys = '").append(mergedKeys.size()).append("' ");
+		}
+
 		if (ttl != -1) {
 			builder.append("ttl = '").append(ttl).append("' ");
 		}
@@ -249,6 +277,10 @@ public class Parameters implements IParameters {
 			builder.append("prepareFlag = 'true'");
 		}
 
+		if (compareAndSetFlag) {
+			builder.append("compareAndSetFlag = 'true'");
+		}
+
 		return builder.toString();
 	}
 
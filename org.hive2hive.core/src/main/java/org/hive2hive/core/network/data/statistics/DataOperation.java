@@ -0,0 +1,15 @@
+package org.hive2hive.core.network.data.statistics;
+
+/**
+ * The single DHT operations of the {@link org.hive2hive.core.network.data.DataManager} that are measured
+ */
+public enum DataOperation {
+	PUT,
+	CONFIRM,
+	CHANGE_PROTECTION,
+	GET,
+	GET_VERSION,
+	GET_LATEST,
+	DIGEST,
+	REMOVE
+}
@@ -0,0 +1,375 @@
+package org.hive2hive.core.network.data.statistics;
+
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import net.tomp2p.dht.FutureDigest;
+import net.tomp2p.dht.FutureGet;
+import net.tomp2p.dht.FuturePut;
+import net.tomp2p.dht.FutureRemove;
+import net.tomp2p.dht.StorageLayer.PutStatus;
+import net.tomp2p.futures.BaseFuture;
+import net.tomp2p.futures.BaseFutureAdapter;
+import net.tomp2p.peers.Number640;
+import net.tomp2p.peers.PeerAddress;
+
+import org.hive2hive.core.H2HConstants;
+import org.hive2hive.core.network.data.parameters.IParameters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collects the latencies of the single DHT operations per operation and content key, the number of retries,
+ * failures, version forks and merges and per-peer tallies. Recording is lock-free, thus it can stay enabled. The
+ * statistics can be read as a {@link DataStatisticsSnapshot} or over JMX (see {@link #register(String)}).
+ */
+public class DataStatistics implements DataStatisticsMXBean {
+
+	private static final Logger logger = LoggerFactory.getLogger(DataStatistics.class);
+
+	private static final String JMX_NAME = "org.hive2hive:type=DataStatistics,node=";
+
+	private final int maxPeers;
+	private final ConcurrentHashMap<String, LatencyHistogram> latencies = new ConcurrentHashMap<String, LatencyHistogram>();
+	private final Map<DataOperation, AtomicLong> retries = new EnumMap<DataOperation, AtomicLong>(DataOperation.class);
+	private final Map<DataOperation, AtomicLong> failures = new EnumMap<DataOperation, AtomicLong>(DataOperation.class);
+	private final AtomicLong versionForks = new AtomicLong(0);
+	private final AtomicLong versionMerges = new AtomicLong(0);
+	private final ConcurrentHashMap<PeerAddress, PeerStatistics> peers = new ConcurrentHashMap<PeerAddress, PeerStatistics>();
+
+	// guarded by this
+	private ObjectName objectName;
+
+	public DataStatistics() {
+		this(H2HConstants.STATISTICS_MAX_PEERS);
+	}
+
+	/**
+	 * @param maxPeers the maximum number of peers to keep tallies of
+	 */
+	public DataStatistics(int maxPeers) {
+		this.maxPeers = maxPeers;
+		for (DataOperation operation : DataOperation.values()) {
+			retries.put(operation, new AtomicLong(0));
+			failures.put(operation, new AtomicLong(0));
+		}
+	}
+
+	/**
+	 * Measures the given DHT future until it completes
+	 * 
+	 * @param operation the operation of the future
+	 * @param parameters the parameters of the operation
+	 * @param future the future, may be <code>null</code>
+	 * @return the given future
+	 */
+	public <F extends BaseFuture> F track(final DataOperation operation, IParameters parameters, F future) {
+		if (future == null) {
+			return null;
+		}
+
+		final String key = createKey(operation, parameters.getContentKey());
+		final long start = System.nanoTime();
+		future.addListener(new BaseFutureAdapter<BaseFuture>() {
+			@Override
+			public void operationComplete(BaseFuture future) throws Exception {
+				long latencyMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+				getHistogram(key).record(latencyMs);
+				if (future.isFailed()) {
+					failures.get(operation).incrementAndGet();
+				}
+				recordPeers(future, latencyMs);
+			}
+		});
+		return future;
+	}
+
+	/**
+	 * @param operation the operation
+	 * @param contentKey the content key of the operation
+	 * @param latencyMs the latency of the operation in milliseconds
+	 */
+	public void recordLatency(DataOperation operation, String contentKey, long latencyMs) {
+		getHistogram(createKey(operation, contentKey)).record(latencyMs);
+	}
+
+	/**
+	 * @param peerAddress the peer that responded
+	 * @param success <code>false</code> if the peer responded with a failure
+	 * @param latencyMs the latency of the operation in milliseconds
+	 */
+	public void recordPeer(PeerAddress peerAddress, boolean success, long latencyMs) {
+		PeerStatistics statistics = peers.get(peerAddress);
+		if (statistics == null) {
+			if (peers.size() >= maxPeers) {
+				// bounded memory, new peers are not tracked anymore
+				return;
+			}
+			PeerStatistics created = new PeerStatistics(peerAddress);
+			statistics = peers.putIfAbsent(peerAddress, created);
+			if (statistics == null) {
+				statistics = created;
+			}
+		}
+		statistics.record(success, latencyMs);
+	}
+
+	/**
+	 * @param operation the operation that is retried
+	 */
+	public void recordRetry(DataOperation operation) {
+		retries.get(operation).incrementAndGet();
+	}
+
+	public void recordVersionFork() {
+		versionForks.incrementAndGet();
+	}
+
+	/**
+	 * Records that forked versions have been merged into a new version
+	 */
+	public void recordVersionMerge() {
+		versionMerges.incrementAndGet();
+	}
+
+	private LatencyHistogram getHistogram(String key) {
+		LatencyHistogram histogram = latencies.get(key);
+		if (histogram == null) {
+			LatencyHistogram created = new LatencyHistogram();
+			histogram = latencies.putIfAbsent(key, created);
+			if (histogram == null) {
+				histogram = created;
+			}
+		}
+		return histogram;
+	}
+
+	private void recordPeers(BaseFuture future, long latencyMs) {
+		if (future instanceof FuturePut) {
+			Map<PeerAddress, Map<Number640, Byte>> rawResult = ((FuturePut) future).rawResult();
+			if (rawResult != null) {
+				for (Entry<PeerAddress, Map<Number640, Byte>> entry : rawResult.entrySet()) {
+					recordPeer(entry.getKey(), isPutSuccess(entry.getValue()), latencyMs);
+				}
+			}
+		} else if (future instanceof FutureGet) {
+			recordPeers(((FutureGet) future).rawData(), latencyMs);
+		} else if (future instanceof FutureDigest) {
+			recordPeers(((FutureDigest) future).rawDigest(), latencyMs);
+		} else if (future instanceof FutureRemove) {
+			recordPeers(((FutureRemove) future).rawKeys640(), latencyMs);
+		}
+	}
+
+	private void recordPeers(Map<PeerAddress, ?> rawResult, long latencyMs) {
+		if (rawResult != null) {
+			for (Entry<PeerAddress, ?> entry : rawResult.entrySet()) {
+				recordPeer(entry.getKey(), entry.getValue() != null, latencyMs);
+			}
+		}
+	}
+
+	private static boolean isPutSuccess(Map<Number640, Byte> status) {
+		if (status == null) {
+			return false;
+		}
+		for (Byte putStatus : status.values()) {
+			if (putStatus == null || putStatus < 0 || putStatus >= PutStatus.values().length) {
+				return false;
+			}
+			switch (PutStatus.values()[putStatus]) {
+				case FAILED:
+				case FAILED_NOT_ABSENT:
+				case FAILED_SECURITY:
+				case NOT_FOUND:
+					return false;
+				default:
+					break;
+			}
+		}
+		return true;
+	}
+
+	static String createKey(DataOperation operation, String contentKey) {
+		return operation.name() + "/" + (contentKey == null ? "-" : contentKey);
+	}
+
+	/**
+	 * @return a copy of all statistics
+	 */
+	public DataStatisticsSnapshot snapshot() {
+		Map<String, LatencyHistogram> latencyCopy = new HashMap<String, LatencyHistogram>();
+		for (Entry<String, LatencyHistogram> entry : latencies.entrySet()) {
+			latencyCopy.put(entry.getKey(), entry.getValue().copy());
+		}
+		Map<PeerAddress, PeerStatistics> peerCopy = new HashMap<PeerAddress, PeerStatistics>();
+		for (Entry<PeerAddress, PeerStatistics> entry : peers.entrySet()) {
+			peerCopy.put(entry.getKey(), entry.getValue().copy());
+		}
+		return new DataStatisticsSnapshot(latencyCopy, copyCounters(retries), copyCounters(failures),
+				versionForks.get(), versionMerges.get(), peerCopy);
+	}
+
+	private static Map<DataOperation, Long> copyCounters(Map<DataOperation, AtomicLong> counters) {
+		Map<DataOperation, Long> copy = new EnumMap<DataOperation, Long>(DataOperation.class);
+		for (Entry<DataOperation, AtomicLong> entry : counters.entrySet()) {
+			copy.put(entry.getKey(), entry.getValue().get());
+		}
+		return copy;
+	}
+
+	/**
+	 * Registers the statistics at the platform MBean server. A previous registration is removed.
+	 * 
+	 * @param nodeId the id of the node, used to distinguish multiple nodes in the same VM
+	 */
+	public synchronized void register(String nodeId) {
+		unregister();
+		try {
+			ObjectName name = new ObjectName(JMX_NAME + ObjectName.quote(String.valueOf(nodeId)));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+			objectName = name;
+		} catch (JMException e) {
+			logger.warn("Could not register the DHT statistics at JMX. Node id = '{}'.", nodeId, e);
+		}
+	}
+
+	/**
+	 * Removes the JMX registration (if any)
+	 */
+	public synchronized void unregister() {
+		if (objectName == null) {
+			return;
+		}
+
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			if (server.isRegistered(objectName)) {
+				server.unregisterMBean(objectName);
+			}
+		} catch (JMException e) {
+			logger.warn("Could not unregister the DHT statistics from JMX.", e);
+		}
+		objectName = null;
+	}
+
+	/**
+	 * @return the name the statistics are registered with at JMX or <code>null</code> if not registered
+	 */
+	public synchronized ObjectName getObjectName() {
+		return objectName;
+	}
+
+	@Override
+	public Map<String, Long> getOperationCounts() {
+		Map<String, Long> result = new HashMap<String, Long>();
+		for (Entry<String, LatencyHistogram> entry : latencies.entrySet()) {
+			result.put(entry.getKey(), entry.getValue().getCount());
+		}
+		return result;
+	}
+
+	@Override
+	public Map<String, Double> getMeanLatenciesMs() {
+		Map<String, Double> result = new HashMap<String, Double>();
+		for (Entry<String, LatencyHistogram> entry : latencies.entrySet()) {
+			result.put(entry.getKey(), entry.getValue().getMeanMs());
+		}
+		return result;
+	}
+
+	@Override
+	public Map<String, Long> getMedianLatenciesMs() {
+		return getPercentilesMs(0.5);
+	}
+
+	@Override
+	public Map<String, Long> getP99LatenciesMs() {
+		return getPercentilesMs(0.99);
+	}
+
+	private Map<String, Long> getPercentilesMs(double percentile) {
+		Map<String, Long> result = new HashMap<String, Long>();
+		for (Entry<String, LatencyHistogram> entry : latencies.entrySet()) {
+			result.put(entry.getKey(), entry.getValue().getPercentileMs(percentile));
+		}
+		return result;
+	}
+
+	@Override
+	public Map<String, Long> getMaxLatenciesMs() {
+		Map<String, Long> result = new HashMap<String, Long>();
+		for (Entry<String, LatencyHistogram> entry : latencies.entrySet()) {
+			result.put(entry.getKey(), entry.getValue().getMaxMs());
+		}
+		return result;
+	}
+
+	@Override
+	public Map<String, Long> getRetries() {
+		return toNames(copyCounters(retries));
+	}
+
+	@Override
+	public Map<String, Long> getFailures() {
+		return toNames(copyCounters(failures));
+	}
+
+	private static Map<String, Long> toNames(Map<DataOperation, Long> counters) {
+		Map<String, Long> result = new HashMap<String, Long>();
+		for (Entry<DataOperation, Long> entry : counters.entrySet()) {
+			result.put(entry.getKey().name(), entry.getValue());
+		}
+		return result;
+	}
+
+	@Override
+	public long getVersionForks() {
+		return versionForks.get();
+	}
+
+	@Override
+	public long getVersionMerges() {
+		return versionMerges.get();
+	}
+
+	@Override
+	public Map<String, Long> getPeerFailures() {
+		Map<String, Long> result = new HashMap<String, Long>();
+		for (Entry<PeerAddress, PeerStatistics> entry : peers.entrySet()) {
+			result.put(entry.getKey().toString(), entry.getValue().getFailures());
+		}
+		return result;
+	}
+
+	@Override
+	public Map<String, Double> getPeerMeanLatenciesMs() {
+		Map<String, Double> result = new HashMap<String, Double>();
+		for (Entry<PeerAddress, PeerStatistics> entry : peers.entrySet()) {
+			result.put(entry.getKey().toString(), entry.getValue().getMeanLatencyMs());
+		}
+		return result;
+	}
+
+	@Override
+	public void reset() {
+		latencies.clear();
+		peers.clear();
+		for (DataOperation operation : DataOperation.values()) {
+			retries.get(operation).set(0);
+			failures.get(operation).set(0);
+		}
+		versionForks.set(0);
+		versionMerges.set(0);
+	}
+}
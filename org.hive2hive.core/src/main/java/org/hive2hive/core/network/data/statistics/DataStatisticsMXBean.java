@@ -0,0 +1,37 @@
+package org.hive2hive.core.network.data.statistics;
+
+import java.util.Map;
+
+/**
+ * The JMX view of the {@link DataStatistics}. Latencies are keyed by <code>OPERATION/CONTENT_KEY</code>,
+ * peers by their address.
+ */
+public interface DataStatisticsMXBean {
+
+	Map<String, Long> getOperationCounts();
+
+	Map<String, Double> getMeanLatenciesMs();
+
+	Map<String, Long> getMedianLatenciesMs();
+
+	Map<String, Long> getP99LatenciesMs();
+
+	Map<String, Long> getMaxLatenciesMs();
+
+	Map<String, Long> getRetries();
+
+	Map<String, Long> getFailures();
+
+	long getVersionForks();
+
+	long getVersionMerges();
+
+	Map<String, Long> getPeerFailures();
+
+	Map<String, Double> getPeerMeanLatenciesMs();
+
+	/**
+	 * Clears all statistics
+	 */
+	void reset();
+}
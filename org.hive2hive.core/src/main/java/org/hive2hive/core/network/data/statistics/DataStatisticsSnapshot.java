@@ -0,0 +1,90 @@
+package org.hive2hive.core.network.data.statistics;
+
+import java.util.Collections;
+import java.util.Map;
+
+import net.tomp2p.peers.PeerAddress;
+
+/**
+ * An immutable copy of the {@link DataStatistics} at a point in time
+ */
+public class DataStatisticsSnapshot {
+
+	private final long timestamp;
+	private final Map<String, LatencyHistogram> latencies;
+	private final Map<DataOperation, Long> retries;
+	private final Map<DataOperation, Long> failures;
+	private final long versionForks;
+	private final long versionMerges;
+	private final Map<PeerAddress, PeerStatistics> peers;
+
+	public DataStatisticsSnapshot(Map<String, LatencyHistogram> latencies, Map<DataOperation, Long> retries,
+			Map<DataOperation, Long> failures, long versionForks, long versionMerges,
+			Map<PeerAddress, PeerStatistics> peers) {
+		this.timestamp = System.currentTimeMillis();
+		this.latencies = Collections.unmodifiableMap(latencies);
+		this.retries = Collections.unmodifiableMap(retries);
+		this.failures = Collections.unmodifiableMap(failures);
+		this.versionForks = versionForks;
+		this.versionMerges = versionMerges;
+		this.peers = Collections.unmodifiableMap(peers);
+	}
+
+	/**
+	 * @return the time the snapshot has been taken
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	/**
+	 * @return the latencies keyed by <code>OPERATION/CONTENT_KEY</code>
+	 */
+	public Map<String, LatencyHistogram> getLatencies() {
+		return latencies;
+	}
+
+	/**
+	 * @param operation the operation
+	 * @param contentKey the content key (e.g. {@link org.hive2hive.core.H2HConstants#FILE_CHUNK})
+	 * @return the latencies of the operation with the content key or <code>null</code> if there are none
+	 */
+	public LatencyHistogram getLatency(DataOperation operation, String contentKey) {
+		return latencies.get(DataStatistics.createKey(operation, contentKey));
+	}
+
+	/**
+	 * @return the number of retries per operation
+	 */
+	public Map<DataOperation, Long> getRetries() {
+		return retries;
+	}
+
+	/**
+	 * @return the number of failed single operations (without the retries)
+	 */
+	public Map<DataOperation, Long> getFailures() {
+		return failures;
+	}
+
+	/**
+	 * @return the number of detected version forks
+	 */
+	public long getVersionForks() {
+		return versionForks;
+	}
+
+	/**
+	 * @return the number of forks that have been resolved by merging the versions
+	 */
+	public long getVersionMerges() {
+		return versionMerges;
+	}
+
+	/**
+	 * @return the tallies of the peers that responded
+	 */
+	public Map<PeerAddress, PeerStatistics> getPeers() {
+		return peers;
+	}
+}
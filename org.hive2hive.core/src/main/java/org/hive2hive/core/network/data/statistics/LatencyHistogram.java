@@ -0,0 +1,128 @@
+package org.hive2hive.core.network.data.statistics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free latency histogram with logarithmic buckets that are linearly sub-divided (similar to an HDR
+ * histogram). Values below {@value #SUB_BUCKETS} ms are counted exactly, larger values with a relative error
+ * of at most <code>1/{@value #SUB_BUCKETS}</code>. Recording a value is a few atomic increments, the memory
+ * is fixed.
+ */
+public class LatencyHistogram {
+
+	// number of linear sub-buckets per power of two (must be a power of two itself)
+	private static final int SUB_BUCKETS = 16;
+	private static final int SUB_BUCKET_BITS = Integer.numberOfTrailingZeros(SUB_BUCKETS);
+	// values above 2^MAX_EXPONENT ms (~12 days) are counted in the last bucket
+	private static final int MAX_EXPONENT = 30;
+	private static final int BUCKETS = SUB_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final AtomicLong count = new AtomicLong(0);
+	private final AtomicLong sum = new AtomicLong(0);
+	private final AtomicLong max = new AtomicLong(0);
+
+	/**
+	 * @param latencyMs the latency to record in milliseconds (negative values are counted as 0)
+	 */
+	public void record(long latencyMs) {
+		long value = Math.max(0, latencyMs);
+		counts.incrementAndGet(indexOf(value));
+		count.incrementAndGet();
+		sum.addAndGet(value);
+
+		long currentMax = max.get();
+		while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+			currentMax = max.get();
+		}
+	}
+
+	/**
+	 * @return the number of recorded latencies
+	 */
+	public long getCount() {
+		return count.get();
+	}
+
+	/**
+	 * @return the largest recorded latency in milliseconds
+	 */
+	public long getMaxMs() {
+		return max.get();
+	}
+
+	/**
+	 * @return the mean of all recorded latencies in milliseconds (0 if none has been recorded)
+	 */
+	public double getMeanMs() {
+		long total = count.get();
+		return total == 0 ? 0 : (double) sum.get() / total;
+	}
+
+	/**
+	 * @param percentile the percentile between 0 and 1 (e.g. 0.99)
+	 * @return the latency in milliseconds that is not exceeded by the given share of all recorded latencies
+	 *         (0 if none has been recorded)
+	 */
+	public long getPercentileMs(double percentile) {
+		long total = 0;
+		long[] snapshot = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++) {
+			snapshot[i] = counts.get(i);
+			total += snapshot[i];
+		}
+		if (total == 0) {
+			return 0;
+		}
+
+		long rank = Math.max(1, (long) Math.ceil(Math.min(1.0, Math.max(0.0, percentile)) * total));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += snapshot[i];
+			if (seen >= rank) {
+				// the last bucket is unbounded
+				return i == BUCKETS - 1 ? getMaxMs() : Math.min(highestValueOf(i), getMaxMs());
+			}
+		}
+		return getMaxMs();
+	}
+
+	/**
+	 * @return a copy of the current state that does not change anymore when this histogram records values
+	 */
+	public LatencyHistogram copy() {
+		LatencyHistogram copy = new LatencyHistogram();
+		for (int i = 0; i < BUCKETS; i++) {
+			copy.counts.set(i, counts.get(i));
+		}
+		copy.count.set(count.get());
+		copy.sum.set(sum.get());
+		copy.max.set(max.get());
+		return copy;
+	}
+
+	static int indexOf(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+
+		int exponent = Math.min(63 - Long.numberOfLeadingZeros(value), MAX_EXPONENT);
+		if (exponent == MAX_EXPONENT && value >= (2L << MAX_EXPONENT)) {
+			return BUCKETS - 1;
+		}
+		int shift = exponent - SUB_BUCKET_BITS;
+		int subBucket = (int) (value >> shift) - SUB_BUCKETS;
+		return SUB_BUCKETS + shift * SUB_BUCKETS + subBucket;
+	}
+
+	static long highestValueOf(int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+
+		int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+		int subBucket = (index - SUB_BUCKETS) % SUB_BUCKETS;
+		return ((long) (SUB_BUCKETS + subBucket + 1) << shift) - 1;
+	}
+}
@@ -0,0 +1,70 @@
+package org.hive2hive.core.network.data.statistics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.tomp2p.peers.PeerAddress;
+
+/**
+ * Tallies of the responses of a single peer to DHT operations. The latency of a response is the latency of
+ * the whole operation the peer took part in.
+ */
+public class PeerStatistics {
+
+	private final PeerAddress peerAddress;
+	private final AtomicLong responses = new AtomicLong(0);
+	private final AtomicLong failures = new AtomicLong(0);
+	private final AtomicLong latencySum = new AtomicLong(0);
+
+	public PeerStatistics(PeerAddress peerAddress) {
+		this.peerAddress = peerAddress;
+	}
+
+	/**
+	 * @param success <code>false</code> if the peer responded with a failure (e.g. denied a put)
+	 * @param latencyMs the latency of the operation in milliseconds
+	 */
+	public void record(boolean success, long latencyMs) {
+		responses.incrementAndGet();
+		if (!success) {
+			failures.incrementAndGet();
+		}
+		latencySum.addAndGet(Math.max(0, latencyMs));
+	}
+
+	public PeerAddress getPeerAddress() {
+		return peerAddress;
+	}
+
+	/**
+	 * @return the number of responses including the failures
+	 */
+	public long getResponses() {
+		return responses.get();
+	}
+
+	/**
+	 * @return the number of failure responses
+	 */
+	public long getFailures() {
+		return failures.get();
+	}
+
+	/**
+	 * @return the mean latency in milliseconds (0 if the peer never responded)
+	 */
+	public double getMeanLatencyMs() {
+		long total = responses.get();
+		return total == 0 ? 0 : (double) latencySum.get() / total;
+	}
+
+	/**
+	 * @return a copy of the current tallies
+	 */
+	public PeerStatistics copy() {
+		PeerStatistics copy = new PeerStatistics(peerAddress);
+		copy.responses.set(responses.get());
+		copy.failures.set(failures.get());
+		copy.latencySum.set(latencySum.get());
+		return copy;
+	}
+}
@@ -3,26 +3,25 @@ package org.hive2hive.core.network.data.vdht;
 import java.io.IOException;
 import java.security.GeneralSecurityException;
 import java.security.KeyPair;
-import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Map;
-import java.util.NavigableMap;
 import java.util.Set;
 
 import javax.crypto.SecretKey;
 
-import net.tomp2p.dht.FutureGet;
 import net.tomp2p.peers.Number160;
 import net.tomp2p.peers.Number640;
+import net.tomp2p.peers.PeerAddress;
+import net.tomp2p.storage.Data;
 
 import org.hive2hive.core.H2HConstants;
 import org.hive2hive.core.exceptions.GetFailedException;
 import org.hive2hive.core.exceptions.PutFailedException;
-import org.hive2hive.core.exceptions.VersionForkAfterPutException;
 import org.hive2hive.core.model.versioned.BaseVersionedNetworkContent;
 import org.hive2hive.core.model.versioned.EncryptedNetworkContent;
 import org.hive2hive.core.network.data.DataManager;
-import org.hive2hive.core.network.data.DataManager.H2HPutStatus;
+import org.hive2hive.core.network.data.futures.DataFuture;
 import org.hive2hive.core.network.data.parameters.IParameters;
 import org.hive2hive.core.network.data.parameters.Parameters;
 import org.hive2hive.core.security.IH2HEncryption;
@@ -51,176 +50,224 @@ public class AESEncryptedVersionManager<T extends BaseVersionedNetworkContent> e
 		this.encryptionKey = encryptionKey;
 	}
 
+	@Override
+	@SuppressWarnings("unchecked")
+	protected Map<Number160, ?> cacheFetched(Map<PeerAddress, Map<Number640, Data>> rawData) {
+		Map<Number160, EncryptedNetworkContent> fetchedVersions = (Map<Number160, EncryptedNetworkContent>) buildData(
+				rawData);
+		// merge freshly loaded versions with cache
+		encryptedContentCache.putAll(fetchedVersions);
+		return fetchedVersions;
+	}
+
+	@Override
+	protected boolean hasCachedVersions() {
+		return !encryptedContentCache.isEmpty();
+	}
+
+	@Override
+	protected T getLatestCached() throws GetFailedException {
+		try {
+			EncryptedNetworkContent encrypted = encryptedContentCache.lastEntry().getValue();
+			T decrypted = decrypt(encrypted);
+
+			// cache user profile
+			contentCache.put(encrypted.getVersionKey(), decrypted);
+
+			return decrypted;
+		} catch (GeneralSecurityException e) {
+			logger.error("Cannot decrypt the version.");
+			throw new GetFailedException("Cannot decrypt the version.");
+		} catch (GetFailedException e) {
+			throw e;
+		} catch (Exception e) {
+			logger.error("Cannot get the version.", e);
+			throw new GetFailedException(String.format("Cannot get the version. reason = '%s'", e.getMessage()));
+		}
+	}
+
 	/**
-	 * Performs a get call (blocking) and decrypts the received version.
+	 * Encrypts the modified content and puts it. The encryption happens in the calling thread.
 	 * 
-	 * @return the fetched data
-	 * @throws GetFailedException if the data cannot be get
+	 * @param networkContent the content to store. It gets the new version key.
+	 * @param protectionKeys the keys to protect the data
+	 * @return a future with <code>true</code> if the version has been put
 	 */
-	@SuppressWarnings("unchecked")
-	public T get() throws GetFailedException {
-		// load the current digest list from network
-		NavigableMap<Number640, Collection<Number160>> digest = dataManager.getDigestLatest(parameters);
-		// compare the latest version key with the cached one
-		if (!contentCache.isEmpty() && digest != null && digest.lastEntry() != null
-				&& digest.lastEntry().getKey().versionKey().equals(contentCache.lastKey())) {
-			logger.debug("No need for getting from network. Returning cached version. {}", parameters.toString());
-			return contentCache.lastEntry().getValue();
-		} else {
-			int delayCounter = 0;
-			int delayWaitTime = random.nextInt(1000) + 1000;
-			int forkAfterGetCounter = 0;
-			int forkAfterGetWaitTime = random.nextInt(1000) + 1000;
-			// fetch latest versions from the network, request also digest
-			while (true) {
-				Cache<EncryptedNetworkContent> fetchedVersions = new Cache<EncryptedNetworkContent>();
-				int getCounter = 0;
-				int getWaitTime = random.nextInt(1000) + 1000;
-				while (true) {
-					// load latest data
-					FutureGet futureGet = dataManager.getLatestUnblocked(parameters);
-					futureGet.awaitUninterruptibly(H2HConstants.AWAIT_NETWORK_OPERATION_MS);
-
-					// build and merge the version tree from raw digest result;
-					digestCache.putAll(buildDigest(futureGet.rawDigest()));
-					// join all freshly loaded versions in one map
-					fetchedVersions
-							.putAll((Map<Number160, ? extends EncryptedNetworkContent>) buildData(futureGet.rawData()));
-					// merge freshly loaded versions with cache
-					encryptedContentCache.putAll(fetchedVersions);
-
-					// check if get was successful
-					if (futureGet.isFailed() || fetchedVersions.isEmpty()) {
-						if (getCounter > GET_FAILED_LIMIT) {
-							logger.warn("Loading of data failed after {} tries. {}", getCounter, parameters.toString());
-							throw new GetFailedException("Couldn't load data.");
-						} else {
-							logger.warn("Couldn't get data. Try #{}. Retrying. reason = '{}' {}", getCounter++,
-									futureGet.failedReason(), parameters.toString());
-
-							// TODO reput latest versions for maintenance
-
-							// exponential back off waiting
-							try {
-								Thread.sleep(getWaitTime);
-								getWaitTime = getWaitTime * 2;
-							} catch (InterruptedException ignore) {
-							}
-						}
-					} else {
-						break;
-					}
-				}
-
-				// check if version delays or forks occurred
-				if (hasVersionDelay(fetchedVersions, digestCache) && delayCounter < DELAY_LIMIT) {
-					logger.warn("Detected a version delay. #{}", delayCounter++);
-
-					// TODO reput latest versions for maintenance, consider only latest
-
-					// exponential back off waiting
-					try {
-						Thread.sleep(delayWaitTime);
-						delayWaitTime = delayWaitTime * 2;
-					} catch (InterruptedException ignore) {
-					}
-					continue;
-				}
-
-				// get latest versions according cache
-				Cache<Set<Number160>> latestVersionKeys = getLatest(digestCache);
-
-				// check for version fork
-				if (latestVersionKeys.size() > 1 && delayCounter < DELAY_LIMIT) {
-					if (forkAfterGetCounter < FORK_AFTER_GET_LIMIT) {
-						logger.warn("Got a version fork. Waiting. #{}", forkAfterGetCounter++);
-						// exponential back off waiting
-						try {
-							Thread.sleep(forkAfterGetWaitTime);
-							forkAfterGetWaitTime = forkAfterGetWaitTime * 2;
-						} catch (InterruptedException ignore) {
-						}
-						continue;
-					}
-					logger.warn("Got a version fork.");
-
-					// TODO implement merging
-
-					throw new GetFailedException("Got a version fork.");
-				} else {
-					if (delayCounter >= DELAY_LIMIT) {
-						logger.warn("Ignoring delay after {} retries.", delayCounter);
-					}
-					if (encryptedContentCache.isEmpty()) {
-						logger.warn("Did not find any version.");
-						throw new GetFailedException("No version found. Got null.");
-					} else {
-						try {
-							logger.trace("Decrypting with 256-bit AES key.");
-							EncryptedNetworkContent encrypted = encryptedContentCache.lastEntry().getValue();
-							T decrypted = (T) encryption.decryptAES((EncryptedNetworkContent) encrypted, encryptionKey);
-							decrypted.setVersionKey(encrypted.getVersionKey());
-							decrypted.setBasedOnKey(encrypted.getBasedOnKey());
-
-							// cache user profile
-							contentCache.put(encrypted.getVersionKey(), decrypted);
-
-							return decrypted;
-						} catch (GeneralSecurityException e) {
-							logger.error("Cannot decrypt the version.");
-							throw new GetFailedException("Cannot decrypt the version.");
-						} catch (Exception e) {
-							logger.error("Cannot get the version.", e);
-							throw new GetFailedException(
-									String.format("Cannot get the version. reason = '%s'", e.getMessage()));
-						}
-					}
-				}
-			}
-		}
+	@Override
+	public DataFuture<Boolean> putAsync(T networkContent, KeyPair protectionKeys) {
+		return putAsync(networkContent, protectionKeys, Collections.<Number160> emptySet());
 	}
 
 	/**
-	 * Encrypts the modified user profile and puts it (blocking).
+	 * Encrypts the content and puts it as a version that is based on further versions
 	 * 
-	 * @param networkContent the content to store
+	 * @param networkContent the content to store. It gets the new version key.
 	 * @param protectionKeys the keys to protect the data
-	 * @throws PutFailedException if the content cannot be put.
+	 * @param mergedKeys the version keys of the merged versions (besides the based on key)
+	 * @return a future with <code>true</code> if the version has been put
 	 */
-	public void put(T networkContent, KeyPair protectionKeys) throws PutFailedException {
+	protected DataFuture<Boolean> putAsync(final T networkContent, KeyPair protectionKeys, Set<Number160> mergedKeys) {
+		final EncryptedNetworkContent encrypted;
 		try {
-			EncryptedNetworkContent encrypted = encryption.encryptAES(networkContent, encryptionKey);
-			encrypted.setBasedOnKey(networkContent.getBasedOnKey());
-			encrypted.setVersionKey(networkContent.getVersionKey());
-			encrypted.generateVersionKey();
-
-			IParameters parameters = new Parameters().setLocationKey(this.parameters.getLocationKey())
-					.setContentKey(this.parameters.getContentKey()).setVersionKey(encrypted.getVersionKey())
-					.setBasedOnKey(encrypted.getBasedOnKey()).setNetworkContent(encrypted).setProtectionKeys(protectionKeys)
-					.setTTL(networkContent.getTimeToLive()).setPrepareFlag(true);
-
-			H2HPutStatus status = dataManager.put(parameters);
-			if (status.equals(H2HPutStatus.FAILED)) {
-				throw new PutFailedException("Put failed.");
-			} else if (status.equals(H2HPutStatus.VERSION_FORK)) {
-				logger.warn("Version fork after put detected. Rejecting put");
-				if (!dataManager.remove(parameters)) {
-					logger.warn("Removing of conflicting version failed.");
-				}
-				throw new VersionForkAfterPutException();
-			} else {
+			encrypted = encrypt(networkContent);
+		} catch (GeneralSecurityException | IOException e) {
+			logger.error("Cannot encrypt the user profile. reason = '{}'", e.getMessage());
+			DataFuture<Boolean> failed = new DataFuture<Boolean>(false);
+			failed.fail(new PutFailedException(String.format("Cannot encrypt the user profile. reason = '%s'",
+					e.getMessage())));
+			return failed;
+		}
+
+		encrypted.setBasedOnKey(networkContent.getBasedOnKey());
+		encrypted.setVersionKey(networkContent.getVersionKey());
+		encrypted.generateVersionKey();
+		if (!mergedKeys.isEmpty()) {
+			encrypted.setVersionKey(createMergedVersionKey(networkContent, encrypted, mergedKeys));
+		}
+
+		final IParameters parameters = new Parameters().setLocationKey(this.parameters.getLocationKey())
+				.setContentKey(this.parameters.getContentKey()).setVersionKey(encrypted.getVersionKey())
+				.setBasedOnKey(encrypted.getBasedOnKey()).setMergedKeys(mergedKeys).setNetworkContent(encrypted)
+				.setProtectionKeys(protectionKeys).setTTL(networkContent.getTimeToLive())
+				.setPrepareFlag(!H2HConstants.COMPARE_AND_SET_PUT).setCompareAndSetFlag(H2HConstants.COMPARE_AND_SET_PUT);
+
+		return putVersionAsync(parameters, new Runnable() {
+			@Override
+			public void run() {
 				networkContent.setVersionKey(encrypted.getVersionKey());
 				networkContent.setBasedOnKey(encrypted.getBasedOnKey());
-				// cache digest
-				digestCache.put(parameters.getVersionKey(), new HashSet<Number160>(parameters.getData().basedOnSet()));
 				// cache network content
 				contentCache.put(parameters.getVersionKey(), networkContent);
 				// cache encrypted network content
 				encryptedContentCache.put(parameters.getVersionKey(), encrypted);
+				onStored(networkContent, encrypted);
 			}
-		} catch (GeneralSecurityException | IOException e) {
-			logger.error("Cannot encrypt the user profile. reason = '{}'", e.getMessage());
-			throw new PutFailedException(String.format("Cannot encrypt the user profile. reason = '%s'", e.getMessage()));
+		});
+	}
+
+	/**
+	 * Accepts a version that another client of the same user has put and announced, such that it does not
+	 * need to be fetched. The version is only accepted if it is based on the latest known version.
+	 * 
+	 * @param encrypted the announced version
+	 * @return the decrypted version or <code>null</code> if it has not been accepted
+	 */
+	public synchronized T offer(EncryptedNetworkContent encrypted) {
+		if (contentCache.isEmpty() || !contentCache.lastKey().equals(encrypted.getBasedOnKey())) {
+			logger.debug("Announced version is not based on the latest known version. {}", parameters.toString());
+			return null;
+		}
+
+		try {
+			T decrypted = decrypt(encrypted);
+			digestCache.put(encrypted.getVersionKey(), new HashSet<Number160>(Collections.singleton(encrypted
+					.getBasedOnKey())));
+			contentCache.put(encrypted.getVersionKey(), decrypted);
+			encryptedContentCache.put(encrypted.getVersionKey(), encrypted);
+			return decrypted;
+		} catch (Exception e) {
+			logger.warn("Cannot accept the announced version. reason = '{}'", e.getMessage());
+			return null;
 		}
 	}
+
+	/**
+	 * Decrypts a fetched version
+	 * 
+	 * @param encrypted the latest version
+	 * @return the decrypted version with its version and based on key
+	 * @throws GeneralSecurityException if the version cannot be decrypted
+	 * @throws IOException if the decrypted version cannot be deserialized
+	 * @throws ClassNotFoundException if the decrypted version is of an unknown type
+	 * @throws GetFailedException if the version cannot be restored
+	 */
+	@SuppressWarnings("unchecked")
+	protected T decrypt(EncryptedNetworkContent encrypted) throws GeneralSecurityException, IOException,
+			ClassNotFoundException, GetFailedException {
+		return (T) decryptVersion(encrypted);
+	}
+
+	/**
+	 * Decrypts any stored version
+	 * 
+	 * @param encrypted a version
+	 * @return the decrypted content with the version and based on key of the encrypted one
+	 * @throws GeneralSecurityException if the version cannot be decrypted
+	 * @throws IOException if the decrypted version cannot be deserialized
+	 * @throws ClassNotFoundException if the decrypted version is of an unknown type
+	 */
+	protected BaseVersionedNetworkContent decryptVersion(EncryptedNetworkContent encrypted)
+			throws GeneralSecurityException, IOException, ClassNotFoundException {
+		logger.trace("Decrypting with 256-bit AES key.");
+		BaseVersionedNetworkContent decrypted = (BaseVersionedNetworkContent) encryption.decryptAES(encrypted,
+				encryptionKey);
+		decrypted.setVersionKey(encrypted.getVersionKey());
+		decrypted.setBasedOnKey(encrypted.getBasedOnKey());
+		return decrypted;
+	}
+
+	/**
+	 * Encrypts the content to put. The version keys are set afterwards.
+	 * 
+	 * @param networkContent the modified content
+	 * @return the encrypted content
+	 * @throws GeneralSecurityException if the content cannot be encrypted
+	 * @throws IOException if the content cannot be serialized
+	 */
+	protected EncryptedNetworkContent encrypt(T networkContent) throws GeneralSecurityException, IOException {
+		return encryptContent(networkContent);
+	}
+
+	/**
+	 * Encrypts any content with the key of this version manager
+	 * 
+	 * @param content the content to encrypt
+	 * @return the encrypted content
+	 * @throws GeneralSecurityException if the content cannot be encrypted
+	 * @throws IOException if the content cannot be serialized
+	 */
+	protected EncryptedNetworkContent encryptContent(BaseVersionedNetworkContent content)
+			throws GeneralSecurityException, IOException {
+		return encryption.encryptAES(content, encryptionKey);
+	}
+
+	/**
+	 * Creates the version key of a version that merges forked versions. If all clients that merge the same
+	 * versions create the same key, their puts do not fork again. By default, the generated key is kept.
+	 * 
+	 * @param networkContent the merged content
+	 * @param encrypted the encrypted content with the generated version key and the based on key
+	 * @param mergedKeys the version keys of the merged versions (besides the based on key)
+	 * @return the version key of the merged version
+	 */
+	protected Number160 createMergedVersionKey(T networkContent, EncryptedNetworkContent encrypted,
+			Set<Number160> mergedKeys) {
+		return encrypted.getVersionKey();
+	}
+
+	/**
+	 * Called after a version has been put successfully
+	 * 
+	 * @param networkContent the content with the new version key
+	 * @param encrypted the stored version
+	 */
+	protected void onStored(T networkContent, EncryptedNetworkContent encrypted) {
+		// nothing by default
+	}
+
+	/**
+	 * @return the latest encrypted version that has been fetched or put, or <code>null</code> if there is
+	 *         none
+	 */
+	protected synchronized EncryptedNetworkContent getLatestCachedVersion() {
+		return encryptedContentCache.isEmpty() ? null : encryptedContentCache.lastEntry().getValue();
+	}
+
+	/**
+	 * @param versionKey the version key
+	 * @return the encrypted version if it has been fetched or put before, else <code>null</code>
+	 */
+	protected synchronized EncryptedNetworkContent getCachedVersion(Number160 versionKey) {
+		return encryptedContentCache.get(versionKey);
+	}
 }
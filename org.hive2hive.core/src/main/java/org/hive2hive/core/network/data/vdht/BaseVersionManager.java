@@ -1,25 +1,39 @@
 package org.hive2hive.core.network.data.vdht;
 
 import java.io.IOException;
+import java.security.KeyPair;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NavigableMap;
-import java.util.Random;
 import java.util.Set;
 import java.util.TreeMap;
 
+import net.tomp2p.dht.FutureGet;
 import net.tomp2p.peers.Number160;
 import net.tomp2p.peers.Number640;
 import net.tomp2p.peers.PeerAddress;
 import net.tomp2p.rpc.DigestResult;
 import net.tomp2p.storage.Data;
 
+import org.hive2hive.core.exceptions.GetFailedException;
+import org.hive2hive.core.exceptions.PutFailedException;
+import org.hive2hive.core.exceptions.VersionForkAfterPutException;
 import org.hive2hive.core.model.versioned.BaseVersionedNetworkContent;
 import org.hive2hive.core.network.data.DataManager;
+import org.hive2hive.core.network.data.DataManager.H2HPutStatus;
+import org.hive2hive.core.network.data.IRetryPolicy;
+import org.hive2hive.core.network.data.IRetryPolicy.Operation;
+import org.hive2hive.core.network.data.futures.DataFuture;
+import org.hive2hive.core.network.data.futures.IDataFutureListener;
 import org.hive2hive.core.network.data.parameters.IParameters;
 import org.hive2hive.core.network.data.parameters.Parameters;
+import org.hive2hive.core.network.data.statistics.DataOperation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -27,14 +41,9 @@ public abstract class BaseVersionManager<T extends BaseVersionedNetworkContent>
 
 	private static final Logger logger = LoggerFactory.getLogger(BaseVersionManager.class);
 
-	// limit constants
-	protected static final int GET_FAILED_LIMIT = 2;
-	protected static final int FORK_AFTER_GET_LIMIT = 2;
-	protected static final int DELAY_LIMIT = 2;
-
 	protected final DataManager dataManager;
 	protected final IParameters parameters;
-	protected final Random random = new Random();
+	protected final IRetryPolicy retryPolicy;
 
 	// caches
 	protected Cache<Set<Number160>> digestCache = new Cache<Set<Number160>>();
@@ -43,6 +52,217 @@ public abstract class BaseVersionManager<T extends BaseVersionedNetworkContent>
 	public BaseVersionManager(DataManager dataManager, String locationKey, String contentKey) {
 		this.dataManager = dataManager;
 		this.parameters = new Parameters().setLocationKey(locationKey).setContentKey(contentKey);
+		this.retryPolicy = dataManager.getRetryPolicy();
+	}
+
+	/**
+	 * Performs a get call (blocking).
+	 * 
+	 * @return the fetched data
+	 * @throws GetFailedException if the data cannot be fetched
+	 * @see #getAsync()
+	 */
+	public T get() throws GetFailedException {
+		DataFuture<T> future = getAsync();
+		T result = future.await();
+		if (result == null) {
+			if (future.getCause() instanceof GetFailedException) {
+				throw (GetFailedException) future.getCause();
+			}
+			throw new GetFailedException("Couldn't load data.");
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the latest version. The first get is conditional: The content is only fetched if there is a newer
+	 * version than the cached one, else only the digest is returned. Then, the latest versions are fetched
+	 * until no version delays or forks occur (or the retries are used up). The steps run in the
+	 * worker threads of the {@link DataFuture}s and the backoffs are scheduled, thus no thread is blocked
+	 * while waiting.
+	 * 
+	 * @return a future with the latest version. If it fails, the cause is a {@link GetFailedException}.
+	 */
+	public DataFuture<T> getAsync() {
+		return new LatestGet().run();
+	}
+
+	/**
+	 * Performs a put call (blocking).
+	 * 
+	 * @param networkContent the content to put. It gets the new version key.
+	 * @param protectionKeys the protection keys
+	 * @throws PutFailedException if the content cannot be put
+	 * @see #putAsync(BaseVersionedNetworkContent, KeyPair)
+	 */
+	public void put(T networkContent, KeyPair protectionKeys) throws PutFailedException {
+		DataFuture<Boolean> future = putAsync(networkContent, protectionKeys);
+		if (!future.await()) {
+			if (future.getCause() instanceof PutFailedException) {
+				throw (PutFailedException) future.getCause();
+			}
+			throw new PutFailedException("Put failed.");
+		}
+	}
+
+	/**
+	 * Puts a new version (prepared and confirmed by the {@link DataManager}). If another version has been
+	 * put concurrently, the new version is removed again.
+	 * 
+	 * @param networkContent the content to put. It gets the new version key.
+	 * @param protectionKeys the protection keys
+	 * @return a future with <code>true</code> if the version has been put. If it fails, the cause is a
+	 *         {@link PutFailedException} or a {@link VersionForkAfterPutException}.
+	 */
+	public abstract DataFuture<Boolean> putAsync(T networkContent, KeyPair protectionKeys);
+
+	/**
+	 * Puts a version and removes it again in case of a version fork
+	 * 
+	 * @param parameters the parameters of the version
+	 * @param onStored updates the caches after the version has been put. Runs in a worker thread of the
+	 *            {@link DataFuture}s (not the network thread completing the put) while holding the lock.
+	 * @return a future with <code>true</code> if the version has been put
+	 */
+	protected DataFuture<Boolean> putVersionAsync(final IParameters parameters, final Runnable onStored) {
+		final DataFuture<Boolean> result = new DataFuture<Boolean>(false);
+		dataManager.putAsync(parameters).addListener(new IDataFutureListener<H2HPutStatus>() {
+			@Override
+			public void onDone(DataFuture<H2HPutStatus> future) {
+				H2HPutStatus status = future.await();
+				if (status == null || status.equals(H2HPutStatus.FAILED)) {
+					result.fail(new PutFailedException("Put failed."));
+				} else if (status.equals(H2HPutStatus.VERSION_FORK)) {
+					logger.warn("Version fork after put detected. Rejecting put");
+					dataManager.removeAsync(parameters).addListener(new IDataFutureListener<Boolean>() {
+						@Override
+						public void onDone(DataFuture<Boolean> future) {
+							if (!future.await()) {
+								logger.warn("Removing of conflicting version failed.");
+							}
+							result.fail(new VersionForkAfterPutException());
+						}
+					});
+				} else {
+					// updating the caches may take a while (e.g. serializing the content)
+					DataFuture.execute(new Runnable() {
+						@Override
+						public void run() {
+							try {
+								synchronized (BaseVersionManager.this) {
+									// cache digest
+									digestCache.put(parameters.getVersionKey(), new HashSet<Number160>(parameters
+											.getData().basedOnSet()));
+									onStored.run();
+								}
+							} catch (RuntimeException e) {
+								// the version is stored anyway, the next get fetches it
+								logger.error("Cannot cache the stored version.", e);
+							}
+							result.complete(true);
+						}
+					});
+				}
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Forgets the content of a version as it has been returned by a get, e.g. because the returned instance
+	 * has been changed. The next get restores it again.
+	 * 
+	 * @param versionKey the version key
+	 */
+	public synchronized void discardCached(Number160 versionKey) {
+		contentCache.remove(versionKey);
+	}
+
+	/**
+	 * Merges forked versions into a new version that is returned by the get. The merged version is not put
+	 * here, the caller of the get puts it (based on all forked versions) like any other modification. Called
+	 * when a fork persists after waiting once. Not supported by default.
+	 * 
+	 * @param forkedVersionKeys the latest versions with their based on keys
+	 * @return a future with the merged version (or <code>null</code> if it fails), or <code>null</code> if
+	 *         the versions cannot be merged
+	 */
+	protected DataFuture<T> mergeAsync(Cache<Set<Number160>> forkedVersionKeys) {
+		return null;
+	}
+
+	/**
+	 * Finds the latest version both versions are based on
+	 * 
+	 * @param first a version key
+	 * @param second another version key
+	 * @return the key of the common version or <code>null</code> if it is not in the digest cache
+	 */
+	protected synchronized Number160 getCommonAncestor(Number160 first, Number160 second) {
+		Set<Number160> firstAncestors = getAncestors(first);
+		Number160 common = null;
+		for (Number160 ancestor : getAncestors(second)) {
+			// the initial versions are based on zero
+			if (!ancestor.isZero() && firstAncestors.contains(ancestor)
+					&& (common == null || ancestor.compareTo(common) > 0)) {
+				common = ancestor;
+			}
+		}
+		return common;
+	}
+
+	private Set<Number160> getAncestors(Number160 versionKey) {
+		Set<Number160> ancestors = new HashSet<Number160>();
+		List<Number160> open = new ArrayList<Number160>(Collections.singleton(versionKey));
+		while (!open.isEmpty()) {
+			Set<Number160> basedOnKeys = digestCache.get(open.remove(open.size() - 1));
+			if (basedOnKeys != null) {
+				for (Number160 basedOnKey : basedOnKeys) {
+					if (ancestors.add(basedOnKey)) {
+						open.add(basedOnKey);
+					}
+				}
+			}
+		}
+		return ancestors;
+	}
+
+	/**
+	 * Merges freshly fetched versions into the cache
+	 * 
+	 * @param rawData the fetched data
+	 * @return the fetched versions
+	 */
+	protected abstract Map<Number160, ?> cacheFetched(Map<PeerAddress, Map<Number640, Data>> rawData);
+
+	/**
+	 * @return <code>true</code> if any version has been fetched or put
+	 */
+	protected abstract boolean hasCachedVersions();
+
+	/**
+	 * @return the latest fetched or put version
+	 * @throws GetFailedException if the version cannot be read
+	 */
+	protected abstract T getLatestCached() throws GetFailedException;
+
+	/**
+	 * Fetches what is needed to read the latest fetched version (see {@link #getLatestCached()}), such that
+	 * reading it does not block. Called outside of the lock.
+	 * 
+	 * @return a future that is done when everything has been fetched, or <code>null</code> if nothing is
+	 *         missing
+	 */
+	protected DataFuture<Boolean> prepareLatestCached() {
+		return null;
+	}
+
+	/**
+	 * @param start the time the get started
+	 * @return <code>true</code> if no further gets of the latest version should be made
+	 */
+	protected boolean isDeadlinePassed(long start) {
+		return System.currentTimeMillis() - start > retryPolicy.getDeadlineMs(Operation.VERSION_GET);
 	}
 
 	protected NavigableMap<Number160, Set<Number160>> buildDigest(Map<PeerAddress, DigestResult> rawDigest) {
@@ -142,4 +362,317 @@ public abstract class BaseVersionManager<T extends BaseVersionedNetworkContent>
 			deletePredecessors(basedOnKey, cache);
 		}
 	}
+
+	/**
+	 * Removes the versions returned without content because they are not newer than the known version of a
+	 * conditional get
+	 */
+	private static Map<PeerAddress, Map<Number640, Data>> withoutMeta(Map<PeerAddress, Map<Number640, Data>> rawData) {
+		if (rawData == null) {
+			return null;
+		}
+
+		Map<PeerAddress, Map<Number640, Data>> result = new HashMap<PeerAddress, Map<Number640, Data>>(rawData.size());
+		for (Entry<PeerAddress, Map<Number640, Data>> entry : rawData.entrySet()) {
+			Map<Number640, Data> versions = new HashMap<Number640, Data>();
+			if (entry.getValue() != null) {
+				for (Entry<Number640, Data> version : entry.getValue().entrySet()) {
+					if (version.getValue() != null && !version.getValue().isMeta()) {
+						versions.put(version.getKey(), version.getValue());
+					}
+				}
+			}
+			result.put(entry.getKey(), versions);
+		}
+		return result;
+	}
+
+	/**
+	 * The steps of a get of the latest version. Each step either completes the result or starts the next
+	 * step, possibly after a backoff.
+	 */
+	private class LatestGet {
+
+		private final DataFuture<T> result = new DataFuture<T>(null);
+		private final long start = System.currentTimeMillis();
+
+		// the versions fetched in the current round
+		private final Map<Number160, Object> fetchedVersions = new HashMap<Number160, Object>();
+		private int getCounter = 0;
+		private int delayCounter = 0;
+		private int forkAfterGetCounter = 0;
+
+		public DataFuture<T> run() {
+			Number160 cachedKey = null;
+			synchronized (BaseVersionManager.this) {
+				if (!contentCache.isEmpty()) {
+					cachedKey = contentCache.lastKey();
+				}
+			}
+
+			if (cachedKey == null) {
+				// nothing to compare with
+				proceed(new Runnable() {
+					@Override
+					public void run() {
+						startRound();
+					}
+				});
+			} else {
+				// the content is only returned if there is a newer version than the cached one
+				final Number160 knownKey = cachedKey;
+				IParameters conditional = new Parameters().setLocationKey(parameters.getLocationKey())
+						.setContentKey(parameters.getContentKey()).setVersionKey(knownKey);
+				dataManager.getLatestAsync(conditional).addListener(new IDataFutureListener<FutureGet>() {
+					@Override
+					public void onDone(final DataFuture<FutureGet> future) {
+						proceed(new Runnable() {
+							@Override
+							public void run() {
+								onConditionalFetched(knownKey, future.await());
+							}
+						});
+					}
+				});
+			}
+			return result;
+		}
+
+		private void onConditionalFetched(Number160 knownKey, FutureGet futureGet) {
+			T cached = null;
+			if (futureGet != null && !futureGet.isFailed()) {
+				NavigableMap<Number160, Set<Number160>> digest = buildDigest(futureGet.rawDigest());
+				synchronized (BaseVersionManager.this) {
+					// compare the latest version key with the cached one
+					if (!digest.isEmpty() && digest.lastKey().equals(knownKey) && !contentCache.isEmpty()
+							&& knownKey.equals(contentCache.lastKey())) {
+						cached = contentCache.lastEntry().getValue();
+					}
+				}
+			}
+
+			if (cached == null) {
+				// a newer version has been fetched along with the digest (or the get failed)
+				onFetched(futureGet);
+			} else {
+				logger.debug("No need for getting from network. Returning cached version. {}", parameters.toString());
+				// the listeners are notified outside of the lock
+				result.complete(cached);
+			}
+		}
+
+		private void startRound() {
+			fetchedVersions.clear();
+			getCounter = 0;
+			fetch();
+		}
+
+		private void fetch() {
+			// fetch latest versions from the network, request also digest
+			dataManager.getLatestAsync(parameters).addListener(new IDataFutureListener<FutureGet>() {
+				@Override
+				public void onDone(final DataFuture<FutureGet> future) {
+					proceed(new Runnable() {
+						@Override
+						public void run() {
+							onFetched(future.await());
+						}
+					});
+				}
+			});
+		}
+
+		private void onFetched(FutureGet futureGet) {
+			if (futureGet != null) {
+				synchronized (BaseVersionManager.this) {
+					// build and merge the version tree from raw digest result;
+					digestCache.putAll(buildDigest(futureGet.rawDigest()));
+					// join all freshly loaded versions and merge them with cache
+					fetchedVersions.putAll(cacheFetched(withoutMeta(futureGet.rawData())));
+				}
+			}
+
+			// check if get was successful
+			if (futureGet == null || futureGet.isFailed() || fetchedVersions.isEmpty()) {
+				if (getCounter >= retryPolicy.getMaxRetries(Operation.VERSION_GET) || isDeadlinePassed(start)) {
+					logger.warn("Loading of data failed after {} tries. {}", getCounter, parameters.toString());
+					result.fail(new GetFailedException("Couldn't load data."));
+				} else {
+					logger.warn("Couldn't get data. Try #{}. Retrying. reason = '{}' {}", getCounter,
+							futureGet == null ? "timeout" : futureGet.failedReason(), parameters.toString());
+
+					// TODO reput latest versions for maintenance
+
+					dataManager.getStatistics().recordRetry(DataOperation.GET_LATEST);
+					retry(Operation.VERSION_GET, getCounter++, new Runnable() {
+						@Override
+						public void run() {
+							fetch();
+						}
+					});
+				}
+			} else {
+				check();
+			}
+		}
+
+		private void check() {
+			Runnable nextRound = new Runnable() {
+				@Override
+				public void run() {
+					startRound();
+				}
+			};
+
+			GetFailedException failure = null;
+			Cache<Set<Number160>> forkedVersionKeys = null;
+			synchronized (BaseVersionManager.this) {
+				// check if version delays or forks occurred
+				if (hasVersionDelay(fetchedVersions, digestCache)
+						&& delayCounter < retryPolicy.getMaxRetries(Operation.VERSION_DELAY)) {
+					logger.warn("Detected a version delay. #{}", delayCounter);
+
+					// TODO reput latest versions for maintenance, consider only latest
+
+					retry(Operation.VERSION_DELAY, delayCounter++, nextRound);
+					return;
+				}
+
+				// get latest versions according cache
+				Cache<Set<Number160>> latestVersionKeys = getLatest(digestCache);
+
+				// check for version fork
+				if (latestVersionKeys.size() > 1 && delayCounter < retryPolicy.getMaxRetries(Operation.VERSION_DELAY)) {
+					forkedVersionKeys = latestVersionKeys;
+				} else {
+					if (delayCounter >= retryPolicy.getMaxRetries(Operation.VERSION_DELAY)) {
+						logger.warn("Ignoring delay after {} retries.", delayCounter);
+					}
+					if (!hasCachedVersions()) {
+						logger.warn("Did not find any version.");
+						failure = new GetFailedException("No version found. Got null.");
+					}
+				}
+			}
+
+			if (forkedVersionKeys != null) {
+				onFork(forkedVersionKeys, nextRound);
+			} else if (failure == null) {
+				readLatest();
+			} else {
+				result.fail(failure);
+			}
+		}
+
+		/**
+		 * Reads the latest version as soon as everything it depends on has been fetched
+		 */
+		private void readLatest() {
+			DataFuture<Boolean> prepared = prepareLatestCached();
+			if (prepared == null) {
+				completeLatest();
+				return;
+			}
+
+			prepared.addListener(new IDataFutureListener<Boolean>() {
+				@Override
+				public void onDone(DataFuture<Boolean> future) {
+					// if it failed, reading the version fails as well
+					proceed(new Runnable() {
+						@Override
+						public void run() {
+							completeLatest();
+						}
+					});
+				}
+			});
+		}
+
+		private void completeLatest() {
+			T latest;
+			try {
+				synchronized (BaseVersionManager.this) {
+					latest = getLatestCached();
+				}
+			} catch (GetFailedException e) {
+				result.fail(e);
+				return;
+			}
+			// the listeners are notified outside of the lock
+			result.complete(latest);
+		}
+
+		/**
+		 * Waits once for the fork to be resolved by the other client, then merges the forked versions
+		 */
+		private void onFork(Cache<Set<Number160>> forkedVersionKeys, final Runnable nextRound) {
+			if (forkAfterGetCounter == 0) {
+				dataManager.getStatistics().recordVersionFork();
+			} else {
+				DataFuture<T> merged = mergeAsync(forkedVersionKeys);
+				if (merged != null) {
+					logger.debug("Merging {} forked versions. {}", forkedVersionKeys.size(), parameters.toString());
+					merged.addListener(new IDataFutureListener<T>() {
+						@Override
+						public void onDone(DataFuture<T> future) {
+							T mergedVersion = future.await();
+							if (mergedVersion != null) {
+								dataManager.getStatistics().recordVersionMerge();
+								result.complete(mergedVersion);
+							} else {
+								logger.warn("Could not merge the forked versions. {}", parameters.toString());
+								waitForFork(nextRound);
+							}
+						}
+					});
+					return;
+				}
+			}
+			waitForFork(nextRound);
+		}
+
+		private void waitForFork(Runnable nextRound) {
+			if (forkAfterGetCounter < retryPolicy.getMaxRetries(Operation.VERSION_FORK)) {
+				logger.warn("Got a version fork. Waiting. #{}", forkAfterGetCounter);
+				retry(Operation.VERSION_FORK, forkAfterGetCounter++, nextRound);
+			} else {
+				logger.warn("Got a version fork.");
+				result.fail(new GetFailedException("Got a version fork."));
+			}
+		}
+
+		/**
+		 * Runs the next step after the backoff of the operation
+		 */
+		private void retry(Operation operation, int retry, final Runnable step) {
+			DataFuture.schedule(new Runnable() {
+				@Override
+				public void run() {
+					proceed(step);
+				}
+			}, retryPolicy.getBackoffMs(operation, retry));
+		}
+
+		/**
+		 * Runs the next step in a worker thread unless the get is already done (e.g. cancelled)
+		 */
+		private void proceed(final Runnable step) {
+			DataFuture.execute(new Runnable() {
+				@Override
+				public void run() {
+					if (result.isDone()) {
+						return;
+					}
+
+					try {
+						step.run();
+					} catch (RuntimeException e) {
+						logger.error("Cannot get the version.", e);
+						result.fail(new GetFailedException(String.format("Cannot get the version. reason = '%s'",
+								e.getMessage())));
+					}
+				}
+			});
+		}
+	}
 }
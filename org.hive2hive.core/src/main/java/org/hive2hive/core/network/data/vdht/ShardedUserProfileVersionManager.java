@@ -0,0 +1,542 @@
+package org.hive2hive.core.network.data.vdht;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.security.KeyPair;
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.crypto.SecretKey;
+
+import net.tomp2p.peers.Number160;
+
+import org.hive2hive.core.H2HConstants;
+import org.hive2hive.core.exceptions.GetFailedException;
+import org.hive2hive.core.exceptions.PutFailedException;
+import org.hive2hive.core.exceptions.VersionForkAfterPutException;
+import org.hive2hive.core.model.FolderIndex;
+import org.hive2hive.core.model.Index;
+import org.hive2hive.core.model.IndexState;
+import org.hive2hive.core.model.versioned.EncryptedNetworkContent;
+import org.hive2hive.core.model.versioned.ShardedUserProfile;
+import org.hive2hive.core.model.versioned.UserProfile;
+import org.hive2hive.core.model.versioned.UserProfileShard;
+import org.hive2hive.core.network.data.DataManager;
+import org.hive2hive.core.network.data.IRetryPolicy;
+import org.hive2hive.core.network.data.futures.DataFuture;
+import org.hive2hive.core.network.data.futures.IDataFutureListener;
+import org.hive2hive.core.network.data.parameters.Parameters;
+import org.hive2hive.core.security.H2HDefaultEncryption;
+import org.hive2hive.core.serializer.IH2HSerialize;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stores the {@link UserProfile} in shards: The children of each top-level folder are stored as a separate
+ * {@link UserProfileShard} with its own version history, while the user profile only keeps the (empty)
+ * top-level folders, the files in the root and the version of each shard (see {@link ShardedUserProfile}).
+ * A put only uploads the shards that changed, followed by the user profile with their new versions. A get
+ * fetches the user profile and only the shards whose recorded version differs from the locally known one;
+ * the others are taken from the local copy. As the user profile is small, it is always put in full (no
+ * deltas).<br>
+ * Modifications within different top-level folders do not conflict in their shards, but both update the
+ * recorded shard versions in the user profile. If the put of the user profile forks, the recorded versions
+ * are put again onto the user profile of the other client (rebased), as long as nothing else changed in the
+ * user profile. Otherwise, the put shard versions are removed again, such that the modification can be
+ * retried on the latest version. A fork that persists is merged like any other, the merged user profile
+ * records no shard versions such that the next get fetches all shards.<br>
+ * Note that a modification that changes several shards is not atomic: A reader may see some of the shards
+ * changed while others are not yet.<br>
+ * If sharding is disabled, the user profile is stored as a whole.
+ */
+public class ShardedUserProfileVersionManager {
+
+	private static final Logger logger = LoggerFactory.getLogger(ShardedUserProfileVersionManager.class);
+
+	private final DataManager dataManager;
+	private final IH2HSerialize serializer;
+	private final SecretKey encryptionKey;
+	private final String locationKey;
+	private final boolean sharding;
+	private final UserProfileVersionManager rootManager;
+
+	// guarded by this
+	private final Map<PublicKey, AESEncryptedVersionManager<UserProfileShard>> shardManagers;
+	private final Map<PublicKey, ShardState> shardStates = new HashMap<PublicKey, ShardState>();
+	private ShardState rootState;
+	private Map<PublicKey, Number160> rootShardVersionKeys;
+	private Number160 rebasedVersionKey;
+
+	/**
+	 * @param dataManager the data manager
+	 * @param encryptionKey the key to encrypt the user profile and the shards
+	 * @param locationKey the location of the user profile
+	 * @param contentKey the content key of the user profile
+	 * @param sharding <code>true</code> to store the content of the top-level folders separately
+	 * @param deltas <code>true</code> to store the versions of the user profile as deltas (if not sharded)
+	 */
+	public ShardedUserProfileVersionManager(DataManager dataManager, SecretKey encryptionKey, String locationKey,
+			String contentKey, boolean sharding, boolean deltas) {
+		this.dataManager = dataManager;
+		this.serializer = dataManager.getSerializer();
+		this.encryptionKey = encryptionKey;
+		this.locationKey = locationKey;
+		this.sharding = sharding;
+		this.shardManagers = new HashMap<PublicKey, AESEncryptedVersionManager<UserProfileShard>>();
+		// the user profile is small when sharding, it is put in full
+		int maxDeltas = !sharding && deltas ? H2HConstants.USER_PROFILE_MAX_DELTAS : 0;
+		this.rootManager = new UserProfileVersionManager(dataManager, encryptionKey, locationKey, contentKey,
+				maxDeltas, H2HConstants.USER_PROFILE_MAX_DELTA_BYTES);
+	}
+
+	/**
+	 * Gets the latest user profile including the latest version of all shards (blocking)
+	 * 
+	 * @return the user profile
+	 * @throws GetFailedException if the user profile or a shard cannot be get
+	 */
+	public UserProfile get() throws GetFailedException {
+		DataFuture<UserProfile> future = getAsync();
+		UserProfile profile = future.await();
+		if (profile == null) {
+			throw toGetFailed(future.getCause());
+		}
+		return profile;
+	}
+
+	/**
+	 * Gets the latest user profile including the latest version of all shards. The shards that changed are
+	 * fetched in parallel.
+	 * 
+	 * @return a future with the user profile. If it fails, the cause is a {@link GetFailedException}.
+	 */
+	public DataFuture<UserProfile> getAsync() {
+		if (!sharding) {
+			return rootManager.getAsync();
+		}
+
+		final DataFuture<UserProfile> result = new DataFuture<UserProfile>(null);
+		rootManager.getAsync().addListener(new IDataFutureListener<UserProfile>() {
+			@Override
+			public void onDone(DataFuture<UserProfile> future) {
+				UserProfile root = future.await();
+				if (root == null) {
+					result.fail(toGetFailed(future.getCause()));
+				} else {
+					getShards(root, result);
+				}
+			}
+		});
+		return result;
+	}
+
+	private void getShards(UserProfile root, final DataFuture<UserProfile> result) {
+		final UserProfile profile;
+		final List<FolderIndex> folders = new ArrayList<FolderIndex>();
+		final List<DataFuture<UserProfileShard>> shards = new ArrayList<DataFuture<UserProfileShard>>();
+		synchronized (this) {
+			try {
+				// the shards are attached to a copy, the version managers keep the fetched instances
+				profile = copy(root);
+				rootState = new ShardState(root.getVersionKey(), IndexState.flatten(profile.getRoot()), null);
+				rootShardVersionKeys = getShardVersionKeys(root);
+
+				for (FolderIndex folder : getTopLevelFolders(profile.getRoot())) {
+					if (!folder.getChildren().isEmpty()) {
+						// has been stored without sharding, is sharded with the next put
+						continue;
+					}
+
+					PublicKey folderKey = folder.getFilePublicKey();
+					ShardState known = shardStates.get(folderKey);
+					if (known != null && known.versionKey.equals(rootShardVersionKeys.get(folderKey))) {
+						// the shard did not change since it has been fetched or put
+						attach(folder, (UserProfileShard) deserialize(known.shard));
+					} else {
+						folders.add(folder);
+						shards.add(getShardManager(folderKey).getAsync());
+					}
+				}
+			} catch (GetFailedException e) {
+				result.fail(e);
+				return;
+			}
+		}
+
+		if (shards.isEmpty()) {
+			result.complete(profile);
+			return;
+		}
+		logger.debug("Getting {} changed shards of the user profile.", shards.size());
+
+		DataFuture.all(shards).addListener(new IDataFutureListener<List<UserProfileShard>>() {
+			@Override
+			public void onDone(DataFuture<List<UserProfileShard>> future) {
+				try {
+					attachShards(folders, shards);
+					result.complete(profile);
+				} catch (GetFailedException e) {
+					result.fail(e);
+				}
+			}
+		});
+	}
+
+	private synchronized void attachShards(List<FolderIndex> folders, List<DataFuture<UserProfileShard>> shards)
+			throws GetFailedException {
+		for (int i = 0; i < folders.size(); i++) {
+			UserProfileShard shard = shards.get(i).await();
+			if (shard == null) {
+				throw toGetFailed(shards.get(i).getCause());
+			}
+
+			PublicKey folderKey = folders.get(i).getFilePublicKey();
+			ShardState known = shardStates.get(folderKey);
+			if (known == null || !known.versionKey.equals(shard.getVersionKey())) {
+				shardStates.put(folderKey, new ShardState(shard.getVersionKey(), flatten(shard), serialize(shard)));
+			}
+			attach(folders.get(i), (UserProfileShard) deserialize(shardStates.get(folderKey).shard));
+		}
+	}
+
+	private static GetFailedException toGetFailed(Exception cause) {
+		return cause instanceof GetFailedException ? (GetFailedException) cause : new GetFailedException(
+				"Couldn't load data.");
+	}
+
+	/**
+	 * Puts the changed shards and the user profile with their versions (blocking)
+	 * 
+	 * @param profile the modified user profile. It gets the new version key.
+	 * @param protectionKeys the keys to protect the user profile and the shards
+	 * @throws PutFailedException if the user profile or a shard cannot be put
+	 */
+	public synchronized void put(UserProfile profile, KeyPair protectionKeys) throws PutFailedException {
+		if (!sharding) {
+			rootManager.put(profile, protectionKeys);
+			return;
+		}
+
+		UserProfile root;
+		try {
+			root = copy(profile);
+		} catch (GetFailedException e) {
+			throw new PutFailedException(e.getMessage());
+		}
+
+		Map<PublicKey, IndexState> states = IndexState.flatten(root.getRoot());
+		// whether anything besides the shards changed
+		boolean rootChanged = rootState == null || !rootState.versionKey.equals(profile.getVersionKey())
+				|| !isSame(rootState.states, states) || rootManager.isMerged(profile);
+
+		// put the shards first such that the user profile never refers to a missing shard
+		Map<PublicKey, UserProfileShard> shards = split(root.getRoot());
+		Map<PublicKey, Number160> shardVersionKeys = new HashMap<PublicKey, Number160>();
+		Map<PublicKey, Number160> changedShards = new HashMap<PublicKey, Number160>();
+		for (Entry<PublicKey, UserProfileShard> entry : shards.entrySet()) {
+			UserProfileShard shard = entry.getValue();
+			Map<PublicKey, IndexState> folderStates = flatten(shard);
+			ShardState known = shardStates.get(entry.getKey());
+			if (known == null || !isSame(known.states, folderStates)) {
+				shard.setVersionKey(known == null ? Number160.ZERO : known.versionKey);
+				logger.debug("Putting the changed shard of folder '{}'.", root.getRoot().getIndexByKey(entry.getKey()));
+				try {
+					getShardManager(entry.getKey()).put(shard, protectionKeys);
+					known = new ShardState(shard.getVersionKey(), folderStates, serialize(shard));
+				} catch (PutFailedException | GetFailedException e) {
+					rollback(changedShards, protectionKeys);
+					throw e instanceof PutFailedException ? (PutFailedException) e : new PutFailedException(
+							e.getMessage());
+				}
+				changedShards.put(entry.getKey(), known.versionKey);
+				shardStates.put(entry.getKey(), known);
+			}
+			shardVersionKeys.put(entry.getKey(), known.versionKey);
+		}
+		// the shards of removed folders expire
+		shardStates.keySet().retainAll(shards.keySet());
+		shardManagers.keySet().retainAll(shards.keySet());
+
+		if (!rootChanged && shardVersionKeys.equals(rootShardVersionKeys)) {
+			logger.debug("Nothing changed. No need to put the user profile.");
+			return;
+		}
+
+		ShardedUserProfile sharded = new ShardedUserProfile(root, shardVersionKeys);
+		try {
+			rootManager.put(sharded, protectionKeys);
+		} catch (PutFailedException e) {
+			// only the recorded shard versions changed, they can be put onto the concurrent version
+			ShardedUserProfile rebased = null;
+			if (e instanceof VersionForkAfterPutException && !rootChanged && !changedShards.isEmpty()) {
+				rebased = rebase(changedShards, protectionKeys);
+			}
+			if (rebased == null) {
+				// the modification is retried on the latest version, it must not find its shards there
+				rollback(changedShards, protectionKeys);
+				throw e;
+			}
+
+			logger.debug("Put the changed shards onto the user profile of another client.");
+			rebasedVersionKey = rebased.getVersionKey();
+			profile.setVersionKey(rebased.getVersionKey());
+			profile.setBasedOnKey(rebased.getBasedOnKey());
+			return;
+		}
+
+		profile.setVersionKey(sharded.getVersionKey());
+		profile.setBasedOnKey(sharded.getBasedOnKey());
+		rootState = new ShardState(sharded.getVersionKey(), states, null);
+		rootShardVersionKeys = shardVersionKeys;
+	}
+
+	/**
+	 * Puts the latest user profile again with the given shard versions. Used when another client put the
+	 * user profile concurrently and the shard versions are the only change: they are merged with the ones of
+	 * the other client.
+	 * 
+	 * @param changedShards the new versions of the shards that have been put
+	 * @param protectionKeys the keys to protect the user profile
+	 * @return the put user profile or <code>null</code> if it cannot be rebased
+	 */
+	private ShardedUserProfile rebase(Map<PublicKey, Number160> changedShards, KeyPair protectionKeys) {
+		int maxRetries = dataManager.getRetryPolicy().getMaxRetries(IRetryPolicy.Operation.VERSION_FORK);
+		for (int i = 0; i <= maxRetries; i++) {
+			UserProfile latest;
+			try {
+				latest = rootManager.get();
+			} catch (GetFailedException e) {
+				logger.warn("Cannot get the user profile to rebase on. reason = '{}'", e.getMessage());
+				return null;
+			}
+			if (rootManager.isMerged(latest)) {
+				// the merge is put like any other modification first
+				return null;
+			}
+
+			List<PublicKey> folderKeys = new ArrayList<PublicKey>();
+			for (FolderIndex folder : getTopLevelFolders(latest.getRoot())) {
+				folderKeys.add(folder.getFilePublicKey());
+			}
+			if (!folderKeys.containsAll(changedShards.keySet())) {
+				// a changed folder has been moved or removed concurrently
+				return null;
+			}
+
+			Map<PublicKey, Number160> shardVersionKeys = getShardVersionKeys(latest);
+			shardVersionKeys.putAll(changedShards);
+			ShardedUserProfile rebased = new ShardedUserProfile(latest, shardVersionKeys);
+			try {
+				rootManager.put(rebased, protectionKeys);
+			} catch (VersionForkAfterPutException e) {
+				logger.debug("Version fork after rebasing the user profile. Trying again.");
+				continue;
+			} catch (PutFailedException e) {
+				return null;
+			}
+
+			rootState = new ShardState(rebased.getVersionKey(), IndexState.flatten(rebased.getRoot()), null);
+			rootShardVersionKeys = shardVersionKeys;
+			return rebased;
+		}
+		return null;
+	}
+
+	/**
+	 * Removes the shard versions that have been put for a user profile that cannot be put
+	 * 
+	 * @param changedShards the versions of the shards that have been put
+	 * @param protectionKeys the keys the shards are protected with
+	 */
+	private void rollback(Map<PublicKey, Number160> changedShards, KeyPair protectionKeys) {
+		for (Entry<PublicKey, Number160> entry : changedShards.entrySet()) {
+			String shardLocationKey = locationKey + H2HDefaultEncryption.key2String(entry.getKey());
+			if (!dataManager.removeVersion(new Parameters().setLocationKey(shardLocationKey)
+					.setContentKey(H2HConstants.USER_PROFILE_SHARD).setVersionKey(entry.getValue())
+					.setProtectionKeys(protectionKeys))) {
+				logger.warn("Cannot remove the version of shard '{}'.", shardLocationKey);
+			}
+			// the version manager still knows the removed version
+			shardStates.remove(entry.getKey());
+			shardManagers.remove(entry.getKey());
+		}
+	}
+
+	/**
+	 * @param profile a user profile that has been put
+	 * @return <code>true</code> if its shards have been put onto the user profile of another client. The
+	 *         profile then lacks the changes of the other client and must be fetched again.
+	 */
+	public synchronized boolean isRebased(UserProfile profile) {
+		return profile.getVersionKey().equals(rebasedVersionKey);
+	}
+
+	/**
+	 * Forgets a user profile returned by a get, e.g. because changes to it have been aborted. The next get
+	 * does not return the same instance again.
+	 * 
+	 * @param profile the user profile
+	 */
+	public void discard(UserProfile profile) {
+		// when sharding, every get assembles a new copy
+		if (!sharding) {
+			rootManager.discardCached(profile.getVersionKey());
+		}
+	}
+
+	/**
+	 * @param profile a user profile returned by a get
+	 * @return <code>true</code> if the profile is a merge of forked versions that still needs to be put
+	 */
+	public boolean isMerged(UserProfile profile) {
+		return rootManager.isMerged(profile);
+	}
+
+	/**
+	 * Accepts a version of the user profile that another client of the same user has put and announced (not
+	 * supported when sharding, the shards would be missing).
+	 * 
+	 * @param encrypted the announced version
+	 * @return the user profile or <code>null</code> if the version has not been accepted
+	 */
+	public synchronized UserProfile offer(EncryptedNetworkContent encrypted) {
+		return sharding ? null : rootManager.offer(encrypted);
+	}
+
+	/**
+	 * @param versionKey the version key of the user profile
+	 * @return the encrypted version as put or fetched before, or <code>null</code> if it is not known or the
+	 *         user profile is sharded
+	 */
+	public synchronized EncryptedNetworkContent getEncryptedVersion(Number160 versionKey) {
+		return sharding ? null : rootManager.getCachedVersion(versionKey);
+	}
+
+	private AESEncryptedVersionManager<UserProfileShard> getShardManager(PublicKey folderKey) {
+		AESEncryptedVersionManager<UserProfileShard> manager = shardManagers.get(folderKey);
+		if (manager == null) {
+			// next to the user profile, the location is only known to the user
+			manager = new AESEncryptedVersionManager<UserProfileShard>(dataManager, encryptionKey, locationKey
+					+ H2HDefaultEncryption.key2String(folderKey), H2HConstants.USER_PROFILE_SHARD);
+			shardManagers.put(folderKey, manager);
+		}
+		return manager;
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T extends Serializable> T copy(T content) throws GetFailedException {
+		return (T) deserialize(serialize(content));
+	}
+
+	private byte[] serialize(Serializable content) throws GetFailedException {
+		try {
+			return serializer.serialize(content);
+		} catch (IOException e) {
+			logger.error("Cannot copy the user profile.", e);
+			throw new GetFailedException(String.format("Cannot copy the user profile. reason = '%s'",
+					e.getMessage()));
+		}
+	}
+
+	private Object deserialize(byte[] content) throws GetFailedException {
+		try {
+			return serializer.deserialize(content);
+		} catch (IOException | ClassNotFoundException e) {
+			logger.error("Cannot copy the user profile.", e);
+			throw new GetFailedException(String.format("Cannot copy the user profile. reason = '%s'",
+					e.getMessage()));
+		}
+	}
+
+	private static Map<PublicKey, Number160> getShardVersionKeys(UserProfile root) {
+		if (root instanceof ShardedUserProfile) {
+			return new HashMap<PublicKey, Number160>(((ShardedUserProfile) root).getShardVersionKeys());
+		}
+		// not stored with sharding (yet) or merged
+		return new HashMap<PublicKey, Number160>();
+	}
+
+	/**
+	 * Moves the children of all top-level folders into shards
+	 * 
+	 * @param root the root of the user profile, is changed
+	 * @return the shards by the key of their top-level folder
+	 */
+	static Map<PublicKey, UserProfileShard> split(FolderIndex root) {
+		Map<PublicKey, UserProfileShard> shards = new HashMap<PublicKey, UserProfileShard>();
+		for (FolderIndex folder : getTopLevelFolders(root)) {
+			FolderIndex content = new FolderIndex(folder.getFileKeys());
+			moveChildren(folder, content);
+			shards.put(folder.getFilePublicKey(), new UserProfileShard(content));
+		}
+		return shards;
+	}
+
+	/**
+	 * Moves the children of a shard back to its top-level folder
+	 * 
+	 * @param folder the top-level folder, is changed
+	 * @param shard the shard of the folder, is changed
+	 */
+	static void attach(FolderIndex folder, UserProfileShard shard) {
+		moveChildren(shard.getContent(), folder);
+	}
+
+	private static void moveChildren(FolderIndex from, FolderIndex to) {
+		for (Index child : new ArrayList<Index>(from.getChildren())) {
+			from.removeChild(child);
+			child.setParent(to);
+			to.addChild(child);
+		}
+	}
+
+	private static List<FolderIndex> getTopLevelFolders(FolderIndex root) {
+		List<FolderIndex> folders = new ArrayList<FolderIndex>();
+		for (Index child : root.getChildren()) {
+			if (child.isFolder()) {
+				folders.add((FolderIndex) child);
+			}
+		}
+		return folders;
+	}
+
+	private static Map<PublicKey, IndexState> flatten(UserProfileShard shard) {
+		Map<PublicKey, IndexState> states = IndexState.flatten(shard.getContent());
+		// the top-level folder itself is part of the user profile
+		states.remove(shard.getFolderKey());
+		return states;
+	}
+
+	private static boolean isSame(Map<PublicKey, IndexState> before, Map<PublicKey, IndexState> after) {
+		if (before.size() != after.size()) {
+			return false;
+		}
+		for (Entry<PublicKey, IndexState> entry : after.entrySet()) {
+			if (!entry.getValue().isSameAs(before.get(entry.getKey()))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * The latest known version of the user profile or a shard
+	 */
+	private static class ShardState {
+
+		private final Number160 versionKey;
+		private final Map<PublicKey, IndexState> states;
+		// the serialized shard, null for the user profile
+		private final byte[] shard;
+
+		public ShardState(Number160 versionKey, Map<PublicKey, IndexState> states, byte[] shard) {
+			this.versionKey = versionKey;
+			this.states = states;
+			this.shard = shard;
+		}
+	}
+}
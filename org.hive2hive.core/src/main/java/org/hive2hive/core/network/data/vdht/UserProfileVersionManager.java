@@ -0,0 +1,412 @@
+package org.hive2hive.core.network.data.vdht;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.PublicKey;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.crypto.SecretKey;
+
+import net.tomp2p.peers.Number160;
+
+import org.hive2hive.core.H2HConstants;
+import org.hive2hive.core.exceptions.GetFailedException;
+import org.hive2hive.core.model.BaseNetworkContent;
+import org.hive2hive.core.model.IndexState;
+import org.hive2hive.core.model.versioned.BaseVersionedNetworkContent;
+import org.hive2hive.core.model.versioned.EncryptedNetworkContent;
+import org.hive2hive.core.model.versioned.ShardedUserProfile;
+import org.hive2hive.core.model.versioned.UserProfile;
+import org.hive2hive.core.model.versioned.UserProfileDelta;
+import org.hive2hive.core.network.data.DataManager;
+import org.hive2hive.core.network.data.futures.DataFuture;
+import org.hive2hive.core.network.data.futures.IDataFutureListener;
+import org.hive2hive.core.security.EncryptionUtil;
+import org.hive2hive.core.serializer.IH2HSerialize;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stores the {@link UserProfile} as a chain of small {@link UserProfileDelta}s with a full profile from time
+ * to time. A full profile is put as soon as the maximum number of deltas is reached or the deltas since the
+ * last full profile exceed the maximum size. The deltas are chained over their version and based on keys.
+ * On a get, they are applied to the last full profile. The last known version is kept locally, thus usually
+ * only the latest delta needs to be applied. Otherwise, all stored versions are fetched at once before the
+ * deltas are applied, such that restoring a version never blocks on the network.<br>
+ * If two clients put a version based on the same version, the fork is resolved by merging both file trees
+ * against the common version. The merged version is returned by the get, but only put with the next put of
+ * it (see {@link #isMerged(UserProfile)}), such that the merge does not race with the modifications. Its
+ * version key is derived from the forked versions and the merged tree, thus all clients that merge the same
+ * fork put the same version.
+ */
+public class UserProfileVersionManager extends AESEncryptedVersionManager<UserProfile> {
+
+	private static final Logger logger = LoggerFactory.getLogger(UserProfileVersionManager.class);
+
+	private final IH2HSerialize serializer;
+	private final int maxDeltas;
+	private final long maxDeltaBytes;
+
+	// guarded by this
+	private ChainState base;
+	private ChainState pending;
+	// the latest version as decrypted while preparing the get
+	private BaseVersionedNetworkContent prepared;
+	// the versions fetched to restore the latest version
+	private final Map<Number160, EncryptedNetworkContent> fetchedVersions;
+	// the fork merged by the last get, it is put with the next put of the merged version
+	private MergeState merge;
+
+	/**
+	 * @param maxDeltas the number of deltas after which a full profile is put (0 disables the deltas)
+	 * @param maxDeltaBytes the size of the deltas after which a full profile is put
+	 */
+	public UserProfileVersionManager(DataManager dataManager, SecretKey encryptionKey, String locationKey,
+			String contentKey, int maxDeltas, long maxDeltaBytes) {
+		super(dataManager, encryptionKey, locationKey, contentKey);
+		this.serializer = dataManager.getSerializer();
+		// older versions are removed from the DHT, the full profile must stay available
+		this.maxDeltas = Math.max(0, Math.min(maxDeltas, H2HConstants.MAX_VERSIONS_HISTORY - 1));
+		this.maxDeltaBytes = maxDeltaBytes;
+		this.fetchedVersions = new HashMap<Number160, EncryptedNetworkContent>();
+	}
+
+	@Override
+	protected synchronized EncryptedNetworkContent encrypt(UserProfile profile) throws GeneralSecurityException,
+			IOException {
+		Map<PublicKey, IndexState> states = IndexState.flatten(profile.getRoot());
+		if (canAppendDelta(profile)) {
+			UserProfileDelta delta = UserProfileDelta.create(base.states, states, base.chainLength + 1,
+					base.chainBytes);
+			EncryptedNetworkContent encrypted = encryptContent(delta);
+			long chainBytes = base.chainBytes + encrypted.getCipherContent().length;
+			if (chainBytes <= maxDeltaBytes) {
+				logger.debug("Putting delta #{} of the user profile with {} updates and {} removals.",
+						delta.getChainLength(), delta.getUpdates().size(), delta.getRemovals().size());
+				pending = new ChainState(null, null, states, delta.getChainLength(), chainBytes);
+				return encrypted;
+			}
+		}
+
+		logger.debug("Putting the full user profile.");
+		pending = new ChainState(null, null, states, 0, 0);
+		return encryptContent(profile);
+	}
+
+	private boolean canAppendDelta(UserProfile profile) {
+		// a merged version may be put by several clients, it is put in full such that the chains match
+		return maxDeltas > 0 && base != null && base.versionKey.equals(profile.getVersionKey())
+				&& base.chainLength < maxDeltas && base.chainBytes < maxDeltaBytes && !isMerged(profile);
+	}
+
+	/**
+	 * Puts the user profile. If it is the merged version returned by the last get, it is put based on all
+	 * forked versions.
+	 */
+	@Override
+	public DataFuture<Boolean> putAsync(UserProfile profile, KeyPair protectionKeys) {
+		Set<Number160> mergedKeys = Collections.emptySet();
+		synchronized (this) {
+			if (isMerged(profile)) {
+				mergedKeys = Collections.singleton(merge.mergedKey);
+			}
+		}
+		return putAsync(profile, protectionKeys, mergedKeys);
+	}
+
+	/**
+	 * @param profile a user profile returned by a get
+	 * @return <code>true</code> if the profile is a merge of forked versions that has not been put yet
+	 */
+	public synchronized boolean isMerged(UserProfile profile) {
+		return merge != null && merge.versionKey.equals(profile.getVersionKey());
+	}
+
+	/**
+	 * Derives the key from the forked versions and the merged tree, which are the same for all clients that
+	 * merge the fork
+	 */
+	@Override
+	protected Number160 createMergedVersionKey(UserProfile profile, EncryptedNetworkContent encrypted,
+			Set<Number160> mergedKeys) {
+		StringBuilder keys = new StringBuilder(encrypted.getBasedOnKey().toString());
+		for (Number160 mergedKey : new TreeSet<Number160>(mergedKeys)) {
+			keys.append(mergedKey.toString());
+		}
+		keys.append(EncryptionUtil.byteToHex(IndexState.hash(IndexState.flatten(profile.getRoot()).values())));
+		return new Number160(encrypted.getBasedOnKey().timestamp() + 1, Number160.createHash(keys.toString())
+				.number96());
+	}
+
+	@Override
+	protected synchronized void onStored(UserProfile profile, EncryptedNetworkContent encrypted) {
+		if (merge != null && merge.versionKey.equals(encrypted.getBasedOnKey())) {
+			merge = null;
+		}
+		if (pending == null) {
+			return;
+		}
+
+		try {
+			base = new ChainState(encrypted.getVersionKey(), serializer.serialize(profile), pending.states,
+					pending.chainLength, pending.chainBytes);
+		} catch (IOException e) {
+			logger.warn("Cannot keep the stored user profile. The next version is put in full.", e);
+			base = null;
+		}
+		pending = null;
+	}
+
+	/**
+	 * Decrypts the latest version. If it is a delta that is not based on the known version, all stored
+	 * versions are fetched at once.
+	 */
+	@Override
+	protected DataFuture<Boolean> prepareLatestCached() {
+		EncryptedNetworkContent latest = getLatestCachedVersion();
+		if (latest == null) {
+			return null;
+		}
+
+		BaseVersionedNetworkContent content;
+		synchronized (this) {
+			if (base != null && base.versionKey.equals(latest.getVersionKey())) {
+				return null;
+			}
+		}
+		try {
+			// decrypted outside of the lock, the result is used by the following read
+			content = decryptVersion(latest);
+		} catch (GeneralSecurityException | IOException | ClassNotFoundException e) {
+			// reading the version fails as well
+			return null;
+		}
+
+		synchronized (this) {
+			prepared = content;
+			if (!(content instanceof UserProfileDelta)
+					|| (base != null && base.versionKey.equals(content.getBasedOnKey()))) {
+				return null;
+			}
+		}
+		return fetchVersionsAsync();
+	}
+
+	@Override
+	protected synchronized UserProfile decrypt(EncryptedNetworkContent encrypted) throws GeneralSecurityException,
+			IOException, ClassNotFoundException, GetFailedException {
+		BaseVersionedNetworkContent content;
+		if (prepared != null && prepared.getVersionKey().equals(encrypted.getVersionKey())) {
+			content = prepared;
+		} else {
+			content = decryptVersion(encrypted);
+		}
+		prepared = null;
+		// the fork has been resolved
+		merge = null;
+		UserProfile profile = restore(content, 0);
+		fetchedVersions.clear();
+
+		int chainLength = 0;
+		long chainBytes = 0;
+		if (content instanceof UserProfileDelta) {
+			UserProfileDelta delta = (UserProfileDelta) content;
+			chainLength = delta.getChainLength();
+			chainBytes = delta.getPreviousChainBytes() + encrypted.getCipherContent().length;
+		}
+		base = new ChainState(encrypted.getVersionKey(), serializer.serialize(profile), IndexState.flatten(profile
+				.getRoot()), chainLength, chainBytes);
+		return profile;
+	}
+
+	/**
+	 * Merges two forked versions of the user profile against the version both are based on (see
+	 * {@link IndexState#merge(Map, Map, Map)}). The versions needed to restore the forked ones are fetched at
+	 * once before. The result is not put here, but with the next put of it.
+	 */
+	@Override
+	protected DataFuture<UserProfile> mergeAsync(Cache<Set<Number160>> forkedVersionKeys) {
+		if (forkedVersionKeys.size() != 2) {
+			return null;
+		}
+
+		final Number160 firstKey = forkedVersionKeys.firstKey();
+		final Number160 secondKey = forkedVersionKeys.lastKey();
+		final Number160 ancestorKey = getCommonAncestor(firstKey, secondKey);
+		if (ancestorKey == null) {
+			logger.warn("Cannot merge the forked user profiles. No common version found.");
+			return null;
+		}
+
+		final DataFuture<UserProfile> result = new DataFuture<UserProfile>(null);
+		fetchVersionsAsync().addListener(new IDataFutureListener<Boolean>() {
+			@Override
+			public void onDone(DataFuture<Boolean> future) {
+				// if the versions could not be fetched, the merge fails if they are needed
+				DataFuture.execute(new Runnable() {
+					@Override
+					public void run() {
+						merge(ancestorKey, firstKey, secondKey, result);
+					}
+				});
+			}
+		});
+		return result;
+	}
+
+	private void merge(Number160 ancestorKey, Number160 firstKey, Number160 secondKey,
+			DataFuture<UserProfile> result) {
+		UserProfile merged;
+		synchronized (this) {
+			try {
+				merged = restore(ancestorKey, 0);
+				Map<PublicKey, IndexState> ancestorStates = IndexState.flatten(merged.getRoot());
+				Map<PublicKey, IndexState> states = IndexState.merge(ancestorStates,
+						IndexState.flatten(restore(firstKey, 0).getRoot()),
+						IndexState.flatten(restore(secondKey, 0).getRoot()));
+				UserProfileDelta.create(ancestorStates, states, 0, 0).applyTo(merged);
+				if (merged instanceof ShardedUserProfile) {
+					// the shards may have changed in both versions, the readers fetch them all
+					((ShardedUserProfile) merged).clearShardVersionKeys();
+				}
+			} catch (GeneralSecurityException | IOException | ClassNotFoundException | GetFailedException
+					| IllegalStateException e) {
+				logger.warn("Cannot merge the forked user profiles. reason = '{}'", e.getMessage());
+				result.fail(new GetFailedException("Cannot merge the forked user profiles."));
+				return;
+			} finally {
+				fetchedVersions.clear();
+			}
+
+			// the merged version follows the later version and is put based on both
+			merged.setVersionKey(secondKey);
+			merge = new MergeState(secondKey, firstKey);
+		}
+		result.complete(merged);
+	}
+
+	/**
+	 * Fetches all stored versions at once, they are needed to restore a version from its deltas
+	 * 
+	 * @return a future with <code>true</code> if the versions have been fetched
+	 */
+	private DataFuture<Boolean> fetchVersionsAsync() {
+		logger.debug("Getting all versions of the user profile to apply the deltas.");
+		final DataFuture<Boolean> result = new DataFuture<Boolean>(false);
+		dataManager.getVersionsAsync(parameters).addListener(
+				new IDataFutureListener<NavigableMap<Number160, BaseNetworkContent>>() {
+					@Override
+					public void onDone(DataFuture<NavigableMap<Number160, BaseNetworkContent>> future) {
+						NavigableMap<Number160, BaseNetworkContent> versions = future.await();
+						if (versions == null) {
+							logger.warn("Cannot get the versions of the user profile.");
+							result.complete(false);
+							return;
+						}
+
+						synchronized (UserProfileVersionManager.this) {
+							for (Entry<Number160, BaseNetworkContent> version : versions.entrySet()) {
+								if (version.getValue() instanceof EncryptedNetworkContent) {
+									fetchedVersions.put(version.getKey(), (EncryptedNetworkContent) version.getValue());
+								}
+							}
+						}
+						result.complete(true);
+					}
+				});
+		return result;
+	}
+
+	/**
+	 * Restores the profile of a version by applying the deltas to the last full profile
+	 */
+	private UserProfile restore(BaseVersionedNetworkContent content, int depth) throws GeneralSecurityException,
+			IOException, ClassNotFoundException, GetFailedException {
+		if (content instanceof UserProfile) {
+			return (UserProfile) content;
+		} else if (!(content instanceof UserProfileDelta)) {
+			throw new GetFailedException("Unknown type of user profile version.");
+		} else if (depth >= H2HConstants.MAX_VERSIONS_HISTORY) {
+			throw new GetFailedException("No full user profile found for the deltas.");
+		}
+
+		UserProfileDelta delta = (UserProfileDelta) content;
+		UserProfile profile = restore(delta.getBasedOnKey(), depth + 1);
+		try {
+			delta.applyTo(profile);
+		} catch (IllegalStateException e) {
+			logger.error("Cannot apply the user profile delta.", e);
+			throw new GetFailedException(String.format("Cannot apply the user profile delta. reason = '%s'",
+					e.getMessage()));
+		}
+		profile.setVersionKey(delta.getVersionKey());
+		profile.setBasedOnKey(delta.getBasedOnKey());
+		return profile;
+	}
+
+	private UserProfile restore(Number160 versionKey, int depth) throws GeneralSecurityException, IOException,
+			ClassNotFoundException, GetFailedException {
+		if (base != null && base.versionKey.equals(versionKey)) {
+			// a copy of the known version, the returned profiles are modified
+			UserProfile profile = (UserProfile) serializer.deserialize(base.profile);
+			profile.setVersionKey(versionKey);
+			return profile;
+		}
+
+		EncryptedNetworkContent encrypted = getCachedVersion(versionKey);
+		if (encrypted == null) {
+			encrypted = fetchedVersions.get(versionKey);
+		}
+		if (encrypted == null) {
+			throw new GetFailedException("A previous version of the user profile has not been fetched.");
+		}
+		return restore(decryptVersion(encrypted), depth);
+	}
+
+	/**
+	 * A merged fork that has not been put yet
+	 */
+	private static class MergeState {
+
+		// the version the merged profile follows
+		private final Number160 versionKey;
+		// the other forked version
+		private final Number160 mergedKey;
+
+		public MergeState(Number160 versionKey, Number160 mergedKey) {
+			this.versionKey = versionKey;
+			this.mergedKey = mergedKey;
+		}
+	}
+
+	/**
+	 * A version of the chain of deltas
+	 */
+	private static class ChainState {
+
+		private final Number160 versionKey;
+		// the serialized profile
+		private final byte[] profile;
+		private final Map<PublicKey, IndexState> states;
+		// the number of deltas since the last full profile
+		private final int chainLength;
+		// the size of the deltas since the last full profile
+		private final long chainBytes;
+
+		public ChainState(Number160 versionKey, byte[] profile, Map<PublicKey, IndexState> states, int chainLength,
+				long chainBytes) {
+			this.versionKey = versionKey;
+			this.profile = profile;
+			this.states = states;
+			this.chainLength = chainLength;
+			this.chainBytes = chainBytes;
+		}
+	}
+}
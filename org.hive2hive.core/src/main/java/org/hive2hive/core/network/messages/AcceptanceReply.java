@@ -33,5 +33,12 @@ public enum AcceptanceReply {
 	 */
 	FUTURE_FAILURE,
 	/** Generic message to indicate that the message was sent to the wrong target. */
-	WRONG_TARGET
+	WRONG_TARGET,
+	/** The target is too busy to handle the message at the moment. The message can be sent again later. */
+	ASK_LATER,
+	/**
+	 * The target does not know the session the message has been encrypted with (e.g. because it expired). The
+	 * message has to be sent again with a new session.
+	 */
+	UNKNOWN_SESSION
 }
@@ -11,6 +11,8 @@ import org.hive2hive.core.H2HConstants;
 import org.hive2hive.core.events.EventBus;
 import org.hive2hive.core.exceptions.NoPeerConnectionException;
 import org.hive2hive.core.network.NetworkManager;
+import org.hive2hive.core.network.data.IRetryPolicy;
+import org.hive2hive.core.network.data.IRetryPolicy.Operation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -49,6 +51,8 @@ public abstract class BaseMessage implements Runnable, Serializable {
 	private final SendingBehavior sendingBehavior;
 
 	protected PeerAddress senderAddress;
+	// the user whose signature or message session authenticated this message, set at the receiver
+	private transient String verifiedSenderId;
 
 	private transient int routedSendingCounter = 0;
 
@@ -130,6 +134,25 @@ public abstract class BaseMessage implements Runnable, Serializable {
 		return senderPublicKey;
 	}
 
+	/**
+	 * Getter
+	 * 
+	 * @return the user that signed this message (verified at the receiver) or <code>null</code> if the
+	 *         sender has not been verified
+	 */
+	public String getVerifiedSenderId() {
+		return verifiedSenderId;
+	}
+
+	/**
+	 * Setter, used by the receiver after it verified the signature or the message session
+	 * 
+	 * @param verifiedSenderId the user that signed this message
+	 */
+	public void setVerifiedSenderId(String verifiedSenderId) {
+		this.verifiedSenderId = verifiedSenderId;
+	}
+
 	/**
 	 * Setter
 	 * 
@@ -221,6 +244,19 @@ public abstract class BaseMessage implements Runnable, Serializable {
 					logger.warn("Message not accepted by the target after one try. Target key = '{}'.", targetKey);
 					return false;
 				}
+			case ASK_LATER:
+				// the re-send waits for a backoff (see getResendDelayMs)
+				logger.debug("Target is busy. Target key = '{}'.", targetKey);
+				if (SendingBehavior.SEND_MAX_ALLOWED_TIMES == sendingBehavior) {
+					return routedSendingCounter < H2HConstants.MAX_MESSAGE_SENDING;
+				} else {
+					logger.warn("Message not accepted by the busy target after one try. Target key = '{}'.", targetKey);
+					return false;
+				}
+			case UNKNOWN_SESSION:
+				// the re-send offers a new session, independent of the sending behavior
+				logger.debug("Target does not know the session. Target key = '{}'.", targetKey);
+				return routedSendingCounter < H2HConstants.MAX_MESSAGE_SENDING;
 			case FAILURE_DECRYPTION:
 				logger.warn("Message not accepted by the target. Decryption on target node failed. Target key = '{}'.",
 						targetKey);
@@ -237,6 +273,31 @@ public abstract class BaseMessage implements Runnable, Serializable {
 		}
 	}
 
+	/**
+	 * A target that is too busy to handle the message ({@link AcceptanceReply#ASK_LATER}) is not asked again
+	 * immediately, but after a backoff that grows with every attempt.
+	 * 
+	 * @param reply the reply of the last sending attempt
+	 * @param retryPolicy the policy that determines the backoff
+	 * @return the time to wait before the message is re-sent in milliseconds
+	 */
+	public long getResendDelayMs(AcceptanceReply reply, IRetryPolicy retryPolicy) {
+		if (reply != AcceptanceReply.ASK_LATER) {
+			return 0;
+		}
+		return retryPolicy.getBackoffMs(Operation.MESSAGE, Math.max(0, routedSendingCounter - 1));
+	}
+
+	/**
+	 * The class of the message determines in which pool the message is handled at the receiver. Override it
+	 * for messages that should not share the pool with all other messages.
+	 * 
+	 * @return the class of this message
+	 */
+	public MessageClass getMessageClass() {
+		return MessageClass.DEFAULT;
+	}
+
 	/**
 	 * Convenience method to create a random message ID
 	 * 
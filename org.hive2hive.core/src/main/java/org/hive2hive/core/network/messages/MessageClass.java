@@ -0,0 +1,34 @@
+package org.hive2hive.core.network.messages;
+
+import org.hive2hive.core.H2HConstants;
+
+/**
+ * Classifies the received messages. Each class is handled by its own bounded pool, such that a burst of
+ * messages of one class (e.g. chunk requests) does not delay or starve the others.
+ */
+public enum MessageClass {
+	/** Requests for chunks of large files, which need to be read from the disk */
+	CHUNK_REQUEST(H2HConstants.MESSAGE_THREADS_CHUNK_REQUEST, H2HConstants.MESSAGE_QUEUE_CHUNK_REQUEST),
+	/** Notifications about changes of other clients or users */
+	NOTIFICATION(H2HConstants.MESSAGE_THREADS_NOTIFICATION, H2HConstants.MESSAGE_QUEUE_NOTIFICATION),
+	/** Short, latency-critical messages like contacting a peer (liveness) and responses */
+	CONTACT(H2HConstants.MESSAGE_THREADS_CONTACT, H2HConstants.MESSAGE_QUEUE_CONTACT),
+	/** All other messages */
+	DEFAULT(H2HConstants.MESSAGE_THREADS_DEFAULT, H2HConstants.MESSAGE_QUEUE_DEFAULT);
+
+	private final int defaultThreads;
+	private final int defaultQueueCapacity;
+
+	private MessageClass(int defaultThreads, int defaultQueueCapacity) {
+		this.defaultThreads = defaultThreads;
+		this.defaultQueueCapacity = defaultQueueCapacity;
+	}
+
+	public int getDefaultThreads() {
+		return defaultThreads;
+	}
+
+	public int getDefaultQueueCapacity() {
+		return defaultQueueCapacity;
+	}
+}
@@ -0,0 +1,182 @@
+package org.hive2hive.core.network.messages;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Handles the received messages in bounded pools, one per {@link MessageClass}. If the queue of a class is
+ * full, the message is rejected immediately instead of creating more and more threads. The dispatcher also
+ * keeps some statistics (queue depth, rejected messages and handling latency) per message class.
+ */
+public class MessageDispatcher {
+
+	private static final Logger logger = LoggerFactory.getLogger(MessageDispatcher.class);
+	// idle threads are stopped after this time
+	private static final long KEEP_ALIVE_SECONDS = 30;
+
+	private final Map<MessageClass, ThreadPoolExecutor> executors;
+	private final Map<MessageClass, Statistics> statistics;
+
+	/**
+	 * Creates a dispatcher with the default limits of each {@link MessageClass}
+	 */
+	public MessageDispatcher() {
+		this.executors = new EnumMap<MessageClass, ThreadPoolExecutor>(MessageClass.class);
+		this.statistics = new EnumMap<MessageClass, Statistics>(MessageClass.class);
+		for (MessageClass messageClass : MessageClass.values()) {
+			executors.put(messageClass, createExecutor(messageClass, messageClass.getDefaultThreads(),
+					messageClass.getDefaultQueueCapacity()));
+			statistics.put(messageClass, new Statistics());
+		}
+	}
+
+	/**
+	 * Changes the limits of a message class. Messages that are already queued are still handled.
+	 * 
+	 * @param messageClass the message class to configure
+	 * @param threads the maximum number of messages of this class that are handled at the same time
+	 * @param queueCapacity the maximum number of messages of this class that wait to be handled
+	 */
+	public synchronized void configure(MessageClass messageClass, int threads, int queueCapacity) {
+		if (threads < 1 || queueCapacity < 1) {
+			throw new IllegalArgumentException("The number of threads and the queue capacity must be positive.");
+		}
+
+		ThreadPoolExecutor previous = executors.put(messageClass, createExecutor(messageClass, threads, queueCapacity));
+		previous.shutdown();
+	}
+
+	/**
+	 * Schedules a runnable (handling a message) in the pool of the given class.
+	 * 
+	 * @param messageClass the class of the message
+	 * @param runnable the handling of the message
+	 * @return <code>true</code> if the message is going to be handled, <code>false</code> if the pool is
+	 *         busy and rejected it
+	 */
+	public boolean dispatch(MessageClass messageClass, final Runnable runnable) {
+		final Statistics stats = statistics.get(messageClass);
+		final long enqueued = System.nanoTime();
+
+		ThreadPoolExecutor executor;
+		synchronized (this) {
+			executor = executors.get(messageClass);
+		}
+
+		try {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						runnable.run();
+					} catch (RuntimeException e) {
+						logger.error("Handling of a message failed.", e);
+					} finally {
+						stats.handled(System.nanoTime() - enqueued);
+					}
+				}
+			});
+			return true;
+		} catch (RejectedExecutionException e) {
+			stats.rejected.incrementAndGet();
+			logger.warn("Too many {} messages to handle. Rejecting the message.", messageClass);
+			return false;
+		}
+	}
+
+	/**
+	 * @param messageClass the message class
+	 * @return the number of messages of this class that wait to be handled
+	 */
+	public synchronized int getQueueDepth(MessageClass messageClass) {
+		return executors.get(messageClass).getQueue().size();
+	}
+
+	/**
+	 * @param messageClass the message class
+	 * @return the number of messages of this class that are being handled at the moment
+	 */
+	public synchronized int getActiveCount(MessageClass messageClass) {
+		return executors.get(messageClass).getActiveCount();
+	}
+
+	/**
+	 * @param messageClass the message class
+	 * @return the number of messages of this class that have been handled
+	 */
+	public long getHandledCount(MessageClass messageClass) {
+		return statistics.get(messageClass).handled.get();
+	}
+
+	/**
+	 * @param messageClass the message class
+	 * @return the number of messages of this class that have been rejected because the pool was busy
+	 */
+	public long getRejectedCount(MessageClass messageClass) {
+		return statistics.get(messageClass).rejected.get();
+	}
+
+	/**
+	 * @param messageClass the message class
+	 * @return the average time (in ms) between receiving and finishing a message, including the waiting time
+	 *         in the queue
+	 */
+	public double getAverageLatency(MessageClass messageClass) {
+		Statistics stats = statistics.get(messageClass);
+		long handled = stats.handled.get();
+		return handled == 0 ? 0 : stats.totalLatency.get() / (double) handled / 1000000;
+	}
+
+	/**
+	 * @param messageClass the message class
+	 * @return the longest time (in ms) between receiving and finishing a message
+	 */
+	public double getMaxLatency(MessageClass messageClass) {
+		return statistics.get(messageClass).maxLatency.get() / 1000000d;
+	}
+
+	private static ThreadPoolExecutor createExecutor(final MessageClass messageClass, int threads, int queueCapacity) {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<Runnable>(queueCapacity), new ThreadFactory() {
+					private final AtomicInteger counter = new AtomicInteger(0);
+
+					@Override
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable, "message-" + messageClass.name().toLowerCase() + "-"
+								+ counter.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		// do not keep idle threads
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	private static class Statistics {
+		private final AtomicLong handled = new AtomicLong(0);
+		private final AtomicLong rejected = new AtomicLong(0);
+		// in nanoseconds
+		private final AtomicLong totalLatency = new AtomicLong(0);
+		private final AtomicLong maxLatency = new AtomicLong(0);
+
+		private void handled(long latency) {
+			handled.incrementAndGet();
+			totalLatency.addAndGet(latency);
+			long max = maxLatency.get();
+			while (latency > max && !maxLatency.compareAndSet(max, latency)) {
+				max = maxLatency.get();
+			}
+		}
+	}
+}
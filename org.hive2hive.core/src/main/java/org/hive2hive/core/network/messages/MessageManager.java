@@ -1,6 +1,7 @@
 package org.hive2hive.core.network.messages;
 
 import java.io.IOException;
+import java.io.Serializable;
 import java.security.GeneralSecurityException;
 import java.security.InvalidKeyException;
 import java.security.PublicKey;
@@ -13,11 +14,13 @@ import org.hive2hive.core.H2HSession;
 import org.hive2hive.core.exceptions.NoSessionException;
 import org.hive2hive.core.model.versioned.HybridEncryptedContent;
 import org.hive2hive.core.network.NetworkManager;
+import org.hive2hive.core.network.data.IRetryPolicy;
 import org.hive2hive.core.network.messages.direct.BaseDirectMessage;
 import org.hive2hive.core.network.messages.direct.response.IResponseCallBackHandler;
 import org.hive2hive.core.network.messages.futures.FutureDirectListener;
 import org.hive2hive.core.network.messages.futures.FutureRoutedListener;
 import org.hive2hive.core.network.messages.request.IRequestMessage;
+import org.hive2hive.core.network.messages.session.MessageSession;
 import org.hive2hive.core.security.EncryptionUtil;
 import org.hive2hive.core.serializer.IH2HSerialize;
 import org.slf4j.Logger;
@@ -42,10 +45,12 @@ public final class MessageManager implements IMessageManager {
 	private final NetworkManager networkManager;
 	private final Map<String, Set<IResponseCallBackHandler>> callBackHandlers;
 	private final IH2HSerialize serializer;
+	private final IRetryPolicy retryPolicy;
 
-	public MessageManager(NetworkManager networkManager, IH2HSerialize serializer) {
+	public MessageManager(NetworkManager networkManager, IH2HSerialize serializer, IRetryPolicy retryPolicy) {
 		this.networkManager = networkManager;
 		this.serializer = serializer;
+		this.retryPolicy = retryPolicy;
 		this.callBackHandlers = new HashMap<>();
 	}
 
@@ -62,8 +67,12 @@ public final class MessageManager implements IMessageManager {
 		prepareMessage(message);
 		message.increaseRoutedSendingCounter();
 
-		// encrypt the message with the given public key
-		HybridEncryptedContent encryptedMessage = signAndEncryptMessage(message, targetPublicKey);
+		// encrypt the message within the session with the receiver
+		MessageSession messageSession = getMessageSession(targetPublicKey, message.getTargetKey());
+		if (messageSession == null) {
+			return false;
+		}
+		Serializable encryptedMessage = encryptMessage(message, targetPublicKey, messageSession);
 		if (encryptedMessage == null) {
 			return false;
 		}
@@ -82,7 +91,8 @@ public final class MessageManager implements IMessageManager {
 				.buffer(buffer).requestP2PConfiguration(createSendingConfiguration()).start();
 
 		// attach a future listener to log, handle and notify events
-		FutureRoutedListener listener = new FutureRoutedListener(message, targetPublicKey, this, serializer);
+		FutureRoutedListener listener = new FutureRoutedListener(message, targetPublicKey, messageSession, this,
+				serializer, retryPolicy);
 		futureSend.addListener(listener);
 		boolean success = listener.await();
 
@@ -109,8 +119,12 @@ public final class MessageManager implements IMessageManager {
 		prepareMessage(message);
 		message.increaseDirectSendingCounter();
 
-		// encrypt the message with the given public key
-		HybridEncryptedContent encryptedMessage = signAndEncryptMessage(message, targetPublicKey);
+		// encrypt the message within the session with the receiver
+		MessageSession messageSession = getMessageSession(targetPublicKey, message.getTargetAddress());
+		if (messageSession == null) {
+			return false;
+		}
+		Serializable encryptedMessage = encryptMessage(message, targetPublicKey, messageSession);
 		if (encryptedMessage == null) {
 			return false;
 		}
@@ -128,7 +142,8 @@ public final class MessageManager implements IMessageManager {
 		FutureDirect futureDirect = networkManager.getConnection().getPeer().peer().sendDirect(message.getTargetAddress())
 				.buffer(buffer).start();
 		// attach a future listener to log, handle and notify events
-		FutureDirectListener listener = new FutureDirectListener(message, targetPublicKey, this, serializer);
+		FutureDirectListener listener = new FutureDirectListener(message, targetPublicKey, messageSession, this,
+				serializer, retryPolicy);
 		futureDirect.addListener(listener);
 		boolean success = listener.await();
 
@@ -193,7 +208,48 @@ public final class MessageManager implements IMessageManager {
 		}
 	}
 
-	private HybridEncryptedContent signAndEncryptMessage(BaseMessage message, PublicKey targetPublicKey) {
+	private MessageSession getMessageSession(PublicKey targetPublicKey, Object receiver) {
+		try {
+			return networkManager.getMessageSessionManager().getOutgoing(targetPublicKey, receiver,
+					networkManager.getEncryption().getSecurityProvider());
+		} catch (GeneralSecurityException e) {
+			logger.error("Cannot create a session with the receiver. The message will not be sent.", e);
+			return null;
+		}
+	}
+
+	/**
+	 * Encrypts the message symmetrically if the receiver already accepted the session. Else, the session is
+	 * offered along with the message, which is hybrid encrypted and signed.
+	 */
+	private Serializable encryptMessage(BaseMessage message, PublicKey targetPublicKey, MessageSession messageSession) {
+		byte[] messageBytes;
+		try {
+			messageBytes = serializer.serialize(message);
+		} catch (IOException e) {
+			logger.error("An exception occured while serializing the message. The message will not be sent.", e);
+			return null;
+		}
+
+		if (messageSession.isConfirmed()) {
+			try {
+				return messageSession.encrypt(messageBytes, networkManager.getEncryption());
+			} catch (GeneralSecurityException e) {
+				logger.error("An exception occured while encrypting the message. The message will not be sent.", e);
+				return null;
+			}
+		}
+
+		try {
+			byte[] handshakeBytes = serializer.serialize(messageSession.createHandshake(messageBytes));
+			return signAndEncryptMessage(handshakeBytes, targetPublicKey);
+		} catch (IOException e) {
+			logger.error("An exception occured while serializing the handshake. The message will not be sent.", e);
+			return null;
+		}
+	}
+
+	private HybridEncryptedContent signAndEncryptMessage(byte[] messageBytes, PublicKey targetPublicKey) {
 		H2HSession session;
 		try {
 			session = networkManager.getSession();
@@ -202,13 +258,11 @@ public final class MessageManager implements IMessageManager {
 			return null;
 		}
 
-		byte[] messageBytes;
 		HybridEncryptedContent encryptedMessage;
 		try {
 			// asymmetrically encrypt message
-			messageBytes = serializer.serialize(message);
 			encryptedMessage = networkManager.getEncryption().encryptHybrid(messageBytes, targetPublicKey);
-		} catch (GeneralSecurityException | IOException e) {
+		} catch (GeneralSecurityException e) {
 			logger.error("An exception occured while encrypting the message. The message will not be sent.", e);
 			return null;
 		}
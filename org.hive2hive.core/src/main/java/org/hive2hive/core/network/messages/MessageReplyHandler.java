@@ -11,6 +11,9 @@ import org.hive2hive.core.exceptions.NoPeerConnectionException;
 import org.hive2hive.core.exceptions.NoSessionException;
 import org.hive2hive.core.model.versioned.HybridEncryptedContent;
 import org.hive2hive.core.network.NetworkManager;
+import org.hive2hive.core.network.messages.session.MessageSession;
+import org.hive2hive.core.network.messages.session.SessionEncryptedMessage;
+import org.hive2hive.core.network.messages.session.SessionHandshake;
 import org.hive2hive.core.security.EncryptionUtil;
 import org.hive2hive.core.serializer.IH2HSerialize;
 import org.hive2hive.core.serializer.SerializerUtil;
@@ -19,6 +22,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.security.GeneralSecurityException;
 import java.security.InvalidKeyException;
 import java.security.KeyPair;
 import java.security.PublicKey;
@@ -26,11 +30,14 @@ import java.security.SignatureException;
 
 /**
  * This is the general message handler of each node. It checks if received
- * message is ok (depends on message e.g. routed to correct node). If accepted
- * the message gets independently handled in a own thread. As soon as the
- * handler thread has started the reply handler gives immediately response to
- * the sender node. This design allows a quick and non-blocking message
- * handling.
+ * message is ok (depends on message e.g. routed to correct node). Messages are
+ * either hybrid encrypted and signed or (if the sender offered a session
+ * before) symmetrically encrypted and authenticated. If accepted
+ * the message gets independently handled by the {@link MessageDispatcher} in
+ * the bounded pool of its {@link MessageClass}. As soon as the message is
+ * queued the reply handler gives immediately response to the sender node. If
+ * the pool is busy, the message is rejected with {@link AcceptanceReply#ASK_LATER}.
+ * This design allows a quick and non-blocking message handling.
  *
  * @author Nendor
  * @author Seppi
@@ -43,11 +50,22 @@ public class MessageReplyHandler implements RawDataReply, ObjectDataReply
 
 	private final NetworkManager networkManager;
 	private final IH2HSerialize serializer;
+	private final MessageDispatcher dispatcher;
 
 	public MessageReplyHandler(NetworkManager networkManager, IH2HSerialize serializer)
 	{
 		this.networkManager = networkManager;
 		this.serializer = serializer;
+		this.dispatcher = new MessageDispatcher();
+	}
+
+	/**
+	 * @return the dispatcher that handles the accepted messages (e.g. to configure it or to read its
+	 *         statistics)
+	 */
+	public MessageDispatcher getDispatcher()
+	{
+		return dispatcher;
 	}
 
 	@Override
@@ -90,7 +108,7 @@ public class MessageReplyHandler implements RawDataReply, ObjectDataReply
 	@Override
 	public Object reply(PeerAddress sender, Object request)
 	{
-		if (!(request instanceof HybridEncryptedContent))
+		if (!(request instanceof HybridEncryptedContent) && !(request instanceof SessionEncryptedMessage))
 		{
 			logger.error("Received unknown object {}", request);
 			return null;
@@ -115,6 +133,11 @@ public class MessageReplyHandler implements RawDataReply, ObjectDataReply
 			return AcceptanceReply.FAILURE;
 		}
 
+		if (request instanceof SessionEncryptedMessage)
+		{
+			return replySessionMessage(sender, (SessionEncryptedMessage) request);
+		}
+
 		HybridEncryptedContent encryptedMessage = (HybridEncryptedContent) request;
 
 		// get signature
@@ -142,9 +165,16 @@ public class MessageReplyHandler implements RawDataReply, ObjectDataReply
 
 		// deserialize decrypted message
 		Object message = null;
+		SessionHandshake handshake = null;
 		try
 		{
 			message = serializer.deserialize(decryptedMessage);
+			if (message instanceof SessionHandshake)
+			{
+				// the sender offers a session for the next messages
+				handshake = (SessionHandshake) message;
+				message = serializer.deserialize(handshake.getMessage());
+			}
 		}
 		catch(IOException | ClassNotFoundException e)
 		{
@@ -164,39 +194,18 @@ public class MessageReplyHandler implements RawDataReply, ObjectDataReply
 					return AcceptanceReply.FAILURE_SIGNATURE;
 				}
 
-				// give a network manager reference to work (verify, handle)
-				try
-				{
-					receivedMessage.setNetworkManager(networkManager);
-				}
-				catch(NoPeerConnectionException e)
-				{
-					logger.error("Cannot process the message because the peer is not connected.", e);
-					return AcceptanceReply.FAILURE;
-				}
-
-				// check if message gets accepted
-				AcceptanceReply reply = receivedMessage.accept();
-				if (AcceptanceReply.OK == reply)
-				{
-					// handle message in own thread
-					logger.debug("Received and accepted the message. Node ID = '{}'.",
-							networkManager.getNodeId());
-					new Thread(receivedMessage).start();
-				}
-				else
-				{
-					logger.warn(
-							"Received but denied a message. Acceptance reply = '{}', Node ID = '{}'.",
-							reply, networkManager.getNodeId());
-				}
-
-				return reply;
+				registerSession(handshake, senderId, sender);
+				receivedMessage.setVerifiedSenderId(senderId);
+				return acceptAndDispatch(receivedMessage);
 			}
 			else
 			{
-				new Thread(new VerifyMessage(senderId, decryptedMessage, signature, receivedMessage))
-						.start();
+				// verify (needs to fetch the public key) and handle the message in the pool of its class
+				if (!dispatcher.dispatch(receivedMessage.getMessageClass(), new VerifyMessage(senderId,
+						decryptedMessage, signature, receivedMessage, handshake, sender)))
+				{
+					return AcceptanceReply.ASK_LATER;
+				}
 				return AcceptanceReply.OK_PROVISIONAL;
 			}
 		}
@@ -207,6 +216,109 @@ public class MessageReplyHandler implements RawDataReply, ObjectDataReply
 		}
 	}
 
+	/**
+	 * Handles a message that is symmetrically encrypted within a session. The message authentication code
+	 * replaces the signature, the sender has been authenticated when it offered the session.
+	 */
+	private Object replySessionMessage(PeerAddress sender, SessionEncryptedMessage encryptedMessage)
+	{
+		MessageSession messageSession = networkManager.getMessageSessionManager().getIncoming(
+				encryptedMessage.getSessionId(), sender);
+		if (messageSession == null)
+		{
+			logger.debug("Received a message within an unknown session. Node ID = '{}'.",
+					networkManager.getNodeId());
+			return AcceptanceReply.UNKNOWN_SESSION;
+		}
+
+		// symmetrically decrypt message
+		byte[] decryptedMessage = null;
+		try
+		{
+			decryptedMessage = messageSession.decrypt(encryptedMessage, networkManager.getEncryption());
+		}
+		catch(SignatureException e)
+		{
+			logger.error("Message within session '{}' has a wrong authentication code. Node ID = '{}'.",
+					encryptedMessage.getSessionId(), networkManager.getNodeId());
+			return AcceptanceReply.FAILURE_SIGNATURE;
+		}
+		catch(GeneralSecurityException e)
+		{
+			logger.warn("Decryption of message failed.", e);
+			return AcceptanceReply.FAILURE_DECRYPTION;
+		}
+
+		// deserialize decrypted message
+		Object message = null;
+		try
+		{
+			message = serializer.deserialize(decryptedMessage);
+		}
+		catch(IOException | ClassNotFoundException e)
+		{
+			logger.error("Message could not be deserialized.", e);
+			return AcceptanceReply.FAILURE_DESERIALIZATION;
+		}
+
+		if (message instanceof BaseMessage)
+		{
+			BaseMessage receivedMessage = (BaseMessage) message;
+			// the sender has been verified when the session was offered
+			receivedMessage.setVerifiedSenderId(messageSession.getUserId());
+			return acceptAndDispatch(receivedMessage);
+		}
+		else
+		{
+			logger.error("Received unknown object.");
+			return null;
+		}
+	}
+
+	private AcceptanceReply acceptAndDispatch(BaseMessage receivedMessage)
+	{
+		// give a network manager reference to work (verify, handle)
+		try
+		{
+			receivedMessage.setNetworkManager(networkManager);
+		}
+		catch(NoPeerConnectionException e)
+		{
+			logger.error("Cannot process the message because the peer is not connected.", e);
+			return AcceptanceReply.FAILURE;
+		}
+
+		// check if message gets accepted
+		AcceptanceReply reply = receivedMessage.accept();
+		if (AcceptanceReply.OK == reply)
+		{
+			// handle message in the pool of its class
+			if (!dispatcher.dispatch(receivedMessage.getMessageClass(), receivedMessage))
+			{
+				return AcceptanceReply.ASK_LATER;
+			}
+			logger.debug("Received and accepted the message. Node ID = '{}'.",
+					networkManager.getNodeId());
+		}
+		else
+		{
+			logger.warn(
+					"Received but denied a message. Acceptance reply = '{}', Node ID = '{}'.",
+					reply, networkManager.getNodeId());
+		}
+
+		return reply;
+	}
+
+	private void registerSession(SessionHandshake handshake, String senderId, PeerAddress sender)
+	{
+		if (handshake != null)
+		{
+			// the signature has been verified, thus the session really belongs to the sender
+			networkManager.getMessageSessionManager().registerIncoming(handshake, senderId, sender);
+		}
+	}
+
 	private boolean verifySignature(String senderId, byte[] decryptedMessage, byte[] signature)
 	{
 		try
@@ -240,16 +352,22 @@ public class MessageReplyHandler implements RawDataReply, ObjectDataReply
 		private final byte[] decryptedMessage;
 		private final byte[] signature;
 		private final BaseMessage message;
+		private final SessionHandshake handshake;
+		private final PeerAddress sender;
 
 		public VerifyMessage(String senderId,
 				byte[] decryptedMessage,
 				byte[] signature,
-				BaseMessage message)
+				BaseMessage message,
+				SessionHandshake handshake,
+				PeerAddress sender)
 		{
 			this.senderId = senderId;
 			this.decryptedMessage = decryptedMessage;
 			this.signature = signature;
 			this.message = message;
+			this.handshake = handshake;
+			this.sender = sender;
 		}
 
 		@Override
@@ -260,6 +378,9 @@ public class MessageReplyHandler implements RawDataReply, ObjectDataReply
 				return;
 			}
 
+			registerSession(handshake, senderId, sender);
+			message.setVerifiedSenderId(senderId);
+
 			// give a network manager reference to work (verify, handle)
 			try
 			{
@@ -275,10 +396,10 @@ public class MessageReplyHandler implements RawDataReply, ObjectDataReply
 			AcceptanceReply reply = message.accept();
 			if (AcceptanceReply.OK == reply)
 			{
-				// handle message in own thread
+				// already running in the pool of the message class
 				logger.debug("Received and accepted the message. Node ID = '{}'.",
 						networkManager.getNodeId());
-				new Thread(message).start();
+				message.run();
 			}
 			else
 			{
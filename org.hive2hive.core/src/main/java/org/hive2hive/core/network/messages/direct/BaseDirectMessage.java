@@ -3,6 +3,8 @@ package org.hive2hive.core.network.messages.direct;
 import net.tomp2p.peers.PeerAddress;
 
 import org.hive2hive.core.H2HConstants;
+import org.hive2hive.core.network.data.IRetryPolicy;
+import org.hive2hive.core.network.data.IRetryPolicy.Operation;
 import org.hive2hive.core.network.messages.AcceptanceReply;
 import org.hive2hive.core.network.messages.BaseMessage;
 import org.hive2hive.core.network.messages.MessageManager;
@@ -144,6 +146,12 @@ public abstract class BaseDirectMessage extends BaseMessage {
 			case FAILURE_DESERIALIZATION:
 				logger.warn("Message cannot be deserialized by the target. Peer address = '{}'.", getTargetAddress());
 				return canResendDirect();
+			case ASK_LATER:
+				logger.debug("Target is busy. Peer address = '{}'.", getTargetAddress());
+				return canResendDirect();
+			case UNKNOWN_SESSION:
+				logger.debug("Target does not know the session. Peer address = '{}'.", getTargetAddress());
+				return canResendDirect();
 			case OK:
 				logger.error("Trying to handle a AcceptanceReply.OK as a failure.");
 				throw new IllegalArgumentException("AcceptanceReply.OK is not a failure.");
@@ -153,6 +161,14 @@ public abstract class BaseDirectMessage extends BaseMessage {
 		}
 	}
 
+	@Override
+	public long getResendDelayMs(AcceptanceReply reply, IRetryPolicy retryPolicy) {
+		if (reply != AcceptanceReply.ASK_LATER) {
+			return 0;
+		}
+		return retryPolicy.getBackoffMs(Operation.MESSAGE, Math.max(0, directSendingCounter - 1));
+	}
+
 	private boolean canResendDirect() {
 		return directSendingCounter < H2HConstants.MAX_MESSAGE_SENDING_DIRECT;
 	}
@@ -4,6 +4,7 @@ import net.tomp2p.peers.PeerAddress;
 
 import org.hive2hive.core.events.framework.interfaces.IUserEventGenerator;
 import org.hive2hive.core.events.implementations.UserLoginEvent;
+import org.hive2hive.core.network.messages.MessageClass;
 import org.hive2hive.core.network.messages.request.DirectRequestMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -39,4 +40,8 @@ public class ContactPeerMessage extends DirectRequestMessage implements IUserEve
 		sendDirectResponse(createResponse(evidenceContent));
 	}
 
+	@Override
+	public MessageClass getMessageClass() {
+		return MessageClass.CONTACT;
+	}
 }
@@ -4,6 +4,7 @@ import net.tomp2p.peers.PeerAddress;
 
 import org.hive2hive.core.events.framework.interfaces.IUserEventGenerator;
 import org.hive2hive.core.events.implementations.UserLogoutEvent;
+import org.hive2hive.core.network.messages.MessageClass;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -30,4 +31,8 @@ public class LogoutNotificationMessage extends BaseDirectMessage implements IUse
 		logger.debug("Published logout event of user {} with gone client {}", currentUser, senderAddress);
 	}
 
+	@Override
+	public MessageClass getMessageClass() {
+		return MessageClass.NOTIFICATION;
+	}
 }
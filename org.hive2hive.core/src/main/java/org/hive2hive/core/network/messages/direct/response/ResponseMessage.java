@@ -6,6 +6,7 @@ import java.util.Set;
 import net.tomp2p.peers.PeerAddress;
 
 import org.hive2hive.core.network.messages.AcceptanceReply;
+import org.hive2hive.core.network.messages.MessageClass;
 import org.hive2hive.core.network.messages.direct.BaseDirectMessage;
 import org.hive2hive.core.network.messages.request.IRequestMessage;
 import org.slf4j.Logger;
@@ -89,4 +90,8 @@ public class ResponseMessage extends BaseDirectMessage {
 		}
 	}
 
+	@Override
+	public MessageClass getMessageClass() {
+		return MessageClass.CONTACT;
+	}
 }
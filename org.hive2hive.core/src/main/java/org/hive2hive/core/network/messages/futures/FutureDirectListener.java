@@ -8,10 +8,13 @@ import net.tomp2p.futures.BaseFutureAdapter;
 import net.tomp2p.futures.FutureDirect;
 
 import org.hive2hive.core.H2HConstants;
+import org.hive2hive.core.network.data.IRetryPolicy;
+import org.hive2hive.core.network.data.futures.DataFuture;
 import org.hive2hive.core.network.messages.AcceptanceReply;
 import org.hive2hive.core.network.messages.BaseMessage;
 import org.hive2hive.core.network.messages.MessageManager;
 import org.hive2hive.core.network.messages.direct.BaseDirectMessage;
+import org.hive2hive.core.network.messages.session.MessageSession;
 import org.hive2hive.core.serializer.IH2HSerialize;
 import org.hive2hive.core.serializer.SerializerUtil;
 import org.slf4j.Logger;
@@ -33,7 +36,8 @@ import org.slf4j.LoggerFactory;
  * {@link BaseDirectMessage#handleSendingFailure(AcceptanceReply)} of the sent message recommends to re-send.
  * Depending on the {@link BaseDirectMessage#needsRedirectedSend()} flag a possible fall back is to use the
  * routing mechanism of {@link MessageManager#send(BaseMessage, PublicKey)}. For that another adapter
- * (see {@link FutureDirectListener}) is attached.
+ * (see {@link FutureDirectListener}) is attached. A direct re-send to a busy receiver is released after the
+ * backoff of {@link BaseMessage#getResendDelayMs(AcceptanceReply, IRetryPolicy)}.
  * 
  * @author Seppi, Nico
  */
@@ -43,9 +47,11 @@ public class FutureDirectListener extends BaseFutureAdapter<FutureDirect> {
 
 	private final BaseDirectMessage message;
 	private final PublicKey receiverPublicKey;
+	private final MessageSession messageSession;
 	private final MessageManager messageManager;
 	private final CountDownLatch latch;
 	private final IH2HSerialize serializer;
+	private final IRetryPolicy retryPolicy;
 	private DeliveryState state;
 
 	private enum DeliveryState {
@@ -62,16 +68,20 @@ public class FutureDirectListener extends BaseFutureAdapter<FutureDirect> {
 	 *            message which has been sent (needed for re-sending)
 	 * @param receiverPublicKey
 	 *            the receivers public key which was used for encryption
+	 * @param messageSession the session with the receiver that was used to encrypt the message
 	 * @param messageManager
 	 *            reference needed for re-sending
 	 * @param serializer the serializer
+	 * @param retryPolicy the policy that determines the backoff before a message is re-sent to a busy receiver
 	 */
-	public FutureDirectListener(BaseDirectMessage message, PublicKey receiverPublicKey, MessageManager messageManager,
-			IH2HSerialize serializer) {
+	public FutureDirectListener(BaseDirectMessage message, PublicKey receiverPublicKey, MessageSession messageSession,
+			MessageManager messageManager, IH2HSerialize serializer, IRetryPolicy retryPolicy) {
 		this.message = message;
 		this.receiverPublicKey = receiverPublicKey;
+		this.messageSession = messageSession;
 		this.messageManager = messageManager;
 		this.serializer = serializer;
+		this.retryPolicy = retryPolicy;
 		this.latch = new CountDownLatch(1);
 	}
 
@@ -116,6 +126,15 @@ public class FutureDirectListener extends BaseFutureAdapter<FutureDirect> {
 	@Override
 	public void operationComplete(FutureDirect future) throws Exception {
 		AcceptanceReply reply = extractAcceptanceReply(future);
+		if (reply == AcceptanceReply.OK) {
+			// the receiver knows the session now (the provisional ok does not guarantee that)
+			messageSession.confirm();
+		} else if (reply == AcceptanceReply.UNKNOWN_SESSION) {
+			// a new session gets offered at the re-send
+			messageSession.invalidate();
+		}
+
+		long delayMs = 0;
 		if (reply == AcceptanceReply.OK || reply == AcceptanceReply.OK_PROVISIONAL) {
 			// notify the listener about the success of sending the message
 			state = DeliveryState.SUCCESS;
@@ -125,6 +144,8 @@ public class FutureDirectListener extends BaseFutureAdapter<FutureDirect> {
 			if (directResending) {
 				// re-send directly the message
 				state = DeliveryState.RESEND_DIRECT;
+				delayMs = message.getResendDelayMs(reply, retryPolicy);
+				logger.debug("Try to resend the message directly in {} ms.", delayMs);
 			} else {
 				// check if the routed sending fall back is allowed
 				if (message.needsRedirectedSend()) {
@@ -140,7 +161,12 @@ public class FutureDirectListener extends BaseFutureAdapter<FutureDirect> {
 			}
 		}
 
-		latch.countDown();
+		DataFuture.schedule(new Runnable() {
+			@Override
+			public void run() {
+				latch.countDown();
+			}
+		}, delayMs);
 	}
 
 	/**
@@ -12,9 +12,12 @@ import net.tomp2p.dht.FutureSend;
 import net.tomp2p.futures.BaseFutureAdapter;
 
 import org.hive2hive.core.H2HConstants;
+import org.hive2hive.core.network.data.IRetryPolicy;
+import org.hive2hive.core.network.data.futures.DataFuture;
 import org.hive2hive.core.network.messages.AcceptanceReply;
 import org.hive2hive.core.network.messages.BaseMessage;
 import org.hive2hive.core.network.messages.MessageManager;
+import org.hive2hive.core.network.messages.session.MessageSession;
 import org.hive2hive.core.serializer.IH2HSerialize;
 import org.hive2hive.core.serializer.SerializerUtil;
 import org.slf4j.Logger;
@@ -32,7 +35,9 @@ import org.slf4j.LoggerFactory;
  * message fails the message gets re-send as long as {@link BaseMessage#handleSendingFailure(AcceptanceReply)}
  * of the sent message recommends to re-send.
  * Note that resending must happen in the same thread as the {@link FutureRoutedListener#await()} method is
- * called because the callback threads should not be used for further long-calling procedures.
+ * called because the callback threads should not be used for further long-calling procedures. A re-send to a
+ * busy receiver is released after the backoff of {@link BaseMessage#getResendDelayMs(AcceptanceReply,
+ * IRetryPolicy)}.
  * 
  * @author Seppi, Nico
  */
@@ -42,9 +47,11 @@ public class FutureRoutedListener extends BaseFutureAdapter<FutureSend> {
 
 	private final BaseMessage message;
 	private final PublicKey receiverPublicKey;
+	private final MessageSession messageSession;
 	private final MessageManager messageManager;
 	private final CountDownLatch latch;
 	private final IH2HSerialize serializer;
+	private final IRetryPolicy retryPolicy;
 	private DeliveryState state;
 
 	private enum DeliveryState {
@@ -59,16 +66,20 @@ public class FutureRoutedListener extends BaseFutureAdapter<FutureSend> {
 	 * @param message
 	 *            message which has been sent (needed for re-sending)
 	 * @param receiverPublicKey the receivers public key
+	 * @param messageSession the session with the receiver that was used to encrypt the message
 	 * @param messageManager
 	 *            reference needed for re-sending
 	 * @param serializer the serializer
+	 * @param retryPolicy the policy that determines the backoff before a message is re-sent to a busy receiver
 	 */
-	public FutureRoutedListener(BaseMessage message, PublicKey receiverPublicKey, MessageManager messageManager,
-			IH2HSerialize serializer) {
+	public FutureRoutedListener(BaseMessage message, PublicKey receiverPublicKey, MessageSession messageSession,
+			MessageManager messageManager, IH2HSerialize serializer, IRetryPolicy retryPolicy) {
 		this.message = message;
 		this.receiverPublicKey = receiverPublicKey;
+		this.messageSession = messageSession;
 		this.messageManager = messageManager;
 		this.serializer = serializer;
+		this.retryPolicy = retryPolicy;
 		this.latch = new CountDownLatch(1);
 	}
 
@@ -109,6 +120,14 @@ public class FutureRoutedListener extends BaseFutureAdapter<FutureSend> {
 	@Override
 	public void operationComplete(FutureSend future) throws Exception {
 		AcceptanceReply reply = extractAcceptanceReply(future);
+		if (reply == AcceptanceReply.OK) {
+			// the receiver knows the session now (the provisional ok does not guarantee that)
+			messageSession.confirm();
+		} else if (reply == AcceptanceReply.UNKNOWN_SESSION) {
+			// a new session gets offered at the re-send
+			messageSession.invalidate();
+		}
+
 		if (reply == AcceptanceReply.OK || reply == AcceptanceReply.OK_PROVISIONAL) {
 			// notify the listener about the success of sending the message
 			state = DeliveryState.SUCCESS;
@@ -118,9 +137,15 @@ public class FutureRoutedListener extends BaseFutureAdapter<FutureSend> {
 			boolean resending = message.handleSendingFailure(reply);
 			if (resending) {
 				// re-send the message
-				logger.debug("Try to resend the message.");
 				state = DeliveryState.RESEND;
-				latch.countDown();
+				long delayMs = message.getResendDelayMs(reply, retryPolicy);
+				logger.debug("Try to resend the message in {} ms.", delayMs);
+				DataFuture.schedule(new Runnable() {
+					@Override
+					public void run() {
+						latch.countDown();
+					}
+				}, delayMs);
 			} else {
 				// notify the listener about the fail of sending the message
 				logger.debug("No resending of the message. It failed.");
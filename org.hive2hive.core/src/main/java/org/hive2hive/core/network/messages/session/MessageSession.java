@@ -0,0 +1,172 @@
+package org.hive2hive.core.network.messages.session;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SignatureException;
+import java.util.UUID;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.hive2hive.core.H2HConstants;
+import org.hive2hive.core.model.versioned.EncryptedNetworkContent;
+import org.hive2hive.core.security.EncryptionUtil;
+import org.hive2hive.core.security.IH2HEncryption;
+
+/**
+ * A session between two peers. It holds the symmetric keys to encrypt and authenticate the messages. A new
+ * session is offered to the receiver with a {@link SessionHandshake} inside of a hybrid encrypted and signed
+ * message. After the receiver accepted it, the messages are encrypted with AES and authenticated with a MAC
+ * only, which saves the expensive RSA operations on both sides.
+ */
+public class MessageSession {
+
+	private final String sessionId;
+	private final SecretKey encryptionKey;
+	private final SecretKey macKey;
+	private final long lifetime;
+	private final long expiresAt;
+	// the user that offered the session, only known at the receiver
+	private final String userId;
+
+	// the receiver accepted the session, only used at the sender
+	private volatile boolean confirmed = false;
+	private volatile boolean invalid = false;
+
+	/**
+	 * Creates a new session with random keys
+	 * 
+	 * @param lifetime the time (in ms) the session can be used
+	 * @param securityProvider the security provider (e.g. "BC" for bouncy castle)
+	 * @throws GeneralSecurityException if the keys cannot be generated
+	 */
+	public MessageSession(long lifetime, String securityProvider) throws GeneralSecurityException {
+		this.sessionId = UUID.randomUUID().toString();
+		this.encryptionKey = EncryptionUtil.generateAESKey(H2HConstants.KEYLENGTH_MESSAGE_SESSION, securityProvider);
+		if (encryptionKey == null) {
+			throw new GeneralSecurityException("Cannot generate the session key.");
+		}
+		this.macKey = EncryptionUtil.generateMacKey();
+		this.lifetime = lifetime;
+		this.expiresAt = System.currentTimeMillis() + lifetime;
+		this.userId = null;
+	}
+
+	/**
+	 * Creates the session that has been offered by the sender
+	 * 
+	 * @param handshake the received handshake
+	 * @param userId the user that signed the handshake
+	 * @param lifetime the time (in ms) the session can be used
+	 */
+	public MessageSession(SessionHandshake handshake, String userId, long lifetime) {
+		this.sessionId = handshake.getSessionId();
+		this.encryptionKey = new SecretKeySpec(handshake.getEncryptionKey(), "AES");
+		this.macKey = EncryptionUtil.decodeMacKey(handshake.getMacKey());
+		this.lifetime = lifetime;
+		this.expiresAt = System.currentTimeMillis() + lifetime;
+		this.userId = userId;
+	}
+
+	public String getSessionId() {
+		return sessionId;
+	}
+
+	/**
+	 * @return the user that offered the session or <code>null</code> if the session has been created here
+	 */
+	public String getUserId() {
+		return userId;
+	}
+
+	/**
+	 * Wraps a message into a handshake that offers this session to the receiver
+	 * 
+	 * @param message the serialized message
+	 * @return the handshake that has to be hybrid encrypted and signed
+	 */
+	public SessionHandshake createHandshake(byte[] message) {
+		return new SessionHandshake(sessionId, encryptionKey.getEncoded(), macKey.getEncoded(), lifetime, message);
+	}
+
+	/**
+	 * Encrypts a message with the key of this session and authenticates it
+	 * 
+	 * @param message the serialized message
+	 * @param encryption the encryption
+	 * @return the encrypted message
+	 * @throws GeneralSecurityException if the message cannot be encrypted
+	 */
+	public SessionEncryptedMessage encrypt(byte[] message, IH2HEncryption encryption) throws GeneralSecurityException {
+		EncryptedNetworkContent encrypted = encryption.encryptAES(message, encryptionKey);
+		byte[] mac = EncryptionUtil.mac(
+				authenticatedData(sessionId, encrypted.getInitVector(), encrypted.getCipherContent()), macKey,
+				encryption.getSecurityProvider());
+		return new SessionEncryptedMessage(sessionId, encrypted.getCipherContent(), encrypted.getInitVector(), mac);
+	}
+
+	/**
+	 * Verifies and decrypts a message that has been encrypted within this session
+	 * 
+	 * @param message the encrypted message
+	 * @param encryption the encryption
+	 * @return the serialized message
+	 * @throws SignatureException if the message authentication code is wrong
+	 * @throws GeneralSecurityException if the message cannot be decrypted
+	 */
+	public byte[] decrypt(SessionEncryptedMessage message, IH2HEncryption encryption) throws GeneralSecurityException {
+		byte[] data = authenticatedData(message.getSessionId(), message.getInitVector(), message.getCipherContent());
+		if (message.getMac() == null
+				|| !EncryptionUtil.verifyMac(data, message.getMac(), macKey, encryption.getSecurityProvider())) {
+			throw new SignatureException("The message authentication code is wrong.");
+		}
+
+		return encryption.decryptAESRaw(new EncryptedNetworkContent(message.getCipherContent(), message.getInitVector()),
+				encryptionKey);
+	}
+
+	/**
+	 * @return <code>true</code> if the session is not expired and has not been invalidated
+	 */
+	public boolean isValid() {
+		return !invalid && System.currentTimeMillis() < expiresAt;
+	}
+
+	/**
+	 * @return <code>true</code> if the receiver accepted the session
+	 */
+	public boolean isConfirmed() {
+		return confirmed;
+	}
+
+	/**
+	 * Marks that the receiver accepted the session, the next messages can be encrypted symmetrically
+	 */
+	public void confirm() {
+		confirmed = true;
+	}
+
+	/**
+	 * Marks that the receiver does not know the session (anymore), a new one has to be negotiated
+	 */
+	public void invalidate() {
+		invalid = true;
+	}
+
+	/**
+	 * The session id, the initialization vector and the encrypted content (each with its length to prevent
+	 * moving bytes from one part to the other)
+	 */
+	private static byte[] authenticatedData(String sessionId, byte[] initVector, byte[] cipherContent) {
+		byte[] id = sessionId == null ? new byte[0] : sessionId.getBytes(StandardCharsets.UTF_8);
+		byte[] iv = initVector == null ? new byte[0] : initVector;
+		byte[] content = cipherContent == null ? new byte[0] : cipherContent;
+
+		ByteBuffer buffer = ByteBuffer.allocate(12 + id.length + iv.length + content.length);
+		buffer.putInt(id.length).put(id);
+		buffer.putInt(iv.length).put(iv);
+		buffer.putInt(content.length).put(content);
+		return buffer.array();
+	}
+}
@@ -0,0 +1,165 @@
+package org.hive2hive.core.network.messages.session;
+
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import net.tomp2p.peers.PeerAddress;
+
+import org.hive2hive.core.H2HConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the sessions of a peer. Outgoing sessions are cached per receiver (its public key and its peer
+ * address or the key the message is routed to). Incoming sessions are bound to the peer that offered them.
+ * Sessions expire after a while, such that the keys are renewed regularly.
+ */
+public class MessageSessionManager {
+
+	private static final Logger logger = LoggerFactory.getLogger(MessageSessionManager.class);
+
+	private final long lifetime;
+	private final ConcurrentMap<Receiver, MessageSession> outgoing;
+	private final ConcurrentMap<String, IncomingSession> incoming;
+
+	public MessageSessionManager() {
+		this(H2HConstants.MESSAGE_SESSION_LIFETIME_MS);
+	}
+
+	/**
+	 * @param lifetime the time (in ms) a session can be used
+	 */
+	public MessageSessionManager(long lifetime) {
+		this.lifetime = lifetime;
+		this.outgoing = new ConcurrentHashMap<Receiver, MessageSession>();
+		this.incoming = new ConcurrentHashMap<String, IncomingSession>();
+	}
+
+	/**
+	 * Returns the session to send a message to the receiver. If there is no valid session yet, a new one is
+	 * created. As long as the returned session is not confirmed, it needs to be offered with a
+	 * {@link SessionHandshake}.
+	 * 
+	 * @param receiverKey the public key of the receiving user
+	 * @param receiver the address of the receiving peer or the key the message is routed to
+	 * @param securityProvider the security provider (e.g. "BC" for bouncy castle)
+	 * @return a valid session
+	 * @throws GeneralSecurityException if a new session cannot be created
+	 */
+	public MessageSession getOutgoing(PublicKey receiverKey, Object receiver, String securityProvider)
+			throws GeneralSecurityException {
+		Receiver key = new Receiver(receiverKey, receiver);
+		while (true) {
+			MessageSession existing = outgoing.get(key);
+			if (existing != null && existing.isValid()) {
+				return existing;
+			}
+
+			MessageSession created = new MessageSession(lifetime, securityProvider);
+			if (existing == null ? outgoing.putIfAbsent(key, created) == null : outgoing.replace(key, existing, created)) {
+				removeExpired();
+				return created;
+			}
+			// another thread was faster
+		}
+	}
+
+	/**
+	 * Accepts the session a peer offered after the signature of the handshake has been verified
+	 * 
+	 * @param handshake the verified handshake
+	 * @param senderId the user that signed the handshake
+	 * @param sender the peer that sent the handshake
+	 */
+	public void registerIncoming(SessionHandshake handshake, String senderId, PeerAddress sender) {
+		removeExpired();
+		// never keep a session longer than this peer allows
+		MessageSession session = new MessageSession(handshake, senderId, Math.min(handshake.getLifetime(), lifetime));
+		incoming.put(handshake.getSessionId(), new IncomingSession(session, sender));
+		logger.debug("Accepted message session from user '{}'.", senderId);
+	}
+
+	/**
+	 * @param sessionId the id of the session
+	 * @param sender the peer that sent a message within the session
+	 * @return the session or <code>null</code> if the session is unknown, expired or belongs to another peer
+	 */
+	public MessageSession getIncoming(String sessionId, PeerAddress sender) {
+		if (sessionId == null) {
+			return null;
+		}
+
+		IncomingSession entry = incoming.get(sessionId);
+		if (entry == null) {
+			return null;
+		} else if (!entry.session.isValid()) {
+			incoming.remove(sessionId, entry);
+			return null;
+		} else if (!entry.peer.equals(sender)) {
+			logger.warn("Session '{}' is used by another peer than the one that offered it.", sessionId);
+			return null;
+		}
+		return entry.session;
+	}
+
+	/**
+	 * Forgets all sessions (e.g. when another user logs in)
+	 */
+	public void clear() {
+		outgoing.clear();
+		incoming.clear();
+	}
+
+	private void removeExpired() {
+		Iterator<MessageSession> outgoingIterator = outgoing.values().iterator();
+		while (outgoingIterator.hasNext()) {
+			if (!outgoingIterator.next().isValid()) {
+				outgoingIterator.remove();
+			}
+		}
+
+		Iterator<IncomingSession> incomingIterator = incoming.values().iterator();
+		while (incomingIterator.hasNext()) {
+			if (!incomingIterator.next().session.isValid()) {
+				incomingIterator.remove();
+			}
+		}
+	}
+
+	private static class IncomingSession {
+		private final MessageSession session;
+		private final PeerAddress peer;
+
+		public IncomingSession(MessageSession session, PeerAddress peer) {
+			this.session = session;
+			this.peer = peer;
+		}
+	}
+
+	private static class Receiver {
+		private final PublicKey publicKey;
+		private final Object address;
+
+		public Receiver(PublicKey publicKey, Object address) {
+			this.publicKey = publicKey;
+			this.address = address;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Receiver)) {
+				return false;
+			}
+			Receiver other = (Receiver) obj;
+			return publicKey.equals(other.publicKey) && address.equals(other.address);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * publicKey.hashCode() + address.hashCode();
+		}
+	}
+}
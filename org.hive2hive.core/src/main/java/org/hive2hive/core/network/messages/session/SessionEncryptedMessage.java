@@ -0,0 +1,44 @@
+package org.hive2hive.core.network.messages.session;
+
+import java.io.Serializable;
+
+/**
+ * A message that is symmetrically encrypted with the key of a session. The encrypted content is
+ * authenticated with a message authentication code (MAC) instead of a signature.
+ */
+public class SessionEncryptedMessage implements Serializable {
+
+	private static final long serialVersionUID = 6183092719520387435L;
+
+	private final String sessionId;
+	private final byte[] cipherContent;
+	private final byte[] initVector;
+	private final byte[] mac;
+
+	public SessionEncryptedMessage(String sessionId, byte[] cipherContent, byte[] initVector, byte[] mac) {
+		this.sessionId = sessionId;
+		this.cipherContent = cipherContent;
+		this.initVector = initVector;
+		this.mac = mac;
+	}
+
+	public String getSessionId() {
+		return sessionId;
+	}
+
+	public byte[] getCipherContent() {
+		return cipherContent;
+	}
+
+	public byte[] getInitVector() {
+		return initVector;
+	}
+
+	/**
+	 * @return the message authentication code over the session id, the initialization vector and the
+	 *         encrypted content
+	 */
+	public byte[] getMac() {
+		return mac;
+	}
+}
@@ -0,0 +1,60 @@
+package org.hive2hive.core.network.messages.session;
+
+import java.io.Serializable;
+
+/**
+ * Offers a new session key to the receiver of a message. The handshake wraps the serialized message and is
+ * sent (hybrid encrypted and signed) instead of the plain message. As soon as the receiver verified the
+ * signature, it knows that the session key belongs to the sender and accepts messages that are
+ * symmetrically encrypted with it (see {@link SessionEncryptedMessage}).
+ */
+public class SessionHandshake implements Serializable {
+
+	private static final long serialVersionUID = -2795616398541728386L;
+
+	private final String sessionId;
+	private final byte[] encryptionKey;
+	private final byte[] macKey;
+	private final long lifetime;
+	private final byte[] message;
+
+	public SessionHandshake(String sessionId, byte[] encryptionKey, byte[] macKey, long lifetime, byte[] message) {
+		this.sessionId = sessionId;
+		this.encryptionKey = encryptionKey;
+		this.macKey = macKey;
+		this.lifetime = lifetime;
+		this.message = message;
+	}
+
+	public String getSessionId() {
+		return sessionId;
+	}
+
+	/**
+	 * @return the encoded AES key to encrypt the messages
+	 */
+	public byte[] getEncryptionKey() {
+		return encryptionKey;
+	}
+
+	/**
+	 * @return the encoded key to authenticate the messages
+	 */
+	public byte[] getMacKey() {
+		return macKey;
+	}
+
+	/**
+	 * @return the time (in ms) the sender is going to use the session
+	 */
+	public long getLifetime() {
+		return lifetime;
+	}
+
+	/**
+	 * @return the serialized message
+	 */
+	public byte[] getMessage() {
+		return message;
+	}
+}
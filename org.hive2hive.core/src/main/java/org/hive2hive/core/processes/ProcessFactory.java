@@ -195,7 +195,7 @@ public final class ProcessFactory {
 		parentProcess.add(new AsyncComponent<>(new StopDownloadsStep(session.getDownloadManager())));
 		parentProcess.add(new AsyncComponent<>(new StopUserQueueWorkerStep(session.getProfileManager())));
 		parentProcess.add(new AsyncComponent<>(new WritePersistentStep(session.getFileAgent(), session.getKeyManager(),
-				networkManager.getDataManager().getSerializer())));
+				session.getHashCache(), networkManager.getDataManager().getSerializer())));
 
 		parentProcess.setName("Logout Process");
 		return parentProcess;
@@ -243,7 +243,7 @@ public final class ProcessFactory {
 			process.add(new CreateMetaFileStep(context));
 			process.add(new PutMetaFileStep(context, dataManager));
 		}
-		process.add(new AddIndexToUserProfileStep(context, session.getProfileManager()));
+		process.add(new AddIndexToUserProfileStep(context, session.getProfileManager(), session.getHashCache()));
 		process.add(new PrepareAddNotificationStep(context));
 		process.add(createNotificationProcess(context, networkManager));
 
@@ -268,7 +268,7 @@ public final class ProcessFactory {
 		process.add(new InitializeChunksStep(context, dataManager));
 		process.add(new CreateNewVersionStep(context));
 		process.add(new PutMetaFileStep(context, dataManager));
-		process.add(new UpdateHashInUserProfileStep(context, session.getProfileManager()));
+		process.add(new UpdateHashInUserProfileStep(context, session.getProfileManager(), session.getHashCache()));
 		// TODO: cleanup can be made async because user operation does not depend on it
 		process.add(new CleanupChunksStep(context, dataManager));
 		process.add(new PrepareUpdateNotificationStep(context));
@@ -3,6 +3,7 @@ package org.hive2hive.core.processes.common.base;
 import java.security.KeyPair;
 import java.security.PublicKey;
 
+import org.hive2hive.core.H2HConstants;
 import org.hive2hive.core.exceptions.PutFailedException;
 import org.hive2hive.core.model.BaseNetworkContent;
 import org.hive2hive.core.model.versioned.BaseVersionedNetworkContent;
@@ -50,7 +51,8 @@ public abstract class BasePutProcessStep extends ProcessStep<Void> {
 			throws PutFailedException {
 		Parameters params = new Parameters().setLocationKey(locationKey).setContentKey(contentKey)
 				.setVersionKey(content.getVersionKey()).setBasedOnKey(content.getBasedOnKey()).setNetworkContent(content)
-				.setProtectionKeys(protectionKeys).setTTL(content.getTimeToLive());
+				.setProtectionKeys(protectionKeys).setTTL(content.getTimeToLive())
+				.setCompareAndSetFlag(H2HConstants.COMPARE_AND_SET_PUT);
 		put(params);
 	}
 
@@ -6,6 +6,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
+import javax.crypto.SecretKey;
+
 import org.hive2hive.core.H2HSession;
 import org.hive2hive.core.api.interfaces.IFileConfiguration;
 import org.hive2hive.core.model.Index;
@@ -32,6 +34,7 @@ public class AddFileProcessContext implements IUploadContext, INotifyContext {
 	private List<MetaChunk> metaChunks = new ArrayList<MetaChunk>();
 
 	private KeyPair chunkEncryptionKeys; // generated
+	private SecretKey chunkContentKey;
 	private KeyPair chunkProtectionKeys; // from parent FolderIndex
 	private KeyPair fileKeys; // File Encryption Key Pair
 	private KeyPair metaFileProtectionKeys;
@@ -94,6 +97,16 @@ public class AddFileProcessContext implements IUploadContext, INotifyContext {
 		this.chunkEncryptionKeys = chunkEncryptionKeys;
 	}
 
+	@Override
+	public void provideChunkContentKey(SecretKey chunkContentKey) {
+		this.chunkContentKey = chunkContentKey;
+	}
+
+	@Override
+	public SecretKey consumeChunkContentKey() {
+		return chunkContentKey;
+	}
+
 	@Override
 	public KeyPair consumeMetaFileEncryptionKeys() {
 		return fileKeys;
@@ -6,6 +6,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
+import javax.crypto.SecretKey;
+
 import org.hive2hive.core.H2HSession;
 import org.hive2hive.core.api.interfaces.IFileConfiguration;
 import org.hive2hive.core.model.FileIndex;
@@ -30,6 +32,7 @@ public class UpdateFileProcessContext implements IUploadContext, IGetFileKeysCon
 
 	private List<MetaChunk> metaChunks = new ArrayList<MetaChunk>();
 
+	private SecretKey chunkContentKey;
 	private KeyPair chunkProtectionKeys;
 	private KeyPair metaFileProtectionKeys;
 	private KeyPair metaFileEncryptionKeys;
@@ -102,6 +105,16 @@ public class UpdateFileProcessContext implements IUploadContext, IGetFileKeysCon
 		return null;
 	}
 
+	@Override
+	public void provideChunkContentKey(SecretKey chunkContentKey) {
+		this.chunkContentKey = chunkContentKey;
+	}
+
+	@Override
+	public SecretKey consumeChunkContentKey() {
+		return chunkContentKey;
+	}
+
 	public List<MetaChunk> getChunksToDelete() {
 		return chunksToDelete;
 	}
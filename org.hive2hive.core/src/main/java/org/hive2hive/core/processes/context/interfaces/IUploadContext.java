@@ -5,6 +5,8 @@ import java.security.KeyPair;
 import java.util.List;
 import java.util.Set;
 
+import javax.crypto.SecretKey;
+
 import org.hive2hive.core.api.interfaces.IFileConfiguration;
 import org.hive2hive.core.model.Index;
 import org.hive2hive.core.model.MetaChunk;
@@ -37,7 +39,7 @@ public interface IUploadContext {
 
 	public void provideMetaFileHash(byte[] hash);
 
-	// ------ PutSingleChunkStep, CleanupChunksStep ------
+	// ------ PutChunksStep, CleanupChunksStep ------
 
 	public KeyPair consumeChunkProtectionKeys();
 
@@ -61,20 +63,28 @@ public interface IUploadContext {
 
 	public boolean isLargeFile();
 
-	// ------ CreateMetaFileStep, PutSingleChunkStep, InitializeChunksStep ------
+	// ------ CreateMetaFileStep, PutChunksStep, InitializeChunksStep ------
 
 	public KeyPair consumeChunkEncryptionKeys();
 
-	// ------ PutSingleChunkStep, CreateMetaFileStep, CreateNewVersionStep, InitializeChunksStep ------
+	// ------ InitializeChunksStep ------
+
+	public void provideChunkContentKey(SecretKey chunkContentKey);
+
+	// ------ CreateMetaFileStep, PutChunksStep, InitializeChunksStep ------
+
+	public SecretKey consumeChunkContentKey();
+
+	// ------ PutChunksStep, CreateMetaFileStep, CreateNewVersionStep, InitializeChunksStep ------
 
 	public List<MetaChunk> getMetaChunks();
 
-	// ------ ValidateFileSizeStep, InitializeChunksStep, PutSingleChunkStep, CreateNewVersionStep ------
+	// ------ ValidateFileSizeStep, InitializeChunksStep, PutChunksStep, CreateNewVersionStep ------
 
 	public IFileConfiguration consumeFileConfiguration();
 
 	// ------ CreateFileKeysStep, PrepareAddNotificationStep, InitializeChunksStep, PutMetaFileStep,
-	// PutSingleChunkStep ------
+	// PutChunksStep ------
 
 	public IH2HEncryption getEncryption();
 }
@@ -2,26 +2,34 @@ package org.hive2hive.core.processes.files;
 
 import java.io.File;
 import java.io.IOException;
+import java.security.GeneralSecurityException;
 import java.security.KeyPair;
+import java.util.List;
 import java.util.UUID;
 
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
 import org.hive2hive.core.H2HConstants;
 import org.hive2hive.core.api.interfaces.IFileConfiguration;
+import org.hive2hive.core.file.ChunkRange;
 import org.hive2hive.core.file.FileChunkUtil;
-import org.hive2hive.core.model.Chunk;
 import org.hive2hive.core.model.MetaChunk;
+import org.hive2hive.core.model.versioned.BaseMetaFile;
+import org.hive2hive.core.model.versioned.HybridEncryptedContent;
+import org.hive2hive.core.model.versioned.MetaFileSmall;
 import org.hive2hive.core.network.data.DataManager;
 import org.hive2hive.core.processes.context.interfaces.IUploadContext;
-import org.hive2hive.core.security.HashUtil;
+import org.hive2hive.core.security.EncryptionUtil;
+import org.hive2hive.core.security.ParallelHashUtil;
 import org.hive2hive.processframework.ProcessStep;
 import org.hive2hive.processframework.exceptions.InvalidProcessStateException;
 import org.hive2hive.processframework.exceptions.ProcessExecutionException;
-import org.hive2hive.processframework.interfaces.IProcessComponent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Initializes all {@link PutSingleChunkStep} for the file to upload.
+ * Initializes the {@link PutChunksStep} for the file to upload.
  * 
  * @author Nico, Seppi
  */
@@ -54,7 +62,10 @@ public class InitializeChunksStep extends ProcessStep<Void> {
 		return null;
 	}
 
-	private void initSmallFile(File file) {
+	private void initSmallFile(File file) throws ProcessExecutionException {
+		IFileConfiguration config = context.consumeFileConfiguration();
+		BaseMetaFile metaFile = context.consumeMetaFile();
+
 		if (context.consumeChunkEncryptionKeys() == null) {
 			logger.trace("Create chunk keys for the file '{}'.", file.getName());
 			// create and provide chunk keys
@@ -62,42 +73,62 @@ public class InitializeChunksStep extends ProcessStep<Void> {
 			context.provideChunkEncryptionKeys(chunkKeys);
 		}
 
-		// create put chunks steps
-		IFileConfiguration config = context.consumeFileConfiguration();
-		int chunks = FileChunkUtil.getNumberOfChunks(file, config.getChunkSize());
-		logger.trace("{} chunks to upload for file '{}'.", chunks, file.getName());
-		IProcessComponent<Void> prev = this;
-		for (int i = 0; i < chunks; i++) {
-			String chunkId = UUID.randomUUID().toString();
-			PutSingleChunkStep putChunkStep = new PutSingleChunkStep(context, i, chunkId, dataManager);
+		if (context.consumeChunkContentKey() == null) {
+			if (metaFile == null && config.isSymmetricChunkEncryption()) {
+				// new file: create a content key, it gets wrapped into the meta file later
+				logger.trace("Create chunk content key for the file '{}'.", file.getName());
+				SecretKey contentKey = EncryptionUtil.generateAESKey(H2HConstants.KEYLENGTH_CHUNK_CONTENT, context
+						.getEncryption().getSecurityProvider());
+				context.provideChunkContentKey(contentKey);
+			} else if (metaFile instanceof MetaFileSmall && ((MetaFileSmall) metaFile).hasContentKey()) {
+				// existing file: keep the mode and the content key of the previous versions
+				HybridEncryptedContent wrappedKey = ((MetaFileSmall) metaFile).getContentKey();
+				try {
+					byte[] encoded = context.getEncryption().decryptHybridRaw(wrappedKey,
+							context.consumeChunkEncryptionKeys().getPrivate());
+					context.provideChunkContentKey(new SecretKeySpec(encoded, "AES"));
+				} catch (ClassNotFoundException | IOException | GeneralSecurityException ex) {
+					throw new ProcessExecutionException(this, ex, "Cannot unwrap the chunk content key.");
+				}
+			}
+		}
 
+		// create the step that puts all chunks in a pipeline
+		List<ChunkRange> ranges;
+		try {
+			ranges = FileChunkUtil.getChunkRanges(file, config);
+		} catch (IOException ex) {
+			throw new ProcessExecutionException(this, ex, "Cannot split the file into chunks.");
+		}
+
+		logger.trace("{} chunks to upload for file '{}'.", ranges.size(), file.getName());
+		if (!ranges.isEmpty()) {
 			// insert just after this step
-			getParent().insertAfter(putChunkStep, prev);
-			prev = putChunkStep;
+			int window = config.getChunkUploadWindow();
+			getParent().insertAfter(new PutChunksStep(context, dataManager, ranges, window), this);
 		}
 	}
 
 	private void initLargeFile(File file) throws ProcessExecutionException {
 		// init the large file chunks
 		IFileConfiguration config = context.consumeFileConfiguration();
-		int chunks = FileChunkUtil.getNumberOfChunks(file, config.getChunkSize());
-		logger.trace("{} chunks for large file '{}'.", Integer.toString(chunks), file.getName());
 
-		// TODO Hashing is slow --> do this in multiple threads to speedup the initialization.
+		// hash the chunks on all cores and add the meta information to the context
+		List<ChunkRange> ranges;
+		List<byte[]> hashes;
+		try {
+			ranges = FileChunkUtil.getChunkRanges(file, config);
+			hashes = ParallelHashUtil.hashChunks(file, ranges);
+		} catch (IOException ex) {
+			throw new ProcessExecutionException(this, ex, "Cannot read the large file.");
+		}
+		logger.trace("{} chunks for large file '{}'.", Integer.toString(ranges.size()), file.getName());
 
-		// process chunk for chunk, hash it and add the meta information to the context
-		for (int i = 0; i < chunks; i++) {
+		for (ChunkRange range : ranges) {
 			String chunkId = UUID.randomUUID().toString();
-			Chunk chunk;
-
-			try {
-				chunk = FileChunkUtil.getChunk(file, config.getChunkSize(), i, chunkId);
-			} catch (IOException ex) {
-				throw new ProcessExecutionException(this, ex, "Cannot read the large file.");
-			}
-
-			byte[] hash = HashUtil.hash(chunk.getData());
-			context.getMetaChunks().add(new MetaChunk(chunkId, hash, i));
+			// the hash of the plain data is used to verify the chunk
+			byte[] hash = hashes.get(range.getIndex());
+			context.getMetaChunks().add(new MetaChunk(chunkId, hash, hash, range));
 		}
 	}
 }
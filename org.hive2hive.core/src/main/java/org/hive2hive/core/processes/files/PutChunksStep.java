@@ -0,0 +1,313 @@
+package org.hive2hive.core.processes.files;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.crypto.SecretKey;
+
+import org.hive2hive.core.H2HConstants;
+import org.hive2hive.core.TimeToLiveStore;
+import org.hive2hive.core.exceptions.PutFailedException;
+import org.hive2hive.core.file.ChunkRange;
+import org.hive2hive.core.file.FileChunkUtil;
+import org.hive2hive.core.model.BaseNetworkContent;
+import org.hive2hive.core.model.Chunk;
+import org.hive2hive.core.model.FileVersion;
+import org.hive2hive.core.model.MetaChunk;
+import org.hive2hive.core.model.versioned.BaseMetaFile;
+import org.hive2hive.core.model.versioned.MetaFileSmall;
+import org.hive2hive.core.network.data.DataManager;
+import org.hive2hive.core.network.data.DataManager.H2HPutStatus;
+import org.hive2hive.core.network.data.parameters.IParameters;
+import org.hive2hive.core.network.data.parameters.Parameters;
+import org.hive2hive.core.processes.context.interfaces.IUploadContext;
+import org.hive2hive.core.security.EncryptionUtil;
+import org.hive2hive.core.security.HashUtil;
+import org.hive2hive.processframework.ProcessStep;
+import org.hive2hive.processframework.exceptions.InvalidProcessStateException;
+import org.hive2hive.processframework.exceptions.ProcessExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Puts all chunks of a file in a pipeline: This step reads chunk after chunk from the disk while the
+ * previously read chunks are encrypted and put in parallel. The number of chunks in flight (read, but not
+ * yet confirmed by the network) is bounded by a window, such that large files do not fill up the memory.
+ * The {@link MetaChunk}s are provided in the order of the chunks.<br>
+ * When a new version of a file is uploaded, chunks whose content already exists in the newest version are not
+ * put again, but their {@link MetaChunk} is re-used (possibly at another position). The time-to-live of the
+ * re-used chunks is refreshed, as they are referenced by the new version.<br>
+ * The chunks of all files are put by a shared pool of threads, the window only bounds the number of threads
+ * a single file occupies.
+ */
+public class PutChunksStep extends ProcessStep<Void> {
+
+	private static final Logger logger = LoggerFactory.getLogger(PutChunksStep.class);
+
+	// the puts block until the network confirms them, thus they do not run in the workers of the data futures
+	private static final ExecutorService UPLOADERS = createUploaders();
+
+	private final IUploadContext context;
+	private final DataManager dataManager;
+	private final List<ChunkRange> ranges;
+	private final int window;
+
+	// the parameters of all successful puts (for the rollback)
+	private final List<Parameters> putParameters = Collections.synchronizedList(new ArrayList<Parameters>());
+
+	/**
+	 * @param context the upload context
+	 * @param dataManager the data manager to put the chunks
+	 * @param ranges the chunks of the file
+	 * @param window the maximum number of chunks that are uploaded at the same time
+	 */
+	public PutChunksStep(IUploadContext context, DataManager dataManager, List<ChunkRange> ranges, int window) {
+		if (window < 1) {
+			throw new IllegalArgumentException("The window must be at least one chunk.");
+		}
+
+		this.setName(getClass().getName());
+		this.context = context;
+		this.dataManager = dataManager;
+		this.ranges = ranges;
+		this.window = window;
+	}
+
+	@Override
+	protected Void doExecute() throws InvalidProcessStateException, ProcessExecutionException {
+		final File file = context.consumeFile();
+		int numberOfChunks = ranges.size();
+		logger.trace("Uploading {} chunks of file '{}' with a window of {}.", numberOfChunks, file.getName(), window);
+
+		final MetaChunk[] metaChunks = new MetaChunk[numberOfChunks];
+		final Map<String, MetaChunk> previousChunks = getPreviousChunks();
+		final AtomicInteger reused = new AtomicInteger(0);
+		// the distinct re-used chunks by their id
+		final Map<String, MetaChunk> reusedChunks = Collections.synchronizedMap(new LinkedHashMap<String, MetaChunk>());
+		final AtomicReference<Exception> error = new AtomicReference<Exception>();
+		final Semaphore inFlight = new Semaphore(window);
+		boolean drained = false;
+
+		try {
+			for (int i = 0; i < numberOfChunks && error.get() == null; i++) {
+				// wait until a chunk of the window has been confirmed
+				inFlight.acquire();
+				if (error.get() != null) {
+					inFlight.release();
+					break;
+				}
+
+				final ChunkRange range = ranges.get(i);
+				final Chunk chunk;
+				try {
+					chunk = FileChunkUtil.getChunk(file, range, UUID.randomUUID().toString());
+				} catch (IOException ex) {
+					inFlight.release();
+					error.compareAndSet(null, ex);
+					break;
+				}
+
+				if (chunk == null) {
+					inFlight.release();
+					continue;
+				}
+
+				UPLOADERS.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							if (error.get() != null) {
+								return;
+							}
+
+							byte[] contentHash = HashUtil.hash(chunk.getData());
+							MetaChunk previous = previousChunks.get(EncryptionUtil.byteToHex(contentHash));
+							if (previous != null) {
+								// the chunk already exists in the last version (maybe at another position)
+								metaChunks[range.getIndex()] = previous.moveTo(range);
+								reusedChunks.put(previous.getChunkId(), previous);
+								reused.incrementAndGet();
+							} else {
+								metaChunks[range.getIndex()] = encryptAndPut(chunk, contentHash, range, file);
+							}
+						} catch (Exception ex) {
+							error.compareAndSet(null, ex);
+						} finally {
+							inFlight.release();
+						}
+					}
+				});
+			}
+
+			// wait until the whole window is confirmed
+			inFlight.acquire(window);
+			drained = true;
+		} catch (InterruptedException ex) {
+			error.compareAndSet(null, ex);
+		}
+
+		if (error.get() == null && !reusedChunks.isEmpty()) {
+			try {
+				refreshTimeToLive(reusedChunks.values());
+			} catch (PutFailedException ex) {
+				error.set(ex);
+			}
+		}
+
+		if (error.get() != null) {
+			if (!drained) {
+				// running puts must finish before they can be removed
+				inFlight.acquireUninterruptibly(window);
+			}
+
+			// remove the chunks that have already been put
+			removeChunks();
+			throw new ProcessExecutionException(this, error.get(), String.format(
+					"File '%s': Could not read, encrypt or put the chunks.", file.getAbsolutePath()));
+		}
+
+		if (reused.get() > 0) {
+			logger.debug("Re-used {} unchanged chunks of file '{}'.", reused.get(), file.getName());
+		}
+
+		// the chunks must be removed at a rollback
+		setRequiresRollback(true);
+
+		// keep the order of the chunks
+		for (MetaChunk metaChunk : metaChunks) {
+			if (metaChunk != null) {
+				context.getMetaChunks().add(metaChunk);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return the chunks of the newest version of the file (if there is one) by the hex string of their
+	 *         content hash
+	 */
+	private Map<String, MetaChunk> getPreviousChunks() {
+		Map<String, MetaChunk> previousChunks = new HashMap<String, MetaChunk>();
+		BaseMetaFile metaFile = context.consumeMetaFile();
+		if (metaFile == null || !metaFile.isSmall()) {
+			return previousChunks;
+		}
+
+		FileVersion newestVersion = ((MetaFileSmall) metaFile).getNewestVersion();
+		if (newestVersion != null) {
+			for (MetaChunk metaChunk : newestVersion.getMetaChunks()) {
+				if (metaChunk.getContentHash() != null) {
+					previousChunks.put(EncryptionUtil.byteToHex(metaChunk.getContentHash()), metaChunk);
+				}
+			}
+		}
+		return previousChunks;
+	}
+
+	/**
+	 * The re-used chunks would expire with the time-to-live of their first put, although the new version
+	 * still references them. Their time-to-live is reset with a put of the meta data only (which keeps the
+	 * protection keys), thus the content is not uploaded again.
+	 */
+	private void refreshTimeToLive(Collection<MetaChunk> reusedChunks) throws PutFailedException {
+		KeyPair protectionKeys = context.consumeChunkProtectionKeys();
+		int timeToLive = TimeToLiveStore.getInstance().getChunk();
+		List<IParameters> parameters = new ArrayList<IParameters>(reusedChunks.size());
+		synchronized (reusedChunks) {
+			for (MetaChunk metaChunk : reusedChunks) {
+				parameters.add(new Parameters().setLocationKey(metaChunk.getChunkId())
+						.setContentKey(H2HConstants.FILE_CHUNK).setProtectionKeys(protectionKeys)
+						.setNewProtectionKeys(protectionKeys).setTTL(timeToLive));
+			}
+		}
+
+		logger.debug("Refreshing the time-to-live of {} re-used chunks.", parameters.size());
+		List<Boolean> results = dataManager.changeProtectionKeyAll(parameters);
+		for (int i = 0; i < results.size(); i++) {
+			if (!Boolean.TRUE.equals(results.get(i))) {
+				throw new PutFailedException(String.format(
+						"Could not refresh the time-to-live of the re-used chunk '%s'.", parameters.get(i)
+								.getLocationKey()));
+			}
+		}
+	}
+
+	private MetaChunk encryptAndPut(Chunk chunk, byte[] contentHash, ChunkRange range, File file) throws IOException, GeneralSecurityException,
+			PutFailedException {
+		// encrypt the chunk prior to put such that nobody can read it
+		BaseNetworkContent encryptedContent;
+		SecretKey contentKey = context.consumeChunkContentKey();
+		if (contentKey == null) {
+			encryptedContent = context.getEncryption().encryptHybrid(chunk,
+					context.consumeChunkEncryptionKeys().getPublic());
+		} else {
+			encryptedContent = context.getEncryption().encryptAES(chunk, contentKey);
+		}
+
+		logger.debug("Uploading chunk {} of file {}.", chunk.getOrder(), file.getName());
+		Parameters parameters = new Parameters().setLocationKey(chunk.getId()).setContentKey(H2HConstants.FILE_CHUNK)
+				.setNetworkContent(encryptedContent).setProtectionKeys(context.consumeChunkProtectionKeys())
+				.setTTL(chunk.getTimeToLive());
+
+		// data manager has to produce the hash, which gets used for signing
+		parameters.setHashFlag(true);
+		// put the encrypted chunk into the network
+		H2HPutStatus status = dataManager.put(parameters);
+		if (!status.equals(H2HPutStatus.OK)) {
+			throw new PutFailedException("Put failed with return status " + status);
+		}
+		putParameters.add(parameters);
+
+		// store the hash in the index of the meta file
+		return new MetaChunk(chunk.getId(), parameters.getHash(), contentHash, range);
+	}
+
+	@Override
+	protected Void doRollback() throws InvalidProcessStateException {
+		removeChunks();
+		setRequiresRollback(false);
+		return null;
+	}
+
+	private void removeChunks() {
+		synchronized (putParameters) {
+			for (Parameters parameters : putParameters) {
+				if (dataManager.removeVersion(parameters)) {
+					logger.debug("Rollback of chunk put succeeded. '{}'", parameters.toString());
+				} else {
+					logger.warn("Rollback of chunk put failed. Remove failed. '{}'", parameters.toString());
+				}
+			}
+			putParameters.clear();
+		}
+	}
+
+	private static ExecutorService createUploaders() {
+		return Executors.newCachedThreadPool(new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger(0);
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "chunk-upload-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+}
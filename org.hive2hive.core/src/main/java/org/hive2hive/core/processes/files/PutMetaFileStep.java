@@ -50,7 +50,8 @@ public class PutMetaFileStep extends BasePutProcessStep {
 
 			Parameters parameters = new Parameters().setLocationKey(metaFile.getId()).setContentKey(H2HConstants.META_FILE)
 					.setVersionKey(encrypted.getVersionKey()).setBasedOnKey(encrypted.getBasedOnKey())
-					.setNetworkContent(encrypted).setProtectionKeys(protectionKeys).setTTL(metaFile.getTimeToLive());
+					.setNetworkContent(encrypted).setProtectionKeys(protectionKeys).setTTL(metaFile.getTimeToLive())
+					.setCompareAndSetFlag(H2HConstants.COMPARE_AND_SET_PUT);
 
 			// data manager has to produce the hash, which gets used for signing
 			parameters.setHashFlag(true);
@@ -5,6 +5,7 @@ import java.io.IOException;
 
 import org.hive2hive.core.exceptions.AbortModificationCode;
 import org.hive2hive.core.exceptions.AbortModifyException;
+import org.hive2hive.core.file.FileHashCache;
 import org.hive2hive.core.model.FileIndex;
 import org.hive2hive.core.model.FolderIndex;
 import org.hive2hive.core.model.Index;
@@ -12,7 +13,6 @@ import org.hive2hive.core.model.versioned.UserProfile;
 import org.hive2hive.core.network.data.UserProfileManager;
 import org.hive2hive.core.processes.common.base.BaseModifyUserProfileStep;
 import org.hive2hive.core.processes.context.AddFileProcessContext;
-import org.hive2hive.core.security.HashUtil;
 import org.hive2hive.processframework.exceptions.ProcessExecutionException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,13 +27,16 @@ public class AddIndexToUserProfileStep extends BaseModifyUserProfileStep {
 	private static final Logger logger = LoggerFactory.getLogger(AddIndexToUserProfileStep.class);
 
 	private final AddFileProcessContext context;
+	private final FileHashCache hashCache;
 
 	// pre-calculated hash in case it's a file
 	private byte[] hash;
 
-	public AddIndexToUserProfileStep(AddFileProcessContext context, UserProfileManager profileManager) {
+	public AddIndexToUserProfileStep(AddFileProcessContext context, UserProfileManager profileManager,
+			FileHashCache hashCache) {
 		super(profileManager);
 		this.context = context;
+		this.hashCache = hashCache;
 	}
 
 	@Override
@@ -41,7 +44,7 @@ public class AddIndexToUserProfileStep extends BaseModifyUserProfileStep {
 		File file = context.consumeFile();
 		if (file.isFile()) {
 			try {
-				hash = HashUtil.hash(file);
+				hash = hashCache.getHash(file);
 			} catch (IOException e) {
 				logger.error("Creating hash of file '{}' was not possible.", file.getName(), e);
 				throw new ProcessExecutionException(this, "Cannot calculate the hash of the file " + file.getName());
@@ -12,6 +12,7 @@ import org.hive2hive.core.exceptions.NoSessionException;
 import org.hive2hive.core.model.Index;
 import org.hive2hive.core.model.versioned.UserProfile;
 import org.hive2hive.core.network.data.UserProfileManager;
+import org.hive2hive.core.network.messages.MessageClass;
 import org.hive2hive.core.network.messages.direct.BaseDirectMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -60,4 +61,9 @@ public class AddNotificationMessage extends BaseDirectMessage implements IFileEv
 		// trigger event
 		getEventBus().publish(new FileAddEvent(addedFile.asFile(session.getRootFile()), addedFile.isFile()));
 	}
+
+	@Override
+	public MessageClass getMessageClass() {
+		return MessageClass.NOTIFICATION;
+	}
 }
@@ -1,18 +1,23 @@
 package org.hive2hive.core.processes.files.add;
 
 import java.io.File;
+import java.security.GeneralSecurityException;
 import java.security.KeyPair;
 import java.util.ArrayList;
 import java.util.List;
 
+import javax.crypto.SecretKey;
+
 import org.hive2hive.core.file.FileUtil;
 import org.hive2hive.core.model.FileVersion;
 import org.hive2hive.core.model.versioned.BaseMetaFile;
+import org.hive2hive.core.model.versioned.HybridEncryptedContent;
 import org.hive2hive.core.model.versioned.MetaFileLarge;
 import org.hive2hive.core.model.versioned.MetaFileSmall;
 import org.hive2hive.core.processes.context.AddFileProcessContext;
 import org.hive2hive.processframework.ProcessStep;
 import org.hive2hive.processframework.exceptions.InvalidProcessStateException;
+import org.hive2hive.processframework.exceptions.ProcessExecutionException;
 
 /**
  * Create a new {@link MetaFileSmall} or {@link MetaFileLarge}.
@@ -29,7 +34,7 @@ public class CreateMetaFileStep extends ProcessStep<Void> {
 	}
 
 	@Override
-	protected Void doExecute() throws InvalidProcessStateException {
+	protected Void doExecute() throws InvalidProcessStateException, ProcessExecutionException {
 		File file = context.consumeFile();
 		KeyPair metaKeys = context.consumeMetaFileEncryptionKeys();
 
@@ -42,13 +47,30 @@ public class CreateMetaFileStep extends ProcessStep<Void> {
 					context.getMetaChunks());
 			List<FileVersion> versions = new ArrayList<FileVersion>(1);
 			versions.add(version);
-			metaFile = new MetaFileSmall(metaKeys.getPublic(), versions, context.consumeChunkEncryptionKeys());
+			KeyPair chunkKeys = context.consumeChunkEncryptionKeys();
+			metaFile = new MetaFileSmall(metaKeys.getPublic(), versions, chunkKeys, wrapContentKey(chunkKeys));
 		}
 		context.provideMetaFile(metaFile);
 		setRequiresRollback(true);
 		return null;
 	}
 
+	/**
+	 * Wraps the symmetric chunk content key (if any) with the public chunk key
+	 */
+	private HybridEncryptedContent wrapContentKey(KeyPair chunkKeys) throws ProcessExecutionException {
+		SecretKey contentKey = context.consumeChunkContentKey();
+		if (contentKey == null) {
+			return null;
+		}
+
+		try {
+			return context.getEncryption().encryptHybrid(contentKey.getEncoded(), chunkKeys.getPublic());
+		} catch (GeneralSecurityException ex) {
+			throw new ProcessExecutionException(this, ex, "Cannot wrap the chunk content key.");
+		}
+	}
+
 	@Override
 	protected Void doRollback() throws InvalidProcessStateException {
 		context.provideMetaFile(null);
@@ -1,21 +1,30 @@
 package org.hive2hive.core.processes.files.delete;
 
+import java.security.KeyPair;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.hive2hive.core.model.FileVersion;
+import org.hive2hive.core.H2HConstants;
 import org.hive2hive.core.model.MetaChunk;
 import org.hive2hive.core.model.versioned.BaseMetaFile;
 import org.hive2hive.core.model.versioned.MetaFileSmall;
 import org.hive2hive.core.network.data.DataManager;
+import org.hive2hive.core.network.data.parameters.IParameters;
+import org.hive2hive.core.network.data.parameters.Parameters;
 import org.hive2hive.core.processes.context.DeleteFileProcessContext;
 import org.hive2hive.processframework.ProcessStep;
 import org.hive2hive.processframework.exceptions.InvalidProcessStateException;
 import org.hive2hive.processframework.exceptions.ProcessExecutionException;
-import org.hive2hive.processframework.interfaces.IProcessComponent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+/**
+ * Removes all chunks of all versions of a file in one batch (see {@link DataManager#removeAll(List)}).
+ */
 public class DeleteChunksStep extends ProcessStep<Void> {
 
+	private static final Logger logger = LoggerFactory.getLogger(DeleteChunksStep.class);
+
 	private final DeleteFileProcessContext context;
 	private final DataManager dataManager;
 
@@ -24,7 +33,7 @@ public class DeleteChunksStep extends ProcessStep<Void> {
 		this.context = context;
 		this.dataManager = dataManager;
 	}
-	
+
 	@Override
 	protected Void doExecute() throws InvalidProcessStateException, ProcessExecutionException {
 
@@ -40,25 +49,32 @@ public class DeleteChunksStep extends ProcessStep<Void> {
 
 		if (metaFile.isSmall()) {
 			MetaFileSmall metaSmall = (MetaFileSmall) metaFile;
-			// TODO rather delete file by file than all chunks mixed
-			for (FileVersion version : metaSmall.getVersions()) {
-				metaChunks.addAll(version.getMetaChunks());
+			// chunks can be shared among versions, delete each only once
+			metaChunks.addAll(metaSmall.getDistinctMetaChunks());
+		}
+
+		List<IParameters> parameters = createRemoveParameters(metaChunks, context.consumeProtectionKeys());
+		logger.debug("Deleting {} chunks.", parameters.size());
+		List<Boolean> results = dataManager.removeAll(parameters);
+		for (int i = 0; i < results.size(); i++) {
+			if (!results.get(i)) {
+				throw new ProcessExecutionException(this, String.format("Removal of chunk failed. Parameters: %s.",
+						parameters.get(i)));
 			}
 		}
 
-		// process composition
-		List<IProcessComponent<?>> parentComponents = new ArrayList<>(getParent().getComponents());
-		int index = parentComponents.indexOf(this) + 1;
+		return null;
+	}
 
+	/**
+	 * Creates the parameters to remove all versions of the given chunks
+	 */
+	public static List<IParameters> createRemoveParameters(List<MetaChunk> metaChunks, KeyPair protectionKeys) {
+		List<IParameters> parameters = new ArrayList<IParameters>(metaChunks.size());
 		for (MetaChunk metaChunk : metaChunks) {
-			// TODO at a later stage, this steps could be async (parallelized)
-			
-			IProcessComponent<?> step = new DeleteSingleChunkStep(metaChunk.getChunkId(), context.consumeProtectionKeys(),
-					dataManager);
-			getParent().add(index++, step);
+			parameters.add(new Parameters().setLocationKey(metaChunk.getChunkId()).setContentKey(H2HConstants.FILE_CHUNK)
+					.setProtectionKeys(protectionKeys));
 		}
-		
-		return null;
+		return parameters;
 	}
-
 }
@@ -12,6 +12,7 @@ import org.hive2hive.core.exceptions.GetFailedException;
 import org.hive2hive.core.exceptions.NoSessionException;
 import org.hive2hive.core.model.Index;
 import org.hive2hive.core.model.versioned.UserProfile;
+import org.hive2hive.core.network.messages.MessageClass;
 import org.hive2hive.core.network.messages.direct.BaseDirectMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -70,4 +71,9 @@ public class DeleteNotificationMessage extends BaseDirectMessage implements IFil
 		File deletedFile = new File(parentFile, fileName);
 		getEventBus().publish(new FileDeleteEvent(deletedFile, isFile));
 	}
+
+	@Override
+	public MessageClass getMessageClass() {
+		return MessageClass.NOTIFICATION;
+	}
 }
@@ -2,9 +2,14 @@ package org.hive2hive.core.processes.files.download;
 
 import java.io.File;
 import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
 import java.util.List;
 import java.util.Set;
 
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
 import org.hive2hive.core.H2HSession;
 import org.hive2hive.core.exceptions.NoPeerConnectionException;
 import org.hive2hive.core.exceptions.NoSessionException;
@@ -77,7 +82,7 @@ public class InitDownloadChunksStep extends ProcessStep<Void> {
 				// can be cast because only files are downloaded
 				FileIndex fileIndex = (FileIndex) context.consumeIndex();
 				try {
-					if (HashUtil.compare(destination, fileIndex.getHash())) {
+					if (HashUtil.compare(destination, fileIndex.getHash(), session.getHashCache())) {
 						throw new ProcessExecutionException(this,
 								"File already exists on disk. Content does match. No download needed.");
 					}
@@ -86,7 +91,20 @@ public class InitDownloadChunksStep extends ProcessStep<Void> {
 				}
 			}
 
-			DownloadTaskDHT task = new DownloadTaskDHT(metaChunks, destination, metaFileSmall.getChunkKey().getPrivate(),
+			// unwrap the content key once such that the chunks can be decrypted symmetrically
+			PrivateKey chunkKey = metaFileSmall.getChunkKey().getPrivate();
+			SecretKey contentKey = null;
+			if (metaFileSmall.hasContentKey()) {
+				try {
+					byte[] encoded = networkManager.getEncryption().decryptHybridRaw(metaFileSmall.getContentKey(),
+							chunkKey);
+					contentKey = new SecretKeySpec(encoded, "AES");
+				} catch (ClassNotFoundException | IOException | GeneralSecurityException ex) {
+					throw new ProcessExecutionException(this, ex, "Cannot unwrap the chunk content key.");
+				}
+			}
+
+			DownloadTaskDHT task = new DownloadTaskDHT(metaChunks, destination, chunkKey, contentKey,
 					networkManager.getEventBus(), session.getKeyManager());
 
 			// start the download
@@ -1,14 +1,13 @@
 package org.hive2hive.core.processes.files.download.dht;
 
-import java.io.File;
 import java.io.IOException;
 import java.security.GeneralSecurityException;
 
-import org.apache.commons.io.FileUtils;
 import org.hive2hive.core.H2HConstants;
 import org.hive2hive.core.model.BaseNetworkContent;
 import org.hive2hive.core.model.Chunk;
 import org.hive2hive.core.model.MetaChunk;
+import org.hive2hive.core.model.versioned.EncryptedNetworkContent;
 import org.hive2hive.core.model.versioned.HybridEncryptedContent;
 import org.hive2hive.core.network.data.DataManager;
 import org.hive2hive.core.network.data.parameters.IParameters;
@@ -18,7 +17,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Downloads a chunk from the DHT and stores it into a temprary file
+ * Downloads a chunk from the DHT and writes it to its position in the downloaded file
  * 
  * @author Nico
  * 
@@ -29,7 +28,6 @@ public class DownloadChunkRunnableDHT implements Runnable {
 
 	private final DownloadTaskDHT task;
 	private final MetaChunk metaChunk;
-	private final File tempDestination;
 	private final DataManager dataManager;
 	private final IH2HEncryption encryption;
 
@@ -38,9 +36,6 @@ public class DownloadChunkRunnableDHT implements Runnable {
 		this.metaChunk = chunk;
 		this.dataManager = dataManager;
 		this.encryption = encryption;
-
-		// create temporary file
-		this.tempDestination = new File(task.getTempDirectory(), task.getDestinationName() + "-" + chunk.getIndex());
 	}
 
 	@Override
@@ -62,27 +57,28 @@ public class DownloadChunkRunnableDHT implements Runnable {
 			return;
 		}
 
-		HybridEncryptedContent encrypted = (HybridEncryptedContent) content;
 		Chunk chunk;
-
 		try {
-			BaseNetworkContent decrypted = encryption.decryptHybrid(encrypted, task.getDecryptionKey());
+			BaseNetworkContent decrypted;
+			if (content instanceof EncryptedNetworkContent) {
+				// symmetric-only chunk, decrypt it with the content key of the file
+				if (task.getContentKey() == null) {
+					task.abortDownload("Chunk is symmetrically encrypted but no content key is known");
+					return;
+				}
+				decrypted = encryption.decryptAES((EncryptedNetworkContent) content, task.getContentKey());
+			} else {
+				decrypted = encryption.decryptHybrid((HybridEncryptedContent) content, task.getDecryptionKey());
+			}
 			chunk = (Chunk) decrypted;
 		} catch (GeneralSecurityException | IllegalArgumentException | IOException | ClassNotFoundException e) {
 			task.abortDownload(String.format("Decryption of the chunk failed. reason = '%s'", e.getMessage()));
 			return;
 		}
 
-		try {
-			FileUtils.writeByteArrayToFile(tempDestination, chunk.getData());
-		} catch (IOException e) {
-			task.abortDownload("Cannot write the chunk data to temporary file");
-			return;
-		}
-
 		// TODO verify hash here
 
-		// notify the task that this file part has been downloaded successfully
-		task.markDownloaded(metaChunk.getIndex(), tempDestination);
+		// write the data and notify the task that this file part has been downloaded successfully
+		task.writeChunk(metaChunk, chunk.getData());
 	}
 }
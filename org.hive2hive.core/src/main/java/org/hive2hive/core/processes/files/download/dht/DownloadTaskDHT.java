@@ -4,6 +4,8 @@ import java.io.File;
 import java.security.PrivateKey;
 import java.util.List;
 
+import javax.crypto.SecretKey;
+
 import org.hive2hive.core.events.EventBus;
 import org.hive2hive.core.model.MetaChunk;
 import org.hive2hive.core.network.data.PublicKeyManager;
@@ -14,17 +16,31 @@ public class DownloadTaskDHT extends BaseDownloadTask {
 	private static final long serialVersionUID = -6933011357191806148L;
 
 	private final PrivateKey decryptionKey;
+	private final SecretKey contentKey;
 
 	public DownloadTaskDHT(List<MetaChunk> metaChunks, File destination, PrivateKey decryptionKey, EventBus eventBus,
 			PublicKeyManager keyManager) {
+		this(metaChunks, destination, decryptionKey, null, eventBus, keyManager);
+	}
+
+	public DownloadTaskDHT(List<MetaChunk> metaChunks, File destination, PrivateKey decryptionKey,
+			SecretKey contentKey, EventBus eventBus, PublicKeyManager keyManager) {
 		super(metaChunks, destination, eventBus, keyManager);
 		this.decryptionKey = decryptionKey;
+		this.contentKey = contentKey;
 	}
 
 	public PrivateKey getDecryptionKey() {
 		return decryptionKey;
 	}
 
+	/**
+	 * @return the symmetric key to decrypt the chunks or <code>null</code> if the chunks are hybrid encrypted
+	 */
+	public SecretKey getContentKey() {
+		return contentKey;
+	}
+
 	@Override
 	public boolean isDirectDownload() {
 		return false;
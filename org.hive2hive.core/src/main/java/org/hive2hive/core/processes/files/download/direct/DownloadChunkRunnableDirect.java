@@ -1,7 +1,5 @@
 package org.hive2hive.core.processes.files.download.direct;
 
-import java.io.File;
-
 import org.hive2hive.core.H2HConstants;
 import org.hive2hive.core.api.interfaces.IFileConfiguration;
 import org.hive2hive.core.model.MetaChunk;
@@ -16,7 +14,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Downloads a chunk from the DHT and stores it into a temporary file
+ * Downloads a chunk from another peer and writes it to its position in the downloaded file
  * 
  * @author Nico
  * 
@@ -27,7 +25,6 @@ public class DownloadChunkRunnableDirect implements Runnable {
 
 	private final DownloadTaskDirect task;
 	private final MetaChunk metaChunk;
-	private final File tempDestination;
 	private final IMessageManager messageManager;
 	private final IFileConfiguration config;
 
@@ -37,9 +34,6 @@ public class DownloadChunkRunnableDirect implements Runnable {
 		this.metaChunk = metaChunk;
 		this.messageManager = messageManager;
 		this.config = config;
-
-		// create temporary file
-		this.tempDestination = new File(task.getTempDirectory(), task.getDestinationName() + "-" + metaChunk.getIndex());
 	}
 
 	@Override
@@ -70,7 +64,7 @@ public class DownloadChunkRunnableDirect implements Runnable {
 
 			currentTry++;
 
-			DownloadDirectContext context = new DownloadDirectContext(task, metaChunk, tempDestination);
+			DownloadDirectContext context = new DownloadDirectContext(task, metaChunk);
 			SyncProcess process = new SyncProcess();
 			process.add(new SelectPeerForDownloadStep(context));
 			process.add(new AskForChunkStep(context, messageManager, config));
@@ -1,10 +1,8 @@
 package org.hive2hive.core.processes.files.download.direct.process;
 
-import java.io.IOException;
 import java.security.PublicKey;
 import java.util.Random;
 
-import org.apache.commons.io.FileUtils;
 import org.hive2hive.core.H2HConstants;
 import org.hive2hive.core.api.interfaces.IFileConfiguration;
 import org.hive2hive.core.exceptions.GetFailedException;
@@ -53,7 +51,7 @@ public class AskForChunkStep extends BaseMessageProcessStep {
 
 		MetaChunk metaChunk = context.getMetaChunk();
 		RequestChunkMessage request = new RequestChunkMessage(context.getSelectedPeer(), context.getTask().getFileKey(),
-				metaChunk.getIndex(), config.getChunkSize(), metaChunk.getChunkHash());
+				metaChunk.getRange(config.getChunkSize()), metaChunk.getChunkHash());
 		try {
 			logger.debug("Requesting chunk {} from peer {}", metaChunk.getIndex(), context.getSelectedPeer());
 			send(request, receiverPublicKey);
@@ -129,17 +127,8 @@ public class AskForChunkStep extends BaseMessageProcessStep {
 			return;
 		}
 
-		// hash is ok, write it to the file
-		try {
-			FileUtils.writeByteArrayToFile(context.getTempDestination(), chunk.getData());
-			logger.debug("Wrote chunk {} to temporary file {}", context.getMetaChunk().getIndex(),
-					context.getTempDestination());
-
-			// finalize the sub-process
-			context.getTask().markDownloaded(context.getMetaChunk().getIndex(), context.getTempDestination());
-		} catch (IOException e) {
-			context.getTask().abortDownload("Cannot write the chunk to the temporary file. Reason: " + e.getMessage());
-		}
+		// hash is ok, write it to the file and finalize the sub-process
+		context.getTask().writeChunk(context.getMetaChunk(), chunk.getData());
 	}
 
 	/**
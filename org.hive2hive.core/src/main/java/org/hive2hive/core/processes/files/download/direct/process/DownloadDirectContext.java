@@ -1,7 +1,5 @@
 package org.hive2hive.core.processes.files.download.direct.process;
 
-import java.io.File;
-
 import net.tomp2p.peers.PeerAddress;
 
 import org.hive2hive.core.model.MetaChunk;
@@ -11,15 +9,13 @@ public class DownloadDirectContext {
 
 	private final DownloadTaskDirect task;
 	private final MetaChunk metaChunk;
-	private final File tempDestination;
 
 	private PeerAddress selectedPeer;
 	private String userName;
 
-	public DownloadDirectContext(DownloadTaskDirect task, MetaChunk metaChunk, File tempDestination) {
+	public DownloadDirectContext(DownloadTaskDirect task, MetaChunk metaChunk) {
 		this.task = task;
 		this.metaChunk = metaChunk;
-		this.tempDestination = tempDestination;
 	}
 
 	public DownloadTaskDirect getTask() {
@@ -30,10 +26,6 @@ public class DownloadDirectContext {
 		return metaChunk;
 	}
 
-	public File getTempDestination() {
-		return tempDestination;
-	}
-
 	public void setSelectedPeer(PeerAddress selectedPeer, String userName) {
 		this.userName = userName;
 		this.selectedPeer = selectedPeer;
@@ -6,14 +6,17 @@ import java.security.PublicKey;
 
 import net.tomp2p.peers.PeerAddress;
 
+import org.hive2hive.core.H2HConstants;
 import org.hive2hive.core.H2HSession;
 import org.hive2hive.core.exceptions.GetFailedException;
 import org.hive2hive.core.exceptions.NoSessionException;
+import org.hive2hive.core.file.ChunkRange;
 import org.hive2hive.core.file.FileChunkUtil;
 import org.hive2hive.core.model.Chunk;
 import org.hive2hive.core.model.Index;
 import org.hive2hive.core.model.versioned.UserProfile;
 import org.hive2hive.core.network.data.UserProfileManager;
+import org.hive2hive.core.network.messages.MessageClass;
 import org.hive2hive.core.network.messages.request.DirectRequestMessage;
 import org.hive2hive.core.processes.files.download.direct.process.ChunkMessageResponse.AnswerType;
 import org.hive2hive.core.security.HashUtil;
@@ -28,17 +31,19 @@ public class RequestChunkMessage extends DirectRequestMessage {
 	private final PublicKey fileKey;
 	// the index / order number of the chunk
 	private final int chunkNumber;
+	// where to start reading
+	private final long chunkOffset;
 	// how many bytes to read
 	private final int chunkLength;
 	// the hash of the file
 	private final byte[] chunkHash;
 
-	public RequestChunkMessage(PeerAddress targetPeerAddress, PublicKey fileKey, int chunkNumber, int chunkLength,
-			byte[] chunkHash) {
+	public RequestChunkMessage(PeerAddress targetPeerAddress, PublicKey fileKey, ChunkRange range, byte[] chunkHash) {
 		super(targetPeerAddress);
 		this.fileKey = fileKey;
-		this.chunkNumber = chunkNumber;
-		this.chunkLength = chunkLength;
+		this.chunkNumber = range.getIndex();
+		this.chunkOffset = range.getOffset();
+		this.chunkLength = range.getLength();
 		this.chunkHash = chunkHash;
 	}
 
@@ -68,7 +73,11 @@ public class RequestChunkMessage extends DirectRequestMessage {
 		UserProfile userProfile;
 		try {
 			UserProfileManager profileManager = session.getProfileManager();
-			userProfile = profileManager.readUserProfile();
+			userProfile = profileManager.readUserProfile(H2HConstants.USER_PROFILE_MAX_STALENESS_MS);
+			if (userProfile.getFileById(fileKey) == null) {
+				// the file may be new, check the latest version
+				userProfile = profileManager.readUserProfile();
+			}
 		} catch (GetFailedException e) {
 			logger.error("Cannot get the user profile", e);
 			sendDirectResponse(createResponse(new ChunkMessageResponse(AnswerType.DECLINED)));
@@ -94,13 +103,20 @@ public class RequestChunkMessage extends DirectRequestMessage {
 		Chunk chunk = null;
 		try {
 			// retrieve the requested file part (offset and length)
-			chunk = FileChunkUtil.getChunk(file, chunkLength, chunkNumber, "chunk-" + chunkNumber);
+			ChunkRange range = new ChunkRange(chunkNumber, chunkOffset, chunkLength);
+			chunk = FileChunkUtil.getChunk(file, range, "chunk-" + chunkNumber);
 		} catch (IOException e) {
 			logger.error("Cannot read the chunk", e);
 			sendDirectResponse(createResponse(new ChunkMessageResponse(AnswerType.DECLINED)));
 			return;
 		}
 
+		if (chunk == null) {
+			logger.info("File is shorter than requested, cannot return chunk {}", chunkNumber);
+			sendDirectResponse(createResponse(new ChunkMessageResponse(AnswerType.DECLINED)));
+			return;
+		}
+
 		// verify the chunk hash
 		byte[] hash = HashUtil.hash(chunk.getData());
 		if (HashUtil.compare(hash, chunkHash)) {
@@ -113,4 +129,9 @@ public class RequestChunkMessage extends DirectRequestMessage {
 			sendDirectResponse(createResponse(new ChunkMessageResponse(AnswerType.DECLINED)));
 		}
 	}
+
+	@Override
+	public MessageClass getMessageClass() {
+		return MessageClass.CHUNK_REQUEST;
+	}
 }
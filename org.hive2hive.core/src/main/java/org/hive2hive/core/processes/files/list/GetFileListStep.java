@@ -3,6 +3,7 @@ package org.hive2hive.core.processes.files.list;
 import java.io.File;
 import java.util.Set;
 
+import org.hive2hive.core.H2HConstants;
 import org.hive2hive.core.exceptions.GetFailedException;
 import org.hive2hive.core.model.FileIndex;
 import org.hive2hive.core.model.FolderIndex;
@@ -30,7 +31,7 @@ public class GetFileListStep extends ProcessStep<FileNode> {
 		// get the user profile
 		UserProfile profile = null;
 		try {
-			profile = profileManager.readUserProfile();
+			profile = profileManager.readUserProfile(H2HConstants.USER_PROFILE_MAX_STALENESS_MS);
 		} catch (GetFailedException e) {
 			throw new ProcessExecutionException(this, "User profile could not be loaded.");
 		}
@@ -14,6 +14,7 @@ import org.hive2hive.core.model.FolderIndex;
 import org.hive2hive.core.model.Index;
 import org.hive2hive.core.model.versioned.UserProfile;
 import org.hive2hive.core.network.data.UserProfileManager;
+import org.hive2hive.core.network.messages.MessageClass;
 import org.hive2hive.core.network.messages.direct.BaseDirectMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -89,4 +90,8 @@ public class MoveNotificationMessage extends BaseDirectMessage implements IFileE
 		getEventBus().publish(new FileMoveEvent(src, dst, movedNode.isFile()));
 	}
 
+	@Override
+	public MessageClass getMessageClass() {
+		return MessageClass.NOTIFICATION;
+	}
 }
@@ -1,7 +1,9 @@
 package org.hive2hive.core.processes.files.update;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.hive2hive.core.api.interfaces.IFileConfiguration;
 import org.hive2hive.core.file.FileUtil;
@@ -75,9 +77,21 @@ public class CreateNewVersionStep extends ProcessStep<Void> {
 		}
 
 		logger.debug("Need to remove {} old versions.", deletedFileVersions.size());
+
+		// unchanged chunks are shared among versions, keep the ones that are still referenced
+		Set<String> referencedChunks = new HashSet<String>();
+		for (MetaChunk metaChunk : metaFileSmall.getDistinctMetaChunks()) {
+			referencedChunks.add(metaChunk.getChunkId());
+		}
+
 		List<MetaChunk> chunksToDelete = new ArrayList<MetaChunk>();
 		for (FileVersion fileVersion : deletedFileVersions) {
-			chunksToDelete.addAll(fileVersion.getMetaChunks());
+			for (MetaChunk metaChunk : fileVersion.getMetaChunks()) {
+				// add returns false if the chunk is referenced or already going to be deleted
+				if (referencedChunks.add(metaChunk.getChunkId())) {
+					chunksToDelete.add(metaChunk);
+				}
+			}
 		}
 		context.setChunksToDelete(chunksToDelete);
 	}
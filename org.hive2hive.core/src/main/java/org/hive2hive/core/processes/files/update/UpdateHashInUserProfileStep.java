@@ -4,6 +4,7 @@ import java.io.IOException;
 
 import org.hive2hive.core.exceptions.AbortModificationCode;
 import org.hive2hive.core.exceptions.AbortModifyException;
+import org.hive2hive.core.file.FileHashCache;
 import org.hive2hive.core.model.FileIndex;
 import org.hive2hive.core.model.versioned.BaseMetaFile;
 import org.hive2hive.core.model.versioned.UserProfile;
@@ -25,21 +26,24 @@ public class UpdateHashInUserProfileStep extends BaseModifyUserProfileStep {
 	private static final Logger logger = LoggerFactory.getLogger(UpdateHashInUserProfileStep.class);
 
 	private final UpdateFileProcessContext context;
+	private final FileHashCache hashCache;
 
 	// initialized before the user profile is modified
 	private byte[] newHash;
 	// set while the profile is modified, used for rollback reasons
 	private byte[] originalHash;
 
-	public UpdateHashInUserProfileStep(UpdateFileProcessContext context, UserProfileManager profileManager) {
+	public UpdateHashInUserProfileStep(UpdateFileProcessContext context, UserProfileManager profileManager,
+			FileHashCache hashCache) {
 		super(profileManager);
 		this.context = context;
+		this.hashCache = hashCache;
 	}
 
 	@Override
 	protected void beforeModify() throws ProcessExecutionException {
 		try {
-			newHash = HashUtil.hash(context.consumeFile());
+			newHash = hashCache.getHash(context.consumeFile());
 		} catch (IOException e) {
 			throw new ProcessExecutionException(this, "The new hash for the user profile could not be generated.");
 		}
@@ -12,6 +12,7 @@ import org.hive2hive.core.exceptions.NoSessionException;
 import org.hive2hive.core.model.Index;
 import org.hive2hive.core.model.versioned.UserProfile;
 import org.hive2hive.core.network.data.UserProfileManager;
+import org.hive2hive.core.network.messages.MessageClass;
 import org.hive2hive.core.network.messages.direct.BaseDirectMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -61,4 +62,8 @@ public class UpdateNotificationMessage extends BaseDirectMessage implements IFil
 		getEventBus().publish(new FileUpdateEvent(updatedFile.asFile(session.getRootFile()), updatedFile.isFile()));
 	}
 
+	@Override
+	public MessageClass getMessageClass() {
+		return MessageClass.NOTIFICATION;
+	}
 }
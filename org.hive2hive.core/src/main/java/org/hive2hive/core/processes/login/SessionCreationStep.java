@@ -38,7 +38,7 @@ public class SessionCreationStep extends ProcessStep<Void> {
 
 			// create user profile manager
 			UserProfileManager userProfileManager = new UserProfileManager(networkManager.getDataManager(),
-					context.consumeUserCredentials());
+					context.consumeUserCredentials(), networkManager.getFileConfiguration());
 			params.setUserProfileManager(userProfileManager);
 
 			// load user profile
@@ -64,6 +64,10 @@ public class SessionCreationStep extends ProcessStep<Void> {
 			}
 			params.setKeyManager(keyManager);
 
+			// read the hashes of the files at the last logout
+			params.setHashCache(FileUtil.readHashCache(params.getFileAgent(), networkManager.getDataManager()
+					.getSerializer()));
+
 			// create the download manager
 			DownloadManager downloadManager = networkManager.getDownloadManager();
 			params.setDownloadManager(downloadManager);
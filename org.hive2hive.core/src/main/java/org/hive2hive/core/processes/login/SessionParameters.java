@@ -1,5 +1,6 @@
 package org.hive2hive.core.processes.login;
 
+import org.hive2hive.core.file.FileHashCache;
 import org.hive2hive.core.file.IFileAgent;
 import org.hive2hive.core.network.data.PublicKeyManager;
 import org.hive2hive.core.network.data.UserProfileManager;
@@ -14,6 +15,7 @@ public class SessionParameters {
 	private LocationsManager locationsManager;
 	private DownloadManager downloadManager;
 	private PublicKeyManager keyManager;
+	private FileHashCache hashCache;
 
 	public SessionParameters(IFileAgent fileAgent) {
 		this.fileAgent = fileAgent;
@@ -51,6 +53,14 @@ public class SessionParameters {
 		this.locationsManager = locationsManager;
 	}
 
+	public FileHashCache getHashCache() {
+		return hashCache;
+	}
+
+	public void setHashCache(FileHashCache hashCache) {
+		this.hashCache = hashCache;
+	}
+
 	public IFileAgent getFileAgent() {
 		return fileAgent;
 	}
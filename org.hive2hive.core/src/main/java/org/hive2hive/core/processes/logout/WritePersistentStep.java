@@ -2,6 +2,7 @@ package org.hive2hive.core.processes.logout;
 
 import java.io.IOException;
 
+import org.hive2hive.core.file.FileHashCache;
 import org.hive2hive.core.file.FileUtil;
 import org.hive2hive.core.file.IFileAgent;
 import org.hive2hive.core.network.data.PublicKeyManager;
@@ -18,12 +19,15 @@ public class WritePersistentStep extends ProcessStep<Void> {
 
 	private final IFileAgent fileAgent;
 	private final PublicKeyManager keyManager;
+	private final FileHashCache hashCache;
 	private final IH2HSerialize serializer;
 
-	public WritePersistentStep(IFileAgent fileAgent, PublicKeyManager keyManager, IH2HSerialize serializer) {
+	public WritePersistentStep(IFileAgent fileAgent, PublicKeyManager keyManager, FileHashCache hashCache,
+			IH2HSerialize serializer) {
 		this.serializer = serializer;
 		this.fileAgent = fileAgent;
 		this.keyManager = keyManager;
+		this.hashCache = hashCache;
 		this.setName(getClass().getName());
 	}
 
@@ -36,6 +40,15 @@ public class WritePersistentStep extends ProcessStep<Void> {
 			// it's not mandatory, but recommended. Thus we don't rollback the logout process here
 			logger.error("Meta data could not be persisted.", ex);
 		}
+
+		if (hashCache != null) {
+			try {
+				FileUtil.writeHashCache(fileAgent, hashCache, serializer);
+			} catch (IOException ex) {
+				// the files are hashed again at the next login
+				logger.error("File hashes could not be persisted.", ex);
+			}
+		}
 		return null;
 	}
 
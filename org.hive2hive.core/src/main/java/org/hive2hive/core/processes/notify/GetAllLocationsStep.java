@@ -11,6 +11,8 @@ import org.hive2hive.core.H2HConstants;
 import org.hive2hive.core.model.BaseNetworkContent;
 import org.hive2hive.core.model.versioned.Locations;
 import org.hive2hive.core.network.data.DataManager;
+import org.hive2hive.core.network.data.parameters.IParameters;
+import org.hive2hive.core.network.data.parameters.Parameters;
 import org.hive2hive.core.processes.common.base.BaseGetProcessStep;
 import org.hive2hive.core.processes.context.NotifyProcessContext;
 import org.hive2hive.processframework.exceptions.InvalidProcessStateException;
@@ -18,12 +20,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Gets all locations of a given list of users (iterative). If all locations are fetched, this step sends
+ * Gets all locations of a given list of users (in parallel). If all locations are fetched, this step sends
  * them.
  * 
  * @author Nico
  */
-// TODO: do parallel for faster processing
 public class GetAllLocationsStep extends BaseGetProcessStep {
 
 	private static final Logger logger = LoggerFactory.getLogger(GetAllLocationsStep.class);
@@ -40,9 +41,17 @@ public class GetAllLocationsStep extends BaseGetProcessStep {
 		logger.debug("Starting to get all locations from the users to be notified.");
 		Map<String, List<PeerAddress>> allLocations = new HashMap<String, List<PeerAddress>>();
 
-		// iterate over all users and get the locations of them
-		for (String userId : context.consumeUsersToNotify()) {
-			BaseNetworkContent content = get(userId, H2HConstants.USER_LOCATIONS);
+		// get the locations of all users at once
+		List<String> userIds = new ArrayList<String>(context.consumeUsersToNotify());
+		List<IParameters> parameters = new ArrayList<IParameters>(userIds.size());
+		for (String userId : userIds) {
+			parameters.add(new Parameters().setLocationKey(userId).setContentKey(H2HConstants.USER_LOCATIONS));
+		}
+		List<BaseNetworkContent> contents = dataManager.getAll(parameters);
+
+		for (int i = 0; i < userIds.size(); i++) {
+			String userId = userIds.get(i);
+			BaseNetworkContent content = contents.get(i);
 			if (content == null) {
 				allLocations.put(userId, new ArrayList<PeerAddress>());
 			} else {
@@ -6,14 +6,17 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import net.tomp2p.peers.Number160;
 import net.tomp2p.peers.PeerAddress;
 
 import org.hive2hive.core.H2HSession;
 import org.hive2hive.core.exceptions.NoPeerConnectionException;
 import org.hive2hive.core.exceptions.NoSessionException;
 import org.hive2hive.core.exceptions.SendFailedException;
+import org.hive2hive.core.model.versioned.EncryptedNetworkContent;
 import org.hive2hive.core.network.NetworkManager;
 import org.hive2hive.core.network.NetworkUtils;
+import org.hive2hive.core.network.data.UserProfileManager;
 import org.hive2hive.core.network.messages.direct.BaseDirectMessage;
 import org.hive2hive.core.network.messages.direct.response.ResponseMessage;
 import org.hive2hive.core.processes.common.base.BaseMessageProcessStep;
@@ -73,6 +76,18 @@ public class SendNotificationsMessageStep extends BaseMessageProcessStep {
 			PublicKey ownPublicKey) {
 		ownPeers.remove(networkManager.getConnection().getPeer().peerAddress());
 		logger.debug("Notifying {} other clients of same user (without myself).", ownPeers.size());
+		Number160 versionKey = null;
+		EncryptedNetworkContent encrypted = null;
+		try {
+			UserProfileManager profileManager = networkManager.getSession().getProfileManager();
+			versionKey = profileManager.getLastPutVersionKey();
+			if (versionKey != null) {
+				encrypted = profileManager.getEncryptedVersion(versionKey);
+			}
+		} catch (NoSessionException e) {
+			logger.debug("Cannot announce the user profile version because no session");
+		}
+
 		for (PeerAddress peerAddress : ownPeers) {
 			if (peerAddress.equals(networkManager.getConnection().getPeer().peerAddress())) {
 				// don't send myself
@@ -81,6 +96,11 @@ public class SendNotificationsMessageStep extends BaseMessageProcessStep {
 			}
 
 			try {
+				if (versionKey != null) {
+					// such that the other client does not read an outdated user profile
+					send(new UserProfileVersionMessage(peerAddress, versionKey, encrypted), ownPublicKey);
+				}
+
 				BaseDirectMessage message = messageFactory.createPrivateNotificationMessage(peerAddress);
 				if (message == null) {
 					logger.info("Not notifying any of the own peers because the message to be sent is null.");
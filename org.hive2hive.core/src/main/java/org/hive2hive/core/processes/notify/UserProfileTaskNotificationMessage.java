@@ -2,6 +2,8 @@ package org.hive2hive.core.processes.notify;
 
 import net.tomp2p.peers.PeerAddress;
 
+import org.hive2hive.core.exceptions.NoSessionException;
+import org.hive2hive.core.network.messages.MessageClass;
 import org.hive2hive.core.network.messages.direct.BaseDirectMessage;
 import org.hive2hive.core.processes.ProcessFactory;
 import org.hive2hive.processframework.exceptions.InvalidProcessStateException;
@@ -31,6 +33,13 @@ public class UserProfileTaskNotificationMessage extends BaseDirectMessage {
 	@Override
 	public void run() {
 		logger.debug("Received a user profile task notification from '{}'.", senderId);
+		try {
+			// the tasks modify the user profile
+			networkManager.getSession().getProfileManager().invalidate();
+		} catch (NoSessionException e) {
+			logger.debug("No session to invalidate the user profile.");
+		}
+
 		try {
 			IProcessComponent<Void> process = ProcessFactory.instance().createUserProfileTaskProcess(networkManager);
 			process.execute();
@@ -40,4 +49,9 @@ public class UserProfileTaskNotificationMessage extends BaseDirectMessage {
 			logger.error("Cannot handle user profile task queue.", ex);
 		}
 	}
+
+	@Override
+	public MessageClass getMessageClass() {
+		return MessageClass.NOTIFICATION;
+	}
 }
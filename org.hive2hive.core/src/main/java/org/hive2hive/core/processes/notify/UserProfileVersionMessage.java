@@ -0,0 +1,57 @@
+package org.hive2hive.core.processes.notify;
+
+import net.tomp2p.peers.Number160;
+import net.tomp2p.peers.PeerAddress;
+
+import org.hive2hive.core.H2HSession;
+import org.hive2hive.core.exceptions.NoSessionException;
+import org.hive2hive.core.model.versioned.EncryptedNetworkContent;
+import org.hive2hive.core.network.messages.MessageClass;
+import org.hive2hive.core.network.messages.direct.BaseDirectMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Announces the latest version of the user profile to the other clients of the same user. They invalidate
+ * their local profile and, if the encrypted version is attached, can use it without fetching it.
+ */
+public class UserProfileVersionMessage extends BaseDirectMessage {
+
+	private static final long serialVersionUID = -3196432985017312469L;
+	private static final Logger logger = LoggerFactory.getLogger(UserProfileVersionMessage.class);
+
+	private final Number160 versionKey;
+	private final EncryptedNetworkContent encrypted;
+
+	/**
+	 * @param targetAddress the other client
+	 * @param versionKey the version key of the latest user profile
+	 * @param encrypted the encrypted version or <code>null</code> if only the version key is announced
+	 */
+	public UserProfileVersionMessage(PeerAddress targetAddress, Number160 versionKey, EncryptedNetworkContent encrypted) {
+		super(targetAddress);
+		this.versionKey = versionKey;
+		this.encrypted = encrypted;
+	}
+
+	@Override
+	public void run() {
+		logger.debug("Received the announcement of user profile version {}.", versionKey);
+		try {
+			H2HSession session = networkManager.getSession();
+			// only another client of the same user may announce a version of the own profile
+			if (!session.getUserId().equals(getVerifiedSenderId())) {
+				logger.warn("Ignoring the user profile version announced by user '{}'.", getVerifiedSenderId());
+				return;
+			}
+			session.getProfileManager().onVersionAnnounced(versionKey, encrypted);
+		} catch (NoSessionException e) {
+			logger.debug("No user is logged in, ignoring the user profile version.");
+		}
+	}
+
+	@Override
+	public MessageClass getMessageClass() {
+		return MessageClass.NOTIFICATION;
+	}
+}
@@ -0,0 +1,101 @@
+package org.hive2hive.core.processes.share.pkupdate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hive2hive.core.network.data.DataManager;
+import org.hive2hive.core.network.data.parameters.IParameters;
+import org.hive2hive.core.network.data.parameters.Parameters;
+import org.hive2hive.core.processes.context.BasePKUpdateContext;
+import org.hive2hive.core.processes.context.ChunkPKUpdateContext;
+import org.hive2hive.processframework.ProcessStep;
+import org.hive2hive.processframework.exceptions.InvalidProcessStateException;
+import org.hive2hive.processframework.exceptions.ProcessExecutionException;
+import org.hive2hive.processframework.exceptions.ProcessRollbackException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Changes the protection keys of many chunks in one batch (see {@link DataManager#changeProtectionKeyAll(List)}
+ * ). At a rollback, the keys of the chunks that have been changed successfully are changed back.
+ */
+public class ChangeChunksProtectionKeysStep extends ProcessStep<Void> {
+
+	private static final Logger logger = LoggerFactory.getLogger(ChangeChunksProtectionKeysStep.class);
+
+	private final List<ChunkPKUpdateContext> contexts;
+	private final DataManager dataManager;
+	// the parameters of the successful changes
+	private final List<IParameters> changed;
+
+	public ChangeChunksProtectionKeysStep(List<ChunkPKUpdateContext> contexts, DataManager dataManager) {
+		this.setName(getClass().getName());
+		this.contexts = contexts;
+		this.dataManager = dataManager;
+		this.changed = new ArrayList<IParameters>();
+	}
+
+	@Override
+	protected Void doExecute() throws InvalidProcessStateException, ProcessExecutionException {
+		List<IParameters> parameters = new ArrayList<IParameters>(contexts.size());
+		for (BasePKUpdateContext context : contexts) {
+			parameters.add(new Parameters().setLocationKey(context.getLocationKey()).setContentKey(context.getContentKey())
+					.setVersionKey(context.getVersionKey()).setProtectionKeys(context.consumeOldProtectionKeys())
+					.setNewProtectionKeys(context.consumeNewProtectionKeys()).setTTL(context.getTTL())
+					.setHash(context.getHash()));
+		}
+
+		List<Boolean> results = dataManager.changeProtectionKeyAll(parameters);
+		IParameters failed = null;
+		for (int i = 0; i < results.size(); i++) {
+			if (results.get(i)) {
+				changed.add(parameters.get(i));
+			} else if (failed == null) {
+				failed = parameters.get(i);
+			}
+		}
+
+		setRequiresRollback(!changed.isEmpty());
+		if (failed != null) {
+			throw new ProcessExecutionException(this, String.format(
+					"Could not change content protection keys. Parameters: %s.", failed.toString()));
+		}
+
+		logger.debug("Successfully changed the protection keys of {} chunks.", changed.size());
+		return null;
+	}
+
+	@Override
+	protected Void doRollback() throws InvalidProcessStateException, ProcessRollbackException {
+		logger.debug("Rollbacking change of content protection key of {} chunks.", changed.size());
+
+		List<IParameters> rollbackParameters = new ArrayList<IParameters>(changed.size());
+		for (IParameters parameters : changed) {
+			// switch the content protection keys
+			rollbackParameters.add(new Parameters().setLocationKey(parameters.getLocationKey())
+					.setContentKey(parameters.getContentKey()).setVersionKey(parameters.getVersionKey())
+					.setTTL(parameters.getTTL()).setHash(parameters.getHash())
+					.setProtectionKeys(parameters.getNewProtectionKeys())
+					.setNewProtectionKeys(parameters.getProtectionKeys()));
+		}
+
+		List<Boolean> results = dataManager.changeProtectionKeyAll(rollbackParameters);
+		List<IParameters> stillChanged = new ArrayList<IParameters>();
+		for (int i = 0; i < results.size(); i++) {
+			if (!results.get(i)) {
+				stillChanged.add(changed.get(i));
+			}
+		}
+
+		changed.retainAll(stillChanged);
+		if (changed.isEmpty()) {
+			logger.debug("Rollback of change protection keys succeeded.");
+			setRequiresRollback(false);
+		} else {
+			throw new ProcessRollbackException(this, String.format(
+					"Rollback of change protection key failed for %s chunks.", changed.size()));
+		}
+
+		return null;
+	}
+}
@@ -1,6 +1,8 @@
 package org.hive2hive.core.processes.share.pkupdate;
 
-import org.hive2hive.core.model.FileVersion;
+import java.util.ArrayList;
+import java.util.List;
+
 import org.hive2hive.core.model.MetaChunk;
 import org.hive2hive.core.model.versioned.BaseMetaFile;
 import org.hive2hive.core.model.versioned.MetaFileSmall;
@@ -15,7 +17,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Takes the meta file and iteratively changes the protection keys of all chunks.
+ * Takes the meta file and changes the protection keys of all chunks in one batch.
  * 
  * @author Nico, Seppi
  */
@@ -45,21 +47,20 @@ public class InitializeChunkUpdateStep extends ProcessStep<Void> {
 
 		MetaFileSmall metaFileSmall = (MetaFileSmall) metaFile;
 		logger.debug("Initialize updating all chunks for file '{}' in a shared folder.", context.getFileName());
-		int counter = 0;
-		for (FileVersion version : metaFileSmall.getVersions()) {
-			for (MetaChunk metaChunk : version.getMetaChunks()) {
-				// each chunk gets an own context
-				ChunkPKUpdateContext chunkContext = new ChunkPKUpdateContext(context.consumeOldProtectionKeys(),
-						context.consumeNewProtectionKeys(), metaChunk);
-
-				// create the step and wrap it to run asynchronous, attach it to the parent process
-				ChangeProtectionKeysStep changeStep = new ChangeProtectionKeysStep(chunkContext, dataManager);
-				getParent().add(new AsyncComponent<>(changeStep));
-				counter++;
-			}
+		List<ChunkPKUpdateContext> chunkContexts = new ArrayList<ChunkPKUpdateContext>();
+		// chunks can be shared among versions, update each only once
+		for (MetaChunk metaChunk : metaFileSmall.getDistinctMetaChunks()) {
+			// each chunk gets an own context
+			chunkContexts.add(new ChunkPKUpdateContext(context.consumeOldProtectionKeys(), context
+					.consumeNewProtectionKeys(), metaChunk));
 		}
 
-		logger.debug("{} chunks of file '{}' need to update their protection keys.", counter, context.getFileName());
+		// create the step and wrap it to run asynchronous, attach it to the parent process
+		ChangeChunksProtectionKeysStep changeStep = new ChangeChunksProtectionKeysStep(chunkContexts, dataManager);
+		getParent().add(new AsyncComponent<>(changeStep));
+
+		logger.debug("{} chunks of file '{}' need to update their protection keys.", chunkContexts.size(),
+				context.getFileName());
 		
 		return null;
 	}
@@ -6,6 +6,7 @@ import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.KeyPair;
 import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
 import java.security.PrivateKey;
@@ -20,6 +21,7 @@ import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
 import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.KeyGenerator;
+import javax.crypto.Mac;
 import javax.crypto.NoSuchPaddingException;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.IvParameterSpec;
@@ -46,6 +48,8 @@ public final class EncryptionUtil {
 	// public static String SECURITY_PROVIDER = "BC";
 
 	private static final String SINGATURE_ALGORITHM = "SHA1withRSA";
+	private static final String MAC_ALGORITHM = "HmacSHA256";
+	private static final int MAC_KEY_LENGTH = 32;
 	// Fermat F4, largest known fermat prime
 	private static final BigInteger RSA_PUBLIC_EXP = new BigInteger("10001", 16);
 	private static final int IV_LENGTH = 16;
@@ -358,6 +362,59 @@ public final class EncryptionUtil {
 		return false;
 	}
 
+	/**
+	 * Generates a random key to create message authentication codes.
+	 * 
+	 * @return a random key for {@link #mac(byte[], SecretKey, String)}
+	 */
+	public static SecretKey generateMacKey() {
+		byte[] key = new byte[MAC_KEY_LENGTH];
+		new SecureRandom().nextBytes(key);
+		return decodeMacKey(key);
+	}
+
+	/**
+	 * Restores a key to create message authentication codes.
+	 * 
+	 * @param encoded the encoded key (see {@link SecretKey#getEncoded()})
+	 * @return the key for {@link #mac(byte[], SecretKey, String)}
+	 */
+	public static SecretKey decodeMacKey(byte[] encoded) {
+		return new SecretKeySpec(encoded, MAC_ALGORITHM);
+	}
+
+	/**
+	 * Creates a message authentication code (HMAC) of the provided data. This is much cheaper than a
+	 * signature, but both parties need to know the key.
+	 * 
+	 * @param data The data to authenticate.
+	 * @param macKey The secret key shared by both parties.
+	 * @param securityProvider the security provider (e.g. "BC" for bouncy castle)
+	 * @return The message authentication code of the data.
+	 * @throws GeneralSecurityException if the code cannot be created
+	 */
+	public static byte[] mac(byte[] data, SecretKey macKey, String securityProvider) throws GeneralSecurityException {
+		Mac mac = Mac.getInstance(MAC_ALGORITHM, securityProvider);
+		mac.init(macKey);
+		return mac.doFinal(data);
+	}
+
+	/**
+	 * Verifies the message authentication code of the provided data.
+	 * 
+	 * @param data The data to be verified.
+	 * @param code The message authentication code of the data.
+	 * @param macKey The secret key shared by both parties.
+	 * @param securityProvider the security provider (e.g. "BC" for bouncy castle)
+	 * @return Returns true if the code matches the data and false otherwise.
+	 * @throws GeneralSecurityException if the code cannot be created
+	 */
+	public static boolean verifyMac(byte[] data, byte[] code, SecretKey macKey, String securityProvider)
+			throws GeneralSecurityException {
+		// compare in constant time
+		return MessageDigest.isEqual(mac(data, macKey, securityProvider), code);
+	}
+
 	/**
 	 * Encrypts or decrypts using AES. Note that this method uses the native method and has an upper limit for
 	 * the key size. If the size is too large, use {@link IStrongAESEncryption} instead.
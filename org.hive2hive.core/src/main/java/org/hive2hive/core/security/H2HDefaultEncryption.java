@@ -6,6 +6,8 @@ import java.security.KeyPair;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.Security;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.crypto.SecretKey;
 
@@ -22,9 +24,14 @@ public class H2HDefaultEncryption implements IH2HEncryption {
 	private final IH2HSerialize serializer;
 	private final String securityProvider;
 	private final IStrongAESEncryption strongAES;
+	private final Map<RSA_KEYLENGTH, RSAKeyPairPool> keyPairPools;
+	// the configuration of the pools, they are (re-)started with the first key pair generation
+	private final Map<RSA_KEYLENGTH, KeyPairPoolConfig> lazyKeyPairPools;
 
 	/**
-	 * Create a default encryption using bouncy castle as the security provider
+	 * Create a default encryption using bouncy castle as the security provider. The RSA key pairs for meta
+	 * files and chunks are pre-generated in the background, starting with the first generated key pair of
+	 * the respective length.
 	 * 
 	 * @param serializer the data serializer
 	 */
@@ -34,6 +41,11 @@ public class H2HDefaultEncryption implements IH2HEncryption {
 		if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
 			Security.addProvider(new BouncyCastleProvider());
 		}
+
+		KeyPairPoolConfig defaultConfig = new KeyPairPoolConfig(H2HConstants.KEY_PAIR_POOL_SIZE,
+				H2HConstants.KEY_PAIR_POOL_LOW_WATER_MARK);
+		lazyKeyPairPools.put(H2HConstants.KEYLENGTH_META_FILE, defaultConfig);
+		lazyKeyPairPools.put(H2HConstants.KEYLENGTH_CHUNK, defaultConfig);
 	}
 
 	/**
@@ -48,6 +60,64 @@ public class H2HDefaultEncryption implements IH2HEncryption {
 		this.serializer = serializer;
 		this.securityProvider = securityProvider;
 		this.strongAES = strongAES;
+		this.keyPairPools = new ConcurrentHashMap<RSA_KEYLENGTH, RSAKeyPairPool>();
+		this.lazyKeyPairPools = new ConcurrentHashMap<RSA_KEYLENGTH, KeyPairPoolConfig>();
+	}
+
+	/**
+	 * Pre-generate RSA key pairs of the given length in the background. Subsequent calls to
+	 * {@link #generateRSAKeyPair(RSA_KEYLENGTH)} with this length take a ready pair from the pool. If a pool
+	 * for this length already exists, it is kept. The configuration is remembered, such that the pool is
+	 * started again with the first key pair generation after {@link #shutdownKeyPairPools()}.
+	 * 
+	 * @param length the key length
+	 * @param size the maximum number of pre-generated key pairs
+	 * @param lowWaterMark the number of available key pairs at which the pool gets refilled
+	 * @return the pool for the given key length
+	 */
+	public RSAKeyPairPool enableKeyPairPool(RSA_KEYLENGTH length, int size, int lowWaterMark) {
+		synchronized (keyPairPools) {
+			RSAKeyPairPool pool = keyPairPools.get(length);
+			if (pool == null) {
+				lazyKeyPairPools.put(length, new KeyPairPoolConfig(size, lowWaterMark));
+				pool = startKeyPairPool(length);
+			}
+			return pool;
+		}
+	}
+
+	/**
+	 * Stops the background generation of all key pair pools (e.g. when the node disconnects). The pools are
+	 * started again with their configuration (the defaults for meta files and chunks or the one given at
+	 * {@link #enableKeyPairPool(RSA_KEYLENGTH, int, int)}) with the next generated key pair of their length.
+	 */
+	public void shutdownKeyPairPools() {
+		synchronized (keyPairPools) {
+			for (RSAKeyPairPool pool : keyPairPools.values()) {
+				pool.shutdown();
+			}
+			keyPairPools.clear();
+		}
+	}
+
+	/**
+	 * Stops the background generation of all key pair pools. Afterwards, key pairs are generated on demand.
+	 */
+	public void disableKeyPairPools() {
+		synchronized (keyPairPools) {
+			lazyKeyPairPools.clear();
+			shutdownKeyPairPools();
+		}
+	}
+
+	/**
+	 * Get the key pair pool (e.g. to read its hit / miss statistics)
+	 * 
+	 * @param length the key length
+	 * @return the pool or <code>null</code> if no pool is enabled for this key length
+	 */
+	public RSAKeyPairPool getKeyPairPool(RSA_KEYLENGTH length) {
+		return keyPairPools.get(length);
 	}
 
 	@Override
@@ -75,6 +145,19 @@ public class H2HDefaultEncryption implements IH2HEncryption {
 		return (BaseNetworkContent) serializer.deserialize(decrypted);
 	}
 
+	@Override
+	public EncryptedNetworkContent encryptAES(byte[] content, SecretKey aesKey) throws GeneralSecurityException {
+		byte[] initVector = EncryptionUtil.generateIV();
+		byte[] encryptedContent = EncryptionUtil.encryptAES(content, aesKey, initVector, securityProvider, strongAES);
+		return new EncryptedNetworkContent(encryptedContent, initVector);
+	}
+
+	@Override
+	public byte[] decryptAESRaw(EncryptedNetworkContent content, SecretKey aesKey) throws GeneralSecurityException {
+		return EncryptionUtil.decryptAES(content.getCipherContent(), aesKey, content.getInitVector(), securityProvider,
+				strongAES);
+	}
+
 	@Override
 	public HybridEncryptedContent encryptHybrid(BaseNetworkContent content, PublicKey publicKey)
 			throws IOException, GeneralSecurityException {
@@ -132,6 +215,43 @@ public class H2HDefaultEncryption implements IH2HEncryption {
 
 	@Override
 	public KeyPair generateRSAKeyPair(RSA_KEYLENGTH length) {
+		RSAKeyPairPool pool = keyPairPools.get(length);
+		if (pool == null && lazyKeyPairPools.containsKey(length)) {
+			synchronized (keyPairPools) {
+				pool = startKeyPairPool(length);
+			}
+		}
+		if (pool != null) {
+			return pool.take();
+		}
 		return EncryptionUtil.generateRSAKeyPair(length, securityProvider);
 	}
+
+	/**
+	 * Starts the pool of the given length from its configuration, unless it is already running. The caller
+	 * holds the lock of the pools.
+	 * 
+	 * @return the running pool or <code>null</code> if no pool is configured for this length
+	 */
+	private RSAKeyPairPool startKeyPairPool(RSA_KEYLENGTH length) {
+		RSAKeyPairPool pool = keyPairPools.get(length);
+		KeyPairPoolConfig config = lazyKeyPairPools.get(length);
+		if (pool == null && config != null) {
+			pool = new RSAKeyPairPool(length, securityProvider, config.size, config.lowWaterMark,
+					H2HConstants.KEY_PAIR_POOL_THREADS);
+			keyPairPools.put(length, pool);
+		}
+		return pool;
+	}
+
+	private static class KeyPairPoolConfig {
+
+		private final int size;
+		private final int lowWaterMark;
+
+		public KeyPairPoolConfig(int size, int lowWaterMark) {
+			this.size = size;
+			this.lowWaterMark = lowWaterMark;
+		}
+	}
 }
@@ -1,14 +1,17 @@
 package org.hive2hive.core.security;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.security.DigestInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
 
+import org.hive2hive.core.file.FileHashCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -24,6 +27,8 @@ public class HashUtil {
 
 	private static final Logger logger = LoggerFactory.getLogger(HashUtil.class);
 	private static final String HASH_ALGORITHM = "SHA-256";
+	// maximum size of the buffer to read files
+	static final int READ_BUFFER_SIZE = 1024 * 1024;
 
 	private HashUtil() {
 		// only static methods
@@ -62,38 +67,61 @@ public class HashUtil {
 			return new byte[0];
 		}
 
-		MessageDigest digest;
+		FileChannel channel;
 		try {
-			digest = MessageDigest.getInstance(HASH_ALGORITHM);
-		} catch (NoSuchAlgorithmException e) {
-			logger.error("Invalid hash algorithm {}", HASH_ALGORITHM, e);
+			// open the channel
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		} catch (NoSuchFileException | AccessDeniedException e) {
+			logger.error("File {} not found to generate the hash", file, e);
 			return new byte[0];
 		}
 
-		FileInputStream fis;
 		try {
-			// open the stream
-			fis = new FileInputStream(file);
-		} catch (FileNotFoundException e) {
-			logger.error("File {} not found to generate the hash", file, e);
-			return new byte[0];
+			// read through a large buffer, but do not allocate it for small files
+			int bufferSize = (int) Math.max(1, Math.min(READ_BUFFER_SIZE, channel.size()));
+			return hash(channel, 0, Long.MAX_VALUE, ByteBuffer.allocate(bufferSize));
+		} finally {
+			channel.close();
 		}
+	}
 
-		DigestInputStream dis = new DigestInputStream(fis, digest);
+	/**
+	 * Hashes a region of a file. The channel is read with positional reads, thus multiple regions of the same
+	 * channel can be hashed in parallel.
+	 *
+	 * @param channel the channel of the file
+	 * @param position the position to start reading
+	 * @param length the number of bytes to hash (or less if the file ends before)
+	 * @param buffer the buffer to read into
+	 * @return the hash of the region
+	 * @throws IOException if the file cannot be read
+	 */
+	static byte[] hash(FileChannel channel, long position, long length, ByteBuffer buffer) throws IOException {
+		MessageDigest digest;
 		try {
-			byte[] buffer = new byte[1024];
-			int numRead;
-			do {
-				numRead = dis.read(buffer);
-			} while (numRead != -1);
-		} finally {
-			if (dis != null) {
-				dis.close();
+			digest = MessageDigest.getInstance(HASH_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			logger.error("Invalid hash algorithm {}", HASH_ALGORITHM, e);
+			return new byte[0];
+		}
+
+		long remaining = length;
+		while (remaining > 0) {
+			buffer.clear();
+			if (remaining < buffer.capacity()) {
+				buffer.limit((int) remaining);
 			}
 
-			if (fis != null) {
-				fis.close();
+			int read = channel.read(buffer, position);
+			if (read == -1) {
+				// end of file
+				break;
 			}
+
+			buffer.flip();
+			digest.update(buffer);
+			position += read;
+			remaining -= read;
 		}
 
 		return digest.digest();
@@ -120,6 +148,28 @@ public class HashUtil {
 		return compare(hash, expectedHash);
 	}
 
+	/**
+	 * Compares if the file hash matches a given hash. The file is only hashed if it changed since the cache
+	 * has seen it the last time.
+	 *
+	 * @param file the file to comapre its hash
+	 * @param expectedHash the expected hash of the file
+	 * @param hashCache the cache of file hashes
+	 * @return <code>true</code> if the file has the expected hash
+	 * @throws IOException if the file cannot be read
+	 */
+	public static boolean compare(File file, byte[] expectedHash, FileHashCache hashCache) throws IOException {
+		if (!file.exists() && (expectedHash == null || expectedHash.length == 0)) {
+			// both do not exist
+			return true;
+		} else if (file.isDirectory()) {
+			// directories always match
+			return true;
+		}
+
+		return compare(hashCache.getHash(file), expectedHash);
+	}
+
 	/**
 	 * Compares if the given hash matches another hash. This method works symmetrically and is not
 	 * dependent on the parameter order
@@ -49,6 +49,27 @@ public interface IH2HEncryption {
 	BaseNetworkContent decryptAES(EncryptedNetworkContent content, SecretKey aesKey)
 			throws ClassNotFoundException, IOException, GeneralSecurityException;
 
+	/**
+	 * Symmetrically encrypts any content that is already serialized by means of the AES algorithm.
+	 * 
+	 * @param content the content to be encrypted.
+	 * @param aesKey The symmetric key with which the content will be encrypted.
+	 * @return EncryptedContent which contains the encrypted byte[] content as well as the AES initialization
+	 *         vector (IV).
+	 * @throws GeneralSecurityException if the data cannot be encrypted for any reason.
+	 */
+	EncryptedNetworkContent encryptAES(byte[] content, SecretKey aesKey) throws GeneralSecurityException;
+
+	/**
+	 * Symmetrically decrypts any content by means of the AES algorithm.
+	 * 
+	 * @param content The EncryptedContent to be decrypted.
+	 * @param aesKey The symmetric key with which the content will be decrypted.
+	 * @return decrypted object in the raw format
+	 * @throws GeneralSecurityException if the data cannot be decrypted for any reason.
+	 */
+	byte[] decryptAESRaw(EncryptedNetworkContent content, SecretKey aesKey) throws GeneralSecurityException;
+
 	/**
 	 * Asymmetrically encrypts content inheriting from {@link BaseNetworkContent}. A default key length will
 	 * be used.
@@ -100,7 +121,8 @@ public interface IH2HEncryption {
 			throws ClassNotFoundException, IOException, GeneralSecurityException;
 
 	/**
-	 * Generates an RSA keypair using the correct security provider
+	 * Generates an RSA keypair using the correct security provider. Implementations may hand out key pairs
+	 * that have been pre-generated in the background, but never return the same key pair twice.
 	 * 
 	 * @param length the length of the key
 	 * @return an RSA keypair
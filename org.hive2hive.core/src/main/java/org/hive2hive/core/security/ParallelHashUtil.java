@@ -0,0 +1,196 @@
+package org.hive2hive.core.security;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.hive2hive.core.file.ChunkRange;
+import org.hive2hive.core.file.FileChunkUtil;
+import org.hive2hive.core.file.FileHashCache;
+
+/**
+ * Hashes the chunks of large files and whole directory trees on all cores. The results are identical to the
+ * ones of {@link HashUtil}: The hash of a chunk equals {@link HashUtil#hash(byte[])} of the chunk data and
+ * the hash of a file equals {@link HashUtil#hash(File)}.
+ */
+public final class ParallelHashUtil {
+
+	// worker threads are daemons, the pool never needs to be shut down
+	private static final ForkJoinPool POOL = new ForkJoinPool();
+
+	// every worker thread reads through its own direct buffer
+	private static final ThreadLocal<ByteBuffer> BUFFERS = new ThreadLocal<ByteBuffer>() {
+		@Override
+		protected ByteBuffer initialValue() {
+			return ByteBuffer.allocateDirect(HashUtil.READ_BUFFER_SIZE);
+		}
+	};
+
+	private ParallelHashUtil() {
+		// only static methods
+	}
+
+	/**
+	 * Hashes all chunks of a file in parallel.
+	 * 
+	 * @param file the file to hash
+	 * @param chunkSize the size of a chunk (all chunks except the last one have this size)
+	 * @return the hashes of the chunks in the order of the chunks (see
+	 *         {@link FileChunkUtil#getChunkRanges(long, int)}, an empty file has a single chunk of length 0)
+	 * @throws IOException if the file cannot be read
+	 */
+	public static List<byte[]> hashChunks(File file, int chunkSize) throws IOException {
+		return hashChunks(file, FileChunkUtil.getChunkRanges(file.length(), chunkSize));
+	}
+
+	/**
+	 * Hashes the given chunks of a file in parallel.
+	 * 
+	 * @param file the file to hash
+	 * @param ranges the chunks of the file
+	 * @return the hashes of the chunks in the order of the ranges
+	 * @throws IOException if the file cannot be read
+	 */
+	public static List<byte[]> hashChunks(File file, List<ChunkRange> ranges) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			byte[][] hashes = new byte[ranges.size()][];
+			invoke(new ChunkTask(channel, ranges, 0, ranges.size(), hashes));
+			return Arrays.asList(hashes);
+		}
+	}
+
+	/**
+	 * Walks a directory tree and hashes all files in parallel.
+	 * 
+	 * @param root the root of the tree (is not part of the result)
+	 * @param hashCache the cache to get the hashes of unchanged files from, can be <code>null</code>
+	 * @return the hashes of all files and folders below the root (folders have an empty hash)
+	 * @throws IOException if a file cannot be read
+	 */
+	public static Map<File, byte[]> hashTree(File root, FileHashCache hashCache) throws IOException {
+		Map<File, byte[]> hashes = new ConcurrentHashMap<File, byte[]>();
+		invoke(new TreeTask(root, hashCache, hashes));
+		return hashes;
+	}
+
+	private static void invoke(RecursiveAction task) throws IOException {
+		try {
+			POOL.invoke(task);
+		} catch (HashingException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Hashes a part of the chunks. The part is split until a single chunk remains.
+	 */
+	private static class ChunkTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 8396011373012516925L;
+
+		private final FileChannel channel;
+		private final List<ChunkRange> ranges;
+		private final int from;
+		private final int to;
+		private final byte[][] hashes;
+
+		public ChunkTask(FileChannel channel, List<ChunkRange> ranges, int from, int to, byte[][] hashes) {
+			this.channel = channel;
+			this.ranges = ranges;
+			this.from = from;
+			this.to = to;
+			this.hashes = hashes;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > 1) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new ChunkTask(channel, ranges, from, middle, hashes), new ChunkTask(channel, ranges, middle,
+						to, hashes));
+				return;
+			}
+
+			try {
+				ChunkRange range = ranges.get(from);
+				hashes[from] = HashUtil.hash(channel, range.getOffset(), range.getLength(), BUFFERS.get());
+			} catch (IOException e) {
+				throw new HashingException(e);
+			}
+		}
+	}
+
+	/**
+	 * Hashes the files of a folder and forks a task per sub-folder.
+	 */
+	private static class TreeTask extends RecursiveAction {
+
+		private static final long serialVersionUID = -4275370391536458170L;
+
+		private final File folder;
+		private final FileHashCache hashCache;
+		private final Map<File, byte[]> hashes;
+
+		public TreeTask(File folder, FileHashCache hashCache, Map<File, byte[]> hashes) {
+			this.folder = folder;
+			this.hashCache = hashCache;
+			this.hashes = hashes;
+		}
+
+		@Override
+		protected void compute() {
+			File[] children = folder.listFiles();
+			if (children == null) {
+				return;
+			}
+
+			List<RecursiveAction> tasks = new ArrayList<RecursiveAction>(children.length);
+			for (final File child : children) {
+				if (child.isDirectory()) {
+					hashes.put(child, new byte[0]);
+					tasks.add(new TreeTask(child, hashCache, hashes));
+				} else {
+					tasks.add(new RecursiveAction() {
+						private static final long serialVersionUID = 4907158124934006472L;
+
+						@Override
+						protected void compute() {
+							try {
+								hashes.put(child, hashCache == null ? HashUtil.hash(child) : hashCache.getHash(child));
+							} catch (IOException e) {
+								throw new HashingException(e);
+							}
+						}
+					});
+				}
+			}
+			invokeAll(tasks);
+		}
+	}
+
+	/**
+	 * Carries an {@link IOException} out of the fork-join pool
+	 */
+	private static class HashingException extends RuntimeException {
+
+		private static final long serialVersionUID = -6012412407418367013L;
+
+		public HashingException(IOException cause) {
+			super(cause);
+		}
+
+		@Override
+		public synchronized IOException getCause() {
+			return (IOException) super.getCause();
+		}
+	}
+}
@@ -0,0 +1,184 @@
+package org.hive2hive.core.security;
+
+import java.security.KeyPair;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hive2hive.core.security.EncryptionUtil.RSA_KEYLENGTH;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded pool of pre-generated RSA key pairs of a fixed length. The pairs are generated on background
+ * threads such that a caller can take a ready pair without waiting for the (expensive) key generation. When
+ * the number of available pairs drops to the low-water mark, the pool gets refilled. If the pool is empty,
+ * the pair is generated synchronously (which counts as a miss).
+ */
+public class RSAKeyPairPool {
+
+	private static final Logger logger = LoggerFactory.getLogger(RSAKeyPairPool.class);
+
+	private final RSA_KEYLENGTH keyLength;
+	private final String securityProvider;
+	private final int size;
+	private final int lowWaterMark;
+
+	private final BlockingQueue<KeyPair> pool;
+	private final ExecutorService executor;
+	// number of pairs that are currently being generated in the background
+	private final AtomicInteger pending = new AtomicInteger(0);
+
+	private final AtomicLong hits = new AtomicLong(0);
+	private final AtomicLong misses = new AtomicLong(0);
+
+	/**
+	 * Create a new pool and start filling it in the background.
+	 * 
+	 * @param keyLength the length of the keys in this pool
+	 * @param securityProvider the security provider used for the key generation
+	 * @param size the maximum number of pre-generated key pairs
+	 * @param lowWaterMark when the number of available key pairs drops to this value, the pool gets refilled
+	 * @param threads the number of background threads generating key pairs
+	 */
+	public RSAKeyPairPool(final RSA_KEYLENGTH keyLength, String securityProvider, int size, int lowWaterMark,
+			int threads) {
+		if (size < 1) {
+			throw new IllegalArgumentException("The pool size must be positive.");
+		} else if (lowWaterMark < 0 || lowWaterMark >= size) {
+			throw new IllegalArgumentException("The low-water mark must be between 0 and the pool size.");
+		} else if (threads < 1) {
+			throw new IllegalArgumentException("At least one thread is required.");
+		}
+
+		this.keyLength = keyLength;
+		this.securityProvider = securityProvider;
+		this.size = size;
+		this.lowWaterMark = lowWaterMark;
+		this.pool = new LinkedBlockingQueue<KeyPair>(size);
+		this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			private final AtomicInteger counter = new AtomicInteger(0);
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "rsa-keypool-" + keyLength.value() + "-"
+						+ counter.incrementAndGet());
+				// must not prevent the JVM from shutting down
+				thread.setDaemon(true);
+				thread.setPriority(Thread.MIN_PRIORITY);
+				return thread;
+			}
+		});
+
+		refill();
+	}
+
+	/**
+	 * Takes a key pair from the pool. If no pre-generated pair is available, a new one is generated
+	 * synchronously. Every pair is handed out once only.
+	 * 
+	 * @return a fresh RSA key pair
+	 */
+	public KeyPair take() {
+		KeyPair keyPair = pool.poll();
+		if (keyPair == null) {
+			misses.incrementAndGet();
+			logger.trace("No pre-generated key pair of length {} available. Generating it now.", keyLength.value());
+			keyPair = EncryptionUtil.generateRSAKeyPair(keyLength, securityProvider);
+		} else {
+			hits.incrementAndGet();
+		}
+
+		if (pool.size() <= lowWaterMark) {
+			refill();
+		}
+		return keyPair;
+	}
+
+	/**
+	 * Schedules the generation of as many key pairs as are missing to fill the pool
+	 */
+	private void refill() {
+		if (executor.isShutdown()) {
+			return;
+		}
+
+		int missing = size - pool.size() - pending.get();
+		for (int i = 0; i < missing; i++) {
+			pending.incrementAndGet();
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						KeyPair keyPair = EncryptionUtil.generateRSAKeyPair(keyLength, securityProvider);
+						if (keyPair != null) {
+							// drops the pair silently if the pool is already full
+							pool.offer(keyPair);
+						}
+					} finally {
+						pending.decrementAndGet();
+					}
+				}
+			});
+		}
+	}
+
+	/**
+	 * Stops the background generation. Taking key pairs is still possible afterwards, but they are not
+	 * refilled anymore.
+	 */
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	public RSA_KEYLENGTH getKeyLength() {
+		return keyLength;
+	}
+
+	/**
+	 * @return the maximum number of pre-generated key pairs
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * @return the number of available key pairs at which the pool gets refilled
+	 */
+	public int getLowWaterMark() {
+		return lowWaterMark;
+	}
+
+	/**
+	 * @return the number of key pairs that are ready to be taken
+	 */
+	public int getAvailable() {
+		return pool.size();
+	}
+
+	/**
+	 * @return the number of calls to {@link #take()} that got a pre-generated key pair
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return the number of calls to {@link #take()} that had to generate the key pair synchronously
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * @return the ratio of hits in all calls to {@link #take()}, or 0 if nothing has been taken yet
+	 */
+	public double getHitRatio() {
+		long total = hits.get() + misses.get();
+		return total == 0 ? 0 : (double) hits.get() / total;
+	}
+}
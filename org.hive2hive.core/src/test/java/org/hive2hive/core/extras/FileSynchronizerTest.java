@@ -9,6 +9,7 @@ import java.util.Map;
 import org.apache.commons.io.FileUtils;
 import org.hive2hive.core.H2HConstants;
 import org.hive2hive.core.H2HJUnitTest;
+import org.hive2hive.core.file.FileHashCache;
 import org.hive2hive.core.model.FileIndex;
 import org.hive2hive.core.model.FolderIndex;
 import org.hive2hive.core.model.Index;
@@ -279,4 +280,67 @@ public class FileSynchronizerTest extends H2HJUnitTest {
 		List<File> updatedLocally = fileSynchronizer.getDeletedRemotely();
 		Assert.assertTrue(updatedLocally.isEmpty());
 	}
+
+	@Test
+	public void testVisitFilesWithCache() throws IOException {
+		FileHashCache hashCache = new FileHashCache(rootFile);
+		ageFiles();
+		Map<String, byte[]> uncached = FileSynchronizer.visitFiles(rootFile);
+		Map<String, byte[]> cached = FileSynchronizer.visitFiles(rootFile, hashCache);
+		Assert.assertEquals(uncached.keySet(), cached.keySet());
+		for (String path : uncached.keySet()) {
+			Assert.assertArrayEquals(uncached.get(path), cached.get(path));
+		}
+
+		// unchanged files are not read again
+		long misses = hashCache.getMisses();
+		Map<String, byte[]> again = FileSynchronizer.visitFiles(rootFile, hashCache);
+		Assert.assertEquals(cached.keySet(), again.keySet());
+		Assert.assertEquals(misses, hashCache.getMisses());
+		Assert.assertTrue(hashCache.getHits() > 0);
+	}
+
+	@Test
+	public void testDeletedLocallyWithCache() throws IOException {
+		FileHashCache hashCache = new FileHashCache(rootFile);
+		ageFiles();
+		Map<String, byte[]> before = FileSynchronizer.visitFiles(rootFile, hashCache);
+		file1f1.delete();
+		file2d.delete();
+		Map<String, byte[]> after = FileSynchronizer.visitFiles(rootFile, hashCache);
+
+		FileSynchronizer fileSynchronizer = new FileSynchronizer(rootFile, userProfile, before, after);
+		List<Index> deletedLocally = fileSynchronizer.getDeletedLocally();
+		Assert.assertEquals(2, deletedLocally.size());
+		Assert.assertTrue(deletedLocally.contains(node1f1));
+		Assert.assertTrue(deletedLocally.contains(node2d));
+	}
+
+	@Test
+	public void testUpdatedLocallyWithCache() throws IOException {
+		FileHashCache hashCache = new FileHashCache(rootFile);
+		ageFiles();
+		Map<String, byte[]> before = FileSynchronizer.visitFiles(rootFile, hashCache);
+
+		// change two files, the modification time differs from the cached one
+		FileUtils.writeStringToFile(file1f2, randomString());
+		FileUtils.writeStringToFile(file2f, randomString());
+		Map<String, byte[]> after = FileSynchronizer.visitFiles(rootFile, hashCache);
+
+		FileSynchronizer fileSynchronizer = new FileSynchronizer(rootFile, userProfile, before, after);
+		List<File> updatedLocally = fileSynchronizer.getUpdatedLocally();
+		Assert.assertEquals(2, updatedLocally.size());
+		Assert.assertTrue(updatedLocally.contains(file1f2));
+		Assert.assertTrue(updatedLocally.contains(file2f));
+	}
+
+	/**
+	 * The hashes of files that have just been written are not cached (coarse modification times)
+	 */
+	private void ageFiles() {
+		long modified = System.currentTimeMillis() - 60000;
+		file1f1.setLastModified(modified);
+		file1f2.setLastModified(modified);
+		file2f.setLastModified(modified);
+	}
 }
@@ -0,0 +1,117 @@
+package org.hive2hive.core.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.hive2hive.core.H2HJUnitTest;
+import org.hive2hive.core.security.EncryptionUtil;
+import org.hive2hive.core.security.HashUtil;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ContentDefinedChunkerTest extends H2HJUnitTest {
+
+	private static final int MIN_SIZE = 256;
+	private static final int AVG_SIZE = 1024;
+	private static final int MAX_SIZE = 4096;
+
+	private static ContentDefinedChunker chunker;
+
+	@BeforeClass
+	public static void initTest() throws Exception {
+		testClass = ContentDefinedChunkerTest.class;
+		beforeClass();
+		chunker = new ContentDefinedChunker(MIN_SIZE, AVG_SIZE, MAX_SIZE);
+	}
+
+	@Test
+	public void testRangesCoverFile() throws IOException {
+		byte[] content = generateFixedContent(100 * AVG_SIZE);
+		File file = writeFile(content);
+
+		List<ChunkRange> ranges = chunker.split(file);
+		long offset = 0;
+		for (int i = 0; i < ranges.size(); i++) {
+			ChunkRange range = ranges.get(i);
+			assertEquals(i, range.getIndex());
+			assertEquals(offset, range.getOffset());
+			assertTrue(range.getLength() <= MAX_SIZE);
+			if (i < ranges.size() - 1) {
+				assertTrue(range.getLength() >= MIN_SIZE);
+			}
+			offset += range.getLength();
+		}
+		assertEquals(content.length, offset);
+
+		// the same content is always split the same way
+		List<ChunkRange> again = chunker.split(file);
+		assertEquals(ranges.size(), again.size());
+		for (int i = 0; i < ranges.size(); i++) {
+			assertEquals(ranges.get(i).getLength(), again.get(i).getLength());
+		}
+	}
+
+	@Test
+	public void testInsertKeepsMostChunks() throws IOException {
+		byte[] content = generateFixedContent(100 * AVG_SIZE);
+		File original = writeFile(content);
+
+		// insert some bytes in the middle
+		byte[] insertion = generateFixedContent(10);
+		byte[] inserted = new byte[content.length + insertion.length];
+		int position = content.length / 2;
+		System.arraycopy(content, 0, inserted, 0, position);
+		System.arraycopy(insertion, 0, inserted, position, insertion.length);
+		System.arraycopy(content, position, inserted, position + insertion.length, content.length - position);
+		File edited = writeFile(inserted);
+
+		Set<String> before = getChunkHashes(original);
+		Set<String> after = getChunkHashes(edited);
+		int total = after.size();
+		after.removeAll(before);
+
+		// only the chunks around the insertion change
+		assertTrue(String.format("%s of %s chunks changed", after.size(), total), after.size() <= 3);
+	}
+
+	@Test
+	public void testEmptyFile() throws IOException {
+		List<ChunkRange> ranges = chunker.split(writeFile(new byte[0]));
+		assertEquals(1, ranges.size());
+		assertEquals(0, ranges.get(0).getOffset());
+		assertEquals(0, ranges.get(0).getLength());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidSizes() {
+		new ContentDefinedChunker(MAX_SIZE, AVG_SIZE, MIN_SIZE);
+	}
+
+	private static File writeFile(byte[] content) throws IOException {
+		File file = new File(tempFolder.newFolder(), randomString());
+		FileUtils.writeByteArrayToFile(file, content);
+		return file;
+	}
+
+	private static Set<String> getChunkHashes(File file) throws IOException {
+		Set<String> hashes = new HashSet<String>();
+		for (ChunkRange range : chunker.split(file)) {
+			byte[] data = FileChunkUtil.getChunk(file, range, randomString()).getData();
+			hashes.add(EncryptionUtil.byteToHex(HashUtil.hash(data)));
+		}
+		return hashes;
+	}
+
+	@AfterClass
+	public static void endTest() throws Exception {
+		afterClass();
+	}
+}
@@ -1,11 +1,14 @@
 package org.hive2hive.core.file;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
 
 import org.apache.commons.io.FileUtils;
@@ -155,4 +158,39 @@ public class FileChunkUtilTest extends H2HJUnitTest {
 		Chunk chunk = FileChunkUtil.getChunk(file, TestFileConfiguration.CHUNK_SIZE, 100, randomString());
 		assertNull(chunk);
 	}
+
+	@Test
+	public void testGetChunkRangesFixed() throws IOException {
+		File file = FileTestUtil.createFileRandomContent(5, parent);
+		List<ChunkRange> ranges = FileChunkUtil.getChunkRanges(file, new TestFileConfiguration());
+		assertEquals(FileChunkUtil.getNumberOfChunks(file, TestFileConfiguration.CHUNK_SIZE), ranges.size());
+
+		for (ChunkRange range : ranges) {
+			Chunk expected = FileChunkUtil.getChunk(file, TestFileConfiguration.CHUNK_SIZE, range.getIndex(),
+					randomString());
+			Chunk chunk = FileChunkUtil.getChunk(file, range, randomString());
+			assertEquals(range.getLength(), chunk.getSize());
+			assertArrayEquals(expected.getData(), chunk.getData());
+		}
+	}
+
+	@Test
+	public void testGetChunkRangesEmpty() throws IOException {
+		File file = new File(parent, randomString());
+		FileUtils.write(file, "");
+
+		List<ChunkRange> fixed = FileChunkUtil.getChunkRanges(file, new TestFileConfiguration());
+		List<ChunkRange> contentDefined = FileChunkUtil.getChunkRanges(file, new TestFileConfiguration() {
+			@Override
+			public boolean isContentDefinedChunking() {
+				return true;
+			}
+		});
+		for (List<ChunkRange> ranges : Arrays.asList(fixed, contentDefined)) {
+			assertEquals(1, ranges.size());
+			assertEquals(0, ranges.get(0).getOffset());
+			assertEquals(0, ranges.get(0).getLength());
+		}
+		assertEquals(FileChunkUtil.getNumberOfChunks(file, TestFileConfiguration.CHUNK_SIZE), fixed.size());
+	}
 }
@@ -0,0 +1,103 @@
+package org.hive2hive.core.file;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.hive2hive.core.H2HJUnitTest;
+import org.hive2hive.core.security.HashUtil;
+import org.hive2hive.core.serializer.FSTSerializer;
+import org.hive2hive.core.utils.helper.TestFileAgent;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class FileHashCacheTest extends H2HJUnitTest {
+
+	private static FSTSerializer serializer;
+	private TestFileAgent fileAgent;
+
+	@BeforeClass
+	public static void initTest() throws Exception {
+		testClass = FileHashCacheTest.class;
+		beforeClass();
+		serializer = new FSTSerializer();
+	}
+
+	@Before
+	public void createRoot() throws IOException {
+		fileAgent = new TestFileAgent();
+	}
+
+	@Test
+	public void testCachedHash() throws IOException {
+		File file = createOldFile("file", 1000);
+		FileHashCache cache = new FileHashCache(fileAgent.getRoot());
+
+		assertArrayEquals(HashUtil.hash(file), cache.getHash(file));
+		assertArrayEquals(HashUtil.hash(file), cache.getHash(file));
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+		assertEquals(0.5, cache.getHitRatio(), 0.0001);
+	}
+
+	@Test
+	public void testChangedFile() throws IOException {
+		File file = createOldFile("file", 1000);
+		FileHashCache cache = new FileHashCache(fileAgent.getRoot());
+		cache.getHash(file);
+
+		// change the content and the size
+		FileUtils.writeByteArrayToFile(file, generateFixedContent(2000));
+		file.setLastModified(System.currentTimeMillis() - 10000);
+		assertArrayEquals(HashUtil.hash(file), cache.getHash(file));
+		assertEquals(0, cache.getHits());
+		assertEquals(2, cache.getMisses());
+	}
+
+	@Test
+	public void testRecentlyModifiedFile() throws IOException {
+		File file = new File(fileAgent.getRoot(), "file");
+		FileUtils.writeByteArrayToFile(file, generateFixedContent(1000));
+		FileHashCache cache = new FileHashCache(fileAgent.getRoot());
+
+		// the file could change again within the resolution of the modification time
+		cache.getHash(file);
+		cache.getHash(file);
+		assertEquals(0, cache.getHits());
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testReadWrite() throws IOException {
+		File file = createOldFile("file", 1000);
+		File deleted = createOldFile("deleted", 100);
+
+		FileHashCache cache = new FileHashCache(fileAgent.getRoot());
+		cache.getHash(file);
+		cache.getHash(deleted);
+		deleted.delete();
+		FileUtil.writeHashCache(fileAgent, cache, serializer);
+
+		FileHashCache restored = FileUtil.readHashCache(fileAgent, serializer);
+		assertEquals(1, restored.size());
+		assertArrayEquals(HashUtil.hash(file), restored.getHash(file));
+		assertEquals(1, restored.getHits());
+	}
+
+	private File createOldFile(String name, int size) throws IOException {
+		File file = new File(fileAgent.getRoot(), name);
+		FileUtils.writeByteArrayToFile(file, generateFixedContent(size));
+		file.setLastModified(System.currentTimeMillis() - 60000);
+		return file;
+	}
+
+	@AfterClass
+	public static void endTest() {
+		afterClass();
+	}
+}
@@ -0,0 +1,170 @@
+package org.hive2hive.core.model;
+
+import static org.hive2hive.core.utils.UserProfileTestUtil.copy;
+import static org.hive2hive.core.utils.UserProfileTestUtil.keys;
+import static org.hive2hive.core.utils.UserProfileTestUtil.move;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.hive2hive.core.H2HJUnitTest;
+import org.hive2hive.core.model.versioned.UserProfile;
+import org.hive2hive.core.model.versioned.UserProfileDelta;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests the three-way merge of forked file trees with {@link IndexState#merge(Map, Map, Map)}.
+ */
+public class IndexStateTest extends H2HJUnitTest {
+
+	private UserProfile ancestor;
+	private UserProfile first;
+	private UserProfile second;
+	private PublicKey folder1;
+	private PublicKey folder2;
+	private PublicKey file1;
+	private PublicKey file2;
+
+	@BeforeClass
+	public static void initTest() throws Exception {
+		testClass = IndexStateTest.class;
+		beforeClass();
+	}
+
+	@Before
+	public void createProfiles() throws Exception {
+		// root:
+		// - folder1:
+		// - - file1
+		// - folder2
+		// - file2
+		ancestor = new UserProfile(randomString(), keys(), keys());
+		FolderIndex folder1Index = new FolderIndex(ancestor.getRoot(), keys(), "folder1");
+		folder1 = folder1Index.getFilePublicKey();
+		folder2 = new FolderIndex(ancestor.getRoot(), keys(), "folder2").getFilePublicKey();
+		file1 = new FileIndex(folder1Index, keys(), "file1", generateRandomContent(20)).getFilePublicKey();
+		file2 = new FileIndex(ancestor.getRoot(), keys(), "file2", generateRandomContent(20)).getFilePublicKey();
+
+		first = copy(ancestor);
+		second = copy(ancestor);
+	}
+
+	@Test
+	public void testIndependentChanges() throws Exception {
+		new FileIndex(folder(first, folder1), keys(), "file3", generateRandomContent(20));
+		second.getRoot().getIndexByKey(file2).setName("renamed");
+
+		UserProfile merged = merge();
+		assertNotNull(folder(merged, folder1).getChildByName("file3"));
+		assertEquals("renamed", merged.getRoot().getIndexByKey(file2).getName());
+	}
+
+	@Test
+	public void testConflictingUpdates() throws Exception {
+		((FileIndex) first.getRoot().getIndexByKey(file1)).setHash(generateRandomContent(20));
+		byte[] secondHash = generateRandomContent(20);
+		((FileIndex) second.getRoot().getIndexByKey(file1)).setHash(secondHash);
+
+		// the second version wins
+		assertArrayEquals(secondHash, ((FileIndex) merge().getRoot().getIndexByKey(file1)).getHash());
+	}
+
+	@Test
+	public void testUpdateWinsOverRemoval() throws Exception {
+		Index removed = first.getRoot().getIndexByKey(file1);
+		removed.getParent().removeChild(removed);
+		byte[] hash = generateRandomContent(20);
+		((FileIndex) second.getRoot().getIndexByKey(file1)).setHash(hash);
+
+		assertArrayEquals(hash, ((FileIndex) merge().getRoot().getIndexByKey(file1)).getHash());
+	}
+
+	@Test
+	public void testRemovedFolderIsKept() throws Exception {
+		first.getRoot().removeChild(folder(first, folder1));
+		new FileIndex(folder(second, folder1), keys(), "file3", generateRandomContent(20));
+
+		UserProfile merged = merge();
+		// the unchanged file is removed, the new one keeps its folder
+		assertNull(merged.getRoot().getIndexByKey(file1));
+		assertNotNull(folder(merged, folder1).getChildByName("file3"));
+	}
+
+	@Test
+	public void testNameClash() throws Exception {
+		PublicKey firstFile = new FileIndex(folder(first, folder2), keys(), "file3.txt", generateRandomContent(20))
+				.getFilePublicKey();
+		PublicKey secondFile = new FileIndex(folder(second, folder2), keys(), "file3.txt",
+				generateRandomContent(20)).getFilePublicKey();
+
+		UserProfile merged = merge();
+		assertEquals(2, folder(merged, folder2).getChildren().size());
+		assertEquals("file3.txt", merged.getRoot().getIndexByKey(firstFile).getName());
+		assertEquals("file3 (conflict).txt", merged.getRoot().getIndexByKey(secondFile).getName());
+	}
+
+	@Test
+	public void testDeterministic() throws Exception {
+		new FileIndex(folder(first, folder2), keys(), "file3", generateRandomContent(20));
+		second.getRoot().getIndexByKey(file1).setName("renamed");
+		((FileIndex) second.getRoot().getIndexByKey(file2)).setHash(generateRandomContent(20));
+
+		Map<PublicKey, IndexState> merged = IndexState.flatten(merge().getRoot());
+		Map<PublicKey, IndexState> again = IndexState.flatten(merge().getRoot());
+		assertEquals(merged.keySet(), again.keySet());
+		for (PublicKey key : merged.keySet()) {
+			assertTrue(merged.get(key).isSameAs(again.get(key)));
+		}
+	}
+
+	@Test
+	public void testHash() throws Exception {
+		second.getRoot().getIndexByKey(file2).setName("renamed");
+
+		// a copy (e.g. merged by another client) has the same hash, independent of the order
+		List<IndexState> states = new ArrayList<IndexState>(IndexState.flatten(first.getRoot()).values());
+		Collections.reverse(states);
+		assertArrayEquals(IndexState.hash(IndexState.flatten(ancestor.getRoot()).values()), IndexState.hash(states));
+		assertFalse(Arrays.equals(IndexState.hash(states),
+				IndexState.hash(IndexState.flatten(second.getRoot()).values())));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testCyclicMoves() throws Exception {
+		move(folder(first, folder1), folder(first, folder2));
+		move(folder(second, folder2), folder(second, folder1));
+		merge();
+	}
+
+	private UserProfile merge() throws Exception {
+		// as done by the version manager, the merged states are applied to a copy of the common version
+		UserProfile merged = copy(ancestor);
+		Map<PublicKey, IndexState> ancestorStates = IndexState.flatten(ancestor.getRoot());
+		Map<PublicKey, IndexState> states = IndexState.merge(ancestorStates, IndexState.flatten(first.getRoot()),
+				IndexState.flatten(second.getRoot()));
+		UserProfileDelta.create(ancestorStates, states, 0, 0).applyTo(merged);
+		return merged;
+	}
+
+	private static FolderIndex folder(UserProfile profile, PublicKey key) {
+		return (FolderIndex) profile.getRoot().getIndexByKey(key);
+	}
+
+	@AfterClass
+	public static void endTest() throws Exception {
+		afterClass();
+	}
+}
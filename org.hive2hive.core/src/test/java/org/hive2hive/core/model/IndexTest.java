@@ -158,6 +158,31 @@ public class IndexTest extends H2HJUnitTest {
 		Assert.assertEquals(null, root.getChildByName(""));
 	}
 
+	@Test
+	public void testGetChildByNameAfterChanges() {
+		// case insensitive
+		Assert.assertEquals(dir3, dir1.getChildByName("3D"));
+
+		// rename
+		dir3.setName("3d-renamed");
+		Assert.assertEquals(null, dir1.getChildByName("3d"));
+		Assert.assertEquals(dir3, dir1.getChildByName("3d-renamed"));
+
+		// move to the root
+		dir1.removeChild(dir3);
+		dir3.setParent(root);
+		root.addChild(dir3);
+		Assert.assertEquals(null, dir1.getChildByName("3d-renamed"));
+		Assert.assertEquals(dir3, root.getChildByName("3d-renamed"));
+		Assert.assertEquals(dir4, dir3.getChildByName("4d"));
+
+		// rename before removing (like the relink after a move)
+		child3.setName("2f-renamed");
+		dir1.removeChild(child3);
+		Assert.assertEquals(null, dir1.getChildByName("2f-renamed"));
+		Assert.assertFalse(dir1.getChildren().contains(child3));
+	}
+
 	@Test
 	public void testPermissions() {
 		Assert.assertTrue(root.getCalculatedUserList().contains(userId));
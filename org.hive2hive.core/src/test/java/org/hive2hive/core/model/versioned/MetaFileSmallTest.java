@@ -2,6 +2,7 @@ package org.hive2hive.core.model.versioned;
 
 import java.security.KeyPair;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.hive2hive.core.H2HConstants;
@@ -69,6 +70,22 @@ public class MetaFileSmallTest extends H2HJUnitTest {
 		Assert.assertEquals(4 + 10 + 1000, metaFileSmall.getTotalSize().intValue());
 	}
 
+	@Test
+	public void testGetDistinctMetaChunks() {
+		MetaChunk shared = new MetaChunk("shared", new byte[] { 1 }, 0);
+		MetaChunk old = new MetaChunk("old", new byte[] { 2 }, 1);
+		MetaChunk changed = new MetaChunk("changed", new byte[] { 3 }, 1);
+
+		List<FileVersion> versions = new ArrayList<FileVersion>();
+		versions.add(new FileVersion(0, 4, 0, Arrays.asList(shared, old)));
+		versions.add(new FileVersion(1, 4, 1, Arrays.asList(shared, changed)));
+
+		MetaFileSmall metaFileSmall = new MetaFileSmall(keys.getPublic(), versions, keys);
+		List<MetaChunk> distinct = metaFileSmall.getDistinctMetaChunks();
+		Assert.assertEquals(3, distinct.size());
+		Assert.assertTrue(distinct.containsAll(Arrays.asList(shared, old, changed)));
+	}
+
 	@AfterClass
 	public static void cleanAfterClass() {
 		afterClass();
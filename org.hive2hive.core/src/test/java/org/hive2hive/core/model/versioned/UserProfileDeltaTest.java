@@ -0,0 +1,162 @@
+package org.hive2hive.core.model.versioned;
+
+import static org.hive2hive.core.utils.UserProfileTestUtil.assertSameTree;
+import static org.hive2hive.core.utils.UserProfileTestUtil.copy;
+import static org.hive2hive.core.utils.UserProfileTestUtil.keys;
+import static org.hive2hive.core.utils.UserProfileTestUtil.move;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.hive2hive.core.H2HJUnitTest;
+import org.hive2hive.core.model.FileIndex;
+import org.hive2hive.core.model.FolderIndex;
+import org.hive2hive.core.model.IndexState;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests that a {@link UserProfileDelta} turns the previous version of the profile into the new one.
+ */
+public class UserProfileDeltaTest extends H2HJUnitTest {
+
+	private UserProfile profile;
+	private FolderIndex folder1;
+	private FolderIndex folder2;
+	private FileIndex file1;
+	private FileIndex file2;
+
+	@BeforeClass
+	public static void initTest() throws Exception {
+		testClass = UserProfileDeltaTest.class;
+		beforeClass();
+	}
+
+	@Before
+	public void createProfile() {
+		// root:
+		// - folder1:
+		// - - file1
+		// - folder2
+		// - file2
+		profile = new UserProfile(randomString(), keys(), keys());
+		folder1 = new FolderIndex(profile.getRoot(), keys(), "folder1");
+		folder2 = new FolderIndex(profile.getRoot(), keys(), "folder2");
+		file1 = new FileIndex(folder1, keys(), "file1", generateRandomContent(20));
+		file2 = new FileIndex(profile.getRoot(), keys(), "file2", generateRandomContent(20));
+	}
+
+	@Test
+	public void testNoChanges() throws Exception {
+		UserProfile before = copy(profile);
+		UserProfileDelta delta = createDelta(before);
+		assertTrue(delta.isEmpty());
+		assertApplies(before, delta);
+	}
+
+	@Test
+	public void testAddAndUpdate() throws Exception {
+		UserProfile before = copy(profile);
+		new FileIndex(folder2, keys(), "file3", generateRandomContent(20));
+		FolderIndex folder3 = new FolderIndex(folder1, keys(), "folder3");
+		new FileIndex(folder3, keys(), "file4", generateRandomContent(20));
+		file1.setHash(generateRandomContent(20));
+
+		UserProfileDelta delta = createDelta(before);
+		assertEquals(4, delta.getUpdates().size());
+		assertTrue(delta.getRemovals().isEmpty());
+		assertApplies(before, delta);
+	}
+
+	@Test
+	public void testRemove() throws Exception {
+		UserProfile before = copy(profile);
+		// the removal of a folder removes its children
+		profile.getRoot().removeChild(folder1);
+		file2.getParent().removeChild(file2);
+
+		UserProfileDelta delta = createDelta(before);
+		assertTrue(delta.getUpdates().isEmpty());
+		assertEquals(3, delta.getRemovals().size());
+		assertApplies(before, delta);
+	}
+
+	@Test
+	public void testRenameAndMove() throws Exception {
+		UserProfile before = copy(profile);
+		move(file1, folder2);
+		file2.setName("renamed");
+
+		UserProfileDelta delta = createDelta(before);
+		assertEquals(2, delta.getUpdates().size());
+		assertApplies(before, delta);
+	}
+
+	@Test
+	public void testSwapNames() throws Exception {
+		UserProfile before = copy(profile);
+		folder1.setName("tmp");
+		folder2.setName("folder1");
+		folder1.setName("folder2");
+
+		assertApplies(before, createDelta(before));
+	}
+
+	@Test
+	public void testMoveOutOfRemovedFolder() throws Exception {
+		UserProfile before = copy(profile);
+		move(file1, folder2);
+		profile.getRoot().removeChild(folder1);
+		// the folder is moved into a new folder
+		FolderIndex folder3 = new FolderIndex(profile.getRoot(), keys(), "folder3");
+		move(folder2, folder3);
+
+		UserProfileDelta delta = createDelta(before);
+		assertEquals(1, delta.getRemovals().size());
+		assertApplies(before, delta);
+	}
+
+	@Test
+	public void testChainOfDeltas() throws Exception {
+		UserProfile first = copy(profile);
+		file1.setName("renamed");
+		UserProfileDelta firstDelta = createDelta(first);
+
+		UserProfile second = copy(profile);
+		new FileIndex(folder1, keys(), "file1", generateRandomContent(20));
+		UserProfileDelta secondDelta = createDelta(second);
+
+		firstDelta.applyTo(first);
+		secondDelta.applyTo(first);
+		assertSameTree(profile, first);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testWrongBase() throws Exception {
+		UserProfile before = copy(profile);
+		new FileIndex(folder1, keys(), "file3", generateRandomContent(20));
+		UserProfileDelta delta = createDelta(before);
+
+		// the parent of the new file is missing
+		before.getRoot().removeChild(before.getRoot().getChildByName("folder1"));
+		delta.applyTo(before);
+	}
+
+	private UserProfileDelta createDelta(UserProfile before) {
+		return UserProfileDelta.create(IndexState.flatten(before.getRoot()), IndexState.flatten(profile.getRoot()), 1,
+				0);
+	}
+
+	private void assertApplies(UserProfile before, UserProfileDelta delta) throws Exception {
+		// as done by the version manager, the delta is serialized and applied to a copy of the base version
+		UserProfileDelta received = copy(delta);
+		received.applyTo(before);
+		assertSameTree(profile, before);
+	}
+
+	@AfterClass
+	public static void endTest() throws Exception {
+		afterClass();
+	}
+}
@@ -8,6 +8,7 @@ import org.hive2hive.core.H2HConstants;
 import org.hive2hive.core.H2HJUnitTest;
 import org.hive2hive.core.model.FileIndex;
 import org.hive2hive.core.model.FolderIndex;
+import org.hive2hive.core.serializer.FSTSerializer;
 import org.hive2hive.core.security.EncryptionUtil.RSA_KEYLENGTH;
 import org.junit.AfterClass;
 import org.junit.Assert;
@@ -54,6 +55,36 @@ public class UserProfileTest extends H2HJUnitTest {
 		Assert.assertNotNull(userProfile.getFileById(child3Key.getPublic()));
 	}
 
+	@Test
+	public void testGetFileByIdAfterChanges() throws IOException, ClassNotFoundException {
+		FolderIndex root = userProfile.getRoot();
+
+		KeyPair folderKey = generateRSAKeyPair(RSA_KEYLENGTH.BIT_512);
+		FolderIndex folder = new FolderIndex(root, folderKey, randomString());
+		KeyPair fileKey = generateRSAKeyPair(RSA_KEYLENGTH.BIT_512);
+		FileIndex file = new FileIndex(folder, fileKey, randomString(), "bla".getBytes());
+		Assert.assertEquals(file, userProfile.getFileById(fileKey.getPublic()));
+
+		// move the folder (with the file) into a new folder
+		FolderIndex newParent = new FolderIndex(root, generateRSAKeyPair(RSA_KEYLENGTH.BIT_512), randomString());
+		root.removeChild(folder);
+		folder.setParent(newParent);
+		newParent.addChild(folder);
+		Assert.assertEquals(folder, userProfile.getFileById(folderKey.getPublic()));
+		Assert.assertEquals(file, userProfile.getFileById(fileKey.getPublic()));
+
+		// the index is rebuilt after deserialization
+		FSTSerializer serializer = new FSTSerializer();
+		UserProfile deserialized = (UserProfile) serializer.deserialize(serializer.serialize(userProfile));
+		Assert.assertEquals(file, deserialized.getFileById(fileKey.getPublic()));
+
+		// remove the folder with the file
+		newParent.removeChild(folder);
+		Assert.assertNull(userProfile.getFileById(folderKey.getPublic()));
+		Assert.assertNull(userProfile.getFileById(fileKey.getPublic()));
+		Assert.assertNull(userProfile.getFileById(null));
+	}
+
 	@Test
 	public void getFileByPath() throws IOException {
 		FolderIndex root = userProfile.getRoot();
@@ -0,0 +1,213 @@
+package org.hive2hive.core.network;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.NavigableMap;
+
+import net.tomp2p.peers.Number160;
+import net.tomp2p.peers.Number640;
+import net.tomp2p.storage.Data;
+
+import org.hive2hive.core.H2HConstants;
+import org.hive2hive.core.H2HJUnitTest;
+import org.hive2hive.core.utils.H2HWaiter;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class DiskStorageTest extends H2HJUnitTest {
+
+	private File directory;
+
+	@BeforeClass
+	public static void initTest() throws Exception {
+		testClass = DiskStorageTest.class;
+		beforeClass();
+	}
+
+	@Before
+	public void createDirectory() throws IOException {
+		directory = tempFolder.newFolder();
+	}
+
+	private DiskStorage open(long segmentSize) throws IOException {
+		return new DiskStorage(directory, H2HConstants.TTL_CHECK_INTERVAL_MS, H2HConstants.MAX_VERSIONS_HISTORY,
+				segmentSize);
+	}
+
+	private static Number640 createKey(String content, long version) {
+		return new Number640(Number160.createHash("location"), Number160.createHash("domain"),
+				Number160.createHash(content), new Number160(version));
+	}
+
+	/**
+	 * Creates a version key with the given timestamp, like the version keys of the versioned content
+	 */
+	private static Number640 createVersionKey(String content, long timestamp, String fork) {
+		return new Number640(Number160.createHash("location"), Number160.createHash("domain"),
+				Number160.createHash(content), new Number160(timestamp, Number160.createHash(fork).number96()));
+	}
+
+	@Test
+	public void testPutGet() throws IOException {
+		DiskStorage storage = open(H2HConstants.DISK_STORAGE_SEGMENT_SIZE);
+		try {
+			byte[] value = randomString(1000).getBytes();
+			Number640 key = createKey("content", 1);
+			storage.put(key, new Data(value).ttlSeconds(100).addBasedOn(Number160.ONE));
+
+			Data data = storage.get(key);
+			assertArrayEquals(value, data.toBytes());
+			assertEquals(100, data.ttlSeconds());
+			assertTrue(data.basedOnSet().contains(Number160.ONE));
+			assertTrue(storage.contains(key));
+			assertNull(storage.get(createKey("other", 1)));
+		} finally {
+			storage.close();
+		}
+	}
+
+	@Test
+	public void testRestart() throws IOException {
+		byte[] value1 = randomString(1000).getBytes();
+		byte[] value2 = randomString(1000).getBytes();
+		Number640 key1 = createKey("content1", 1);
+		Number640 key2 = createKey("content2", 1);
+
+		DiskStorage storage = open(H2HConstants.DISK_STORAGE_SEGMENT_SIZE);
+		storage.put(key1, new Data(value1));
+		storage.put(key2, new Data(value2));
+		storage.remove(key2, false);
+		storage.close();
+
+		// reopen the same directory
+		storage = open(H2HConstants.DISK_STORAGE_SEGMENT_SIZE);
+		try {
+			assertArrayEquals(value1, storage.get(key1).toBytes());
+			assertFalse(storage.contains(key2));
+		} finally {
+			storage.close();
+		}
+	}
+
+	@Test
+	public void testMultipleSegments() throws IOException {
+		// small segments such that every record goes into its own segment
+		DiskStorage storage = open(1024);
+		try {
+			for (int i = 0; i < 10; i++) {
+				storage.put(createKey("content" + i, 1), new Data(randomString(2000).getBytes()));
+			}
+			assertTrue(directory.listFiles().length >= 10);
+
+			NavigableMap<Number640, Data> all = storage.map();
+			assertEquals(10, all.size());
+		} finally {
+			storage.close();
+		}
+	}
+
+	@Test
+	public void testMaxVersions() throws IOException {
+		DiskStorage storage = open(H2HConstants.DISK_STORAGE_SEGMENT_SIZE);
+		try {
+			for (int i = 0; i < H2HConstants.MAX_VERSIONS_HISTORY + 3; i++) {
+				storage.put(createVersionKey("content", i, "a"), new Data(randomString(100).getBytes()));
+			}
+
+			NavigableMap<Number640, Data> versions = storage.subMap(createKey("content", 0),
+					createKey("content", Long.MAX_VALUE), -1, true);
+			assertEquals(H2HConstants.MAX_VERSIONS_HISTORY, versions.size());
+			// the oldest versions have been removed
+			assertFalse(storage.contains(createVersionKey("content", 0, "a")));
+			assertFalse(storage.contains(createVersionKey("content", 2, "a")));
+			assertTrue(storage.contains(createVersionKey("content", 3, "a")));
+		} finally {
+			storage.close();
+		}
+	}
+
+	@Test
+	public void testMaxVersionsWithFork() throws IOException {
+		DiskStorage storage = open(H2HConstants.DISK_STORAGE_SEGMENT_SIZE);
+		try {
+			for (int i = 0; i < H2HConstants.MAX_VERSIONS_HISTORY; i++) {
+				storage.put(createVersionKey("content", i, "a"), new Data(randomString(100).getBytes()));
+			}
+			// a fork of the latest version has the same timestamp
+			long latest = H2HConstants.MAX_VERSIONS_HISTORY - 1;
+			storage.put(createVersionKey("content", latest, "b"), new Data(randomString(100).getBytes()));
+
+			NavigableMap<Number640, Data> versions = storage.subMap(createKey("content", 0),
+					createKey("content", Long.MAX_VALUE), -1, true);
+			assertEquals(H2HConstants.MAX_VERSIONS_HISTORY + 1, versions.size());
+			// the oldest version is still there
+			assertTrue(storage.contains(createVersionKey("content", 0, "a")));
+		} finally {
+			storage.close();
+		}
+	}
+
+	@Test
+	public void testCompact() throws IOException {
+		byte[] value = randomString(1000).getBytes();
+		Number640 key = createKey("content", 1);
+
+		DiskStorage storage = open(H2HConstants.DISK_STORAGE_SEGMENT_SIZE);
+		storage.put(createKey("removed", 1), new Data(randomString(1000).getBytes()));
+		storage.remove(createKey("removed", 1), false);
+		storage.put(key, new Data(value));
+		assertTrue(storage.getGarbageBytes() > 0);
+
+		storage.compact();
+		assertEquals(0, storage.getGarbageBytes());
+		assertArrayEquals(value, storage.get(key).toBytes());
+		storage.close();
+
+		storage = open(H2HConstants.DISK_STORAGE_SEGMENT_SIZE);
+		try {
+			assertArrayEquals(value, storage.get(key).toBytes());
+			assertFalse(storage.contains(createKey("removed", 1)));
+		} finally {
+			storage.close();
+		}
+	}
+
+	@Test
+	public void testScheduledCompaction() throws IOException {
+		byte[] value = randomString(1000).getBytes();
+		Number640 key = createKey("content", 1);
+
+		// small segments such that a few overwrites trigger a compaction
+		DiskStorage storage = open(4096);
+		try {
+			for (int i = 0; i < 10; i++) {
+				storage.put(key, new Data(randomString(1000).getBytes()));
+			}
+			storage.put(key, new Data(value));
+
+			H2HWaiter waiter = new H2HWaiter(10);
+			while (storage.getGarbageBytes() >= 4096) {
+				waiter.tickASecond();
+				// the content stays readable during the compaction
+				assertArrayEquals(value, storage.get(key).toBytes());
+			}
+			assertArrayEquals(value, storage.get(key).toBytes());
+			assertTrue(storage.getLiveBytes() > 0);
+		} finally {
+			storage.close();
+		}
+	}
+
+	@AfterClass
+	public static void endTest() throws Exception {
+		afterClass();
+	}
+}
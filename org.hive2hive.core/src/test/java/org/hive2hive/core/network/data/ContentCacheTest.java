@@ -0,0 +1,173 @@
+package org.hive2hive.core.network.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import net.tomp2p.peers.Number160;
+
+import org.hive2hive.core.H2HConstants;
+import org.hive2hive.core.H2HJUnitTest;
+import org.hive2hive.core.network.data.parameters.IParameters;
+import org.hive2hive.core.network.data.parameters.Parameters;
+import org.hive2hive.core.utils.helper.TestFileAgent;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ContentCacheTest extends H2HJUnitTest {
+
+	@BeforeClass
+	public static void initTest() throws Exception {
+		testClass = ContentCacheTest.class;
+		beforeClass();
+	}
+
+	@Test
+	public void testCacheable() {
+		ContentCache cache = new ContentCache(1000, 0);
+		assertTrue(cache.isCacheable(chunk(), false));
+		assertTrue(cache.isCacheable(publicKey(), false));
+		assertTrue(cache.isCacheable(metaFile(), true));
+
+		// the latest meta file changes
+		assertFalse(cache.isCacheable(metaFile(), false));
+		assertFalse(cache.isCacheable(new Parameters().setLocationKey(randomString()).setContentKey(
+				H2HConstants.USER_LOCATIONS), false));
+
+		// disabled
+		assertFalse(new ContentCache(0, 0).isCacheable(chunk(), false));
+	}
+
+	@Test
+	public void testGetPut() {
+		ContentCache cache = new ContentCache(1000, 0);
+		IParameters parameters = chunk();
+		byte[] data = generateFixedContent(100);
+
+		assertNull(cache.get(parameters, false));
+		cache.put(parameters, false, data);
+		assertArrayEquals(data, cache.get(parameters, false));
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+		assertEquals(data.length, cache.getMemoryBytes());
+
+		// versions are cached separately
+		IParameters version = metaFile();
+		cache.put(version, true, data);
+		assertNull(cache.get(version, false));
+		assertArrayEquals(data, cache.get(version, true));
+	}
+
+	@Test
+	public void testLeastRecentlyUsedEviction() {
+		ContentCache cache = new ContentCache(250, 0);
+		IParameters first = chunk();
+		IParameters second = chunk();
+		IParameters third = chunk();
+
+		cache.put(first, false, generateFixedContent(100));
+		cache.put(second, false, generateFixedContent(100));
+		// use the first one
+		cache.get(first, false);
+		cache.put(third, false, generateFixedContent(100));
+
+		assertEquals(1, cache.getEvictions());
+		assertTrue(cache.getMemoryBytes() <= 250);
+		assertNull(cache.get(second, false));
+		assertTrue(cache.get(first, false) != null);
+		assertTrue(cache.get(third, false) != null);
+
+		// too large for the cache
+		cache.put(chunk(), false, generateFixedContent(251));
+		assertEquals(1, cache.getEvictions());
+	}
+
+	@Test
+	public void testSpillToDisk() throws IOException {
+		ContentCache cache = new ContentCache(150, 150);
+		cache.setFileAgent(new TestFileAgent());
+		IParameters first = chunk();
+		IParameters second = chunk();
+		IParameters third = chunk();
+		byte[] data = generateFixedContent(100);
+
+		cache.put(first, false, data);
+		cache.put(second, false, generateFixedContent(100));
+		assertEquals(100, cache.getDiskBytes());
+
+		// loaded from the disk
+		assertArrayEquals(data, cache.get(first, false));
+		assertEquals(1, cache.getDiskHits());
+
+		// the disk is bounded as well
+		cache.put(third, false, generateFixedContent(100));
+		assertTrue(cache.getDiskBytes() <= 150);
+	}
+
+	@Test
+	public void testInvalidate() throws IOException {
+		ContentCache cache = new ContentCache(150, 1000);
+		cache.setFileAgent(new TestFileAgent());
+		IParameters first = chunk();
+		IParameters second = chunk();
+
+		cache.put(first, false, generateFixedContent(100));
+		cache.put(second, false, generateFixedContent(100));
+
+		// first is spilled, second in memory
+		cache.invalidate(first, false);
+		cache.invalidate(second, false);
+		assertNull(cache.get(first, false));
+		assertNull(cache.get(second, false));
+		assertEquals(0, cache.getMemoryBytes());
+		assertEquals(0, cache.getDiskBytes());
+	}
+
+	@Test
+	public void testSpilledAcrossSessions() throws IOException {
+		TestFileAgent agent = new TestFileAgent();
+		ContentCache cache = new ContentCache(150, 150);
+		cache.setFileAgent(agent);
+		IParameters first = chunk();
+		cache.put(first, false, generateFixedContent(100));
+		cache.put(chunk(), false, generateFixedContent(100));
+		assertEquals(100, cache.getDiskBytes());
+		// logout writes the index
+		cache.setFileAgent(null);
+
+		// a new session knows the spilled entries
+		ContentCache restarted = new ContentCache(150, 150);
+		restarted.setFileAgent(agent);
+		assertEquals(100, restarted.getDiskBytes());
+
+		// the old entries are deleted when the bound is exceeded, one entry and the index remain
+		restarted.put(chunk(), false, generateFixedContent(100));
+		restarted.put(chunk(), false, generateFixedContent(100));
+		assertEquals(100, restarted.getDiskBytes());
+		assertEquals(2, agent.getRoot().list().length);
+		assertNull(restarted.get(first, false));
+	}
+
+	private static IParameters chunk() {
+		return new Parameters().setLocationKey(randomString()).setContentKey(H2HConstants.FILE_CHUNK);
+	}
+
+	private static IParameters publicKey() {
+		return new Parameters().setLocationKey(randomString()).setContentKey(H2HConstants.USER_PUBLIC_KEY);
+	}
+
+	private static IParameters metaFile() {
+		return new Parameters().setLocationKey(randomString()).setContentKey(H2HConstants.META_FILE)
+				.setVersionKey(Number160.createHash(randomString()));
+	}
+
+	@AfterClass
+	public static void endTest() throws Exception {
+		afterClass();
+	}
+}
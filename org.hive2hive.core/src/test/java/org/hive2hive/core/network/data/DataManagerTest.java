@@ -4,6 +4,7 @@ import java.io.IOException;
 import java.security.InvalidKeyException;
 import java.security.KeyPair;
 import java.security.SignatureException;
+import java.util.ArrayList;
 import java.util.List;
 
 import net.tomp2p.peers.Number160;
@@ -13,8 +14,10 @@ import org.hive2hive.core.H2HConstants;
 import org.hive2hive.core.H2HJUnitTest;
 import org.hive2hive.core.H2HTestData;
 import org.hive2hive.core.exceptions.NoPeerConnectionException;
+import org.hive2hive.core.model.BaseNetworkContent;
 import org.hive2hive.core.network.NetworkManager;
 import org.hive2hive.core.network.data.DataManager.H2HPutStatus;
+import org.hive2hive.core.network.data.parameters.IParameters;
 import org.hive2hive.core.network.data.parameters.Parameters;
 import org.hive2hive.core.utils.NetworkTestUtil;
 import org.junit.AfterClass;
@@ -103,6 +106,37 @@ public class DataManagerTest extends H2HJUnitTest {
 		Assert.assertNull(NetworkTestUtil.getRandomNode(network).getDataManager().get(parameters3));
 	}
 
+	@Test
+	public void testPutGetRemoveAll() throws Exception {
+		String sharedLocationKey = randomString();
+		List<String> data = new ArrayList<String>();
+		List<IParameters> parameters = new ArrayList<IParameters>();
+		for (int i = 0; i < 2 * H2HConstants.DHT_BATCH_WINDOW; i++) {
+			data.add(randomString());
+			// some share the location key
+			String locationKey = i % 3 == 0 ? sharedLocationKey : randomString();
+			parameters.add(new Parameters().setLocationKey(locationKey).setContentKey(randomString())
+					.setNetworkContent(new H2HTestData(data.get(i))));
+		}
+
+		DataManager dataManager = NetworkTestUtil.getRandomNode(network).getDataManager();
+		for (H2HPutStatus status : dataManager.putAll(parameters)) {
+			Assert.assertEquals(H2HPutStatus.OK, status);
+		}
+
+		List<BaseNetworkContent> contents = NetworkTestUtil.getRandomNode(network).getDataManager().getAll(parameters);
+		for (int i = 0; i < data.size(); i++) {
+			Assert.assertEquals(data.get(i), ((H2HTestData) contents.get(i)).getTestString());
+		}
+
+		for (Boolean removed : dataManager.removeAll(parameters)) {
+			Assert.assertTrue(removed);
+		}
+		for (BaseNetworkContent content : dataManager.getAll(parameters)) {
+			Assert.assertNull(content);
+		}
+	}
+
 	@Test
 	public void testChangeProtectionKeySingleVersionKey() throws NoPeerConnectionException, IOException,
 			InvalidKeyException, SignatureException {
@@ -0,0 +1,73 @@
+package org.hive2hive.core.network.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.hive2hive.core.H2HConstants;
+import org.hive2hive.core.H2HJUnitTest;
+import org.hive2hive.core.network.data.IRetryPolicy.Operation;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class RetryPolicyTest extends H2HJUnitTest {
+
+	@BeforeClass
+	public static void initTest() throws Exception {
+		testClass = RetryPolicyTest.class;
+		beforeClass();
+	}
+
+	@Test
+	public void testDefaults() {
+		RetryPolicy policy = RetryPolicy.createDefault();
+		assertEquals(H2HConstants.PUT_RETRIES, policy.getMaxRetries(Operation.PUT));
+		assertEquals(H2HConstants.CONFIRM_RETRIES, policy.getMaxRetries(Operation.CONFIRM));
+		assertEquals(H2HConstants.REMOVE_RETRIES, policy.getMaxRetries(Operation.REMOVE));
+		assertEquals(0, policy.getBackoffMs(Operation.GET, 0));
+	}
+
+	@Test
+	public void testBackoff() {
+		RetryPolicy policy = RetryPolicy.createDefault().setBackoffBase(Operation.PUT, 100).setMaxBackoff(1000);
+		for (int i = 0; i < 100; i++) {
+			long first = policy.getBackoffMs(Operation.PUT, 0);
+			assertTrue(first >= 100 && first <= 200);
+			long third = policy.getBackoffMs(Operation.PUT, 2);
+			assertTrue(third >= 400 && third <= 800);
+			// capped
+			assertTrue(policy.getBackoffMs(Operation.PUT, 10) <= 1000);
+			assertTrue(policy.getBackoffMs(Operation.PUT, Integer.MAX_VALUE) <= 1000);
+		}
+	}
+
+	@Test
+	public void testHedgeDelay() {
+		RetryPolicy policy = RetryPolicy.createDefault().setHedging(true, 5);
+		// not enough samples
+		assertEquals(-1, policy.getHedgeDelayMs(Operation.GET));
+
+		for (int i = 1; i <= 80; i++) {
+			policy.recordLatency(Operation.GET, i);
+		}
+		assertEquals(76, policy.getHedgeDelayMs(Operation.GET));
+
+		// learned per operation
+		assertEquals(-1, policy.getHedgeDelayMs(Operation.VERSION_GET));
+		assertEquals(-1, policy.getHedgeDelayMs(Operation.PUT));
+
+		// lower bound
+		for (int i = 0; i < 128; i++) {
+			policy.recordLatency(Operation.GET, 1);
+		}
+		assertEquals(5, policy.getHedgeDelayMs(Operation.GET));
+
+		policy.setHedging(false, 5);
+		assertEquals(-1, policy.getHedgeDelayMs(Operation.GET));
+	}
+
+	@AfterClass
+	public static void endTest() throws Exception {
+		afterClass();
+	}
+}
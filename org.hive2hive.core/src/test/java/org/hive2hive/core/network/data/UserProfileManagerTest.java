@@ -1,5 +1,12 @@
 package org.hive2hive.core.network.data;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
 import java.io.File;
 import java.io.IOException;
 import java.security.GeneralSecurityException;
@@ -8,7 +15,12 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import net.tomp2p.peers.Number160;
 
 import org.apache.commons.io.FileUtils;
 import org.hive2hive.core.H2HConstants;
@@ -212,6 +224,129 @@ public class UserProfileManagerTest extends H2HJUnitTest {
 		}
 	}
 
+	@Test
+	public void testGroupCommitWithAbort() throws InterruptedException, GetFailedException,
+			NoPeerConnectionException {
+		final UserProfileManager manager = new UserProfileManager(client.getDataManager(), userCredentials);
+		final int numModifications = 6;
+		final String abortedName = "aborted";
+		final List<String> names = new ArrayList<String>();
+		final List<Exception> errors = new ArrayList<Exception>();
+		final CountDownLatch latch = new CountDownLatch(numModifications);
+
+		// start all modifications at the same time such that they are put together
+		for (int i = 0; i < numModifications; i++) {
+			final boolean abort = i == numModifications / 2;
+			final String name = abort ? abortedName : randomString();
+			if (!abort) {
+				names.add(name);
+			}
+
+			new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						manager.modifyUserProfile(UUID.randomUUID().toString(), new IUserProfileModification() {
+							@Override
+							public void modifyUserProfile(UserProfile userProfile) throws AbortModifyException {
+								new FolderIndex(userProfile.getRoot(), null, name);
+								if (abort) {
+									throw new AbortModifyException("Aborted on purpose");
+								}
+							}
+						});
+					} catch (AbortModifyException e) {
+						// expected for the aborting modification
+					} catch (GetFailedException | PutFailedException e) {
+						synchronized (errors) {
+							errors.add(e);
+						}
+					} finally {
+						latch.countDown();
+					}
+				}
+			}).start();
+		}
+
+		assertTrue(latch.await(60, TimeUnit.SECONDS));
+		assertTrue(errors.isEmpty());
+
+		// all successful modifications are stored, the aborted one is rolled back
+		UserProfile userProfile = manager.readUserProfile();
+		List<String> children = new ArrayList<String>();
+		for (Index child : userProfile.getRoot().getChildren()) {
+			children.add(child.getName());
+		}
+		assertTrue(children.containsAll(names));
+		assertFalse(children.contains(abortedName));
+	}
+
+	@Test
+	public void testAbortFirstModification() throws GetFailedException, PutFailedException,
+			NoPeerConnectionException {
+		UserProfileManager manager = new UserProfileManager(client.getDataManager(), userCredentials);
+		final String abortedName = randomString();
+		try {
+			// no snapshot is taken for the first modification, the fetched version is restored
+			manager.modifyUserProfile(UUID.randomUUID().toString(), new IUserProfileModification() {
+				@Override
+				public void modifyUserProfile(UserProfile userProfile) throws AbortModifyException {
+					new FolderIndex(userProfile.getRoot(), null, abortedName);
+					throw new AbortModifyException("Aborted on purpose");
+				}
+			});
+			fail("The modification has been aborted");
+		} catch (AbortModifyException e) {
+			// expected
+		}
+
+		final String name = randomString();
+		final AtomicBoolean rolledBack = new AtomicBoolean(false);
+		try {
+			manager.modifyUserProfile(UUID.randomUUID().toString(), new IUserProfileModification() {
+				@Override
+				public void modifyUserProfile(UserProfile userProfile) throws AbortModifyException {
+					rolledBack.set(userProfile.getRoot().getChildByName(abortedName) == null);
+					new FolderIndex(userProfile.getRoot(), null, name);
+				}
+			});
+		} catch (AbortModifyException e) {
+			fail("The modification has not been aborted");
+		}
+		assertTrue(rolledBack.get());
+
+		UserProfile userProfile = manager.readUserProfile();
+		assertNotNull(userProfile.getRoot().getChildByName(name));
+		assertNull(userProfile.getRoot().getChildByName(abortedName));
+	}
+
+	@Test
+	public void testBoundedStalenessRead() throws GetFailedException, PutFailedException, AbortModifyException,
+			NoPeerConnectionException {
+		UserProfileManager manager = new UserProfileManager(client.getDataManager(), userCredentials);
+		UserProfile latest = manager.readUserProfile();
+		// recently confirmed, thus served locally
+		assertTrue(latest == manager.readUserProfile(60000));
+
+		final KeyPair folderKeys = generateRSAKeyPair(RSA_KEYLENGTH.BIT_512);
+		manager.modifyUserProfile(randomString(), new IUserProfileModification() {
+			@Override
+			public void modifyUserProfile(UserProfile userProfile) {
+				new FolderIndex(userProfile.getRoot(), folderKeys, randomString());
+			}
+		});
+
+		// the own put is the latest version
+		UserProfile modified = manager.readUserProfile(60000);
+		assertEquals(manager.getLastPutVersionKey(), modified.getVersionKey());
+		assertTrue(modified.getFileById(folderKeys.getPublic()) != null);
+
+		// another client announces a version, the profile is fetched again
+		manager.onVersionAnnounced(Number160.createHash(randomString()), null);
+		UserProfile fetched = manager.readUserProfile(60000);
+		assertEquals(modified.getVersionKey(), fetched.getVersionKey());
+	}
+
 	@Test
 	public void testStress() throws NoSessionException, GetFailedException, PutFailedException, IOException,
 			NoPeerConnectionException, AbortModifyException {
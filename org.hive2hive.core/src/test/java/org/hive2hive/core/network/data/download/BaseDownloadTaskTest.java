@@ -0,0 +1,118 @@
+package org.hive2hive.core.network.data.download;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.hive2hive.core.H2HJUnitTest;
+import org.hive2hive.core.model.MetaChunk;
+import org.hive2hive.core.processes.files.download.dht.DownloadTaskDHT;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class BaseDownloadTaskTest extends H2HJUnitTest {
+
+	private static final int UPLOADER_CHUNK_SIZE = 1000;
+	private static final int OWN_CHUNK_SIZE = 1024;
+
+	@BeforeClass
+	public static void initTest() throws Exception {
+		testClass = BaseDownloadTaskTest.class;
+		beforeClass();
+	}
+
+	@Test
+	public void testChunksOfOlderVersions() throws Exception {
+		byte[] content = generateFixedContent(3 * UPLOADER_CHUNK_SIZE + 100);
+		File destination = new File(tempFolder.newFolder(), randomString());
+		List<MetaChunk> metaChunks = createLegacyChunks(4);
+		BaseDownloadTask task = createTask(metaChunks, destination);
+
+		// the last chunk arrives first, its position is unknown yet
+		task.writeChunk(metaChunks.get(3), chunk(content, 3));
+		task.writeChunk(metaChunks.get(1), chunk(content, 1));
+		task.writeChunk(metaChunks.get(2), chunk(content, 2));
+		assertFalse(destination.exists());
+		task.writeChunk(metaChunks.get(0), chunk(content, 0));
+
+		assertTrue(task.getOpenChunks().isEmpty());
+		assertArrayEquals(content, FileUtils.readFileToByteArray(destination));
+	}
+
+	@Test
+	public void testChunkOfOlderVersionWithOtherSize() throws Exception {
+		byte[] content = generateFixedContent(3 * UPLOADER_CHUNK_SIZE);
+		File destination = new File(tempFolder.newFolder(), randomString());
+		List<MetaChunk> metaChunks = createLegacyChunks(3);
+		BaseDownloadTask task = createTask(metaChunks, destination);
+
+		task.writeChunk(metaChunks.get(0), chunk(content, 0));
+		task.writeChunk(metaChunks.get(1), Arrays.copyOf(chunk(content, 1), UPLOADER_CHUNK_SIZE / 2));
+
+		assertTrue(task.isAborted());
+		assertFalse(DownloadSink.getPartialFile(destination).exists());
+	}
+
+	@Test
+	public void testWriteAfterDone() throws Exception {
+		byte[] content = generateFixedContent(2 * UPLOADER_CHUNK_SIZE);
+		File destination = new File(tempFolder.newFolder(), randomString());
+		List<MetaChunk> metaChunks = createLegacyChunks(2);
+		BaseDownloadTask task = createTask(metaChunks, destination);
+
+		task.writeChunk(metaChunks.get(0), chunk(content, 0));
+		task.writeChunk(metaChunks.get(1), chunk(content, 1));
+		assertTrue(destination.exists());
+
+		// a duplicate does not create a new partial file
+		task.writeChunk(metaChunks.get(1), chunk(content, 1));
+		assertFalse(DownloadSink.getPartialFile(destination).exists());
+		assertArrayEquals(content, FileUtils.readFileToByteArray(destination));
+	}
+
+	@Test
+	public void testWriteAfterAbort() throws Exception {
+		byte[] content = generateFixedContent(2 * UPLOADER_CHUNK_SIZE);
+		File destination = new File(tempFolder.newFolder(), randomString());
+		List<MetaChunk> metaChunks = createLegacyChunks(2);
+		BaseDownloadTask task = createTask(metaChunks, destination);
+
+		task.writeChunk(metaChunks.get(0), chunk(content, 0));
+		task.abortDownload("test");
+		task.writeChunk(metaChunks.get(1), chunk(content, 1));
+
+		assertFalse(DownloadSink.getPartialFile(destination).exists());
+		assertFalse(destination.exists());
+	}
+
+	private static BaseDownloadTask createTask(List<MetaChunk> metaChunks, File destination) {
+		BaseDownloadTask task = new DownloadTaskDHT(metaChunks, destination, null, null, null);
+		task.setChunkSize(OWN_CHUNK_SIZE);
+		return task;
+	}
+
+	private static List<MetaChunk> createLegacyChunks(int number) {
+		List<MetaChunk> metaChunks = new ArrayList<MetaChunk>(number);
+		for (int i = 0; i < number; i++) {
+			metaChunks.add(new MetaChunk(randomString(), generateRandomContent(20), i));
+		}
+		return metaChunks;
+	}
+
+	private static byte[] chunk(byte[] content, int index) {
+		int from = index * UPLOADER_CHUNK_SIZE;
+		return Arrays.copyOfRange(content, from, Math.min(content.length, from + UPLOADER_CHUNK_SIZE));
+	}
+
+	@AfterClass
+	public static void endTest() throws Exception {
+		afterClass();
+	}
+}
@@ -0,0 +1,107 @@
+package org.hive2hive.core.network.data.download;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.commons.io.FileUtils;
+import org.hive2hive.core.H2HJUnitTest;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class DownloadSinkTest extends H2HJUnitTest {
+
+	private static final int CHUNK_SIZE = 1024;
+
+	@BeforeClass
+	public static void initTest() throws Exception {
+		testClass = DownloadSinkTest.class;
+		beforeClass();
+	}
+
+	@Test
+	public void testWriteInAnyOrder() throws IOException {
+		byte[] content = generateFixedContent(3 * CHUNK_SIZE + 100);
+		File destination = new File(tempFolder.newFolder(), randomString());
+
+		DownloadSink sink = new DownloadSink(destination, CHUNK_SIZE, 4);
+		assertTrue(sink.getPartialFile().exists());
+		assertTrue(DownloadSink.isPartialFile(sink.getPartialFile()));
+
+		// write the chunks in a random order
+		for (int index : new int[] { 2, 0, 3, 1 }) {
+			int from = index * CHUNK_SIZE;
+			int to = Math.min(from + CHUNK_SIZE, content.length);
+			sink.write(index, Arrays.copyOfRange(content, from, to));
+		}
+		assertFalse(destination.exists());
+
+		sink.finish();
+		assertFalse(sink.getPartialFile().exists());
+		assertArrayEquals(content, FileUtils.readFileToByteArray(destination));
+	}
+
+	@Test
+	public void testWriteAtOffsets() throws IOException {
+		// chunks of different sizes (content-defined chunking)
+		byte[] content = generateFixedContent(3 * CHUNK_SIZE);
+		int[] offsets = { 0, 100, CHUNK_SIZE + 7, content.length };
+		File destination = new File(tempFolder.newFolder(), randomString());
+
+		DownloadSink sink = new DownloadSink(destination, CHUNK_SIZE, offsets.length - 1);
+		for (int i = offsets.length - 2; i >= 0; i--) {
+			sink.writeAt(offsets[i], Arrays.copyOfRange(content, offsets[i], offsets[i + 1]));
+		}
+
+		sink.finish();
+		assertArrayEquals(content, FileUtils.readFileToByteArray(destination));
+	}
+
+	@Test
+	public void testOverwriteDestination() throws IOException {
+		File destination = new File(tempFolder.newFolder(), randomString());
+		FileUtils.writeByteArrayToFile(destination, generateFixedContent(5 * CHUNK_SIZE));
+
+		byte[] content = generateFixedContent(CHUNK_SIZE / 2);
+		DownloadSink sink = new DownloadSink(destination, CHUNK_SIZE, 1);
+		sink.write(0, content);
+		sink.finish();
+
+		assertArrayEquals(content, FileUtils.readFileToByteArray(destination));
+	}
+
+	@Test
+	public void testDiscard() throws IOException {
+		File destination = new File(tempFolder.newFolder(), randomString());
+		DownloadSink sink = new DownloadSink(destination, CHUNK_SIZE, 2);
+		sink.write(1, generateFixedContent(CHUNK_SIZE));
+		sink.discard();
+
+		assertFalse(sink.getPartialFile().exists());
+		assertFalse(destination.exists());
+	}
+
+	@Test
+	public void testWriteAfterClose() throws IOException {
+		File destination = new File(tempFolder.newFolder(), randomString());
+		DownloadSink sink = new DownloadSink(destination, CHUNK_SIZE, 1);
+		assertTrue(sink.write(0, generateFixedContent(CHUNK_SIZE)));
+		sink.finish();
+		assertFalse(sink.write(0, generateFixedContent(CHUNK_SIZE)));
+
+		sink = new DownloadSink(destination, CHUNK_SIZE, 1);
+		sink.discard();
+		assertFalse(sink.write(0, generateFixedContent(CHUNK_SIZE)));
+		assertFalse(sink.getPartialFile().exists());
+	}
+
+	@AfterClass
+	public static void endTest() throws Exception {
+		afterClass();
+	}
+}
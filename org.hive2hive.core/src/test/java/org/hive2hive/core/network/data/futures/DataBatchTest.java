@@ -0,0 +1,178 @@
+package org.hive2hive.core.network.data.futures;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.hive2hive.core.H2HJUnitTest;
+import org.hive2hive.core.network.data.parameters.IParameters;
+import org.hive2hive.core.network.data.parameters.Parameters;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class DataBatchTest extends H2HJUnitTest {
+
+	@BeforeClass
+	public static void initTest() throws Exception {
+		testClass = DataBatchTest.class;
+		beforeClass();
+	}
+
+	@Test
+	public void testWindow() {
+		List<IParameters> parameters = createParameters(10, false);
+		ManualBatch batch = new ManualBatch(parameters, 3);
+		DataFuture<List<String>> result = batch.run();
+
+		// only the window is started
+		assertEquals(3, batch.running.size());
+		while (!batch.running.isEmpty()) {
+			assertTrue(batch.running.size() <= 3);
+			batch.completeFirst();
+		}
+
+		assertTrue(result.isDone());
+		List<String> results = result.await();
+		assertEquals(parameters.size(), results.size());
+		for (int i = 0; i < parameters.size(); i++) {
+			// results are in the order of the parameters
+			assertEquals(parameters.get(i).getContentKey(), results.get(i));
+		}
+	}
+
+	@Test
+	public void testSameLocationKeyOneAfterTheOther() {
+		List<IParameters> parameters = createParameters(5, true);
+		ManualBatch batch = new ManualBatch(parameters, 3);
+		DataFuture<List<String>> result = batch.run();
+
+		for (int i = 0; i < parameters.size(); i++) {
+			assertEquals(1, batch.running.size());
+			assertEquals(parameters.get(i).getContentKey(), batch.running.get(0).contentKey);
+			batch.completeFirst();
+		}
+		assertTrue(result.isDone());
+	}
+
+	@Test
+	public void testSynchronousCompletion() {
+		List<IParameters> parameters = createParameters(10000, false);
+		DataFuture<List<String>> result = new DataBatch<String>(parameters, 4) {
+			@Override
+			protected DataFuture<String> start(IParameters single) {
+				return DataFuture.completed(single.getContentKey());
+			}
+		}.run();
+
+		assertTrue(result.isDone());
+		assertEquals(parameters.get(9999).getContentKey(), result.await().get(9999));
+	}
+
+	@Test
+	public void testStartThrows() {
+		final List<IParameters> parameters = createParameters(10, false);
+		DataFuture<List<String>> result = new DataBatch<String>(parameters, 2) {
+			@Override
+			protected DataFuture<String> start(IParameters single) {
+				if (single == parameters.get(3)) {
+					throw new IllegalStateException("Cannot start");
+				}
+				return DataFuture.completed(single.getContentKey());
+			}
+		}.run();
+
+		// the failed operation does not stop the batch
+		assertTrue(result.isDone());
+		List<String> results = result.await();
+		assertNull(results.get(3));
+		assertEquals(parameters.get(2).getContentKey(), results.get(2));
+		assertEquals(parameters.get(9).getContentKey(), results.get(9));
+	}
+
+	@Test
+	public void testEmpty() {
+		ManualBatch batch = new ManualBatch(Collections.<IParameters> emptyList(), 3);
+		assertTrue(batch.run().await().isEmpty());
+	}
+
+	@Test
+	public void testCancel() {
+		List<IParameters> parameters = createParameters(10, false);
+		ManualBatch batch = new ManualBatch(parameters, 3);
+		DataFuture<List<String>> result = batch.run();
+		List<DataFuture<String>> running = new ArrayList<DataFuture<String>>(batch.running);
+
+		result.cancel(true);
+		assertNull(result.await());
+		for (DataFuture<String> future : running) {
+			assertTrue(future.isCancelled());
+		}
+
+		// no further operation has been started
+		assertEquals(3, batch.started);
+		assertFalse(batch.running.isEmpty());
+	}
+
+	private static List<IParameters> createParameters(int count, boolean sameLocationKey) {
+		String locationKey = randomString();
+		Set<String> contentKeys = new HashSet<String>();
+		List<IParameters> parameters = new ArrayList<IParameters>();
+		while (parameters.size() < count) {
+			String contentKey = randomString();
+			if (contentKeys.add(contentKey)) {
+				parameters.add(new Parameters().setLocationKey(sameLocationKey ? locationKey : randomString())
+						.setContentKey(contentKey));
+			}
+		}
+		return parameters;
+	}
+
+	/**
+	 * Starts futures that are completed by the test
+	 */
+	private static class ManualBatch extends DataBatch<String> {
+
+		private final List<SingleFuture> running = new ArrayList<SingleFuture>();
+		private int started = 0;
+
+		public ManualBatch(List<IParameters> parameters, int window) {
+			super(parameters, window);
+		}
+
+		@Override
+		protected DataFuture<String> start(IParameters single) {
+			started++;
+			SingleFuture future = new SingleFuture(single.getContentKey());
+			running.add(future);
+			return future;
+		}
+
+		public void completeFirst() {
+			SingleFuture future = running.remove(0);
+			future.complete(future.contentKey);
+		}
+	}
+
+	private static class SingleFuture extends DataFuture<String> {
+
+		private final String contentKey;
+
+		public SingleFuture(String contentKey) {
+			super(null);
+			this.contentKey = contentKey;
+		}
+	}
+
+	@AfterClass
+	public static void endTest() throws Exception {
+		afterClass();
+	}
+}
@@ -0,0 +1,149 @@
+package org.hive2hive.core.network.data.futures;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hive2hive.core.H2HJUnitTest;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class DataFutureTest extends H2HJUnitTest {
+
+	@BeforeClass
+	public static void initTest() throws Exception {
+		testClass = DataFutureTest.class;
+		beforeClass();
+	}
+
+	@Test
+	public void testComplete() throws Exception {
+		final AtomicInteger notified = new AtomicInteger();
+		IDataFutureListener<String> listener = new IDataFutureListener<String>() {
+			@Override
+			public void onDone(DataFuture<String> future) {
+				notified.incrementAndGet();
+			}
+		};
+
+		DataFuture<String> future = new DataFuture<String>(null).addListener(listener);
+		assertFalse(future.isDone());
+
+		assertTrue(future.complete("result"));
+		assertFalse(future.complete("other"));
+		assertTrue(future.isDone());
+		assertEquals("result", future.get());
+		assertEquals("result", future.await());
+		assertEquals(1, notified.get());
+
+		// a late listener is notified immediately
+		future.addListener(listener);
+		assertEquals(2, notified.get());
+	}
+
+	@Test
+	public void testTimeout() throws Exception {
+		DataFuture<Boolean> future = new DataFuture<Boolean>(false).withTimeout(50);
+		assertFalse(future.await());
+		assertTrue(future.isTimedOut());
+		assertFalse(future.complete(true));
+	}
+
+	@Test(expected = TimeoutException.class)
+	public void testGetTimeout() throws Exception {
+		new DataFuture<Boolean>(false).get(10, TimeUnit.MILLISECONDS);
+	}
+
+	@Test
+	public void testCancel() throws Exception {
+		DataFuture<String> future = new DataFuture<String>("failed");
+		assertTrue(future.cancel(true));
+		assertTrue(future.isCancelled());
+		assertEquals("failed", future.await());
+		assertFalse(future.complete("result"));
+
+		try {
+			future.get();
+			assertTrue("Cancelled future must not return a result", false);
+		} catch (CancellationException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testFail() {
+		DataFuture<String> future = new DataFuture<String>("failed");
+		Exception cause = new Exception("reason");
+		assertTrue(future.fail(cause));
+		assertFalse(future.complete("result"));
+		assertEquals("failed", future.await());
+		assertEquals(cause, future.getCause());
+
+		// completed futures have no cause
+		DataFuture<String> completed = DataFuture.completed("result");
+		assertNull(completed.getCause());
+	}
+
+	@Test
+	public void testExecute() {
+		final DataFuture<String> future = new DataFuture<String>(null);
+		DataFuture.execute(new Runnable() {
+			@Override
+			public void run() {
+				future.complete(Thread.currentThread().getName());
+			}
+		});
+
+		// runs in a worker thread
+		assertFalse(Thread.currentThread().getName().equals(future.await()));
+	}
+
+	@Test
+	public void testAll() {
+		List<DataFuture<Integer>> futures = new ArrayList<DataFuture<Integer>>();
+		for (int i = 0; i < 3; i++) {
+			futures.add(new DataFuture<Integer>(-1));
+		}
+
+		DataFuture<List<Integer>> all = DataFuture.all(futures);
+		futures.get(2).complete(2);
+		futures.get(0).complete(0);
+		assertFalse(all.isDone());
+
+		futures.get(1).cancel(true);
+		assertTrue(all.isDone());
+		assertEquals(Arrays.asList(0, -1, 2), all.await());
+	}
+
+	@Test
+	public void testCancelAll() {
+		List<DataFuture<Integer>> futures = new ArrayList<DataFuture<Integer>>();
+		for (int i = 0; i < 3; i++) {
+			futures.add(new DataFuture<Integer>(-1));
+		}
+
+		DataFuture<List<Integer>> all = DataFuture.all(futures);
+		futures.get(0).complete(0);
+		all.cancel(true);
+
+		assertNull(all.await());
+		assertEquals(0, futures.get(0).await().intValue());
+		assertTrue(futures.get(1).isCancelled());
+		assertTrue(futures.get(2).isCancelled());
+	}
+
+	@AfterClass
+	public static void endTest() throws Exception {
+		afterClass();
+	}
+}
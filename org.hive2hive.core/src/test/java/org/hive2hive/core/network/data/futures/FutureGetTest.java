@@ -12,6 +12,7 @@ import net.tomp2p.peers.Number160;
 import org.hive2hive.core.H2HJUnitTest;
 import org.hive2hive.core.H2HTestData;
 import org.hive2hive.core.exceptions.NoPeerConnectionException;
+import org.hive2hive.core.model.BaseNetworkContent;
 import org.hive2hive.core.network.NetworkManager;
 import org.hive2hive.core.network.data.parameters.Parameters;
 import org.hive2hive.core.utils.NetworkTestUtil;
@@ -113,6 +114,30 @@ public class FutureGetTest extends H2HJUnitTest {
 		assertNull(nodeB.getDataManager().get(parameters));
 	}
 
+	@Test
+	public void testGetAsync() throws NoPeerConnectionException {
+		NetworkManager nodeA = NetworkTestUtil.getRandomNode(network);
+		NetworkManager nodeB = NetworkTestUtil.getRandomNode(network);
+
+		List<String> content = new ArrayList<String>();
+		List<DataFuture<BaseNetworkContent>> futures = new ArrayList<DataFuture<BaseNetworkContent>>();
+		for (int i = 0; i < 5; i++) {
+			H2HTestData data = new H2HTestData(randomString());
+			Parameters parameters = new Parameters().setLocationKey(nodeA.getNodeId()).setContentKey(randomString())
+					.setNetworkContent(data);
+			nodeA.getDataManager().put(parameters);
+
+			content.add(data.getTestString());
+			futures.add(nodeB.getDataManager().getAsync(parameters));
+		}
+
+		// all gets run concurrently
+		List<BaseNetworkContent> results = DataFuture.all(futures).await();
+		for (int i = 0; i < content.size(); i++) {
+			assertEquals(content.get(i), ((H2HTestData) results.get(i)).getTestString());
+		}
+	}
+
 	@AfterClass
 	public static void cleanAfterClass() {
 		NetworkTestUtil.shutdownNetwork(network);
@@ -0,0 +1,110 @@
+package org.hive2hive.core.network.data.futures;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.hive2hive.core.H2HJUnitTest;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class HedgedRequestTest extends H2HJUnitTest {
+
+	@BeforeClass
+	public static void initTest() throws Exception {
+		testClass = HedgedRequestTest.class;
+		beforeClass();
+	}
+
+	@Test
+	public void testNoHedgeIfFast() throws Exception {
+		TestRequest request = new TestRequest(50);
+		DataFuture<String> result = request.run();
+		request.attempts.get(0).complete("primary");
+
+		assertEquals("primary", result.await());
+		Thread.sleep(100);
+		assertEquals(1, request.attempts.size());
+	}
+
+	@Test
+	public void testHedgeWins() throws Exception {
+		TestRequest request = new TestRequest(20);
+		DataFuture<String> result = request.run();
+		waitForAttempts(request, 2);
+
+		request.attempts.get(1).complete("hedge");
+		assertEquals("hedge", result.await());
+		// the slow one is cancelled
+		assertTrue(request.attempts.get(0).isCancelled());
+	}
+
+	@Test
+	public void testFailedPrimaryWaitsForHedge() throws Exception {
+		TestRequest request = new TestRequest(20);
+		DataFuture<String> result = request.run();
+		waitForAttempts(request, 2);
+
+		request.attempts.get(0).complete(null);
+		assertFalse(result.isDone());
+		request.attempts.get(1).complete("hedge");
+		assertEquals("hedge", result.await());
+	}
+
+	@Test
+	public void testAllFail() throws Exception {
+		TestRequest request = new TestRequest(20);
+		DataFuture<String> result = request.run();
+		waitForAttempts(request, 2);
+
+		request.attempts.get(0).complete(null);
+		request.attempts.get(1).complete(null);
+		assertNull(result.await());
+	}
+
+	@Test
+	public void testDisabled() throws Exception {
+		TestRequest request = new TestRequest(-1);
+		DataFuture<String> result = request.run();
+		Thread.sleep(50);
+		assertEquals(1, request.attempts.size());
+
+		result.cancel(true);
+		assertTrue(request.attempts.get(0).isCancelled());
+	}
+
+	private static void waitForAttempts(TestRequest request, int attempts) throws InterruptedException {
+		for (int i = 0; i < 100 && request.attempts.size() < attempts; i++) {
+			Thread.sleep(10);
+		}
+		assertEquals(attempts, request.attempts.size());
+	}
+
+	private static class TestRequest extends HedgedRequest<String> {
+
+		private final List<DataFuture<String>> attempts = Collections
+				.synchronizedList(new ArrayList<DataFuture<String>>());
+
+		public TestRequest(long hedgeDelayMs) {
+			super(null, hedgeDelayMs);
+		}
+
+		@Override
+		protected DataFuture<String> start(boolean hedge) {
+			DataFuture<String> attempt = new DataFuture<String>(null);
+			attempts.add(attempt);
+			return attempt;
+		}
+	}
+
+	@AfterClass
+	public static void endTest() throws Exception {
+		afterClass();
+	}
+}
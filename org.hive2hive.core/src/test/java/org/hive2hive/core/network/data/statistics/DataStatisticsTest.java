@@ -0,0 +1,112 @@
+package org.hive2hive.core.network.data.statistics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import net.tomp2p.peers.Number160;
+import net.tomp2p.peers.PeerAddress;
+
+import org.hive2hive.core.H2HConstants;
+import org.hive2hive.core.H2HJUnitTest;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class DataStatisticsTest extends H2HJUnitTest {
+
+	@BeforeClass
+	public static void initTest() throws Exception {
+		testClass = DataStatisticsTest.class;
+		beforeClass();
+	}
+
+	@Test
+	public void testSnapshot() {
+		DataStatistics statistics = new DataStatistics();
+		statistics.recordLatency(DataOperation.GET, H2HConstants.FILE_CHUNK, 10);
+		statistics.recordLatency(DataOperation.GET, H2HConstants.FILE_CHUNK, 30);
+		statistics.recordLatency(DataOperation.PUT, H2HConstants.META_FILE, 100);
+		statistics.recordRetry(DataOperation.PUT);
+		statistics.recordVersionFork();
+		statistics.recordVersionMerge();
+
+		DataStatisticsSnapshot snapshot = statistics.snapshot();
+		LatencyHistogram chunkGets = snapshot.getLatency(DataOperation.GET, H2HConstants.FILE_CHUNK);
+		assertEquals(2, chunkGets.getCount());
+		assertEquals(20.0, chunkGets.getMeanMs(), 0.0);
+		assertEquals(1, snapshot.getLatency(DataOperation.PUT, H2HConstants.META_FILE).getCount());
+		assertNull(snapshot.getLatency(DataOperation.PUT, H2HConstants.FILE_CHUNK));
+		assertEquals(1L, (long) snapshot.getRetries().get(DataOperation.PUT));
+		assertEquals(0L, (long) snapshot.getRetries().get(DataOperation.REMOVE));
+		assertEquals(1, snapshot.getVersionForks());
+		assertEquals(1, snapshot.getVersionMerges());
+
+		// the snapshot does not change anymore
+		statistics.recordLatency(DataOperation.GET, H2HConstants.FILE_CHUNK, 10);
+		statistics.recordRetry(DataOperation.PUT);
+		assertEquals(2, snapshot.getLatency(DataOperation.GET, H2HConstants.FILE_CHUNK).getCount());
+		assertEquals(1L, (long) snapshot.getRetries().get(DataOperation.PUT));
+
+		statistics.reset();
+		assertTrue(statistics.snapshot().getLatencies().isEmpty());
+		assertEquals(0, statistics.getVersionForks());
+		assertEquals(0, statistics.getVersionMerges());
+	}
+
+	@Test
+	public void testPeers() {
+		DataStatistics statistics = new DataStatistics(2);
+		PeerAddress first = new PeerAddress(Number160.createHash(randomString()));
+		PeerAddress second = new PeerAddress(Number160.createHash(randomString()));
+
+		statistics.recordPeer(first, true, 10);
+		statistics.recordPeer(first, false, 30);
+		statistics.recordPeer(second, true, 5);
+		// bounded
+		statistics.recordPeer(new PeerAddress(Number160.createHash(randomString())), true, 5);
+
+		DataStatisticsSnapshot snapshot = statistics.snapshot();
+		assertEquals(2, snapshot.getPeers().size());
+		PeerStatistics firstStatistics = snapshot.getPeers().get(first);
+		assertEquals(2, firstStatistics.getResponses());
+		assertEquals(1, firstStatistics.getFailures());
+		assertEquals(20.0, firstStatistics.getMeanLatencyMs(), 0.0);
+		assertEquals(0, snapshot.getPeers().get(second).getFailures());
+	}
+
+	@Test
+	public void testJMX() throws Exception {
+		DataStatistics statistics = new DataStatistics();
+		statistics.recordLatency(DataOperation.DIGEST, H2HConstants.USER_PROFILE, 42);
+		statistics.recordRetry(DataOperation.REMOVE);
+
+		String nodeId = randomString();
+		statistics.register(nodeId);
+		ObjectName name = statistics.getObjectName();
+		assertNotNull(name);
+
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		assertTrue(server.isRegistered(name));
+		assertEquals(0L, server.getAttribute(name, "VersionForks"));
+		assertNotNull(server.getAttribute(name, "P99LatenciesMs"));
+		assertEquals(1L, (long) statistics.getRetries().get(DataOperation.REMOVE.name()));
+		assertEquals(42L, (long) statistics.getMaxLatenciesMs().get("DIGEST/" + H2HConstants.USER_PROFILE));
+
+		statistics.unregister();
+		assertFalse(server.isRegistered(name));
+		assertNull(statistics.getObjectName());
+	}
+
+	@AfterClass
+	public static void endTest() throws Exception {
+		afterClass();
+	}
+}
@@ -0,0 +1,89 @@
+package org.hive2hive.core.network.data.statistics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.hive2hive.core.H2HJUnitTest;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class LatencyHistogramTest extends H2HJUnitTest {
+
+	@BeforeClass
+	public static void initTest() throws Exception {
+		testClass = LatencyHistogramTest.class;
+		beforeClass();
+	}
+
+	@Test
+	public void testEmpty() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMaxMs());
+		assertEquals(0.0, histogram.getMeanMs(), 0.0);
+		assertEquals(0, histogram.getPercentileMs(0.99));
+	}
+
+	@Test
+	public void testSmallValuesAreExact() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 0; i < 10; i++) {
+			histogram.record(i);
+		}
+		assertEquals(10, histogram.getCount());
+		assertEquals(9, histogram.getMaxMs());
+		assertEquals(4.5, histogram.getMeanMs(), 0.0001);
+		assertEquals(4, histogram.getPercentileMs(0.5));
+		assertEquals(9, histogram.getPercentileMs(1.0));
+	}
+
+	@Test
+	public void testRelativeError() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 1; i <= 10000; i++) {
+			histogram.record(i);
+		}
+
+		long median = histogram.getPercentileMs(0.5);
+		assertTrue(median >= 5000 && median <= 5000 * 17 / 16);
+		long p99 = histogram.getPercentileMs(0.99);
+		assertTrue(p99 >= 9900 && p99 <= 10000);
+		assertEquals(10000, histogram.getMaxMs());
+	}
+
+	@Test
+	public void testBuckets() {
+		// every value lies in the bucket it is mapped to
+		for (long value = 0; value < 100000; value += 7) {
+			int index = LatencyHistogram.indexOf(value);
+			assertTrue(value <= LatencyHistogram.highestValueOf(index));
+			assertTrue(index == 0 || value > LatencyHistogram.highestValueOf(index - 1));
+		}
+
+		// huge values do not overflow
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(Long.MAX_VALUE);
+		histogram.record(-5);
+		assertEquals(2, histogram.getCount());
+		assertEquals(0, histogram.getPercentileMs(0.5));
+		assertEquals(Long.MAX_VALUE, histogram.getPercentileMs(1.0));
+	}
+
+	@Test
+	public void testCopy() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(10);
+		LatencyHistogram copy = histogram.copy();
+		histogram.record(20);
+
+		assertEquals(1, copy.getCount());
+		assertEquals(10, copy.getMaxMs());
+		assertEquals(2, histogram.getCount());
+	}
+
+	@AfterClass
+	public static void endTest() throws Exception {
+		afterClass();
+	}
+}
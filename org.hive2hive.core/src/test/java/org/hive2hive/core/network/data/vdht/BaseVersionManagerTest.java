@@ -0,0 +1,300 @@
+package org.hive2hive.core.network.data.vdht;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.security.KeyPair;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import javax.crypto.SecretKey;
+
+import net.tomp2p.peers.Number160;
+import net.tomp2p.peers.Number640;
+import net.tomp2p.storage.Data;
+
+import org.hive2hive.core.H2HConstants;
+import org.hive2hive.core.H2HJUnitTest;
+import org.hive2hive.core.H2HTestData;
+import org.hive2hive.core.exceptions.GetFailedException;
+import org.hive2hive.core.model.versioned.EncryptedNetworkContent;
+import org.hive2hive.core.network.H2HStorageMemory;
+import org.hive2hive.core.network.H2HStorageMemory.StorageMemoryGetMode;
+import org.hive2hive.core.network.NetworkManager;
+import org.hive2hive.core.network.data.ContentCache;
+import org.hive2hive.core.network.data.DataManager;
+import org.hive2hive.core.network.data.IRetryPolicy;
+import org.hive2hive.core.network.data.RetryPolicy;
+import org.hive2hive.core.network.data.futures.DataFuture;
+import org.hive2hive.core.network.data.parameters.Parameters;
+import org.hive2hive.core.network.data.statistics.DataOperation;
+import org.hive2hive.core.security.EncryptionUtil.AES_KEYLENGTH;
+import org.hive2hive.core.security.PasswordUtil;
+import org.hive2hive.core.utils.H2HWaiter;
+import org.hive2hive.core.utils.NetworkTestUtil;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests the steps of the get of the latest version: the retries, the waiting for delayed and forked versions,
+ * the cancellation and the deadline.
+ */
+public class BaseVersionManagerTest extends H2HJUnitTest {
+
+	private static final long BACKOFF_BASE = 50;
+
+	private static List<NetworkManager> network;
+
+	private static SecretKey encryptionKey = PasswordUtil.generateAESKeyFromPassword(randomString(), randomString(),
+			AES_KEYLENGTH.BIT_256);
+	private static KeyPair protectionKeys = generateRSAKeyPair(H2HConstants.KEYLENGTH_PROTECTION);
+
+	@BeforeClass
+	public static void initTest() throws Exception {
+		testClass = BaseVersionManagerTest.class;
+		beforeClass();
+		network = NetworkTestUtil.createNetwork(DEFAULT_NETWORK_SIZE);
+	}
+
+	@Test
+	public void testRetryWithBackoff() throws Exception {
+		RecordingRetryPolicy policy = new RecordingRetryPolicy(RetryPolicy.createDefault()
+				.setMaxRetries(IRetryPolicy.Operation.VERSION_GET, 2)
+				.setBackoffBase(IRetryPolicy.Operation.VERSION_GET, BACKOFF_BASE));
+		DataManager dataManager = createDataManager(policy);
+		AESEncryptedVersionManager<H2HTestData> versionManager = new AESEncryptedVersionManager<H2HTestData>(
+				dataManager, encryptionKey, randomString(), randomString());
+
+		long start = System.currentTimeMillis();
+		try {
+			versionManager.get();
+			fail("Nothing has been put");
+		} catch (GetFailedException e) {
+			// expected
+		}
+
+		// each retry waits with an increasing backoff
+		assertEquals(Arrays.asList(0, 1), policy.getRetries(IRetryPolicy.Operation.VERSION_GET));
+		assertTrue(System.currentTimeMillis() - start >= policy.getTotalBackoffMs(IRetryPolicy.Operation.VERSION_GET));
+		assertTrue(policy.getTotalBackoffMs(IRetryPolicy.Operation.VERSION_GET) >= BACKOFF_BASE + 2 * BACKOFF_BASE);
+		assertEquals(Long.valueOf(2), dataManager.getStatistics().getRetries().get(DataOperation.GET_LATEST.name()));
+	}
+
+	@Test
+	public void testDeadline() throws Exception {
+		RecordingRetryPolicy policy = new RecordingRetryPolicy(RetryPolicy.createDefault()
+				.setMaxRetries(IRetryPolicy.Operation.VERSION_GET, 10)
+				.setBackoffBase(IRetryPolicy.Operation.VERSION_GET, BACKOFF_BASE)
+				.setDeadline(IRetryPolicy.Operation.VERSION_GET, 0));
+		DataManager dataManager = createDataManager(policy);
+		AESEncryptedVersionManager<H2HTestData> versionManager = new AESEncryptedVersionManager<H2HTestData>(
+				dataManager, encryptionKey, randomString(), randomString());
+
+		try {
+			versionManager.get();
+			fail("Nothing has been put");
+		} catch (GetFailedException e) {
+			// expected
+		}
+
+		// the deadline passed with the first attempt, no retries are made
+		assertTrue(policy.getRetries(IRetryPolicy.Operation.VERSION_GET).isEmpty());
+		assertNull(dataManager.getStatistics().getRetries().get(DataOperation.GET_LATEST.name()));
+	}
+
+	@Test
+	public void testDelay() throws Exception {
+		RecordingRetryPolicy policy = new RecordingRetryPolicy(RetryPolicy.createDefault()
+				.setMaxRetries(IRetryPolicy.Operation.VERSION_DELAY, 2)
+				.setBackoffBase(IRetryPolicy.Operation.VERSION_DELAY, BACKOFF_BASE));
+		DataManager dataManager = createDataManager(policy);
+		String locationKey = randomString();
+		String contentKey = randomString();
+		AESEncryptedVersionManager<H2HTestData> versionManager = new AESEncryptedVersionManager<H2HTestData>(
+				dataManager, encryptionKey, locationKey, contentKey);
+
+		H2HTestData version0 = new H2HTestData("version0");
+		versionManager.put(version0, protectionKeys);
+		H2HTestData version1 = new H2HTestData("version1");
+		version1.setVersionKey(version0.getVersionKey());
+		versionManager.put(version1, protectionKeys);
+
+		// the version manager knows version1, but the network does not have it (anymore)
+		dataManager.removeVersion(new Parameters().setLocationKey(locationKey).setContentKey(contentKey)
+				.setVersionKey(version1.getVersionKey()).setProtectionKeys(protectionKeys));
+
+		// waits for the delayed version until the retries are used up, then returns the cached one
+		assertEquals(version1.getTestString(), versionManager.get().getTestString());
+		assertEquals(Arrays.asList(0, 1), policy.getRetries(IRetryPolicy.Operation.VERSION_DELAY));
+		assertTrue(policy.getRetries(IRetryPolicy.Operation.VERSION_FORK).isEmpty());
+	}
+
+	@Test
+	public void testFork() throws Exception {
+		RecordingRetryPolicy policy = new RecordingRetryPolicy(RetryPolicy.createDefault()
+				.setMaxRetries(IRetryPolicy.Operation.VERSION_FORK, 2)
+				.setBackoffBase(IRetryPolicy.Operation.VERSION_FORK, BACKOFF_BASE));
+		DataManager dataManager = createDataManager(policy);
+		String locationKey = randomString();
+		String contentKey = randomString();
+
+		try {
+			manipulateFork(locationKey, contentKey);
+			AESEncryptedVersionManager<H2HTestData> versionManager = new AESEncryptedVersionManager<H2HTestData>(
+					dataManager, encryptionKey, locationKey, contentKey);
+			try {
+				versionManager.get();
+				fail("The fork has not been resolved");
+			} catch (GetFailedException e) {
+				// expected
+			}
+		} finally {
+			resetStorage();
+		}
+
+		// waits for the fork to be resolved until the retries are used up, the fork is counted once
+		assertEquals(Arrays.asList(0, 1), policy.getRetries(IRetryPolicy.Operation.VERSION_FORK));
+		assertEquals(1, dataManager.getStatistics().getVersionForks());
+		assertEquals(0, dataManager.getStatistics().getVersionMerges());
+	}
+
+	@Test
+	public void testCancel() throws Exception {
+		// long backoffs such that the get can be cancelled while waiting
+		long backoffBase = 1000;
+		RecordingRetryPolicy policy = new RecordingRetryPolicy(RetryPolicy.createDefault()
+				.setMaxRetries(IRetryPolicy.Operation.VERSION_FORK, 5)
+				.setBackoffBase(IRetryPolicy.Operation.VERSION_FORK, backoffBase));
+		DataManager dataManager = createDataManager(policy);
+		String locationKey = randomString();
+		String contentKey = randomString();
+
+		try {
+			manipulateFork(locationKey, contentKey);
+			AESEncryptedVersionManager<H2HTestData> versionManager = new AESEncryptedVersionManager<H2HTestData>(
+					dataManager, encryptionKey, locationKey, contentKey);
+
+			DataFuture<H2HTestData> future = versionManager.getAsync();
+			H2HWaiter waiter = new H2HWaiter(20);
+			while (policy.getRetries(IRetryPolicy.Operation.VERSION_FORK).isEmpty()) {
+				waiter.tickASecond();
+			}
+			assertTrue(future.cancel(true));
+
+			// wait longer than the backoff, the get does not go on
+			Thread.sleep(3 * backoffBase);
+			assertTrue(future.isCancelled());
+			assertNull(future.await());
+			assertEquals(Arrays.asList(0), policy.getRetries(IRetryPolicy.Operation.VERSION_FORK));
+		} finally {
+			resetStorage();
+		}
+	}
+
+	private static DataManager createDataManager(IRetryPolicy policy) throws Exception {
+		NetworkManager node = NetworkTestUtil.getRandomNode(network);
+		return new DataManager(node.getConnection(), node.getDataManager().getSerializer(), node.getDataManager()
+				.getEncryption(), new ContentCache(H2HConstants.CONTENT_CACHE_MEMORY_BYTES,
+				H2HConstants.CONTENT_CACHE_DISK_BYTES), policy);
+	}
+
+	/**
+	 * Lets all peers return two versions that are based on the same version
+	 */
+	private static void manipulateFork(String locationKey, String contentKey) throws Exception {
+		NavigableMap<Number640, Data> forked = new TreeMap<Number640, Data>();
+		for (String content : Arrays.asList("version0A", "version0B")) {
+			H2HTestData version = new H2HTestData(content);
+			version.generateVersionKey();
+			NetworkManager node = network.get(0);
+			EncryptedNetworkContent encrypted = node.getDataManager().getEncryption()
+					.encryptAES(version, encryptionKey);
+			encrypted.setVersionKey(version.getVersionKey());
+			Data data = new Data(node.getDataManager().getSerializer().serialize(encrypted)).addBasedOn(Number160.ZERO);
+			forked.put(new Parameters().setLocationKey(locationKey).setContentKey(contentKey)
+					.setVersionKey(version.getVersionKey()).getKey(), data);
+		}
+
+		for (NetworkManager node : network) {
+			H2HStorageMemory storage = (H2HStorageMemory) node.getConnection().getPeer().storageLayer();
+			storage.setGetMode(StorageMemoryGetMode.MANIPULATED);
+			storage.setManipulatedMap(forked);
+		}
+	}
+
+	private static void resetStorage() {
+		for (NetworkManager node : network) {
+			H2HStorageMemory storage = (H2HStorageMemory) node.getConnection().getPeer().storageLayer();
+			storage.setGetMode(StorageMemoryGetMode.STANDARD);
+			storage.setManipulatedMap(null);
+		}
+	}
+
+	/**
+	 * Records the backoffs of the retries, the hedging is disabled
+	 */
+	private static class RecordingRetryPolicy implements IRetryPolicy {
+
+		private final IRetryPolicy policy;
+		private final Map<Operation, List<Integer>> retries = new EnumMap<Operation, List<Integer>>(Operation.class);
+		private final Map<Operation, Long> backoffs = new EnumMap<Operation, Long>(Operation.class);
+
+		public RecordingRetryPolicy(IRetryPolicy policy) {
+			this.policy = policy;
+			for (Operation operation : Operation.values()) {
+				retries.put(operation, new ArrayList<Integer>());
+				backoffs.put(operation, 0L);
+			}
+		}
+
+		@Override
+		public int getMaxRetries(Operation operation) {
+			return policy.getMaxRetries(operation);
+		}
+
+		@Override
+		public synchronized long getBackoffMs(Operation operation, int retry) {
+			long backoff = policy.getBackoffMs(operation, retry);
+			retries.get(operation).add(retry);
+			backoffs.put(operation, backoffs.get(operation) + backoff);
+			return backoff;
+		}
+
+		@Override
+		public long getDeadlineMs(Operation operation) {
+			return policy.getDeadlineMs(operation);
+		}
+
+		@Override
+		public long getHedgeDelayMs(Operation operation) {
+			return -1;
+		}
+
+		@Override
+		public void recordLatency(Operation operation, long latencyMs) {
+			// not needed
+		}
+
+		public synchronized List<Integer> getRetries(Operation operation) {
+			return new ArrayList<Integer>(retries.get(operation));
+		}
+
+		public synchronized long getTotalBackoffMs(Operation operation) {
+			return backoffs.get(operation);
+		}
+	}
+
+	@AfterClass
+	public static void endTest() throws Exception {
+		NetworkTestUtil.shutdownNetwork(network);
+		afterClass();
+	}
+}
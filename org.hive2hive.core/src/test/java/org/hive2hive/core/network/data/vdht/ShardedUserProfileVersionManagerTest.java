@@ -0,0 +1,241 @@
+package org.hive2hive.core.network.data.vdht;
+
+import static org.hive2hive.core.utils.UserProfileTestUtil.assertSameTree;
+import static org.hive2hive.core.utils.UserProfileTestUtil.copy;
+import static org.hive2hive.core.utils.UserProfileTestUtil.keys;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.security.KeyPair;
+import java.security.PublicKey;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.crypto.SecretKey;
+
+import net.tomp2p.peers.Number160;
+
+import org.hive2hive.core.H2HConstants;
+import org.hive2hive.core.H2HJUnitTest;
+import org.hive2hive.core.exceptions.NoPeerConnectionException;
+import org.hive2hive.core.exceptions.VersionForkAfterPutException;
+import org.hive2hive.core.model.FileIndex;
+import org.hive2hive.core.model.FolderIndex;
+import org.hive2hive.core.model.IndexState;
+import org.hive2hive.core.model.versioned.ShardedUserProfile;
+import org.hive2hive.core.model.versioned.UserProfile;
+import org.hive2hive.core.model.versioned.UserProfileShard;
+import org.hive2hive.core.network.NetworkManager;
+import org.hive2hive.core.security.EncryptionUtil.AES_KEYLENGTH;
+import org.hive2hive.core.security.PasswordUtil;
+import org.hive2hive.core.utils.NetworkTestUtil;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests how the user profile is split into shards and assembled again.
+ */
+public class ShardedUserProfileVersionManagerTest extends H2HJUnitTest {
+
+	private static List<NetworkManager> network;
+
+	private static SecretKey encryptionKey = PasswordUtil.generateAESKeyFromPassword(randomString(), randomString(),
+			AES_KEYLENGTH.BIT_256);
+	private static KeyPair protectionKeys = generateRSAKeyPair(H2HConstants.KEYLENGTH_PROTECTION);
+
+	private UserProfile profile;
+	private FolderIndex folder1;
+	private FolderIndex folder2;
+
+	@BeforeClass
+	public static void initTest() throws Exception {
+		testClass = ShardedUserProfileVersionManagerTest.class;
+		beforeClass();
+		network = NetworkTestUtil.createNetwork(DEFAULT_NETWORK_SIZE);
+	}
+
+	@Before
+	public void createProfile() {
+		// root:
+		// - folder1:
+		// - - file1
+		// - - folder3:
+		// - - - file2
+		// - folder2 (empty)
+		// - file3
+		profile = new UserProfile(randomString(), keys(), keys());
+		folder1 = new FolderIndex(profile.getRoot(), keys(), "folder1");
+		folder2 = new FolderIndex(profile.getRoot(), keys(), "folder2");
+		new FileIndex(folder1, keys(), "file1", generateRandomContent(20));
+		FolderIndex folder3 = new FolderIndex(folder1, keys(), "folder3");
+		new FileIndex(folder3, keys(), "file2", generateRandomContent(20));
+		new FileIndex(profile.getRoot(), keys(), "file3", generateRandomContent(20));
+	}
+
+	@Test
+	public void testSplit() throws Exception {
+		UserProfile root = copy(profile);
+		Map<PublicKey, UserProfileShard> shards = ShardedUserProfileVersionManager.split(root.getRoot());
+
+		// a shard for each top-level folder
+		assertEquals(2, shards.size());
+		assertEquals(2, shards.get(folder1.getFilePublicKey()).getContent().getChildren().size());
+		assertTrue(shards.get(folder2.getFilePublicKey()).getContent().getChildren().isEmpty());
+
+		// the root keeps the empty top-level folders and the files
+		assertEquals(3, root.getRoot().getChildren().size());
+		assertTrue(((FolderIndex) root.getRoot().getChildByName("folder1")).getChildren().isEmpty());
+		assertTrue(root.getRoot().getChildByName("file3").isFile());
+		assertEquals(4, IndexState.flatten(root.getRoot()).size());
+	}
+
+	@Test
+	public void testAttach() throws Exception {
+		UserProfile root = copy(profile);
+		Map<PublicKey, UserProfileShard> shards = ShardedUserProfileVersionManager.split(root.getRoot());
+
+		// as received from the network
+		UserProfile received = copy(root);
+		for (Entry<PublicKey, UserProfileShard> entry : shards.entrySet()) {
+			FolderIndex folder = (FolderIndex) received.getRoot().getIndexByKey(entry.getKey());
+			ShardedUserProfileVersionManager.attach(folder, copy(entry.getValue()));
+		}
+
+		assertSameTree(profile, received);
+	}
+
+	@Test
+	public void testChangeAffectsOneShard() throws Exception {
+		Map<PublicKey, UserProfileShard> before = ShardedUserProfileVersionManager.split(copy(profile).getRoot());
+		new FileIndex(folder2, keys(), "file4", generateRandomContent(20));
+		Map<PublicKey, UserProfileShard> after = ShardedUserProfileVersionManager.split(copy(profile).getRoot());
+
+		assertTrue(isSame(before.get(folder1.getFilePublicKey()), after.get(folder1.getFilePublicKey())));
+		assertFalse(isSame(before.get(folder2.getFilePublicKey()), after.get(folder2.getFilePublicKey())));
+	}
+
+	@Test
+	public void testRecordShardVersions() throws Exception {
+		UserProfile root = copy(profile);
+		Map<PublicKey, UserProfileShard> shards = ShardedUserProfileVersionManager.split(root.getRoot());
+		root.setVersionKey(new Number160(2, Number160.ONE));
+		Map<PublicKey, Number160> versionKeys = new HashMap<PublicKey, Number160>();
+		for (PublicKey folderKey : shards.keySet()) {
+			versionKeys.put(folderKey, new Number160(1, new Number160(folderKey.hashCode())));
+		}
+
+		// as stored and received from the network
+		ShardedUserProfile received = copy(new ShardedUserProfile(root, versionKeys));
+		assertEquals(root.getVersionKey(), received.getVersionKey());
+		assertEquals(root.getUserId(), received.getUserId());
+		assertSameTree(root, received);
+		assertEquals(versionKeys, received.getShardVersionKeys());
+
+		// a merged profile does not know the versions of the shards anymore
+		received.clearShardVersionKeys();
+		assertNull(received.getShardVersionKey(folder1.getFilePublicKey()));
+	}
+
+	@Test
+	public void testConcurrentModificationsOfDifferentFolders() throws Exception {
+		String locationKey = randomString();
+		ShardedUserProfileVersionManager clientA = createVersionManager(network.get(0), locationKey);
+		ShardedUserProfileVersionManager clientB = createVersionManager(network.get(1), locationKey);
+		clientA.put(copy(profile), protectionKeys);
+
+		// both clients modify a different top-level folder of the same version
+		UserProfile profileA = clientA.get();
+		UserProfile profileB = clientB.get();
+		new FileIndex(getFolder(profileA, folder1), keys(), "fileA", generateRandomContent(20));
+		new FileIndex(getFolder(profileB, folder2), keys(), "fileB", generateRandomContent(20));
+		clientA.put(profileA, protectionKeys);
+		clientB.put(profileB, protectionKeys);
+
+		// the second put has been rebased onto the first one
+		assertFalse(clientA.isRebased(profileA));
+		assertTrue(clientB.isRebased(profileB));
+
+		// another client gets both modifications once
+		UserProfile latest = createVersionManager(network.get(2), locationKey).get();
+		assertNotNull(getFolder(latest, folder1).getChildByName("fileA"));
+		assertEquals(3, getFolder(latest, folder1).getChildren().size());
+		assertNotNull(getFolder(latest, folder2).getChildByName("fileB"));
+		assertEquals(1, getFolder(latest, folder2).getChildren().size());
+
+		// the rebasing client gets the modification of the other one
+		assertNotNull(getFolder(clientB.get(), folder1).getChildByName("fileA"));
+	}
+
+	@Test
+	public void testRollbackShardsIfProfileChanged() throws Exception {
+		String locationKey = randomString();
+		ShardedUserProfileVersionManager clientA = createVersionManager(network.get(0), locationKey);
+		ShardedUserProfileVersionManager clientB = createVersionManager(network.get(1), locationKey);
+		clientA.put(copy(profile), protectionKeys);
+
+		UserProfile profileA = clientA.get();
+		UserProfile profileB = clientB.get();
+		new FileIndex(getFolder(profileA, folder1), keys(), "fileA", generateRandomContent(20));
+		// changes the user profile itself besides its shard
+		new FileIndex(getFolder(profileB, folder2), keys(), "fileB", generateRandomContent(20));
+		new FileIndex(profileB.getRoot(), keys(), "fileC", generateRandomContent(20));
+		clientA.put(profileA, protectionKeys);
+		try {
+			clientB.put(profileB, protectionKeys);
+			fail("The user profile cannot be rebased");
+		} catch (VersionForkAfterPutException e) {
+			// expected
+		}
+
+		// the shard of the failed modification is not visible, it can be retried on the latest version
+		UserProfile latest = createVersionManager(network.get(2), locationKey).get();
+		assertNotNull(getFolder(latest, folder1).getChildByName("fileA"));
+		assertTrue(getFolder(latest, folder2).getChildren().isEmpty());
+		assertNull(latest.getRoot().getChildByName("fileC"));
+
+		UserProfile retried = clientB.get();
+		assertTrue(getFolder(retried, folder2).getChildren().isEmpty());
+		new FileIndex(getFolder(retried, folder2), keys(), "fileB", generateRandomContent(20));
+		clientB.put(retried, protectionKeys);
+		assertEquals(1, getFolder(createVersionManager(network.get(2), locationKey).get(), folder2).getChildren()
+				.size());
+	}
+
+	private static ShardedUserProfileVersionManager createVersionManager(NetworkManager node, String locationKey)
+			throws NoPeerConnectionException {
+		return new ShardedUserProfileVersionManager(node.getDataManager(), encryptionKey, locationKey,
+				H2HConstants.USER_PROFILE, true, false);
+	}
+
+	private static FolderIndex getFolder(UserProfile profile, FolderIndex folder) {
+		return (FolderIndex) profile.getRoot().getIndexByKey(folder.getFilePublicKey());
+	}
+
+	private static boolean isSame(UserProfileShard before, UserProfileShard after) {
+		Map<PublicKey, IndexState> beforeStates = IndexState.flatten(before.getContent());
+		Map<PublicKey, IndexState> afterStates = IndexState.flatten(after.getContent());
+		if (!beforeStates.keySet().equals(afterStates.keySet())) {
+			return false;
+		}
+		for (Entry<PublicKey, IndexState> entry : afterStates.entrySet()) {
+			if (!entry.getValue().isSameAs(beforeStates.get(entry.getKey()))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@AfterClass
+	public static void endTest() throws Exception {
+		NetworkTestUtil.shutdownNetwork(network);
+		afterClass();
+	}
+}
@@ -0,0 +1,154 @@
+package org.hive2hive.core.network.data.vdht;
+
+import static org.hive2hive.core.utils.UserProfileTestUtil.copy;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.security.KeyPair;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.crypto.SecretKey;
+
+import net.tomp2p.peers.Number160;
+import net.tomp2p.peers.Number640;
+import net.tomp2p.storage.Data;
+
+import org.hive2hive.core.H2HConstants;
+import org.hive2hive.core.H2HJUnitTest;
+import org.hive2hive.core.exceptions.NoPeerConnectionException;
+import org.hive2hive.core.model.FileIndex;
+import org.hive2hive.core.model.versioned.EncryptedNetworkContent;
+import org.hive2hive.core.model.versioned.UserProfile;
+import org.hive2hive.core.network.H2HStorageMemory;
+import org.hive2hive.core.network.NetworkManager;
+import org.hive2hive.core.network.data.parameters.Parameters;
+import org.hive2hive.core.security.EncryptionUtil.AES_KEYLENGTH;
+import org.hive2hive.core.security.EncryptionUtil.RSA_KEYLENGTH;
+import org.hive2hive.core.security.PasswordUtil;
+import org.hive2hive.core.serializer.IH2HSerialize;
+import org.hive2hive.core.utils.NetworkTestUtil;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests how the clients of a user resolve a fork of the user profile.
+ */
+public class UserProfileVersionManagerTest extends H2HJUnitTest {
+
+	private static List<NetworkManager> network;
+	private static IH2HSerialize serializer;
+
+	private static SecretKey encryptionKey = PasswordUtil.generateAESKeyFromPassword(randomString(), randomString(),
+			AES_KEYLENGTH.BIT_256);
+	private static KeyPair protectionKeys = generateRSAKeyPair(H2HConstants.KEYLENGTH_PROTECTION);
+
+	@BeforeClass
+	public static void initTest() throws Exception {
+		testClass = UserProfileVersionManagerTest.class;
+		beforeClass();
+		network = NetworkTestUtil.createNetwork(DEFAULT_NETWORK_SIZE);
+		serializer = network.get(0).getDataManager().getSerializer();
+	}
+
+	@Test
+	public void testMergeForkOfTwoClients() throws Exception {
+		String locationKey = randomString();
+
+		// the common version and two versions based on it, as put by two clients at the same time
+		UserProfile ancestor = new UserProfile(randomString(), generateRSAKeyPair(RSA_KEYLENGTH.BIT_512),
+				protectionKeys);
+		ancestor.setVersionKey(new Number160(1, Number160.createHash("ancestor").number96()));
+		storeVersion(locationKey, ancestor, Number160.ZERO);
+
+		UserProfile first = copy(ancestor);
+		new FileIndex(first.getRoot(), generateRSAKeyPair(RSA_KEYLENGTH.BIT_512), "first", generateRandomContent(20));
+		first.setVersionKey(new Number160(2, Number160.createHash("first").number96()));
+		storeVersion(locationKey, first, ancestor.getVersionKey());
+
+		UserProfile second = copy(ancestor);
+		new FileIndex(second.getRoot(), generateRSAKeyPair(RSA_KEYLENGTH.BIT_512), "second", generateRandomContent(20));
+		second.setVersionKey(new Number160(2, Number160.createHash("second").number96()));
+		storeVersion(locationKey, second, ancestor.getVersionKey());
+
+		UserProfileVersionManager clientA = createVersionManager(network.get(0), locationKey);
+		UserProfileVersionManager clientB = createVersionManager(network.get(1), locationKey);
+
+		// both clients detect the fork and merge it, but do not put it yet
+		UserProfile mergedA = clientA.get();
+		UserProfile mergedB = clientB.get();
+		assertTrue(clientA.isMerged(mergedA));
+		assertTrue(clientB.isMerged(mergedB));
+		assertNotNull(mergedA.getRoot().getChildByName("first"));
+		assertNotNull(mergedA.getRoot().getChildByName("second"));
+
+		// both put the merge, it is based on both forked versions
+		clientA.put(mergedA, protectionKeys);
+		clientB.put(mergedB, protectionKeys);
+		assertFalse(clientA.isMerged(mergedA));
+		assertFalse(clientB.isMerged(mergedB));
+
+		// the clients derived the same version, thus they did not fork again
+		assertEquals(mergedA.getVersionKey(), mergedB.getVersionKey());
+		assertEquals(new HashSet<Number160>(Arrays.asList(first.getVersionKey(), second.getVersionKey())),
+				getStoredBasedOnKeys(locationKey, mergedA.getVersionKey()));
+
+		// another client gets the merged version without a fork
+		UserProfileVersionManager clientC = createVersionManager(network.get(2), locationKey);
+		UserProfile latest = clientC.get();
+		assertEquals(mergedA.getVersionKey(), latest.getVersionKey());
+		assertFalse(clientC.isMerged(latest));
+		assertNotNull(latest.getRoot().getChildByName("first"));
+		assertNotNull(latest.getRoot().getChildByName("second"));
+	}
+
+	private static UserProfileVersionManager createVersionManager(NetworkManager node, String locationKey)
+			throws NoPeerConnectionException {
+		return new UserProfileVersionManager(node.getDataManager(), encryptionKey, locationKey,
+				H2HConstants.USER_PROFILE, 0, H2HConstants.USER_PROFILE_MAX_DELTA_BYTES);
+	}
+
+	/**
+	 * Stores a version on all peers, bypassing the fork detection of the put
+	 */
+	private static void storeVersion(String locationKey, UserProfile profile, Number160 basedOnKey)
+			throws Exception {
+		EncryptedNetworkContent encrypted = network.get(0).getDataManager().getEncryption()
+				.encryptAES(profile, encryptionKey);
+		encrypted.setVersionKey(profile.getVersionKey());
+		encrypted.setBasedOnKey(basedOnKey);
+		Number640 key = new Parameters().setLocationKey(locationKey).setContentKey(H2HConstants.USER_PROFILE)
+				.setVersionKey(profile.getVersionKey()).getKey();
+		for (NetworkManager node : network) {
+			Data data = new Data(serializer.serialize(encrypted)).addBasedOn(basedOnKey);
+			storage(node).put(key, data, null, false, false, false);
+		}
+	}
+
+	private static Set<Number160> getStoredBasedOnKeys(String locationKey, Number160 versionKey) {
+		Number640 key = new Parameters().setLocationKey(locationKey).setContentKey(H2HConstants.USER_PROFILE)
+				.setVersionKey(versionKey).getKey();
+		for (NetworkManager node : network) {
+			Data data = storage(node).get(key);
+			if (data != null) {
+				return data.basedOnSet();
+			}
+		}
+		return null;
+	}
+
+	private static H2HStorageMemory storage(NetworkManager node) {
+		return (H2HStorageMemory) node.getConnection().getPeer().storageLayer();
+	}
+
+	@AfterClass
+	public static void endTest() throws Exception {
+		NetworkTestUtil.shutdownNetwork(network);
+		afterClass();
+	}
+}
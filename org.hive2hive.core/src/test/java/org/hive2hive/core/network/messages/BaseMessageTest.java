@@ -15,6 +15,8 @@ import org.hive2hive.core.exceptions.NoPeerConnectionException;
 import org.hive2hive.core.exceptions.NoSessionException;
 import org.hive2hive.core.model.BaseNetworkContent;
 import org.hive2hive.core.network.NetworkManager;
+import org.hive2hive.core.network.data.IRetryPolicy.Operation;
+import org.hive2hive.core.network.data.RetryPolicy;
 import org.hive2hive.core.network.data.parameters.Parameters;
 import org.hive2hive.core.network.messages.testmessages.TestMessage;
 import org.hive2hive.core.network.messages.testmessages.TestMessageMaxSending;
@@ -126,6 +128,27 @@ public class BaseMessageTest extends H2HJUnitTest {
 		assertEquals(data, result);
 	}
 
+	/**
+	 * A busy target is asked again after a backoff that grows with every attempt, other failures are re-sent
+	 * immediately.
+	 */
+	@Test
+	public void testResendDelayForBusyTarget() {
+		RetryPolicy policy = RetryPolicy.createDefault().setBackoffBase(Operation.MESSAGE, 100).setMaxBackoff(1000);
+		TestMessage message = new TestMessage(randomString(), randomString(), new H2HTestData(randomString()));
+
+		message.increaseRoutedSendingCounter();
+		assertEquals(0, message.getResendDelayMs(AcceptanceReply.FAILURE, policy));
+		assertEquals(0, message.getResendDelayMs(AcceptanceReply.UNKNOWN_SESSION, policy));
+		long first = message.getResendDelayMs(AcceptanceReply.ASK_LATER, policy);
+		assertTrue(first >= 100 && first <= 200);
+
+		message.increaseRoutedSendingCounter();
+		message.increaseRoutedSendingCounter();
+		long third = message.getResendDelayMs(AcceptanceReply.ASK_LATER, policy);
+		assertTrue(third >= 400 && third <= 800);
+	}
+
 	private PublicKey getPublicKey(NetworkManager networkManager) {
 		try {
 			return networkManager.getSession().getKeyPair().getPublic();
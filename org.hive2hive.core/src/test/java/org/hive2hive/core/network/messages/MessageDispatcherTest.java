@@ -0,0 +1,80 @@
+package org.hive2hive.core.network.messages;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.hive2hive.core.H2HJUnitTest;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class MessageDispatcherTest extends H2HJUnitTest {
+
+	@BeforeClass
+	public static void initTest() throws Exception {
+		testClass = MessageDispatcherTest.class;
+		beforeClass();
+	}
+
+	@Test
+	public void testDispatch() throws InterruptedException {
+		MessageDispatcher dispatcher = new MessageDispatcher();
+		final CountDownLatch latch = new CountDownLatch(10);
+		for (int i = 0; i < 10; i++) {
+			assertTrue(dispatcher.dispatch(MessageClass.DEFAULT, new Runnable() {
+				@Override
+				public void run() {
+					latch.countDown();
+				}
+			}));
+		}
+
+		assertTrue(latch.await(10, TimeUnit.SECONDS));
+		// the statistics are updated after the runnable has finished
+		while (dispatcher.getHandledCount(MessageClass.DEFAULT) < 10) {
+			Thread.sleep(10);
+		}
+		assertEquals(0, dispatcher.getRejectedCount(MessageClass.DEFAULT));
+		assertTrue(dispatcher.getMaxLatency(MessageClass.DEFAULT) >= dispatcher.getAverageLatency(MessageClass.DEFAULT));
+	}
+
+	@Test
+	public void testRejectWhenBusy() throws InterruptedException {
+		MessageDispatcher dispatcher = new MessageDispatcher();
+		dispatcher.configure(MessageClass.CHUNK_REQUEST, 1, 2);
+
+		final CountDownLatch blocker = new CountDownLatch(1);
+		Runnable blocking = new Runnable() {
+			@Override
+			public void run() {
+				try {
+					blocker.await();
+				} catch (InterruptedException e) {
+					// ignore
+				}
+			}
+		};
+
+		// one is handled, two are queued
+		for (int i = 0; i < 3; i++) {
+			assertTrue(dispatcher.dispatch(MessageClass.CHUNK_REQUEST, blocking));
+		}
+		assertFalse(dispatcher.dispatch(MessageClass.CHUNK_REQUEST, blocking));
+		assertEquals(1, dispatcher.getRejectedCount(MessageClass.CHUNK_REQUEST));
+		assertEquals(2, dispatcher.getQueueDepth(MessageClass.CHUNK_REQUEST));
+
+		// other classes are not affected
+		assertTrue(dispatcher.dispatch(MessageClass.NOTIFICATION, blocking));
+
+		blocker.countDown();
+	}
+
+	@AfterClass
+	public static void endTest() throws Exception {
+		afterClass();
+	}
+}
@@ -0,0 +1,127 @@
+package org.hive2hive.core.network.messages.session;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.security.Security;
+import java.security.SignatureException;
+
+import net.tomp2p.peers.Number160;
+import net.tomp2p.peers.PeerAddress;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.hive2hive.core.H2HJUnitTest;
+import org.hive2hive.core.security.EncryptionUtil.RSA_KEYLENGTH;
+import org.hive2hive.core.security.H2HDefaultEncryption;
+import org.hive2hive.core.security.IH2HEncryption;
+import org.hive2hive.core.serializer.FSTSerializer;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class MessageSessionTest extends H2HJUnitTest {
+
+	private static final long LIFETIME = 60000;
+
+	private static IH2HEncryption encryption;
+	private static PublicKey receiverKey;
+
+	@BeforeClass
+	public static void initTest() throws Exception {
+		testClass = MessageSessionTest.class;
+		beforeClass();
+
+		if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
+			Security.addProvider(new BouncyCastleProvider());
+		}
+		encryption = new H2HDefaultEncryption(new FSTSerializer());
+		receiverKey = generateRSAKeyPair(RSA_KEYLENGTH.BIT_512).getPublic();
+	}
+
+	@Test
+	public void testEncryptWithHandshake() throws GeneralSecurityException {
+		MessageSession senderSession = new MessageSession(LIFETIME, encryption.getSecurityProvider());
+		SessionHandshake handshake = senderSession.createHandshake(new byte[] { 1, 2, 3 });
+		MessageSession receiverSession = new MessageSession(handshake, "sender", LIFETIME);
+		assertTrue(receiverSession.isValid());
+		assertEquals("sender", receiverSession.getUserId());
+		assertNull(senderSession.getUserId());
+
+		byte[] message = generateFixedContent(1000);
+		SessionEncryptedMessage encrypted = senderSession.encrypt(message, encryption);
+		assertArrayEquals(message, receiverSession.decrypt(encrypted, encryption));
+	}
+
+	@Test(expected = SignatureException.class)
+	public void testTamperedMessage() throws GeneralSecurityException {
+		MessageSession senderSession = new MessageSession(LIFETIME, encryption.getSecurityProvider());
+		MessageSession receiverSession = new MessageSession(senderSession.createHandshake(new byte[0]), "sender",
+				LIFETIME);
+
+		SessionEncryptedMessage encrypted = senderSession.encrypt(generateFixedContent(100), encryption);
+		encrypted.getCipherContent()[0]++;
+		receiverSession.decrypt(encrypted, encryption);
+	}
+
+	@Test
+	public void testOutgoingSessions() throws GeneralSecurityException {
+		MessageSessionManager manager = new MessageSessionManager(LIFETIME);
+		String provider = encryption.getSecurityProvider();
+
+		// the same session is used until it is invalidated
+		MessageSession session = manager.getOutgoing(receiverKey, "location", provider);
+		assertFalse(session.isConfirmed());
+		session.confirm();
+		assertSame(session, manager.getOutgoing(receiverKey, "location", provider));
+
+		// other receivers get their own session
+		assertNotSame(session, manager.getOutgoing(receiverKey, "other location", provider));
+
+		session.invalidate();
+		MessageSession renewed = manager.getOutgoing(receiverKey, "location", provider);
+		assertNotSame(session, renewed);
+		assertFalse(renewed.isConfirmed());
+	}
+
+	@Test
+	public void testIncomingSessions() throws GeneralSecurityException {
+		MessageSessionManager manager = new MessageSessionManager(LIFETIME);
+		PeerAddress sender = new PeerAddress(new Number160(1));
+		PeerAddress otherPeer = new PeerAddress(new Number160(2));
+
+		MessageSession outgoing = new MessageSession(LIFETIME, encryption.getSecurityProvider());
+		assertNull(manager.getIncoming(outgoing.getSessionId(), sender));
+
+		manager.registerIncoming(outgoing.createHandshake(new byte[0]), "sender", sender);
+		assertNotNull(manager.getIncoming(outgoing.getSessionId(), sender));
+
+		// the session is bound to the peer that offered it
+		assertNull(manager.getIncoming(outgoing.getSessionId(), otherPeer));
+
+		manager.clear();
+		assertNull(manager.getIncoming(outgoing.getSessionId(), sender));
+	}
+
+	@Test
+	public void testExpiredSession() throws GeneralSecurityException {
+		MessageSessionManager manager = new MessageSessionManager(0);
+		PeerAddress sender = new PeerAddress(new Number160(1));
+
+		MessageSession outgoing = new MessageSession(LIFETIME, encryption.getSecurityProvider());
+		manager.registerIncoming(outgoing.createHandshake(new byte[0]), "sender", sender);
+		assertNull(manager.getIncoming(outgoing.getSessionId(), sender));
+	}
+
+	@AfterClass
+	public static void endTest() throws Exception {
+		afterClass();
+	}
+}
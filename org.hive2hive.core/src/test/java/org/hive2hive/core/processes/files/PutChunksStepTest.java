@@ -0,0 +1,144 @@
+package org.hive2hive.core.processes.files;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hive2hive.core.H2HConstants;
+import org.hive2hive.core.H2HJUnitTest;
+import org.hive2hive.core.api.interfaces.IFileConfiguration;
+import org.hive2hive.core.file.ChunkRange;
+import org.hive2hive.core.file.FileChunkUtil;
+import org.hive2hive.core.model.MetaChunk;
+import org.hive2hive.core.network.NetworkManager;
+import org.hive2hive.core.network.data.DataManager;
+import org.hive2hive.core.network.data.parameters.IParameters;
+import org.hive2hive.core.network.data.parameters.Parameters;
+import org.hive2hive.core.processes.context.AddFileProcessContext;
+import org.hive2hive.core.security.EncryptionUtil;
+import org.hive2hive.core.utils.FileTestUtil;
+import org.hive2hive.core.utils.NetworkTestUtil;
+import org.hive2hive.core.utils.TestExecutionUtil;
+import org.hive2hive.core.utils.TestFileConfiguration;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests the pipelined upload of the chunks of a file.
+ */
+public class PutChunksStepTest extends H2HJUnitTest {
+
+	private static final int NUM_CHUNKS = 12;
+	private static final int WINDOW = 4;
+
+	private static List<NetworkManager> network;
+	private static IFileConfiguration config;
+
+	@BeforeClass
+	public static void initTest() throws Exception {
+		testClass = PutChunksStepTest.class;
+		beforeClass();
+		network = NetworkTestUtil.createNetwork(DEFAULT_NETWORK_SIZE);
+		config = new TestFileConfiguration();
+	}
+
+	@Test
+	public void testOrderOfMetaChunks() throws Exception {
+		NetworkManager node = NetworkTestUtil.getRandomNode(network);
+		File file = FileTestUtil.createFileRandomContent(NUM_CHUNKS, tempFolder.newFolder());
+		List<ChunkRange> ranges = FileChunkUtil.getChunkRanges(file, config);
+		AddFileProcessContext context = createContext(node, file);
+
+		// the first puts take longest, thus the later chunks are confirmed first
+		DataManager dataManager = new TestDataManager(node, -1) {
+			@Override
+			protected void beforePut(int count) throws InterruptedException {
+				Thread.sleep(Math.max(0, WINDOW - count) * 100);
+			}
+		};
+
+		TestExecutionUtil.executeProcessTillSucceded(new PutChunksStep(context, dataManager, ranges, WINDOW));
+
+		List<MetaChunk> metaChunks = context.getMetaChunks();
+		Assert.assertEquals(ranges.size(), metaChunks.size());
+		for (int i = 0; i < metaChunks.size(); i++) {
+			Assert.assertEquals(i, metaChunks.get(i).getIndex());
+		}
+	}
+
+	@Test
+	public void testFailedPutRemovesChunks() throws Exception {
+		NetworkManager node = NetworkTestUtil.getRandomNode(network);
+		File file = FileTestUtil.createFileRandomContent(NUM_CHUNKS, tempFolder.newFolder());
+		List<ChunkRange> ranges = FileChunkUtil.getChunkRanges(file, config);
+		AddFileProcessContext context = createContext(node, file);
+
+		// the put of the 7th chunk fails, some of the others are already stored
+		TestDataManager dataManager = new TestDataManager(node, 7);
+		TestExecutionUtil.executeProcessTillFailed(new PutChunksStep(context, dataManager, ranges, WINDOW));
+
+		Assert.assertFalse(dataManager.stored.isEmpty());
+		Assert.assertTrue(context.getMetaChunks().isEmpty());
+		for (String chunkId : dataManager.stored) {
+			Parameters parameters = new Parameters().setLocationKey(chunkId).setContentKey(H2HConstants.FILE_CHUNK);
+			Assert.assertNull(node.getDataManager().get(parameters));
+		}
+	}
+
+	private static AddFileProcessContext createContext(NetworkManager node, File file) {
+		AddFileProcessContext context = new AddFileProcessContext(file, null, config, node.getEncryption());
+		context.provideChunkProtectionKeys(generateRSAKeyPair(H2HConstants.KEYLENGTH_PROTECTION));
+		context.provideChunkContentKey(EncryptionUtil.generateAESKey(H2HConstants.KEYLENGTH_CHUNK_CONTENT, node
+				.getEncryption().getSecurityProvider()));
+		return context;
+	}
+
+	/**
+	 * Counts the puts, fails the put with the given number and records the location keys of the stored chunks.
+	 */
+	private static class TestDataManager extends DataManager {
+
+		private final AtomicInteger count = new AtomicInteger(0);
+		private final int failAt;
+		private final List<String> stored = Collections.synchronizedList(new ArrayList<String>());
+
+		public TestDataManager(NetworkManager node, int failAt) throws Exception {
+			super(node.getConnection(), node.getDataManager().getSerializer(), node.getEncryption());
+			this.failAt = failAt;
+		}
+
+		protected void beforePut(int count) throws InterruptedException {
+			// nothing by default
+		}
+
+		@Override
+		public H2HPutStatus put(IParameters parameters) {
+			int current = count.incrementAndGet();
+			if (current == failAt) {
+				return H2HPutStatus.FAILED;
+			}
+
+			try {
+				beforePut(current);
+			} catch (InterruptedException e) {
+				return H2HPutStatus.FAILED;
+			}
+
+			H2HPutStatus status = super.put(parameters);
+			if (status == H2HPutStatus.OK) {
+				stored.add(parameters.getLocationKey());
+			}
+			return status;
+		}
+	}
+
+	@AfterClass
+	public static void endTest() {
+		NetworkTestUtil.shutdownNetwork(network);
+		afterClass();
+	}
+}
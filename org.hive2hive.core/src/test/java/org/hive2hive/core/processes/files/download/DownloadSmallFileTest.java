@@ -8,10 +8,12 @@ import java.util.List;
 import org.apache.commons.io.FileUtils;
 import org.hive2hive.core.H2HConstants;
 import org.hive2hive.core.H2HJUnitTest;
+import org.hive2hive.core.api.interfaces.IFileConfiguration;
 import org.hive2hive.core.exceptions.GetFailedException;
 import org.hive2hive.core.exceptions.NoPeerConnectionException;
 import org.hive2hive.core.exceptions.NoSessionException;
 import org.hive2hive.core.model.Index;
+import org.hive2hive.core.model.versioned.MetaFileSmall;
 import org.hive2hive.core.model.versioned.UserProfile;
 import org.hive2hive.core.network.NetworkManager;
 import org.hive2hive.core.processes.ProcessFactory;
@@ -20,9 +22,11 @@ import org.hive2hive.core.security.UserCredentials;
 import org.hive2hive.core.utils.FileTestUtil;
 import org.hive2hive.core.utils.NetworkTestUtil;
 import org.hive2hive.core.utils.TestExecutionUtil;
+import org.hive2hive.core.utils.TestFileConfiguration;
 import org.hive2hive.core.utils.UseCaseTestUtil;
 import org.hive2hive.core.utils.helper.DenyingMessageReplyHandler;
 import org.hive2hive.processframework.exceptions.InvalidProcessStateException;
+import org.hive2hive.processframework.exceptions.ProcessExecutionException;
 import org.hive2hive.processframework.interfaces.IProcessComponent;
 import org.junit.After;
 import org.junit.AfterClass;
@@ -95,6 +99,44 @@ public class DownloadSmallFileTest extends H2HJUnitTest {
 		Assert.assertEquals(testContent, content);
 	}
 
+	@Test
+	public void testDownloadSymmetricChunks() throws IOException, NoSessionException, GetFailedException,
+			NoPeerConnectionException, InvalidProcessStateException, ProcessExecutionException {
+		// the default test configuration encrypts the chunks symmetrically
+		MetaFileSmall metaFile = (MetaFileSmall) UseCaseTestUtil.getMetaFile(uploader, fileNode.getFileKeys());
+		Assert.assertTrue(metaFile.hasContentKey());
+
+		UseCaseTestUtil.downloadFile(downloader, fileNode.getFilePublicKey());
+		File downloadedFile = new File(downloaderRoot, fileNode.getName());
+		Assert.assertEquals(testContent, FileUtils.readFileToString(downloadedFile));
+	}
+
+	@Test
+	public void testDownloadHybridChunks() throws IOException, NoSessionException, GetFailedException,
+			NoPeerConnectionException, InvalidProcessStateException, ProcessExecutionException {
+		// upload a file with hybrid encrypted chunks
+		IFileConfiguration hybridConfig = new TestFileConfiguration() {
+			@Override
+			public boolean isSymmetricChunkEncryption() {
+				return false;
+			}
+		};
+		File hybridFile = FileTestUtil.createFileRandomContent(3, uploaderRoot);
+		String hybridContent = FileUtils.readFileToString(hybridFile);
+		UseCaseTestUtil.uploadNewFile(uploader, hybridFile, hybridConfig);
+		UserProfile up = UseCaseTestUtil.getUserProfile(uploader, userCredentials);
+		Index hybridNode = up.getRoot().getChildByName(hybridFile.getName());
+
+		MetaFileSmall metaFile = (MetaFileSmall) UseCaseTestUtil.getMetaFile(uploader, hybridNode.getFileKeys());
+		Assert.assertFalse(metaFile.hasContentKey());
+
+		UseCaseTestUtil.downloadFile(downloader, hybridNode.getFilePublicKey());
+		File downloadedFile = new File(downloaderRoot, hybridNode.getName());
+		Assert.assertEquals(hybridContent, FileUtils.readFileToString(downloadedFile));
+
+		FileUtils.deleteQuietly(hybridFile);
+	}
+
 	@Test
 	public void testDownloadWrongKeys() throws IOException, NoSessionException, GetFailedException,
 			InvalidProcessStateException, NoPeerConnectionException {
@@ -8,12 +8,14 @@ import java.util.List;
 import org.apache.commons.io.FileUtils;
 import org.hive2hive.core.H2HJUnitTest;
 import org.hive2hive.core.H2HSession;
+import org.hive2hive.core.api.configs.BaseFileConfiguration;
 import org.hive2hive.core.api.interfaces.IFileConfiguration;
 import org.hive2hive.core.exceptions.GetFailedException;
 import org.hive2hive.core.exceptions.NoPeerConnectionException;
 import org.hive2hive.core.exceptions.NoSessionException;
 import org.hive2hive.core.model.FileIndex;
 import org.hive2hive.core.model.Index;
+import org.hive2hive.core.model.MetaChunk;
 import org.hive2hive.core.model.versioned.MetaFileSmall;
 import org.hive2hive.core.model.versioned.UserProfile;
 import org.hive2hive.core.network.NetworkManager;
@@ -126,11 +128,37 @@ public class UpdateFileTest extends H2HJUnitTest {
 		Assert.assertTrue(HashUtil.compare(file, fileNode.getHash()));
 	}
 
+	@Test
+	public void testReuseUnchangedChunks() throws IOException, GetFailedException, NoSessionException,
+			NoPeerConnectionException, InvalidProcessStateException, ProcessExecutionException {
+		File appendFile = FileTestUtil.createFileRandomContent(3, uploaderRoot);
+		UseCaseTestUtil.uploadNewFile(uploader, appendFile);
+
+		// append some data, only the last chunk changes
+		FileUtils.write(appendFile, randomString(), true);
+		UseCaseTestUtil.uploadNewVersion(uploader, appendFile);
+
+		UserProfile userProfile = UseCaseTestUtil.getUserProfile(downloader, userCredentials);
+		Index fileNode = userProfile.getFileByPath(appendFile, uploaderRoot);
+		MetaFileSmall metaFileSmall = (MetaFileSmall) UseCaseTestUtil.getMetaFile(downloader, fileNode.getFileKeys());
+		Assert.assertEquals(2, metaFileSmall.getVersions().size());
+
+		List<MetaChunk> first = metaFileSmall.getVersionByIndex(0).getMetaChunks();
+		List<MetaChunk> second = metaFileSmall.getVersionByIndex(1).getMetaChunks();
+		Assert.assertEquals(first.get(0).getChunkId(), second.get(0).getChunkId());
+		Assert.assertEquals(first.get(1).getChunkId(), second.get(1).getChunkId());
+		Assert.assertNotEquals(first.get(2).getChunkId(), second.get(2).getChunkId());
+
+		// the new version is downloaded completely
+		File downloaded = UseCaseTestUtil.downloadFile(downloader, fileNode.getFilePublicKey());
+		Assert.assertTrue(HashUtil.compare(downloaded, HashUtil.hash(appendFile)));
+	}
+
 	@Test
 	public void testCleanupMaxNumVersions() throws IOException, GetFailedException, NoSessionException,
 			IllegalArgumentException, NoPeerConnectionException, InvalidProcessStateException, ProcessExecutionException {
 		// overwrite config
-		IFileConfiguration limitingConfig = new IFileConfiguration() {
+		IFileConfiguration limitingConfig = new BaseFileConfiguration() {
 
 			@Override
 			public BigInteger getMaxSizeAllVersions() {
@@ -178,7 +206,7 @@ public class UpdateFileTest extends H2HJUnitTest {
 			NoPeerConnectionException, InvalidProcessStateException, ProcessExecutionException {
 		// overwrite config and set the currently max limit
 		final long fileSize = file.length();
-		IFileConfiguration limitingConfig = new IFileConfiguration() {
+		IFileConfiguration limitingConfig = new BaseFileConfiguration() {
 
 			@Override
 			public BigInteger getMaxSizeAllVersions() {
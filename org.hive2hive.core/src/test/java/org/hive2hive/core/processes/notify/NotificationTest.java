@@ -1,19 +1,30 @@
 package org.hive2hive.core.processes.notify;
 
 import java.io.IOException;
+import java.security.KeyPair;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import net.tomp2p.peers.Number160;
+
 import org.hive2hive.core.H2HJUnitTest;
+import org.hive2hive.core.exceptions.AbortModifyException;
 import org.hive2hive.core.exceptions.GetFailedException;
 import org.hive2hive.core.exceptions.NoPeerConnectionException;
 import org.hive2hive.core.exceptions.NoSessionException;
+import org.hive2hive.core.exceptions.PutFailedException;
+import org.hive2hive.core.model.FolderIndex;
+import org.hive2hive.core.model.versioned.EncryptedNetworkContent;
 import org.hive2hive.core.model.versioned.Locations;
+import org.hive2hive.core.model.versioned.UserProfile;
 import org.hive2hive.core.network.NetworkManager;
+import org.hive2hive.core.network.data.IUserProfileModification;
+import org.hive2hive.core.network.data.UserProfileManager;
 import org.hive2hive.core.network.messages.MessageReplyHandler;
 import org.hive2hive.core.processes.ProcessFactory;
+import org.hive2hive.core.security.EncryptionUtil.RSA_KEYLENGTH;
 import org.hive2hive.core.security.UserCredentials;
 import org.hive2hive.core.utils.H2HWaiter;
 import org.hive2hive.core.utils.NetworkTestUtil;
@@ -329,6 +340,45 @@ public class NotificationTest extends H2HJUnitTest {
 		Assert.assertEquals(2, locations.getPeerAddresses().size());
 	}
 
+	/**
+	 * Scenario: A user profile version is announced to a client of user A. Only the announcement of another
+	 * client of user A is taken into account.
+	 */
+	@Test
+	public void testUserProfileVersionOfOtherUserIgnored() throws NoSessionException, NoPeerConnectionException,
+			GetFailedException, PutFailedException, AbortModifyException {
+		NetworkManager receiver = network.get(1);
+		UserProfileManager receiverManager = receiver.getSession().getProfileManager();
+		UserProfile local = receiverManager.readUserProfile();
+
+		// another client of user A puts a new version
+		UserProfileManager writerManager = network.get(2).getSession().getProfileManager();
+		final KeyPair folderKeys = generateRSAKeyPair(RSA_KEYLENGTH.BIT_512);
+		writerManager.modifyUserProfile(randomString(), new IUserProfileModification() {
+			@Override
+			public void modifyUserProfile(UserProfile userProfile) {
+				new FolderIndex(userProfile.getRoot(), folderKeys, randomString());
+			}
+		});
+		Number160 versionKey = writerManager.getLastPutVersionKey();
+		EncryptedNetworkContent encrypted = writerManager.getEncryptedVersion(versionKey);
+
+		// user B announces the version, the local profile is kept
+		UserProfileVersionMessage message = new UserProfileVersionMessage(receiver.getConnection().getPeer()
+				.peerAddress(), versionKey, encrypted);
+		message.setNetworkManager(receiver);
+		message.setVerifiedSenderId(userBCredentials.getUserId());
+		message.run();
+		Assert.assertSame(local, receiverManager.readUserProfile(60000));
+
+		// user A announces the version
+		message.setVerifiedSenderId(userACredentials.getUserId());
+		message.run();
+		UserProfile announced = receiverManager.readUserProfile(60000);
+		Assert.assertEquals(versionKey, announced.getVersionKey());
+		Assert.assertNotNull(announced.getFileById(folderKeys.getPublic()));
+	}
+
 	@After
 	public void restoreMessageHandlers() throws NoPeerConnectionException {
 		super.afterMethod();
@@ -53,6 +53,16 @@ public class H2HDummyEncryption implements IH2HEncryption {
 		return (BaseNetworkContent) serializer.deserialize(content.getCipherContent());
 	}
 
+	@Override
+	public EncryptedNetworkContent encryptAES(byte[] content, SecretKey aesKey) {
+		return new EncryptedNetworkContent(content, new byte[] {});
+	}
+
+	@Override
+	public byte[] decryptAESRaw(EncryptedNetworkContent content, SecretKey aesKey) {
+		return content.getCipherContent();
+	}
+
 	@Override
 	public HybridEncryptedContent encryptHybrid(BaseNetworkContent content, PublicKey publicKey) throws IOException {
 		return new HybridEncryptedContent(new byte[] {}, serializer.serialize(content));
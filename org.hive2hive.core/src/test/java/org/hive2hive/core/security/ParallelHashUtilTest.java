@@ -0,0 +1,73 @@
+package org.hive2hive.core.security;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.hive2hive.core.H2HJUnitTest;
+import org.hive2hive.core.file.FileChunkUtil;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ParallelHashUtilTest extends H2HJUnitTest {
+
+	private static final int CHUNK_SIZE = 1024;
+
+	@BeforeClass
+	public static void initTest() throws Exception {
+		testClass = ParallelHashUtilTest.class;
+		beforeClass();
+	}
+
+	@Test
+	public void testHashChunks() throws IOException {
+		File file = new File(tempFolder.newFolder(), randomString());
+		FileUtils.writeByteArrayToFile(file, generateFixedContent(5 * CHUNK_SIZE + 100));
+
+		List<byte[]> hashes = ParallelHashUtil.hashChunks(file, CHUNK_SIZE);
+		assertEquals(FileChunkUtil.getNumberOfChunks(file, CHUNK_SIZE), hashes.size());
+		for (int i = 0; i < hashes.size(); i++) {
+			byte[] data = FileChunkUtil.getChunk(file, CHUNK_SIZE, i, randomString()).getData();
+			assertArrayEquals(HashUtil.hash(data), hashes.get(i));
+		}
+	}
+
+	@Test
+	public void testHashChunksEmptyFile() throws IOException {
+		File file = new File(tempFolder.newFolder(), randomString());
+		FileUtils.writeByteArrayToFile(file, new byte[0]);
+
+		List<byte[]> hashes = ParallelHashUtil.hashChunks(file, CHUNK_SIZE);
+		assertEquals(1, hashes.size());
+		assertArrayEquals(HashUtil.hash(new byte[0]), hashes.get(0));
+	}
+
+	@Test
+	public void testHashTree() throws IOException {
+		File root = tempFolder.newFolder();
+		File folder = new File(root, "folder");
+		File file1 = new File(root, "file1");
+		File file2 = new File(folder, "file2");
+		FileUtils.writeByteArrayToFile(file1, generateFixedContent(3 * CHUNK_SIZE));
+		FileUtils.writeByteArrayToFile(file2, generateFixedContent(CHUNK_SIZE / 2));
+
+		Map<File, byte[]> hashes = ParallelHashUtil.hashTree(root, null);
+		assertEquals(3, hashes.size());
+		assertTrue(hashes.containsKey(folder));
+		assertEquals(0, hashes.get(folder).length);
+		assertArrayEquals(HashUtil.hash(file1), hashes.get(file1));
+		assertArrayEquals(HashUtil.hash(file2), hashes.get(file2));
+	}
+
+	@AfterClass
+	public static void endTest() throws Exception {
+		afterClass();
+	}
+}
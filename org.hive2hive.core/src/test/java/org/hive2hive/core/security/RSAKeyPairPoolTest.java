@@ -0,0 +1,148 @@
+package org.hive2hive.core.security;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.security.KeyPair;
+import java.security.Security;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.hive2hive.core.H2HConstants;
+import org.hive2hive.core.H2HJUnitTest;
+import org.hive2hive.core.security.EncryptionUtil.RSA_KEYLENGTH;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class RSAKeyPairPoolTest extends H2HJUnitTest {
+
+	@BeforeClass
+	public static void initTest() throws Exception {
+		testClass = RSAKeyPairPoolTest.class;
+		beforeClass();
+
+		if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
+			Security.addProvider(new BouncyCastleProvider());
+		}
+	}
+
+	@Test(timeout = 30000)
+	public void testTakeFromFilledPool() throws InterruptedException {
+		RSAKeyPairPool pool = new RSAKeyPairPool(RSA_KEYLENGTH.BIT_512, BouncyCastleProvider.PROVIDER_NAME, 4, 1, 2);
+		try {
+			// wait until the pool is filled in the background
+			while (pool.getAvailable() < 4) {
+				Thread.sleep(50);
+			}
+
+			KeyPair keyPair = pool.take();
+			assertNotNull(keyPair);
+			assertEquals(1, pool.getHits());
+			assertEquals(0, pool.getMisses());
+			assertEquals(1.0, pool.getHitRatio(), 0.0);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testTakeFromEmptyPool() {
+		RSAKeyPairPool pool = new RSAKeyPairPool(RSA_KEYLENGTH.BIT_512, BouncyCastleProvider.PROVIDER_NAME, 2, 0, 1);
+		// stop the background generation such that the pool stays (mostly) empty
+		pool.shutdown();
+
+		for (int i = 0; i < 5; i++) {
+			assertNotNull(pool.take());
+		}
+		assertEquals(5, pool.getHits() + pool.getMisses());
+		assertTrue(pool.getMisses() >= 3);
+	}
+
+	@Test
+	public void testKeyPairsAreUnique() {
+		RSAKeyPairPool pool = new RSAKeyPairPool(RSA_KEYLENGTH.BIT_512, BouncyCastleProvider.PROVIDER_NAME, 3, 1, 2);
+		try {
+			Set<String> publicKeys = new HashSet<String>();
+			for (int i = 0; i < 10; i++) {
+				KeyPair keyPair = pool.take();
+				assertTrue(publicKeys.add(EncryptionUtil.byteToHex(keyPair.getPublic().getEncoded())));
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testDefaultEncryptionUsesPool() {
+		H2HDefaultEncryption encryption = new H2HDefaultEncryption(null);
+		try {
+			RSAKeyPairPool pool = encryption.enableKeyPairPool(RSA_KEYLENGTH.BIT_512, 2, 0);
+			assertNotNull(encryption.generateRSAKeyPair(RSA_KEYLENGTH.BIT_512));
+			assertEquals(1, pool.getHits() + pool.getMisses());
+
+			encryption.disableKeyPairPools();
+			assertNull(encryption.getKeyPairPool(RSA_KEYLENGTH.BIT_512));
+			assertNotNull(encryption.generateRSAKeyPair(RSA_KEYLENGTH.BIT_512));
+		} finally {
+			encryption.disableKeyPairPools();
+		}
+	}
+
+	@Test
+	public void testDefaultPoolsStartLazily() {
+		H2HDefaultEncryption encryption = new H2HDefaultEncryption(null);
+		try {
+			// no key pairs are generated before they are needed
+			assertNull(encryption.getKeyPairPool(H2HConstants.KEYLENGTH_CHUNK));
+			assertNotNull(encryption.generateRSAKeyPair(H2HConstants.KEYLENGTH_CHUNK));
+			assertNotNull(encryption.getKeyPairPool(H2HConstants.KEYLENGTH_CHUNK));
+
+			// stopped pools are started again with the next key pair
+			encryption.shutdownKeyPairPools();
+			assertNull(encryption.getKeyPairPool(H2HConstants.KEYLENGTH_CHUNK));
+			assertNotNull(encryption.generateRSAKeyPair(H2HConstants.KEYLENGTH_CHUNK));
+			assertNotNull(encryption.getKeyPairPool(H2HConstants.KEYLENGTH_CHUNK));
+		} finally {
+			encryption.disableKeyPairPools();
+		}
+		assertNull(encryption.getKeyPairPool(H2HConstants.KEYLENGTH_CHUNK));
+	}
+
+	@Test
+	public void testEnabledPoolSurvivesShutdown() {
+		H2HDefaultEncryption encryption = new H2HDefaultEncryption(null);
+		try {
+			encryption.enableKeyPairPool(RSA_KEYLENGTH.BIT_512, 3, 1);
+
+			// e.g. a disconnect, the pool is started again with the same configuration
+			encryption.shutdownKeyPairPools();
+			assertNull(encryption.getKeyPairPool(RSA_KEYLENGTH.BIT_512));
+			assertNotNull(encryption.generateRSAKeyPair(RSA_KEYLENGTH.BIT_512));
+			RSAKeyPairPool pool = encryption.getKeyPairPool(RSA_KEYLENGTH.BIT_512);
+			assertNotNull(pool);
+			assertEquals(3, pool.getSize());
+			assertEquals(1, pool.getLowWaterMark());
+
+			// disabled pools are not started again
+			encryption.disableKeyPairPools();
+			assertNotNull(encryption.generateRSAKeyPair(RSA_KEYLENGTH.BIT_512));
+			assertNull(encryption.getKeyPairPool(RSA_KEYLENGTH.BIT_512));
+		} finally {
+			encryption.disableKeyPairPools();
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidLowWaterMark() {
+		new RSAKeyPairPool(RSA_KEYLENGTH.BIT_512, BouncyCastleProvider.PROVIDER_NAME, 2, 2, 1);
+	}
+
+	@AfterClass
+	public static void endTest() throws Exception {
+		afterClass();
+	}
+}
@@ -1,5 +1,6 @@
 package org.hive2hive.core.tomp2p;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -7,6 +8,7 @@ import java.security.KeyPair;
 import java.security.KeyPairGenerator;
 import java.util.Map;
 
+import net.tomp2p.dht.FutureGet;
 import net.tomp2p.dht.FuturePut;
 import net.tomp2p.dht.PeerBuilderDHT;
 import net.tomp2p.dht.PeerDHT;
@@ -18,6 +20,7 @@ import net.tomp2p.peers.PeerAddress;
 import net.tomp2p.storage.Data;
 
 import org.hive2hive.core.H2HJUnitTest;
+import org.hive2hive.core.network.H2HStorageMemory;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
@@ -69,6 +72,102 @@ public class VersionForkTest extends H2HJUnitTest {
 		}
 	}
 
+	@Test
+	public void testCompareAndSetPut() throws Exception {
+		PeerDHT p1 = null;
+		PeerDHT p2 = null;
+
+		try {
+			KeyPairGenerator gen = KeyPairGenerator.getInstance("DSA");
+			KeyPair keyPair1 = gen.generateKeyPair();
+			p1 = new PeerBuilderDHT(new PeerBuilder(Number160.createHash(1)).ports(4000).start()).storageLayer(
+					new H2HStorageMemory()).start();
+			p2 = new PeerBuilderDHT(new PeerBuilder(Number160.createHash(2)).masterPeer(p1.peer()).start())
+					.storageLayer(new H2HStorageMemory()).start();
+
+			p2.peer().bootstrap().peerAddress(p1.peerAddress()).start().awaitUninterruptibly();
+			p1.peer().bootstrap().peerAddress(p2.peerAddress()).start().awaitUninterruptibly();
+
+			Number160 locationKey = Number160.createHash(randomString());
+			Number160 contentKey = Number160.createHash(randomString());
+			Number160 versionKeyA = new Number160(1, Number160.ONE);
+			Number160 versionKeyB = new Number160(2, Number160.ONE);
+			Number160 versionKeyC = new Number160(2, Number160.createHash(randomString()));
+
+			Data versionA = new Data("versionA").addBasedOn(new Number160(0, Number160.ZERO)).flag1()
+					.protectEntry(keyPair1);
+			Data versionB = new Data("versionB").addBasedOn(new Number160(0, Number160.ZERO)).flag1()
+					.protectEntry(keyPair1);
+			Data versionC = new Data("versionC").addBasedOn(versionKeyA).flag1().protectEntry(keyPair1);
+
+			FuturePut putA = p1.put(locationKey).data(contentKey, versionA, versionKeyA).keyPair(keyPair1).start()
+					.awaitUninterruptibly();
+			assertTrue(putA.isSuccess());
+			assertFalse(hasVersionFork(putA));
+
+			// version B is not based on version A and is rejected without being stored
+			FuturePut putB = p1.put(locationKey).data(contentKey, versionB, versionKeyB).keyPair(keyPair1).start()
+					.awaitUninterruptibly();
+			assertTrue(hasVersionFork(putB));
+
+			FutureGet get = p1.get(locationKey).contentKey(contentKey).getLatest().start().awaitUninterruptibly();
+			assertEquals(1, get.dataMap().size());
+			assertEquals(versionKeyA, get.dataMap().keySet().iterator().next().versionKey());
+
+			// version C is based on version A
+			FuturePut putC = p1.put(locationKey).data(contentKey, versionC, versionKeyC).keyPair(keyPair1).start()
+					.awaitUninterruptibly();
+			assertTrue(putC.isSuccess());
+			assertFalse(hasVersionFork(putC));
+		} finally {
+			if (p1 != null) {
+				p1.shutdown().awaitUninterruptibly();
+			}
+			if (p2 != null) {
+				p2.shutdown().awaitUninterruptibly();
+			}
+		}
+	}
+
+	@Test
+	public void testConditionalGet() throws Exception {
+		PeerDHT p1 = null;
+
+		try {
+			p1 = new PeerBuilderDHT(new PeerBuilder(Number160.createHash(1)).ports(4000).start()).storageLayer(
+					new H2HStorageMemory()).start();
+
+			Number160 locationKey = Number160.createHash(randomString());
+			Number160 contentKey = Number160.createHash(randomString());
+			Number160 versionKeyA = new Number160(1, Number160.ONE);
+			Number160 versionKeyB = new Number160(2, Number160.ONE);
+
+			Data versionA = new Data("versionA").addBasedOn(new Number160(0, Number160.ZERO));
+			assertTrue(p1.put(locationKey).data(contentKey, versionA, versionKeyA).start().awaitUninterruptibly()
+					.isSuccess());
+
+			// version A is known, only the meta data is returned
+			FutureGet get = p1.get(locationKey).contentKey(contentKey).versionKey(versionKeyA).getLatest().withDigest()
+					.start().awaitUninterruptibly();
+			assertEquals(1, get.dataMap().size());
+			assertTrue(get.dataMap().values().iterator().next().isMeta());
+			assertEquals(versionKeyA, get.digest().keyDigest().lastKey().versionKey());
+
+			// version B is newer than the known version A
+			Data versionB = new Data("versionB").addBasedOn(versionKeyA);
+			assertTrue(p1.put(locationKey).data(contentKey, versionB, versionKeyB).start().awaitUninterruptibly()
+					.isSuccess());
+			get = p1.get(locationKey).contentKey(contentKey).versionKey(versionKeyA).getLatest().withDigest().start()
+					.awaitUninterruptibly();
+			assertEquals(1, get.dataMap().size());
+			assertEquals("versionB", get.dataMap().values().iterator().next().object());
+		} finally {
+			if (p1 != null) {
+				p1.shutdown().awaitUninterruptibly();
+			}
+		}
+	}
+
 	private static boolean hasVersionFork(FuturePut future) throws Exception {
 		if (future.isFailed() || future.rawResult().isEmpty()) {
 			throw new Exception("Future failed");
@@ -2,7 +2,7 @@ package org.hive2hive.core.utils;
 
 import java.math.BigInteger;
 
-import org.hive2hive.core.api.interfaces.IFileConfiguration;
+import org.hive2hive.core.api.configs.BaseFileConfiguration;
 
 /**
  * File configuration for fast test execution
@@ -10,7 +10,7 @@ import org.hive2hive.core.api.interfaces.IFileConfiguration;
  * @author Nico
  *
  */
-public class TestFileConfiguration implements IFileConfiguration {
+public class TestFileConfiguration extends BaseFileConfiguration {
 
 	// for fast access
 	public static int CHUNK_SIZE = 64;
@@ -35,4 +35,24 @@ public class TestFileConfiguration implements IFileConfiguration {
 		return CHUNK_SIZE;
 	}
 
+	@Override
+	public boolean isSymmetricChunkEncryption() {
+		return true;
+	}
+
+	@Override
+	public boolean isContentDefinedChunking() {
+		return false;
+	}
+
+	@Override
+	public int getMinChunkSize() {
+		return CHUNK_SIZE / 4;
+	}
+
+	@Override
+	public int getMaxChunkSize() {
+		return CHUNK_SIZE * 4;
+	}
+
 }
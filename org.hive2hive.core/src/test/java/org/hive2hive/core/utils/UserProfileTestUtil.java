@@ -0,0 +1,72 @@
+package org.hive2hive.core.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.security.KeyPair;
+import java.security.PublicKey;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.hive2hive.core.H2HJUnitTest;
+import org.hive2hive.core.model.FolderIndex;
+import org.hive2hive.core.model.Index;
+import org.hive2hive.core.model.IndexState;
+import org.hive2hive.core.model.versioned.UserProfile;
+import org.hive2hive.core.security.EncryptionUtil.RSA_KEYLENGTH;
+import org.hive2hive.core.serializer.FSTSerializer;
+import org.hive2hive.core.serializer.IH2HSerialize;
+
+/**
+ * Builds, copies and compares user profiles in tests
+ */
+public class UserProfileTestUtil {
+
+	private static final IH2HSerialize serializer = new FSTSerializer();
+
+	/**
+	 * Deep copy of the content (e.g. a user profile or a shard of it), as another client would receive it
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T extends Serializable> T copy(T content) throws IOException, ClassNotFoundException {
+		return (T) serializer.deserialize(serializer.serialize(content));
+	}
+
+	/**
+	 * Short keys for the indices of a test profile (fast to generate)
+	 */
+	public static KeyPair keys() {
+		return H2HJUnitTest.generateRSAKeyPair(RSA_KEYLENGTH.BIT_512);
+	}
+
+	/**
+	 * Moves the index (and its children) into another folder
+	 */
+	public static void move(Index index, FolderIndex newParent) {
+		index.getParent().removeChild(index);
+		index.setParent(newParent);
+		newParent.addChild(index);
+	}
+
+	/**
+	 * Asserts that both profiles contain the same indices with the same attributes at the same paths
+	 */
+	public static void assertSameTree(UserProfile expected, UserProfile actual) {
+		Map<PublicKey, IndexState> expectedStates = IndexState.flatten(expected.getRoot());
+		Map<PublicKey, IndexState> actualStates = IndexState.flatten(actual.getRoot());
+		assertEquals(expectedStates.keySet(), actualStates.keySet());
+		for (Entry<PublicKey, IndexState> entry : expectedStates.entrySet()) {
+			assertTrue(entry.getValue().isSameAs(actualStates.get(entry.getKey())));
+		}
+
+		for (Index index : Index.getIndexList(expected.getRoot())) {
+			Index restored = actual.getRoot().getIndexByKey(index.getFilePublicKey());
+			assertNotNull(restored);
+			assertEquals(index.getFullPath(), restored.getFullPath());
+			assertEquals(index.isFolder(), restored.isFolder());
+		}
+	}
+}
@@ -2,6 +2,7 @@ package org.hive2hive.core.utils.helper;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 
 import org.apache.commons.io.FileUtils;
 import org.hive2hive.core.H2HJUnitTest;
@@ -29,6 +30,11 @@ public class TestFileAgent implements IFileAgent {
 		return FileUtils.readFileToByteArray(new File(root, name));
 	}
 
+	@Override
+	public void deleteCache(String name) throws IOException {
+		Files.deleteIfExists(new File(root, name).toPath());
+	}
+
 	@Override
 	public File getRoot() {
 		return root;
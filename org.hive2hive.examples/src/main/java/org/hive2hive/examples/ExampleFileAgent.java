@@ -38,4 +38,9 @@ public class ExampleFileAgent implements IFileAgent {
 		return null;
 	}
 
+	@Override
+	public void deleteCache(String key) throws IOException {
+		// do nothing as examples don't depend on performance
+	}
+
 }